@@ -17,9 +17,12 @@
 package org.hawkular.inventory.api;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.hawkular.inventory.api.filters.Filter;
 import org.hawkular.inventory.api.filters.RelationFilter;
@@ -29,6 +32,7 @@ import org.hawkular.inventory.api.model.DataEntity;
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.Environment;
 import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.Hashes;
 import org.hawkular.inventory.api.model.MetadataPack;
 import org.hawkular.inventory.api.model.Metric;
 import org.hawkular.inventory.api.model.MetricType;
@@ -111,6 +115,12 @@ public class EmptyInventory implements Inventory {
         throw entityNotFound(Tenant.class);
     }
 
+    @Override public Map<CanonicalPath, AbstractElement<?, ?>> getElements(Collection<CanonicalPath> paths) {
+        Map<CanonicalPath, AbstractElement<?, ?>> ret = new LinkedHashMap<>();
+        paths.forEach(p -> ret.put(p, null));
+        return ret;
+    }
+
     @Override
     public <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(CanonicalPath startingPoint,
                                                                          Relationships.Direction direction,
@@ -118,6 +128,25 @@ public class EmptyInventory implements Inventory {
         throw entityNotFound(Tenant.class);
     }
 
+    @Override
+    public <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint, Relationships.Direction direction,
+                                                     Class<T> projection, int maxDepth,
+                                                     String... relationshipNames) {
+        throw entityNotFound(Tenant.class);
+    }
+
+    @Override public Hashes getHashes(CanonicalPath path) {
+        throw entityNotFound(Tenant.class);
+    }
+
+    @Override public long count(Query query) {
+        return 0;
+    }
+
+    @Override public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        return Collections.emptyMap();
+    }
+
     @Override public Configuration getConfiguration() {
         throw new UnsupportedOperationException();
     }
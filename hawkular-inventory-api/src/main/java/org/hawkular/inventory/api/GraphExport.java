@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A handle of a running {@link Inventory#exportGraph(String, Format, java.io.OutputStream) export} of the graph of
+ * a tenant. It can be used to watch the progress of the export, to cancel it or to wait for it to finish.
+ *
+ * <p>The inventory implementations report the progress of the export using the {@link #vertexWritten()} and
+ * {@link #edgeWritten()} methods, check for the cancellation using {@link #checkNotCancelled()} and signal the end
+ * of the export using {@link #complete()} or {@link #fail(Throwable)}.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class GraphExport {
+    private final String tenantId;
+    private final Format format;
+    private final long startTime;
+    private final LongAdder vertices = new LongAdder();
+    private final LongAdder edges = new LongAdder();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    public GraphExport(String tenantId, Format format) {
+        this.tenantId = tenantId;
+        this.format = format;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the time (in milliseconds since epoch) the export started at
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the number of vertices written so far
+     */
+    public long getVertexCount() {
+        return vertices.sum();
+    }
+
+    /**
+     * @return the number of edges written so far
+     */
+    public long getEdgeCount() {
+        return edges.sum();
+    }
+
+    public void vertexWritten() {
+        vertices.increment();
+    }
+
+    public void edgeWritten() {
+        edges.increment();
+    }
+
+    /**
+     * Asks the export to stop. The export stops at the next vertex it writes and
+     * {@link #await() finishes} with a {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the export has been {@link #cancel() cancelled}
+     */
+    public void checkNotCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The export of the graph of the tenant '" + tenantId
+                    + "' has been cancelled.");
+        }
+    }
+
+    /**
+     * @return true if the export has finished, successfully or not
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public void complete() {
+        completion.complete(null);
+    }
+
+    public void fail(Throwable failure) {
+        completion.completeExceptionally(failure);
+    }
+
+    /**
+     * Waits for the export to finish. If the waiting thread is interrupted, the export is cancelled.
+     *
+     * @throws IOException           if the export failed to write the data
+     * @throws CancellationException if the export has been cancelled
+     * @throws InterruptedException  if the waiting thread has been interrupted
+     */
+    public void await() throws IOException, InterruptedException {
+        try {
+            completion.get();
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException("Failed to export the graph of the tenant '" + tenantId + "'.", cause);
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return "GraphExport[tenantId='" + tenantId + "', format=" + format + ", vertices=" + getVertexCount()
+                + ", edges=" + getEdgeCount() + ", done=" + isDone() + ", cancelled=" + cancelled + "]";
+    }
+
+    /**
+     * The formats the graph can be exported in.
+     */
+    public enum Format {
+        /**
+         * The Tinkerpop GraphSON format, i.e. one JSON document per vertex with its properties and edges on each line.
+         */
+        GRAPHSON("application/json"),
+
+        /**
+         * The binary Tinkerpop Gryo format. It is considerably more compact and faster to read than GraphSON, but can
+         * only be read using the Tinkerpop libraries.
+         */
+        GRYO("application/x-gryo");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * @return the media type of the data in this format
+         */
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api;
+
+import java.util.Objects;
+
+/**
+ * Specifies how the results of a query should be grouped when {@link Inventory#groupCount(Query, GroupBy) counting}
+ * them.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class GroupBy {
+    private static final GroupBy ENTITY_TYPE = new GroupBy(Kind.entityType, null);
+    private static final GroupBy RELATIONSHIP_NAME = new GroupBy(Kind.relationshipName, null);
+
+    private final Kind kind;
+    private final String propertyName;
+
+    /**
+     * The results are grouped by their type. The keys of the groups are the model classes, e.g.
+     * {@link org.hawkular.inventory.api.model.Resource}.
+     */
+    public static GroupBy entityType() {
+        return ENTITY_TYPE;
+    }
+
+    /**
+     * The results (which are supposed to be relationships) are grouped by the relationship name. The keys of the
+     * groups are the names.
+     */
+    public static GroupBy relationshipName() {
+        return RELATIONSHIP_NAME;
+    }
+
+    /**
+     * The results are grouped by the value of the property with given name. The keys of the groups are the property
+     * values. The elements that don't have the property are not counted.
+     *
+     * @param name the name of the property
+     */
+    public static GroupBy property(String name) {
+        return new GroupBy(Kind.property, Objects.requireNonNull(name, "name == null"));
+    }
+
+    private GroupBy(Kind kind, String propertyName) {
+        this.kind = kind;
+        this.propertyName = propertyName;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the name of the property to group by or null if the kind is not {@link Kind#property}
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GroupBy groupBy = (GroupBy) o;
+        return kind == groupBy.kind && Objects.equals(propertyName, groupBy.propertyName);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(kind, propertyName);
+    }
+
+    @Override public String toString() {
+        return "GroupBy[" + kind + (propertyName == null ? "" : "=" + propertyName) + "]";
+    }
+
+    public enum Kind {
+        entityType, relationshipName, property
+    }
+}
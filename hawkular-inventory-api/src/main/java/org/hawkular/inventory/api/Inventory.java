@@ -17,11 +17,15 @@
 package org.hawkular.inventory.api;
 
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Blueprint;
@@ -30,6 +34,7 @@ import org.hawkular.inventory.api.model.ElementVisitor;
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.Environment;
 import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.Hashes;
 import org.hawkular.inventory.api.model.MetadataPack;
 import org.hawkular.inventory.api.model.Metric;
 import org.hawkular.inventory.api.model.MetricType;
@@ -496,19 +501,138 @@ public interface Inventory extends AutoCloseable, Tenants.Container<Tenants.Read
      * This method returns the {@link java.io.InputStream} with the GraphSON representation of the whole sub-graph
      * of given tenantId. It's basically the graph dump.
      *
+     * <p>The data may be produced in the background while the stream is being read, so the caller must always read
+     * the stream to the end or close it. An implementation may give up on a dump that is not being read for a long
+     * time, in which case the stream ends prematurely.
+     *
      * @param tenantId the tenantId for which we want the GraphSON
      * @return the InputStream with the GraphSON representation
      */
     InputStream getGraphSON(String tenantId);
 
+    /**
+     * Starts writing the sub-graph of the tenant to the provided output stream. The sub-graph consists of the tenant,
+     * everything it transitively contains and the relationships between them, so the export doesn't contain any data
+     * of the other tenants. The data is written as it is read, so the export never holds the whole graph in memory.
+     *
+     * <p>The output stream is not closed by the export.
+     *
+     * <p>The default implementation writes the {@link #getGraphSON(String) GraphSON} representation of the tenant
+     * synchronously and doesn't support any other format.
+     *
+     * @param tenantId the id of the tenant to export the graph of
+     * @param format   the format to write the graph in
+     * @param out      the output stream to write the graph to
+     * @return the handle to watch, cancel or wait for the export with
+     */
+    default GraphExport exportGraph(String tenantId, GraphExport.Format format, OutputStream out) {
+        if (format != GraphExport.Format.GRAPHSON) {
+            throw new UnsupportedOperationException("Exporting the graph in the " + format + " format is not" +
+                    " supported.");
+        }
+
+        GraphExport export = new GraphExport(tenantId, format);
+        try (InputStream in = getGraphSON(tenantId)) {
+            byte[] buffer = new byte[8192];
+            int cnt;
+            while ((cnt = in.read(buffer)) != -1) {
+                export.checkNotCancelled();
+                out.write(buffer, 0, cnt);
+            }
+            export.complete();
+        } catch (Throwable t) {
+            export.fail(t);
+        }
+
+        return export;
+    }
+
     <T extends AbstractElement<?, ?>> T getElement(CanonicalPath path);
 
+    /**
+     * Loads the elements on all the provided paths at once. The entities are looked up using a single query in a single
+     * transaction which is much cheaper than loading them one by one using {@link #getElement(CanonicalPath)}.
+     *
+     * @param paths the canonical paths of the elements to load
+     * @return the map of the requested paths to the elements on them in the iteration order of the provided paths. The
+     * paths on which there is no element are mapped to null.
+     */
+    Map<CanonicalPath, AbstractElement<?, ?>> getElements(Collection<CanonicalPath> paths);
+
     <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(CanonicalPath startingPoint,
                                                                   Relationships.Direction direction, Class<T> clazz,
                                                                   String... relationshipNames);
 
+    /**
+     * A lazily evaluated version of {@link #getTransitiveClosureOver(CanonicalPath, Relationships.Direction, Class,
+     * String...)}. The elements of the closure are looked up only as the stream is consumed, which makes it possible
+     * to process very large closures with bounded memory. Each element is returned only once.
+     *
+     * <p>Because the closure is evaluated lazily, it may reflect the modifications of the inventory done concurrently
+     * to the consumption of the stream. The stream should be closed after use.
+     *
+     * @param startingPoint     the path to the starting point of the closure (not included in the results)
+     * @param direction         the direction in which to follow the relationships
+     * @param projection        the type to convert the elements to - either the type of the entities or
+     *                          {@link CanonicalPath} if only the paths are needed, which is much cheaper
+     * @param maxDepth          the maximum number of relationships to follow from the starting point, zero or a
+     *                          negative number for unlimited depth
+     * @param relationshipNames the names of the relationships to follow
+     * @param <T>               the type of the elements of the returned stream
+     * @return the stream of the elements of the transitive closure
+     */
+    <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint, Relationships.Direction direction,
+                                              Class<T> projection, int maxDepth, String... relationshipNames);
+
+    /**
+     * Reads the hashes stored with the entity on given path without loading and converting the entity itself. This is
+     * much cheaper than loading the entity and computing the hashes using {@link Hashes#of(Entity)} and is therefore
+     * suitable for the cheap checks whether an entity changed (e.g. the conditional requests in the REST API).
+     *
+     * <p>The hashes that are not applicable to the type of the entity are null.
+     *
+     * @param path the canonical path to the entity
+     * @return the hashes of the entity as stored in the inventory
+     * @throws EntityNotFoundException if there is no entity on the path
+     */
+    Hashes getHashes(CanonicalPath path);
+
     Configuration getConfiguration();
 
+    /**
+     * Counts the elements the query would return. The counting is done by the backend without loading and converting
+     * the elements.
+     *
+     * @param query the query to count the results of
+     * @return the number of the elements matching the query
+     */
+    long count(Query query);
+
+    /**
+     * Counts the elements the query would return in groups. The counting is done by the backend without loading and
+     * converting the elements.
+     *
+     * @param query   the query to count the results of
+     * @param groupBy how to group the results
+     * @return the map of the group keys to the number of the elements in the group, the type of the keys is described
+     * in {@link GroupBy}
+     */
+    Map<Object, Long> groupCount(Query query, GroupBy groupBy);
+
+    /**
+     * Returns an inventory to access the data of a single tenant with. The implementations that store the data of
+     * each tenant separately return an inventory that only touches the storage of the provided tenant. All the
+     * accesses to the data of the tenant should then go through the returned inventory.
+     *
+     * <p>The default implementation returns this inventory, because the data of all the tenants is stored together.
+     *
+     * @param tenantId the id of the tenant
+     * @return the inventory scoped to the tenant
+     */
+    default Inventory forTenant(String tenantId) {
+        return this;
+    }
+
     default <T extends AbstractElement> Page<T> execute(Query query, Class<T> requestedEntity, Pager pager) {
         return new Page<>(Collections.emptyIterator(), new PageContext(0, 0, Order.unspecified()), 0);
     }
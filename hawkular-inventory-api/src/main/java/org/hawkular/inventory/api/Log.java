@@ -53,4 +53,8 @@ public interface Log extends BasicLogger {
     @LogMessage(level = Logger.Level.WARN)
     @Message(id = 5, value = "Silent rollback.")
     void wSilentRollback();
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 6, value = "Failed to export the graph of the tenant '%s'.")
+    void wGraphExportFailed(String tenantId, @Cause Throwable cause);
 }
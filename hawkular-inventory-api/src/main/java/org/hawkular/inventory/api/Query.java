@@ -18,6 +18,7 @@ package org.hawkular.inventory.api;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -170,6 +171,78 @@ public final class Query {
         return new Query.Builder();
     }
 
+    /**
+     * Splits this query at the first node of the tree that has more than 1 sub-tree. Each of the returned queries
+     * contains the path from the root to that node followed by one of the sub-trees (which can branch further). The
+     * union of the results of the returned queries is the same as the results of this query.
+     *
+     * @return the list of the queries following the individual branches or a singleton list with this query if it
+     * doesn't branch
+     */
+    public List<Query> splitAtFirstBranch() {
+        List<Query> branches;
+        if (subTrees.size() == 1) {
+            branches = subTrees.get(0).splitAtFirstBranch();
+            if (branches.size() == 1) {
+                return Collections.singletonList(this);
+            }
+        } else if (subTrees.size() > 1) {
+            branches = subTrees;
+        } else {
+            return Collections.singletonList(this);
+        }
+
+        List<Query> ret = new ArrayList<>(branches.size());
+        for (Query branch : branches) {
+            Query q = new Query();
+            q.fragments = fragments;
+            q.subTrees = new ArrayList<>(Collections.singletonList(branch));
+            ret.add(q);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Creates a copy of this query with the filters replaced by the provided function. The structure of the query tree
+     * and the kinds of the fragments (path or filter) are preserved, no optimizations are applied.
+     *
+     * @param mapper the function to produce the replacement of a filter. It can return the filter itself to keep it.
+     * @return the new query or this instance if no filter was replaced
+     */
+    public Query mapFilters(Function<Filter, Filter> mapper) {
+        boolean changed = false;
+
+        QueryFragment[] newFragments = new QueryFragment[fragments.length];
+        for (int i = 0; i < fragments.length; ++i) {
+            Filter f = fragments[i].getFilter();
+            Filter mapped = mapper.apply(f);
+            if (mapped == f) {
+                newFragments[i] = fragments[i];
+            } else {
+                changed = true;
+                newFragments[i] = fragments[i] instanceof FilterFragment
+                        ? new FilterFragment(mapped) : new PathFragment(mapped);
+            }
+        }
+
+        List<Query> newSubTrees = new ArrayList<>(subTrees.size());
+        for (Query subTree : subTrees) {
+            Query mapped = subTree.mapFilters(mapper);
+            changed |= mapped != subTree;
+            newSubTrees.add(mapped);
+        }
+
+        if (!changed) {
+            return this;
+        }
+
+        Query ret = new Query();
+        ret.fragments = newFragments;
+        ret.subTrees = newSubTrees;
+        return ret;
+    }
+
     /**
      * @return a new symmetric builder initialized with this query
      */
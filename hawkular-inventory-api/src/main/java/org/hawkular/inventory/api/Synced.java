@@ -16,6 +16,8 @@
  */
 package org.hawkular.inventory.api;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.SyncHash;
 import org.hawkular.inventory.api.model.SyncRequest;
@@ -57,5 +59,26 @@ public final class Synced {
          * @param syncRequest the synchronization request with configuration and actual data.
          */
         void synchronize(SyncRequest<B> syncRequest);
+
+        /**
+         * Asynchronous version of {@link #synchronize(SyncRequest)}. If the synchronization transaction fails due to
+         * a conflict with another transaction, the retry is scheduled for later instead of blocking the calling
+         * thread.
+         *
+         * <p>The default implementation runs the synchronization synchronously.
+         *
+         * @param syncRequest the synchronization request with configuration and actual data.
+         * @return the future completing when the synchronization finishes
+         */
+        default CompletableFuture<Void> synchronizeAsync(SyncRequest<B> syncRequest) {
+            CompletableFuture<Void> ret = new CompletableFuture<>();
+            try {
+                synchronize(syncRequest);
+                ret.complete(null);
+            } catch (Throwable t) {
+                ret.completeExceptionally(t);
+            }
+            return ret;
+        }
     }
 }
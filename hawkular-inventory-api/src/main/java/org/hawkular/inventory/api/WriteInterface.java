@@ -16,6 +16,10 @@
  */
 package org.hawkular.inventory.api;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.hawkular.inventory.api.model.Blueprint;
 
 /**
@@ -60,6 +64,44 @@ public interface WriteInterface<U, B extends Blueprint, Single, Id> {
         return create(blueprint, true);
     }
 
+    /**
+     * Creates new entities at the current position in the inventory traversal.
+     *
+     * <p>The implementations can process the blueprints in a single batch which is more efficient than creating the
+     * entities one by one. The default implementation merely calls {@link #create(Blueprint, boolean)} for each of
+     * the blueprints.
+     *
+     * @param blueprints the blueprints of the new entities
+     * @param cache whether to cache the resulting entities so that the subsequent calls to
+     * {@link ResolvableToSingle#entity()} don't need to touch database
+     * @return the access interfaces to the freshly created entities in the order of the provided blueprints
+     *
+     * @throws EntityAlreadyExistsException if any of the entities already exists
+     * @throws IllegalArgumentException if any of the blueprints or context in which the entities are being created is
+     *                                  somehow invalid
+     */
+    default List<Single> createAll(Collection<? extends B> blueprints, boolean cache)
+            throws EntityAlreadyExistsException {
+        List<Single> ret = new ArrayList<>(blueprints.size());
+        for (B blueprint : blueprints) {
+            ret.add(create(blueprint, cache));
+        }
+        return ret;
+    }
+
+    /**
+     * Equivalent to {@code createAll(blueprints, true)}
+     * @param blueprints the blueprints of the new entities
+     * @return the access interfaces to the freshly created entities
+     * @throws EntityAlreadyExistsException
+     * @throws IllegalArgumentException if any of the blueprints or context in which the entities are being created is
+     *                                  somehow invalid
+     * @see #createAll(Collection, boolean)
+     */
+    default List<Single> createAll(Collection<? extends B> blueprints) throws EntityAlreadyExistsException {
+        return createAll(blueprints, true);
+    }
+
     /**
      * Persists the provided entity on the current position in the inventory traversal.
      *
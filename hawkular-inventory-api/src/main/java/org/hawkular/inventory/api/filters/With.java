@@ -19,6 +19,7 @@ package org.hawkular.inventory.api.filters;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import org.hawkular.inventory.api.model.AbstractElement;
@@ -201,6 +202,100 @@ public final class With {
         return new Names(names);
     }
 
+    /**
+     * Filters for entities the id of which starts with the provided prefix.
+     *
+     * @param prefix the prefix of the id
+     * @return the filter
+     */
+    public static TextSearch idStartingWith(String prefix) {
+        return new TextSearch(TextSearch.Field.id, null, TextSearch.Mode.prefix, prefix);
+    }
+
+    /**
+     * Filters for entities the id of which contains the provided text.
+     *
+     * @param text the text to look for
+     * @return the filter
+     */
+    public static TextSearch idContaining(String text) {
+        return new TextSearch(TextSearch.Field.id, null, TextSearch.Mode.contains, text);
+    }
+
+    /**
+     * Filters for entities the id of which matches the provided regular expression (as a whole).
+     *
+     * @param regex the regular expression
+     * @return the filter
+     */
+    public static TextSearch idMatching(String regex) {
+        return new TextSearch(TextSearch.Field.id, null, TextSearch.Mode.regex, regex);
+    }
+
+    /**
+     * Filters for entities the name of which starts with the provided prefix.
+     *
+     * @param prefix the prefix of the name
+     * @return the filter
+     */
+    public static TextSearch nameStartingWith(String prefix) {
+        return new TextSearch(TextSearch.Field.name, null, TextSearch.Mode.prefix, prefix);
+    }
+
+    /**
+     * Filters for entities the name of which contains the provided text.
+     *
+     * @param text the text to look for
+     * @return the filter
+     */
+    public static TextSearch nameContaining(String text) {
+        return new TextSearch(TextSearch.Field.name, null, TextSearch.Mode.contains, text);
+    }
+
+    /**
+     * Filters for entities the name of which matches the provided regular expression (as a whole).
+     *
+     * @param regex the regular expression
+     * @return the filter
+     */
+    public static TextSearch nameMatching(String regex) {
+        return new TextSearch(TextSearch.Field.name, null, TextSearch.Mode.regex, regex);
+    }
+
+    /**
+     * Filters for entities that have a property of given name the value of which starts with the provided prefix.
+     *
+     * @param name   the name of the property
+     * @param prefix the prefix of the property value
+     * @return the filter
+     */
+    public static TextSearch propertyStartingWith(String name, String prefix) {
+        return new TextSearch(TextSearch.Field.property, name, TextSearch.Mode.prefix, prefix);
+    }
+
+    /**
+     * Filters for entities that have a property of given name the value of which contains the provided text.
+     *
+     * @param name the name of the property
+     * @param text the text to look for
+     * @return the filter
+     */
+    public static TextSearch propertyContaining(String name, String text) {
+        return new TextSearch(TextSearch.Field.property, name, TextSearch.Mode.contains, text);
+    }
+
+    /**
+     * Filters for entities that have a property of given name the value of which matches the provided regular
+     * expression (as a whole).
+     *
+     * @param name  the name of the property
+     * @param regex the regular expression
+     * @return the filter
+     */
+    public static TextSearch propertyMatching(String name, String regex) {
+        return new TextSearch(TextSearch.Field.property, name, TextSearch.Mode.regex, regex);
+    }
+
     public static final class Ids extends Filter {
 
         private final String[] ids;
@@ -543,4 +638,105 @@ public final class With {
             return Arrays.hashCode(names);
         }
     }
+
+    /**
+     * Filters the entities by a textual search in their id, name or a property. The values of properties are
+     * converted to strings using {@link String#valueOf(Object)} before the comparison. The comparisons are case
+     * sensitive.
+     *
+     * <p>The inventory can be configured to answer these filters from an in-memory search index instead of scanning
+     * the candidate elements in the backend.
+     */
+    public static final class TextSearch extends Filter {
+        public enum Field {
+            id, name, property
+        }
+
+        public enum Mode {
+            prefix, contains, regex
+        }
+
+        private final Field field;
+        private final String propertyName;
+        private final Mode mode;
+        private final String text;
+        private final Pattern pattern;
+
+        public TextSearch(Field field, String propertyName, Mode mode, String text) {
+            if (field == Field.property && propertyName == null) {
+                throw new IllegalArgumentException("The name of the property to search in must be provided.");
+            }
+            this.field = Objects.requireNonNull(field, "field == null");
+            this.propertyName = field == Field.property ? propertyName : null;
+            this.mode = Objects.requireNonNull(mode, "mode == null");
+            this.text = Objects.requireNonNull(text, "text == null");
+            this.pattern = mode == Mode.regex ? Pattern.compile(text) : null;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * @return the name of the property to search in or null if the field is not {@link Field#property}
+         */
+        public String getPropertyName() {
+            return propertyName;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @param value the value of the searched field
+         * @return true if the value satisfies this filter, false otherwise
+         */
+        public boolean matches(String value) {
+            if (value == null) {
+                return false;
+            }
+
+            switch (mode) {
+                case prefix:
+                    return value.startsWith(text);
+                case contains:
+                    return value.contains(text);
+                case regex:
+                    return pattern.matcher(value).matches();
+                default:
+                    throw new AssertionError("Unhandled text search mode: " + mode);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "TextSearch[" + "field=" + field + (propertyName == null ? "" : ", propertyName='" + propertyName
+                    + '\'') + ", mode=" + mode + ", text='" + text + '\'' + ']';
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TextSearch)) return false;
+
+            TextSearch that = (TextSearch) o;
+
+            return field == that.field && Objects.equals(propertyName, that.propertyName) && mode == that.mode
+                    && text.equals(that.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = field.hashCode();
+            result = 31 * result + Objects.hashCode(propertyName);
+            result = 31 * result + mode.hashCode();
+            result = 31 * result + text.hashCode();
+            return result;
+        }
+    }
 }
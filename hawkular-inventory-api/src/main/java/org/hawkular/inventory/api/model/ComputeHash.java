@@ -27,12 +27,6 @@ import static org.hawkular.inventory.paths.DataRole.ResourceType.connectionConfi
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.CoderResult;
-import java.nio.charset.CodingErrorAction;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -43,6 +37,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -62,6 +58,17 @@ import org.hawkular.inventory.paths.SegmentType;
  * @since 0.18.0
  */
 final class ComputeHash {
+    /**
+     * The name of the system property specifying the default value of {@link #DEFAULT_PARALLELISM_THRESHOLD}.
+     */
+    static final String PARALLELISM_THRESHOLD_PROPERTY = "hawkular.inventory.hash.parallelism.threshold";
+
+    /**
+     * The minimum number of siblings in a tree that causes the hashes of their subtrees to be computed in parallel.
+     * Zero or a negative number switches off the parallel computation.
+     */
+    static final int DEFAULT_PARALLELISM_THRESHOLD = Integer.getInteger(PARALLELISM_THRESHOLD_PROPERTY, 64);
+
     static final Comparator<Entity<?, ?>> ENTITY_COMPARATOR = (a, b) -> {
         if (a == null) return b == null ? 0 : -1;
         if (b == null) return 1;
@@ -108,8 +115,7 @@ final class ComputeHash {
 
     static Hashes of(InventoryStructure<?> inventory, CanonicalPath rootPath, boolean computeIdentity,
                      boolean computeContent, boolean computeSync) {
-        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(new ComputeHash.DigestComputingWriter(
-                ComputeHash.newDigest()));
+        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(ComputeHash.DigestComputingWriter.local());
 
         IntermediateHashResult res =
                 ComputeHash.computeHash(rootPath, inventory.getRoot(), ComputeHash.HashableView.of(inventory), ctor,
@@ -123,8 +129,8 @@ final class ComputeHash {
                                          boolean computeContent, boolean computeSync,
                                          Consumer<IntermediateHashContext> onStartChild,
                                          BiConsumer<IntermediateHashContext, IntermediateHashResult> onEndChild,
-                                         Function<RelativePath, Hashes> hashLoader) {
-        ComputeHash.DigestComputingWriter wrt = new ComputeHash.DigestComputingWriter(ComputeHash.newDigest());
+                                         Function<RelativePath, Hashes> hashLoader, int parallelismThreshold) {
+        ComputeHash.DigestComputingWriter wrt = ComputeHash.DigestComputingWriter.local();
 
         ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(wrt) {
             @Override public void startChild(ComputeHash.IntermediateHashContext context) {
@@ -139,12 +145,17 @@ final class ComputeHash {
             }
         };
 
+        //online structures are bound to the transaction of the calling thread, so we can't access them in parallel
+        if (!(inventory instanceof InventoryStructure.Offline)) {
+            parallelismThreshold = 0;
+        }
+
         return computeHash(rootPath, inventory.getRoot(), ComputeHash.HashableView.of(inventory), ctor, computeIdentity,
                 computeContent, computeSync,
                 //we don't want the root element in the relative paths of the children so that they are easily
                 //appendable to the root.
                 (rp) -> rp.slide(1, 0),
-                hashLoader
+                hashLoader, parallelismThreshold
         );
 
     }
@@ -153,6 +164,14 @@ final class ComputeHash {
                                               HashConstructor bld, boolean compIdentity, boolean compContent,
                                               boolean compSync, Function<RelativePath, RelativePath> pathCompleter,
                                               Function<RelativePath, Hashes> hashLoader) {
+        return computeHash(entityPath, entity, structure, bld, compIdentity, compContent, compSync, pathCompleter,
+                hashLoader, 0);
+    }
+
+    static IntermediateHashResult computeHash(CanonicalPath entityPath, Blueprint entity, HashableView structure,
+                                              HashConstructor bld, boolean compIdentity, boolean compContent,
+                                              boolean compSync, Function<RelativePath, RelativePath> pathCompleter,
+                                              Function<RelativePath, Hashes> hashLoader, int parallelismThreshold) {
 
         Class<?> entityType = Inventory.types().byBlueprint(entity.getClass()).getElementType();
 
@@ -167,273 +186,336 @@ final class ComputeHash {
         boolean computeContent = compContent && contentHashable;
         boolean computeSync = compSync && syncable;
 
-        return entity.accept(new ElementBlueprintVisitor.Simple<IntermediateHashResult, IntermediateHashContext>() {
-            @Override
-            public IntermediateHashResult visitData(DataEntity.Blueprint<?> data, IntermediateHashContext ctx) {
-                return wrap(data, ctx, (childContext) -> {
-                    try {
-                        StringBuilder json = new StringBuilder();
-                        data.getValue().writeJSON(json);
-
-                        if (computeIdentity) {
-                            appendIdentity(data.getId(), childContext);
-                            appendIdentity(json.toString(), childContext);
-                        }
-
-                        if (computeContent) {
-                            appendContent(json.toString(), childContext);
-                            appendCommonContent(data, childContext);
-                        }
-
-                        if (computeSync) {
-                            appendCommonSync(data, childContext);
-                        }
-                    } catch (IOException e) {
-                        throw new IllegalStateException("Could not write out JSON for hash computation purposes.", e);
-                    }
-                });
-            }
+        HashingVisitor visitor = new HashingVisitor(entityPath, structure, bld, computeIdentity, computeContent,
+                computeSync, pathCompleter, hashLoader, parallelismThreshold);
 
-            @Override
-            public IntermediateHashResult visitMetricType(MetricType.Blueprint mt, IntermediateHashContext ctx) {
-                return wrap(mt, ctx, (childContext) -> {
-                    if (computeIdentity) {
-                        appendIdentity(mt.getId(), childContext);
-                        appendIdentity(mt.getMetricDataType().name(), childContext);
-                        appendIdentity(mt.getUnit().name(), childContext);
-                    }
+        return entity.accept(visitor, new IntermediateHashContext(entityPath == null ? null : entityPath.up(),
+                RelativePath.empty().get()));
+    }
 
-                    if (computeContent) {
-                        appendContent(mt.getMetricDataType().name(), childContext);
-                        appendContent(mt.getUnit().name(), childContext);
-                        appendContent(Objects.toString(mt.getCollectionInterval(), ""), childContext);
-                        appendCommonContent(mt, childContext);
-                    }
+    private static final class HashingVisitor
+            extends ElementBlueprintVisitor.Simple<IntermediateHashResult, IntermediateHashContext> {
+        private final CanonicalPath entityPath;
+        private final HashableView structure;
+        private final HashConstructor bld;
+        private final boolean computeIdentity;
+        private final boolean computeContent;
+        private final boolean computeSync;
+        private final Function<RelativePath, RelativePath> pathCompleter;
+        private final Function<RelativePath, Hashes> hashLoader;
+        private final int parallelismThreshold;
+
+        HashingVisitor(CanonicalPath entityPath, HashableView structure, HashConstructor bld,
+                       boolean computeIdentity, boolean computeContent, boolean computeSync,
+                       Function<RelativePath, RelativePath> pathCompleter, Function<RelativePath, Hashes> hashLoader,
+                       int parallelismThreshold) {
+            this.entityPath = entityPath;
+            this.structure = structure;
+            this.bld = bld;
+            this.computeIdentity = computeIdentity;
+            this.computeContent = computeContent;
+            this.computeSync = computeSync;
+            this.pathCompleter = pathCompleter;
+            this.hashLoader = hashLoader;
+            this.parallelismThreshold = parallelismThreshold;
+        }
 
-                    if (computeSync) {
-                        appendCommonSync(mt, childContext);
-                    }
-                });
-            }
+        /**
+         * @return a copy of this visitor that reports the child notifications to the provided constructor instead
+         */
+        HashingVisitor withConstructor(HashConstructor bld) {
+            return new HashingVisitor(entityPath, structure, bld, computeIdentity, computeContent, computeSync,
+                    pathCompleter, hashLoader, parallelismThreshold);
+        }
+
+        @Override
+        public IntermediateHashResult visitData(DataEntity.Blueprint<?> data, IntermediateHashContext ctx) {
+            return wrap(data, ctx, (childContext) -> {
+                try {
+                    StringBuilder json = new StringBuilder();
+                    data.getValue().writeJSON(json);
 
-            @Override
-            public IntermediateHashResult visitOperationType(OperationType.Blueprint operationType,
-                                                             IntermediateHashContext ctx) {
-                return wrap(operationType, ctx, (childContext) -> {
                     if (computeIdentity) {
-                        appendEntityIdentity(structure.getReturnType(ctx.root, operationType), childContext);
-                        appendEntityIdentity(structure.getParameterTypes(ctx.root, operationType), childContext);
-                        appendIdentity(operationType.getId(), childContext);
+                        appendIdentity(data.getId(), childContext);
+                        appendIdentity(json, childContext);
                     }
 
                     if (computeContent) {
-                        appendCommonContent(operationType, childContext);
+                        appendContent(json, childContext);
+                        appendCommonContent(data, childContext);
                     }
 
                     if (computeSync) {
-                        appendCommonSync(operationType, childContext);
+                        appendCommonSync(data, childContext);
                     }
-                });
-            }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not write out JSON for hash computation purposes.", e);
+                }
+            });
+        }
 
-            @Override
-            public IntermediateHashResult visitResourceType(ResourceType.Blueprint type,
-                                                            IntermediateHashContext ctx) {
-                return wrap(type, ctx, (childContext) -> {
-                    if (computeIdentity) {
-                        appendEntityIdentity(structure.getConfigurationSchema(type), childContext);
-                        appendEntityIdentity(structure.getConnectionConfigurationSchema(type), childContext);
-                        structure.getOperationTypes(type).forEach(b -> appendEntityIdentity(b, childContext));
-                        appendIdentity(type.getId(), childContext);
-                    }
+        @Override
+        public IntermediateHashResult visitMetricType(MetricType.Blueprint mt, IntermediateHashContext ctx) {
+            return wrap(mt, ctx, (childContext) -> {
+                if (computeIdentity) {
+                    appendIdentity(mt.getId(), childContext);
+                    appendIdentity(mt.getMetricDataType().name(), childContext);
+                    appendIdentity(mt.getUnit().name(), childContext);
+                }
 
-                    if (computeContent) {
-                        appendCommonContent(type, childContext);
-                    }
+                if (computeContent) {
+                    appendContent(mt.getMetricDataType().name(), childContext);
+                    appendContent(mt.getUnit().name(), childContext);
+                    appendContent(Objects.toString(mt.getCollectionInterval(), ""), childContext);
+                    appendCommonContent(mt, childContext);
+                }
 
-                    if (computeSync) {
-                        appendCommonSync(type, childContext);
-                    }
-                });
-            }
+                if (computeSync) {
+                    appendCommonSync(mt, childContext);
+                }
+            });
+        }
 
-            @Override
-            public IntermediateHashResult visitFeed(Feed.Blueprint feed, IntermediateHashContext ctx) {
-                return wrap(feed, ctx, (childContext) -> {
-                    if (computeIdentity) {
-                        structure.getResourceTypes().forEach(b -> appendEntityIdentity(b, childContext));
-                        structure.getMetricTypes().forEach(b -> appendEntityIdentity(b, childContext));
-                        structure.getFeedResources().forEach(b -> appendEntityIdentity(b, childContext));
-                        structure.getFeedMetrics().forEach(b -> appendEntityIdentity(b, childContext));
-                        appendIdentity(feed.getId(), childContext);
-                    }
+        @Override
+        public IntermediateHashResult visitOperationType(OperationType.Blueprint operationType,
+                                                         IntermediateHashContext ctx) {
+            return wrap(operationType, ctx, (childContext) -> {
+                if (computeIdentity) {
+                    appendEntityIdentity(structure.getReturnType(ctx.root, operationType), childContext);
+                    appendEntityIdentity(structure.getParameterTypes(ctx.root, operationType), childContext);
+                    appendIdentity(operationType.getId(), childContext);
+                }
 
-                    if (computeContent) {
-                        appendCommonContent(feed, childContext);
-                    }
+                if (computeContent) {
+                    appendCommonContent(operationType, childContext);
+                }
 
-                    if (computeSync) {
-                        appendCommonSync(feed, childContext);
-                    }
-                });
-            }
+                if (computeSync) {
+                    appendCommonSync(operationType, childContext);
+                }
+            });
+        }
 
-            @Override
-            public IntermediateHashResult visitMetric(Metric.Blueprint metric, IntermediateHashContext ctx) {
-                return wrap(metric, ctx, (childContext) -> {
-                    if (computeIdentity) {
-                        appendIdentity(metric.getId(), childContext);
-                    }
+        @Override
+        public IntermediateHashResult visitResourceType(ResourceType.Blueprint type,
+                                                        IntermediateHashContext ctx) {
+            return wrap(type, ctx, (childContext) -> {
+                if (computeIdentity) {
+                    appendEntityIdentity(structure.getConfigurationSchema(type), childContext);
+                    appendEntityIdentity(structure.getConnectionConfigurationSchema(type), childContext);
+                    appendEntityIdentities(structure.getOperationTypes(type), childContext);
+                    appendIdentity(type.getId(), childContext);
+                }
 
-                    if (computeContent) {
-                        RelativePath mtPath = relativize(metric.getMetricTypePath(), SegmentType.mt, childContext);
-                        appendContent(mtPath.toString(), childContext);
-                        appendContent(Objects.toString(metric.getCollectionInterval(), ""), childContext);
-                        appendCommonContent(metric, childContext);
-                    }
+                if (computeContent) {
+                    appendCommonContent(type, childContext);
+                }
 
-                    if (computeSync) {
-                        appendCommonSync(metric, childContext);
-                    }
-                });
-            }
+                if (computeSync) {
+                    appendCommonSync(type, childContext);
+                }
+            });
+        }
 
-            @Override
-            public IntermediateHashResult visitResource(Resource.Blueprint resource,
-                                                        IntermediateHashContext context) {
-                return wrap(resource, context, (childContext) -> {
-                    if (computeIdentity) {
-                        appendEntityIdentity(structure.getConfiguration(context.root, resource), childContext);
-                        appendEntityIdentity(structure.getConnectionConfiguration(context.root, resource),
-                                childContext);
-                        structure.getResources(context.root, resource)
-                                .forEach(b -> appendEntityIdentity(b, childContext));
-                        structure.getResourceMetrics(context.root, resource)
-                                .forEach(b -> appendEntityIdentity(b, childContext));
-                        appendIdentity(resource.getId(), childContext);
-                    }
+        @Override
+        public IntermediateHashResult visitFeed(Feed.Blueprint feed, IntermediateHashContext ctx) {
+            return wrap(feed, ctx, (childContext) -> {
+                if (computeIdentity) {
+                    appendEntityIdentities(structure.getResourceTypes(), childContext);
+                    appendEntityIdentities(structure.getMetricTypes(), childContext);
+                    appendEntityIdentities(structure.getFeedResources(), childContext);
+                    appendEntityIdentities(structure.getFeedMetrics(), childContext);
+                    appendIdentity(feed.getId(), childContext);
+                }
 
-                    if (computeContent) {
-                        RelativePath rtPath = relativize(resource.getResourceTypePath(), SegmentType.rt, childContext);
-                        appendContent(rtPath.toString(), childContext);
-                        appendCommonContent(resource, childContext);
-                    }
+                if (computeContent) {
+                    appendCommonContent(feed, childContext);
+                }
 
-                    if (computeSync) {
-                        appendCommonSync(resource, childContext);
-                    }
-                });
-            }
+                if (computeSync) {
+                    appendCommonSync(feed, childContext);
+                }
+            });
+        }
 
-            @Override
-            public IntermediateHashResult visitTenant(Tenant.Blueprint tenant, IntermediateHashContext context) {
-                return wrap(tenant, context, childContext -> {
-                    if (computeContent) {
-                        appendCommonContent(tenant, childContext);
-                    }
-                });
-            }
+        @Override
+        public IntermediateHashResult visitMetric(Metric.Blueprint metric, IntermediateHashContext ctx) {
+            return wrap(metric, ctx, (childContext) -> {
+                if (computeIdentity) {
+                    appendIdentity(metric.getId(), childContext);
+                }
 
-            @Override
-            public IntermediateHashResult visitEnvironment(Environment.Blueprint environment,
-                                                           IntermediateHashContext context) {
-                return wrap(environment, context, childContext -> {
-                    if (computeContent) {
-                        appendCommonContent(environment, childContext);
-                    }
-                });
-            }
+                if (computeContent) {
+                    RelativePath mtPath = relativize(metric.getMetricTypePath(), SegmentType.mt, childContext);
+                    appendContent(mtPath.toString(), childContext);
+                    appendContent(Objects.toString(metric.getCollectionInterval(), ""), childContext);
+                    appendCommonContent(metric, childContext);
+                }
 
-            private RelativePath relativize(String relativePath, SegmentType targetType, IntermediateHashContext ctx) {
-                Path targetPath = Path.fromPartiallyUntypedString(relativePath,
-                        CanonicalPath.of().tenant(entityPath.ids().getTenantId()).get(), entityPath,
-                        targetType);
+                if (computeSync) {
+                    appendCommonSync(metric, childContext);
+                }
+            });
+        }
 
-                if (targetPath.isCanonical()) {
-                    targetPath = targetPath.toCanonicalPath().relativeTo(ctx.origin);
+        @Override
+        public IntermediateHashResult visitResource(Resource.Blueprint resource,
+                                                    IntermediateHashContext context) {
+            return wrap(resource, context, (childContext) -> {
+                if (computeIdentity) {
+                    appendEntityIdentity(structure.getConfiguration(context.root, resource), childContext);
+                    appendEntityIdentity(structure.getConnectionConfiguration(context.root, resource),
+                            childContext);
+                    appendEntityIdentities(structure.getResources(context.root, resource), childContext);
+                    appendEntityIdentities(structure.getResourceMetrics(context.root, resource), childContext);
+                    appendIdentity(resource.getId(), childContext);
+                }
+
+                if (computeContent) {
+                    RelativePath rtPath = relativize(resource.getResourceTypePath(), SegmentType.rt, childContext);
+                    appendContent(rtPath.toString(), childContext);
+                    appendCommonContent(resource, childContext);
                 }
 
-                return targetPath.toRelativePath();
+                if (computeSync) {
+                    appendCommonSync(resource, childContext);
+                }
+            });
+        }
+
+        @Override
+        public IntermediateHashResult visitTenant(Tenant.Blueprint tenant, IntermediateHashContext context) {
+            return wrap(tenant, context, childContext -> {
+                if (computeContent) {
+                    appendCommonContent(tenant, childContext);
+                }
+            });
+        }
+
+        @Override
+        public IntermediateHashResult visitEnvironment(Environment.Blueprint environment,
+                                                       IntermediateHashContext context) {
+            return wrap(environment, context, childContext -> {
+                if (computeContent) {
+                    appendCommonContent(environment, childContext);
+                }
+            });
+        }
+
+        private RelativePath relativize(String relativePath, SegmentType targetType, IntermediateHashContext ctx) {
+            Path targetPath = Path.fromPartiallyUntypedString(relativePath,
+                    CanonicalPath.of().tenant(entityPath.ids().getTenantId()).get(), entityPath,
+                    targetType);
+
+            if (targetPath.isCanonical()) {
+                targetPath = targetPath.toCanonicalPath().relativeTo(ctx.origin);
             }
 
-            private IntermediateHashResult wrap(Entity.Blueprint root, IntermediateHashContext context,
-                                                Consumer<IntermediateHashContext> hashComputation) {
-                IntermediateHashContext childCtx = context.progress(root);
-                bld.startChild(childCtx);
+            return targetPath.toRelativePath();
+        }
 
-                Hashes loadedHashes = hashLoader.apply(childCtx.root.slide(1, 0));
+        private IntermediateHashResult wrap(Entity.Blueprint root, IntermediateHashContext context,
+                                            Consumer<IntermediateHashContext> hashComputation) {
+            IntermediateHashContext childCtx = context.progress(root);
+            bld.startChild(childCtx);
 
-                boolean compute = loadedHashes == null
-                        || (computeIdentity && loadedHashes.getIdentityHash() == null)
-                        || (computeContent && loadedHashes.getContentHash() == null)
-                        || (computeSync && loadedHashes.getSyncHash() == null);
+            Hashes loadedHashes = hashLoader.apply(childCtx.root.slide(1, 0));
 
-                if (compute) {
-                    hashComputation.accept(childCtx);
-                }
+            boolean compute = loadedHashes == null
+                    || (computeIdentity && loadedHashes.getIdentityHash() == null)
+                    || (computeContent && loadedHashes.getContentHash() == null)
+                    || (computeSync && loadedHashes.getSyncHash() == null);
 
-                String identityHash = loadedHashes == null ? null : loadedHashes.getIdentityHash();
-                String contentHash =  loadedHashes == null ? null : loadedHashes.getContentHash();
-                String syncHash =  loadedHashes == null ? null : loadedHashes.getSyncHash();
+            if (compute) {
+                hashComputation.accept(childCtx);
+            }
 
-                DigestComputingWriter digestor = bld.getDigestor();
-                if (computeIdentity && identityHash == null) {
-                    digestor.reset();
-                    digestor.append(childCtx.identity);
-                    digestor.close();
-                    identityHash = digestor.digest();
-                }
+            String identityHash = loadedHashes == null ? null : loadedHashes.getIdentityHash();
+            String contentHash =  loadedHashes == null ? null : loadedHashes.getContentHash();
+            String syncHash =  loadedHashes == null ? null : loadedHashes.getSyncHash();
 
-                if (computeContent && contentHash == null) {
-                    digestor.reset();
-                    digestor.append(childCtx.content);
-                    digestor.close();
-                    contentHash = digestor.digest();
-                }
+            DigestComputingWriter digestor = bld.getDigestor();
+            if (computeIdentity && identityHash == null) {
+                digestor.reset();
+                digestor.append(childCtx.identity);
+                digestor.close();
+                identityHash = digestor.digest();
+            }
 
-                if (computeSync && syncHash == null) {
-                    digestor.reset();
-                    digestor.append(identityHash);
-                    digestor.append(contentHash);
-                    digestor.append(childCtx.sync);
-                    digestor.close();
-                    syncHash = digestor.digest();
-                }
+            if (computeContent && contentHash == null) {
+                digestor.reset();
+                digestor.append(childCtx.content);
+                digestor.close();
+                contentHash = digestor.digest();
+            }
 
-                IntermediateHashResult ret;
-                if (pathCompleter == null) {
-                    ret = new IntermediateHashResult(null, identityHash, contentHash, syncHash);
-                } else {
-                    ret = new IntermediateHashResult(pathCompleter.apply(childCtx.root), identityHash, contentHash,
-                            syncHash);
-                }
+            if (computeSync && syncHash == null) {
+                digestor.reset();
+                digestor.append(identityHash);
+                digestor.append(contentHash);
+                digestor.append(childCtx.sync);
+                digestor.close();
+                syncHash = digestor.digest();
+            }
+
+            IntermediateHashResult ret;
+            if (pathCompleter == null) {
+                ret = new IntermediateHashResult(null, identityHash, contentHash, syncHash);
+            } else {
+                ret = new IntermediateHashResult(pathCompleter.apply(childCtx.root), identityHash, contentHash,
+                        syncHash);
+            }
+
+            bld.endChild(childCtx, ret);
 
-                bld.endChild(childCtx, ret);
+            return ret;
+        }
+
+        private void appendEntityIdentity(Entity.Blueprint child, IntermediateHashContext ctx) {
+            ctx.identity.append(child.accept(this, ctx).identityHash);
+        }
 
-                return ret;
+        /**
+         * Appends the identity hashes of the provided sibling entities. If there are at least
+         * {@link #parallelismThreshold} siblings, their subtrees are hashed in parallel. The results (and the
+         * child start and end notifications of the hash constructor) are nevertheless processed in the original order
+         * so that the outcome is the same as if the hashes were computed sequentially.
+         */
+        private void appendEntityIdentities(List<? extends Entity.Blueprint> children, IntermediateHashContext ctx) {
+            if (parallelismThreshold <= 0 || children.size() < parallelismThreshold) {
+                children.forEach(b -> appendEntityIdentity(b, ctx));
+                return;
             }
 
-            private void appendEntityIdentity(Entity.Blueprint child, IntermediateHashContext ctx) {
-                ctx.identity.append(child.accept(this, ctx).identityHash);
+            List<SubtreeHashTask> tasks = new ArrayList<>(children.size());
+            for (Entity.Blueprint child : children) {
+                tasks.add(new SubtreeHashTask(this, child, ctx));
             }
-        }, new IntermediateHashContext(entityPath == null ? null : entityPath.up(),
-                RelativePath.empty().get()));
+
+            ForkJoinTask.invokeAll(tasks);
+
+            for (SubtreeHashTask t : tasks) {
+                IntermediateHashResult res = t.join();
+                t.recorder.replayInto(bld);
+                ctx.identity.append(res.identityHash);
+            }
+        }
     }
 
-    static void appendIdentity(String data, IntermediateHashContext ctx) {
+    static void appendIdentity(CharSequence data, IntermediateHashContext ctx) {
         if (data != null) {
             ctx.identity.append(data);
         }
     }
 
-    static void appendContent(String data, IntermediateHashContext ctx) {
+    static void appendContent(CharSequence data, IntermediateHashContext ctx) {
         if (data != null) {
             ctx.content.append(data);
         }
     }
 
     static void appendContent(Map<String, Object> props, IntermediateHashContext ctx) {
-        if (props == null) {
+        if (props == null || props.isEmpty()) {
             return;
         }
 
@@ -450,7 +532,7 @@ final class ComputeHash {
         appendContent(b.getProperties(), ctx);
     }
 
-    static void appendSync(String data, IntermediateHashContext ctx) {
+    static void appendSync(CharSequence data, IntermediateHashContext ctx) {
         if (data != null) {
             ctx.sync.append(data);
         }
@@ -726,32 +808,68 @@ final class ComputeHash {
     }
 
     static class DigestComputingWriter implements Appendable, Closeable {
-        private final MessageDigest digester;
-        private final CharsetEncoder enc = Charset.forName("UTF-8").newEncoder().onMalformedInput(CodingErrorAction
-                .REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private static final int BUFFER_SIZE = 512;
+
+        /**
+         * The hex representation of every byte value. Note that this intentionally doesn't pad the values with
+         * a leading zero because that is how the hashes have always been computed and they are persisted.
+         */
+        private static final char[][] HEX_TABLE = new char[256][];
+
+        static {
+            for (int i = 0; i < HEX_TABLE.length; ++i) {
+                HEX_TABLE[i] = Integer.toHexString(i).toCharArray();
+            }
+        }
+
+        private static final ThreadLocal<DigestComputingWriter> LOCAL =
+                ThreadLocal.withInitial(() -> new DigestComputingWriter(newDigest()));
 
-        private final ByteBuffer buffer = ByteBuffer.allocate(512);
+        private final MessageDigest digester;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final char[] hexChars;
+        private int position;
         private String digest;
 
         DigestComputingWriter(MessageDigest digester) {
             this.digester = digester;
+            int len = digester.getDigestLength();
+            this.hexChars = new char[len == 0 ? 128 : 2 * len];
+        }
+
+        /**
+         * Returns a writer that is cached for the current thread. The writer is {@link #reset()} before returned.
+         * <p>The callers must not hold on to the returned instance across computations that might themselves ask for
+         * the thread-local writer.
+         *
+         * @return the reset digest computing writer bound to the current thread
+         */
+        static DigestComputingWriter local() {
+            DigestComputingWriter ret = LOCAL.get();
+            ret.reset();
+            return ret;
         }
 
         @Override
         public DigestComputingWriter append(CharSequence csq) {
-            consumeBuffer(CharBuffer.wrap(csq));
-            return this;
+            if (csq == null) {
+                csq = "null";
+            }
+            return append(csq, 0, csq.length());
         }
 
         @Override
         public DigestComputingWriter append(CharSequence csq, int start, int end) {
-            consumeBuffer(CharBuffer.wrap(csq, start, end));
+            if (csq == null) {
+                csq = "null";
+            }
+            encode(csq, start, end);
             return this;
         }
 
         @Override
         public DigestComputingWriter append(char c) {
-            consumeBuffer(CharBuffer.wrap(new char[]{c}));
+            encode(c);
             return this;
         }
 
@@ -767,14 +885,18 @@ final class ComputeHash {
          * @return the freshly computed digest of the data obtained so far
          */
         String runningDigest() {
+            flush();
             byte[] digest = digester.digest();
 
-            StringBuilder bld = new StringBuilder();
+            int len = 0;
             for (byte b : digest) {
-                bld.append(Integer.toHexString(Byte.toUnsignedInt(b)));
+                char[] hex = HEX_TABLE[Byte.toUnsignedInt(b)];
+                for (char c : hex) {
+                    hexChars[len++] = c;
+                }
             }
 
-            return bld.toString();
+            return new String(hexChars, 0, len);
         }
 
         /**
@@ -794,17 +916,62 @@ final class ComputeHash {
 
         public void reset() {
             digester.reset();
+            position = 0;
             digest = null;
         }
 
-        private void consumeBuffer(CharBuffer chars) {
-            CoderResult res;
-            do {
-                res = enc.encode(chars, buffer, true);
-                buffer.flip();
-                digester.update(buffer);
-                buffer.clear();
-            } while (res == CoderResult.OVERFLOW);
+        /**
+         * Encodes the characters into UTF-8 directly into the internal buffer. This is equivalent to using a UTF-8
+         * {@link java.nio.charset.CharsetEncoder} replacing the malformed input (unpaired surrogates) with '?' but
+         * doesn't need to wrap the data in any intermediate buffers.
+         */
+        private void encode(CharSequence chars, int start, int end) {
+            for (int i = start; i < end; ++i) {
+                char c = chars.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    encodeSupplementary(Character.toCodePoint(c, chars.charAt(++i)));
+                } else {
+                    encode(c);
+                }
+            }
+        }
+
+        private void encode(char c) {
+            if (position > BUFFER_SIZE - 3) {
+                flush();
+            }
+
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                //unpaired surrogate - malformed input
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        private void encodeSupplementary(int codePoint) {
+            if (position > BUFFER_SIZE - 4) {
+                flush();
+            }
+
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+
+        private void flush() {
+            if (position > 0) {
+                digester.update(buffer, 0, position);
+                position = 0;
+            }
         }
     }
 
@@ -863,5 +1030,64 @@ final class ComputeHash {
 //                    + ctx.content);
         }
     }
-}
 
+    /**
+     * Computes the hashes of a single subtree, possibly in another thread. The child notifications are recorded so
+     * that they can be replayed in order in the thread that combines the results.
+     */
+    private static final class SubtreeHashTask extends RecursiveTask<IntermediateHashResult> {
+        private final HashingVisitor parentVisitor;
+        private final Entity.Blueprint root;
+        private final IntermediateHashContext context;
+        final RecordingHashConstructor recorder = new RecordingHashConstructor();
+
+        SubtreeHashTask(HashingVisitor parentVisitor, Entity.Blueprint root, IntermediateHashContext context) {
+            this.parentVisitor = parentVisitor;
+            this.root = root;
+            this.context = context;
+        }
+
+        @Override protected IntermediateHashResult compute() {
+            return root.accept(parentVisitor.withConstructor(recorder), context);
+        }
+    }
+
+    private static final class RecordingHashConstructor extends HashConstructor {
+        //null results represent the start of a child
+        private final List<IntermediateHashContext> contexts = new ArrayList<>();
+        private final List<IntermediateHashResult> results = new ArrayList<>();
+
+        RecordingHashConstructor() {
+            super(null);
+        }
+
+        /**
+         * The recorded computation can happen in any thread and so we need to use the digestor of the thread that is
+         * actually computing the hashes.
+         */
+        @Override public DigestComputingWriter getDigestor() {
+            return DigestComputingWriter.local();
+        }
+
+        @Override public void startChild(IntermediateHashContext context) {
+            contexts.add(context);
+            results.add(null);
+        }
+
+        @Override public void endChild(IntermediateHashContext ctx, IntermediateHashResult result) {
+            contexts.add(ctx);
+            results.add(result);
+        }
+
+        void replayInto(HashConstructor target) {
+            for (int i = 0; i < contexts.size(); ++i) {
+                IntermediateHashResult result = results.get(i);
+                if (result == null) {
+                    target.startChild(contexts.get(i));
+                } else {
+                    target.endChild(contexts.get(i), result);
+                }
+            }
+        }
+    }
+}
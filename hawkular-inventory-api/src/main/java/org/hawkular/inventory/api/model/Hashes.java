@@ -68,6 +68,23 @@ public final class Hashes implements Serializable {
 
     public static Tree treeOf(InventoryStructure<?> root, CanonicalPath rootPath,
                               Function<RelativePath, Hashes> hashLoader) {
+        return treeOf(root, rootPath, hashLoader, ComputeHash.DEFAULT_PARALLELISM_THRESHOLD);
+    }
+
+    /**
+     * Computes the tree of all the hashes of the provided structure. If the structure is
+     * {@link InventoryStructure.Offline offline}, the subtrees of entities with at least {@code parallelismThreshold}
+     * siblings are hashed in parallel (and therefore the hash loader needs to be thread-safe in that case).
+     *
+     * @param root the inventory structure to compute the hashes of
+     * @param rootPath the canonical path of the root of the structure
+     * @param hashLoader returns the hashes of the node on the provided path or null, if they should be computed
+     * @param parallelismThreshold the minimum number of siblings to compute the hashes of in parallel, zero or negative
+     *                             number to always compute the hashes sequentially
+     * @return the hash tree
+     */
+    public static Tree treeOf(InventoryStructure<?> root, CanonicalPath rootPath,
+                              Function<RelativePath, Hashes> hashLoader, int parallelismThreshold) {
         Tree.AbstractBuilder<?>[] tbld =
                 new Tree.AbstractBuilder[1];
 
@@ -91,7 +108,7 @@ public final class Hashes implements Serializable {
         };
 
         IntermediateHashResult res = ComputeHash.treeOf(root, rootPath, true, true, true, startChild, endChild,
-                hashLoader);
+                hashLoader, parallelismThreshold);
 
         tbld[0].withPath(res.path).withHash(new Hashes(res));
 
@@ -66,8 +66,7 @@ public final class IdentityHash {
     }
 
     public static String of(MetadataPack.Members metadata) {
-        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(new ComputeHash.DigestComputingWriter(
-                ComputeHash.newDigest()));
+        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(ComputeHash.DigestComputingWriter.local());
 
         ComputeHash.HashableView metadataView = ComputeHash.HashableView.of(metadata);
 
@@ -136,7 +135,7 @@ public final class IdentityHash {
         //identity hash is not computed using any relative paths, so we can pass null to the root path of the
         //computation.
         ComputeHash.IntermediateHashResult res = ComputeHash.treeOf(inventory, null, true, false, false, startChild,
-                endChild, p -> null);
+                endChild, p -> null, ComputeHash.DEFAULT_PARALLELISM_THRESHOLD);
 
         tbld[0].withPath(res.path).withHash(res.identityHash);
 
@@ -152,8 +151,7 @@ public final class IdentityHash {
 
         entities.forEachRemaining(sortedEntities::add);
 
-        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(new ComputeHash.DigestComputingWriter(
-                ComputeHash.newDigest()));
+        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(ComputeHash.DigestComputingWriter.local());
 
         StringBuilder resultHash = new StringBuilder();
 
@@ -33,6 +33,13 @@ import org.hawkular.inventory.paths.RelativePath;
  */
 public final class SyncHash {
 
+    /**
+     * The minimum number of siblings the subtrees of which are hashed in parallel used when no explicit threshold
+     * is specified. It is 64 by default and can be changed using the
+     * {@code hawkular.inventory.hash.parallelism.threshold} system property.
+     */
+    public static final int DEFAULT_PARALLELISM_THRESHOLD = ComputeHash.DEFAULT_PARALLELISM_THRESHOLD;
+
     private SyncHash() {
 
     }
@@ -58,9 +65,30 @@ public final class SyncHash {
      * @param hashLoader a function that returns null if the hash of some structure node should be recomputed or returns
      *                   its hashes if no need to recompute it
      * @return the sync tree hash of the provided inventory structure
+     * @see #treeOf(InventoryStructure, CanonicalPath, Function, int)
      */
     public static Tree treeOf(InventoryStructure<?> structure, CanonicalPath rootPath,
                               Function<RelativePath, Hashes> hashLoader) {
+        return treeOf(structure, rootPath, hashLoader, ComputeHash.DEFAULT_PARALLELISM_THRESHOLD);
+    }
+
+    /**
+     * Computes the complete sync tree hash of the provided inventory structure.
+     * <p>
+     * If the structure is {@link InventoryStructure.Offline offline}, the subtrees of entities with at least
+     * {@code parallelismThreshold} siblings are hashed in parallel. The hash loader therefore needs to be thread-safe
+     * in that case. The resulting tree is the same regardless of whether it has been computed in parallel or not.
+     *
+     * @param structure the inventory structure to compute the tree hash of
+     * @param rootPath the canonical path of the root of the inventory structure
+     * @param hashLoader a function that returns null if the hash of some structure node should be recomputed or returns
+     *                   its hashes if no need to recompute it
+     * @param parallelismThreshold the minimum number of siblings to compute the hashes of in parallel, zero or negative
+     *                             number to always compute the hashes sequentially
+     * @return the sync tree hash of the provided inventory structure
+     */
+    public static Tree treeOf(InventoryStructure<?> structure, CanonicalPath rootPath,
+                              Function<RelativePath, Hashes> hashLoader, int parallelismThreshold) {
         @SuppressWarnings("unchecked")
         Tree.AbstractBuilder<?>[] tbld =
                 new Tree.AbstractBuilder[1];
@@ -84,7 +112,7 @@ public final class SyncHash {
         };
 
         ComputeHash.IntermediateHashResult res = ComputeHash
-                .treeOf(structure, rootPath, true, true, true, startChild, endChild, hashLoader);
+                .treeOf(structure, rootPath, true, true, true, startChild, endChild, hashLoader, parallelismThreshold);
 
         tbld[0].withPath(res.path).withHash(res.syncHash);
 
@@ -43,17 +43,27 @@ public class Page<T> implements Iterator<T>, AutoCloseable, Iterable<T> {
     private Iterator<T> wrapped;
     private final PageContext pageContext;
     private final long totalSize;
+    private final String continuationToken;
 
     public Page(Iterator<T> wrapped, PageContext pageContext, long totalSize) {
+        this(wrapped, pageContext, totalSize, null);
+    }
+
+    public Page(Iterator<T> wrapped, PageContext pageContext, long totalSize, String continuationToken) {
         this.wrapped = wrapped;
         this.pageContext = pageContext;
         this.totalSize = totalSize;
+        this.continuationToken = continuationToken;
     }
 
     protected Page(PageContext pageContext, long totalSize) {
         this(null, pageContext, totalSize);
     }
 
+    protected Page(PageContext pageContext, long totalSize, String continuationToken) {
+        this(null, pageContext, totalSize, continuationToken);
+    }
+
     /**
      * @return the information about the page of the results that this object represents
      */
@@ -62,12 +72,24 @@ public class Page<T> implements Iterator<T>, AutoCloseable, Iterable<T> {
     }
 
     /**
+     * Note that the keyset based pages might not know the total number of results, in which case this returns -1.
+     *
      * @return the total number of results of which this page is a subset of
      */
     public long getTotalSize() {
         return totalSize;
     }
 
+    /**
+     * Only pages obtained using {@link PageContext#isKeyset() keyset based} page contexts have a continuation token.
+     * The token is opaque and can be used with {@link Pager#withContinuationToken(String)} to obtain the next page.
+     *
+     * @return the token to obtain the next page of the results with or null if there are no more results
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
     /**
      * Try to avoid calling this method in production code, because it can have bad impact on performance
      * <p>
@@ -19,6 +19,7 @@ package org.hawkular.inventory.api.paging;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * @author Lukas Krejci
@@ -30,6 +31,8 @@ public class PageContext {
     private final int pageSize;
     private final int pageNumber;
     private final List<Order> order;
+    private final boolean keyset;
+    private final String continuationToken;
 
     public PageContext(int pageNumber, int pageSize, Order... orders) {
         if (orders.length == 0) {
@@ -40,9 +43,29 @@ public class PageContext {
         List<Order> tmp = new ArrayList<>();
         Collections.addAll(tmp, orders);
         this.order = Collections.unmodifiableList(tmp);
+        this.keyset = false;
+        this.continuationToken = null;
     }
 
     public PageContext(int pageNumber, int pageSize, Iterable<Order> orders) {
+        this(pageNumber, pageSize, false, null, orders);
+    }
+
+    /**
+     * Creates a keyset (aka cursor) based page context. Instead of skipping a number of results, the page is going
+     * to start right after the element identified by the continuation token (which is obtained from the
+     * {@link Page#getContinuationToken() previous page}).
+     *
+     * @param pageSize          the number of the elements on the page
+     * @param continuationToken the continuation token of the previous page or null if this is the first page
+     * @param orders            the ordering of the results
+     */
+    public PageContext(int pageSize, String continuationToken, Iterable<Order> orders) {
+        this(0, pageSize, true, continuationToken, orders);
+    }
+
+    private PageContext(int pageNumber, int pageSize, boolean keyset, String continuationToken,
+                        Iterable<Order> orders) {
         this.pageNumber = pageSize >= 0 ? pageNumber : 0;
         this.pageSize = pageSize;
         List<Order> tmp = new ArrayList<>();
@@ -52,6 +75,8 @@ public class PageContext {
         }
 
         this.order = Collections.unmodifiableList(tmp);
+        this.keyset = keyset;
+        this.continuationToken = continuationToken;
     }
 
     /**
@@ -104,6 +129,25 @@ public class PageContext {
         return pageSize >= 0;
     }
 
+    /**
+     * Keyset based paging doesn't use the page numbers but rather continues after the last element of the previous
+     * page as identified by the {@link #getContinuationToken() continuation token}. The {@link #getPageNumber()} is
+     * therefore always 0 and {@link #getStart()} and {@link #getEnd()} are relative to the continuation point.
+     *
+     * @return true if this page context represents a keyset based page, false if it is based on page numbers
+     */
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    /**
+     * @return the opaque token identifying the position after which the page should start or null if the page
+     * should start at the beginning of the results or if this is not a {@link #isKeyset() keyset} page context.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
     /**
      * This list of ordering fields.
      *
@@ -120,7 +164,8 @@ public class PageContext {
 
         PageContext that = (PageContext) o;
 
-        return pageSize == that.pageSize && pageNumber == that.pageNumber && this.order.equals(that.order);
+        return pageSize == that.pageSize && pageNumber == that.pageNumber && this.order.equals(that.order)
+                && keyset == that.keyset && Objects.equals(continuationToken, that.continuationToken);
 
     }
 
@@ -133,7 +178,7 @@ public class PageContext {
 
     @Override public String toString() {
         return "PagingState[" + "order=" + order + ", pageNumber=" + pageNumber + ", pageSize=" +
-                pageSize + ']';
+                pageSize + (keyset ? ", continuationToken=" + continuationToken : "") + ']';
     }
 
 }
@@ -17,6 +17,7 @@
 package org.hawkular.inventory.api.paging;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -66,6 +67,22 @@ public final class Pager extends PageContext {
         return new Pager(0, 1, Order.unspecified());
     }
 
+    /**
+     * Creates a pager for the first page of keyset (aka cursor) based paging. The subsequent pages can be obtained
+     * using {@link #withContinuationToken(String)} with the {@link Page#getContinuationToken() continuation token}
+     * of the previous page.
+     *
+     * <p>Contrary to the page number based paging, the cost of obtaining a page doesn't depend on how "deep" in the
+     * results the page is.
+     *
+     * @param pageSize the number of the elements on the page
+     * @param order    the ordering of the results
+     * @return a new pager instance
+     */
+    public static Pager keyset(int pageSize, Order... order) {
+        return new Pager(pageSize, null, Arrays.asList(order));
+    }
+
     /**
      * @param pageNumber the number of the page to fetch
      * @param pageSize   the number of the elements on the page
@@ -85,15 +102,45 @@ public final class Pager extends PageContext {
         super(pageNumber, pageSize, orders);
     }
 
+    /**
+     * Creates a keyset based pager.
+     *
+     * @param pageSize          the number of the elements on the page
+     * @param continuationToken the continuation token of the previous page or null to start at the beginning
+     * @param orders            the ordering of the results
+     * @see #keyset(int, Order...)
+     */
+    public Pager(int pageSize, String continuationToken, Iterable<Order> orders) {
+        super(pageSize, continuationToken, orders);
+    }
+
+    /**
+     * Returns a keyset based pager that continues after the element identified by the provided token. The page size
+     * and ordering stays the same as in this pager.
+     *
+     * @param continuationToken the {@link Page#getContinuationToken() continuation token} of the previous page
+     * @return a new pager instance
+     */
+    public Pager withContinuationToken(String continuationToken) {
+        return new Pager(getPageSize(), continuationToken, getOrder());
+    }
+
     /**
      * If this is a limited pager ({@link #isLimited()}), returns the pager pointing to the next page of the results.
      *
      * If this is an unlimited pager, then simply returns this very pager because there can be no other page of the
      * results.
      *
+     * <p>Keyset based pagers cannot determine the next page on their own, use {@link #withContinuationToken(String)}
+     * for them.
+     *
      * @return a new pager instance
      */
     public Pager nextPage() {
+        if (isKeyset()) {
+            throw new IllegalStateException("Keyset based pager needs a continuation token to move to the next page.");
+        }
+
         if (getPageSize() >= 0) {
             return new Pager(getPageNumber() + 1, getPageSize(), getOrder());
         } else {
@@ -111,7 +158,7 @@ public final class Pager extends PageContext {
      * @return a new pager instance
      */
     public Pager previousPage() {
-        if (getPageNumber() > 0 && getPageSize() >= 0) {
+        if (!isKeyset() && getPageNumber() > 0 && getPageSize() >= 0) {
             return new Pager(getPageNumber() - 1, getPageSize(), getOrder());
         } else {
             return this;
@@ -122,6 +169,8 @@ public final class Pager extends PageContext {
         private int pageNumber;
         private int pageSize;
         private List<Order> order = new ArrayList<>();
+        private boolean keyset;
+        private String continuationToken;
 
         private Builder() {
         }
@@ -136,6 +185,18 @@ public final class Pager extends PageContext {
             return this;
         }
 
+        /**
+         * Makes the built pager {@link PageContext#isKeyset() keyset based}.
+         *
+         * @param continuationToken the token to continue after or null to start at the beginning of the results
+         * @return this builder
+         */
+        public Builder withContinuationToken(String continuationToken) {
+            this.keyset = true;
+            this.continuationToken = continuationToken;
+            return this;
+        }
+
         public Builder orderBy(String field, Order.Direction direction) {
             order.add(Order.by(field, direction));
             return this;
@@ -155,6 +216,9 @@ public final class Pager extends PageContext {
         }
 
         public Pager build() {
+            if (keyset) {
+                return new Pager(pageSize, continuationToken, order);
+            }
             return new Pager(pageNumber, pageSize, order);
         }
     }
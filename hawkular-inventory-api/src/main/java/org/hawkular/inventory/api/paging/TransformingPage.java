@@ -38,7 +38,7 @@ public class TransformingPage<I, O> extends Page<O> {
     private Long totalSize;
 
     public TransformingPage(Page<I> wrappedPage, Function<? super I, ? extends O> conversionFunction) {
-        super(wrappedPage.getPageContext(), wrappedPage.getTotalSize());
+        super(wrappedPage.getPageContext(), wrappedPage.getTotalSize(), wrappedPage.getContinuationToken());
         if (conversionFunction == null) {
             throw new IllegalArgumentException("conversionFunction can't be null");
         }
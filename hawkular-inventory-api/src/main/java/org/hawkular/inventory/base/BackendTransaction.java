@@ -16,12 +16,15 @@
  */
 package org.hawkular.inventory.base;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.AbstractElement;
@@ -78,6 +81,10 @@ public class BackendTransaction<E> implements Transaction<E> {
         return backend.descendToData(dataEntityRepresentation, dataPath);
     }
 
+    @Override public StructuredData loadData(E dataEntityRepresentation, RelativePath dataPath, boolean shallow) {
+        return backend.loadData(dataEntityRepresentation, dataPath, shallow);
+    }
+
     @Override public CanonicalPath extractCanonicalPath(E entityRepresentation) {
         return backend.extractCanonicalPath(entityRepresentation);
     }
@@ -110,8 +117,8 @@ public class BackendTransaction<E> implements Transaction<E> {
         return backend.find(element);
     }
 
-    @Override public InputStream getGraphSON(String tenantId) {
-        return backend.getGraphSON(tenantId);
+    @Override public void writeGraph(GraphExport export, OutputStream out) throws IOException {
+        backend.writeGraph(export, out);
     }
 
     @Override public E getRelationship(E source, E target, String relationshipName) throws ElementNotFoundException {
@@ -144,6 +151,11 @@ public class BackendTransaction<E> implements Transaction<E> {
         return backend.getTransitiveClosureOver(startingPoint, direction, relationshipNames);
     }
 
+    @Override public boolean isReachable(E startingPoint, Relationships.Direction direction,
+                                         String relationshipName, E target) {
+        return backend.isReachable(startingPoint, direction, relationshipName, target);
+    }
+
     @Override public boolean hasRelationship(E entity, Relationships.Direction direction,
                                              String relationshipName) {
         return backend.hasRelationship(entity, direction, relationshipName);
@@ -182,6 +194,14 @@ public class BackendTransaction<E> implements Transaction<E> {
         return backend.query(query, pager, conversion, filter);
     }
 
+    @Override public long count(Query query) {
+        return backend.count(query);
+    }
+
+    @Override public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        return backend.groupCount(query, groupBy);
+    }
+
     @Override public E querySingle(Query query) {
         return backend.querySingle(query);
     }
@@ -26,9 +26,13 @@ import static org.hawkular.inventory.api.filters.With.id;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.hawkular.inventory.api.Data;
 import org.hawkular.inventory.api.EntityNotFoundException;
@@ -44,7 +48,7 @@ import org.hawkular.inventory.api.model.DataEntity;
 import org.hawkular.inventory.api.model.StructuredData;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
-import org.hawkular.inventory.base.spi.ShallowStructuredData;
+import org.hawkular.inventory.base.spi.InventoryBackend;
 import org.hawkular.inventory.paths.CanonicalPath;
 import org.hawkular.inventory.paths.DataRole;
 import org.hawkular.inventory.paths.RelativePath;
@@ -59,8 +63,8 @@ import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.report.ListReportProvider;
 import com.github.fge.jsonschema.core.report.LogLevel;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
-import com.github.fge.jsonschema.main.JsonValidator;
 
 /**
  * Contains access interface implementations for accessing data entities.
@@ -197,6 +201,14 @@ public final class BaseData {
                                            DataEntity.Update update, Transaction<BE> transaction) {
             checks.preUpdate(entityRepresentation, update, transaction);
             Validator.validate(transaction, update.getValue(), entityRepresentation);
+            markIfSchema(transaction, entityRepresentation);
+        }
+
+        private static <BE> void markIfSchema(Transaction<BE> tx, BE dataEntity) {
+            CanonicalPath path = tx.extractCanonicalPath(dataEntity);
+            if (DataRole.valueOf(path.ids().getDataRole()).isSchema()) {
+                Validator.markModified(tx, path);
+            }
         }
 
         private static <BE> void postUpdate(DataModificationChecks<BE> checks, BE entity,
@@ -207,6 +219,7 @@ public final class BaseData {
         private static <BE> void preDelete(DataModificationChecks<BE> checks, BE entityRepresentation,
                                            Transaction<BE> tx) {
             checks.preDelete(entityRepresentation, tx);
+            markIfSchema(tx, entityRepresentation);
 
             Set<BE> rels = tx.getRelationships(entityRepresentation, Relationships.Direction.outgoing,
                     hasData.name());
@@ -243,19 +256,12 @@ public final class BaseData {
         public StructuredData data(RelativePath dataPath) {
             //doing this in 2 queries might seem inefficient but this I think needs to be done to be able to
             //do the filtering
-            return loadEntity((b, e, tx) -> {
-                BE dataEntity = tx.descendToData(b, dataPath);
-                return dataEntity == null ? null : tx.convert(dataEntity, StructuredData.class);
-            });
+            return loadEntity((b, e, tx) -> tx.loadData(b, dataPath, false));
         }
 
         @Override
         public StructuredData flatData(RelativePath dataPath) {
-            return loadEntity((b, e, tx) -> {
-                BE dataEntity = tx.descendToData(b, dataPath);
-                return dataEntity == null ? null : tx.convert(dataEntity, ShallowStructuredData.class)
-                        .getData();
-            });
+            return loadEntity((b, e, tx) -> tx.loadData(b, dataPath, true));
         }
 
         @Override
@@ -289,25 +295,47 @@ public final class BaseData {
 
         @Override
         public Page<StructuredData> data(RelativePath dataPath, Pager pager) {
-            return loadEntities(pager, (b, e, tx) -> {
-                BE dataEntity = tx.descendToData(b, dataPath);
-                return tx.convert(dataEntity, StructuredData.class);
-            });
+            return loadEntities(pager, (b, e, tx) -> tx.loadData(b, dataPath, false));
         }
 
         @Override
         public Page<StructuredData> flatData(RelativePath dataPath, Pager pager) {
-            return loadEntities(pager, (b, e, tx) -> {
-                BE dataEntity = tx.descendToData(b, dataPath);
-                return tx.convert(dataEntity, ShallowStructuredData.class).getData();
-            });
+            return loadEntities(pager, (b, e, tx) -> tx.loadData(b, dataPath, true));
         }
     }
 
     public static final class Validator {
 
-        private static final JsonValidator VALIDATOR = JsonSchemaFactory.newBuilder()
-                .setReportProvider(new ListReportProvider(LogLevel.INFO, LogLevel.FATAL)).freeze().getValidator();
+        private static final JsonSchemaFactory SCHEMA_FACTORY = JsonSchemaFactory.newBuilder()
+                .setReportProvider(new ListReportProvider(LogLevel.INFO, LogLevel.FATAL)).freeze();
+
+        /**
+         * The maximum number of compiled schemas kept in the {@link #SCHEMA_CACHE}.
+         */
+        private static final int SCHEMA_CACHE_SIZE = 256;
+
+        /**
+         * Compiled schemas keyed by the canonical path of the schema data entity. The content hash of the schema
+         * entity is stored along with the compiled schema so that we can detect that the schema changed in the
+         * meantime.
+         */
+        private static final Map<CanonicalPath, CachedSchema> SCHEMA_CACHE = Collections.synchronizedMap(
+                new LinkedHashMap<CanonicalPath, CachedSchema>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<CanonicalPath, CachedSchema> eldest) {
+                        return size() > SCHEMA_CACHE_SIZE;
+                    }
+                });
+
+        /**
+         * The paths of the schemas modified by the in-flight transactions, keyed by the
+         * {@link #backendTransactionOf(Transaction) backend transaction}.
+         * Until the modifying transaction commits, the content hash of the schema entity doesn't correspond to its
+         * content as seen by that transaction, so such schemas are neither taken from nor put into the
+         * {@link #SCHEMA_CACHE} within that transaction. The entries go away with the transactions, regardless of
+         * whether they commit or roll back. Guarded by itself.
+         */
+        private static final Map<InventoryBackend<?>, Set<CanonicalPath>> MODIFIED_SCHEMAS = new WeakHashMap<>();
 
         private static Filter[] navigateToSchema(DataRole role) {
             if (role == DataRole.Resource.configuration) {
@@ -344,21 +372,54 @@ public final class BaseData {
             DataRole role = DataRole.valueOf(path.ids().getDataRole());
 
             if (role.isSchema()) {
-                try {
-                    JsonNode schema = new JsonNodeReader(new ObjectMapper())
-                            .fromInputStream(BaseData.class.getResourceAsStream("/json-meta-schema.json"));
-
-                    CanonicalPath dataPath = tx.extractCanonicalPath(dataEntity);
-
-                    validate(dataPath, convert(data), schema);
-                } catch (IOException e) {
-                    throw new IllegalStateException("Could not load the embedded JSON Schema meta-schema.");
-                }
+                validate(path, convert(data), MetaSchema.INSTANCE);
             } else {
                 validateIfSchemaFound(tx, data, dataEntity, Query.path().with(navigateToSchema(role)).get());
             }
         }
 
+        /**
+         * Forgets the compiled schema stored in the data entity on the provided path. This needs to be called after
+         * the schema update or delete is committed.
+         *
+         * @param schemaPath the canonical path of the schema data entity
+         */
+        public static void invalidate(CanonicalPath schemaPath) {
+            SCHEMA_CACHE.remove(schemaPath);
+        }
+
+        /**
+         * Records that the schema on the provided path is being updated or deleted in the provided transaction so
+         * that the validations in the same transaction don't use or pollute the schema cache.
+         *
+         * @param tx         the modifying transaction
+         * @param schemaPath the canonical path of the schema data entity
+         */
+        static <BE> void markModified(Transaction<BE> tx, CanonicalPath schemaPath) {
+            synchronized (MODIFIED_SCHEMAS) {
+                MODIFIED_SCHEMAS.computeIfAbsent(backendTransactionOf(tx), b -> new HashSet<>()).add(schemaPath);
+            }
+        }
+
+        private static <BE> boolean isModified(Transaction<BE> tx, CanonicalPath schemaPath) {
+            synchronized (MODIFIED_SCHEMAS) {
+                Set<CanonicalPath> modified = MODIFIED_SCHEMAS.get(backendTransactionOf(tx));
+                return modified != null && modified.contains(schemaPath);
+            }
+        }
+
+        /**
+         * The transaction frames wrap their single backend transaction anew for each operation executed in them, so
+         * the wrappers need to be peeled off to identify the transaction the operations are running in.
+         */
+        private static InventoryBackend<?> backendTransactionOf(Transaction<?> tx) {
+            InventoryBackend<?> ret = tx.directAccess();
+            while (ret instanceof DelegatingInventoryBackend) {
+                ret = ((DelegatingInventoryBackend<?>) ret).backend;
+            }
+            return ret;
+        }
+
         private static <BE> void validateIfSchemaFound(Transaction<BE> tx, StructuredData data,
                 BE dataEntity, Query query) {
 
@@ -368,21 +429,45 @@ public final class BaseData {
                 return;
             }
 
-            DataEntity schemaEntity = tx.convert(possibleSchema, DataEntity.class);
-
             CanonicalPath dataPath = tx.extractCanonicalPath(dataEntity);
 
-            validate(dataPath, convert(data), convert(schemaEntity.getValue()));
+            validate(dataPath, convert(data), getSchema(tx, possibleSchema, dataPath));
+        }
+
+        private static <BE> JsonSchema getSchema(Transaction<BE> tx, BE schemaEntity, CanonicalPath dataPath) {
+            CanonicalPath schemaPath = tx.extractCanonicalPath(schemaEntity);
+            //the content hash of a schema modified in this transaction is only updated on commit
+            String contentHash = isModified(tx, schemaPath) ? null : tx.extractContentHash(schemaEntity);
+
+            CachedSchema cached = SCHEMA_CACHE.get(schemaPath);
+            if (cached != null && contentHash != null && contentHash.equals(cached.contentHash)) {
+                return cached.schema;
+            }
+
+            DataEntity schemaData = tx.convert(schemaEntity, DataEntity.class);
+
+            JsonSchema schema;
+            try {
+                schema = SCHEMA_FACTORY.getJsonSchema(convert(schemaData.getValue()));
+            } catch (ProcessingException e) {
+                throw new ValidationException(dataPath, emptyList(), e);
+            }
+
+            if (contentHash != null) {
+                SCHEMA_CACHE.put(schemaPath, new CachedSchema(contentHash, schema));
+            }
+
+            return schema;
         }
 
-        private static void validate(CanonicalPath dataPath, JsonNode dataNode, JsonNode schemaNode) {
+        private static void validate(CanonicalPath dataPath, JsonNode dataNode, JsonSchema schema) {
             //explicitly allow null schemas
             if (dataNode == null || dataNode.isNull()) {
                 return;
             }
 
             try {
-                ProcessingReport report = VALIDATOR.validate(schemaNode, dataNode, true);
+                ProcessingReport report = schema.validate(dataNode, true);
                 if (!report.isSuccess()) {
                     List<ValidationMessage> messages = new ArrayList<>();
                     report.forEach((m) ->
@@ -437,6 +522,34 @@ public final class BaseData {
                 }
             }, null);
         }
+
+        private static final class CachedSchema {
+            final String contentHash;
+            final JsonSchema schema;
+
+            CachedSchema(String contentHash, JsonSchema schema) {
+                this.contentHash = contentHash;
+                this.schema = schema;
+            }
+        }
+
+        /**
+         * The embedded JSON Schema meta-schema, loaded and compiled only once when first needed.
+         */
+        private static final class MetaSchema {
+            static final JsonSchema INSTANCE = load();
+
+            private static JsonSchema load() {
+                try {
+                    JsonNode schema = new JsonNodeReader(new ObjectMapper())
+                            .fromInputStream(BaseData.class.getResourceAsStream("/json-meta-schema.json"));
+
+                    return SCHEMA_FACTORY.getJsonSchema(schema);
+                } catch (IOException | ProcessingException e) {
+                    throw new IllegalStateException("Could not load the embedded JSON Schema meta-schema.", e);
+                }
+            }
+        }
     }
 
     public interface DataModificationChecks<BE> {
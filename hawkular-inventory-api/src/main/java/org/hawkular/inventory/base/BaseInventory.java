@@ -17,15 +17,22 @@
 package org.hawkular.inventory.base;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.hawkular.inventory.api.Configuration;
 import org.hawkular.inventory.api.EntityNotFoundException;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.Query;
@@ -35,8 +42,11 @@ import org.hawkular.inventory.api.TransactionFrame;
 import org.hawkular.inventory.api.filters.With;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Hashes;
 import org.hawkular.inventory.api.model.Relationship;
+import org.hawkular.inventory.api.model.SyncHash;
 import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.api.paging.Order;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
 import org.hawkular.inventory.api.paging.TransformingPage;
@@ -44,6 +54,7 @@ import org.hawkular.inventory.base.spi.CommitFailureException;
 import org.hawkular.inventory.base.spi.ElementNotFoundException;
 import org.hawkular.inventory.base.spi.InventoryBackend;
 import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
 
 import rx.Observable;
 
@@ -65,12 +76,128 @@ public abstract class BaseInventory<E> implements Inventory {
             .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.retries")
             .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_RETRIES").build();
 
+    /**
+     * The time in milliseconds to wait before the first retry of a failed transaction. The wait time is doubled
+     * (plus a random jitter) with each subsequent failure.
+     */
+    public static final Configuration.Property TRANSACTION_RETRY_INITIAL_WAIT = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.retry.initial.wait")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_RETRY_INITIAL_WAIT").build();
+
+    /**
+     * The maximum time in milliseconds to wait between two attempts of a failed transaction.
+     */
+    public static final Configuration.Property TRANSACTION_RETRY_MAX_WAIT = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.retry.max.wait")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_RETRY_MAX_WAIT").build();
+
+    /**
+     * The maximum random jitter added to the wait time between the attempts, expressed as a fraction of the wait
+     * time.
+     */
+    public static final Configuration.Property TRANSACTION_RETRY_JITTER = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.retry.jitter")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_RETRY_JITTER").build();
+
+    /**
+     * The number of threads used to run the asynchronously retried transactions.
+     */
+    public static final Configuration.Property TRANSACTION_RETRY_THREADS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.retry.threads")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_RETRY_THREADS").build();
+
+    /**
+     * The minimum number of siblings in an inventory structure for which the tree hashes are computed in parallel
+     * during sync. Zero or a negative value switches off the parallel computation.
+     */
+    public static final Configuration.Property HASH_PARALLELISM_THRESHOLD = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.hash.parallelism.threshold")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_HASH_PARALLELISM_THRESHOLD").build();
+
+    /**
+     * The number of threads used to run the asynchronous synchronizations of different roots (e.g. feeds) in
+     * parallel.
+     */
+    public static final Configuration.Property SYNC_THREADS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.sync.threads")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_SYNC_THREADS").build();
+
+    /**
+     * The maximum number of query results cached in the {@link QueryCache}. The cache is switched off by default
+     * (size 0).
+     */
+    public static final Configuration.Property QUERY_CACHE_SIZE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.query.cache.size")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_QUERY_CACHE_SIZE").build();
+
+    /**
+     * The maximum number of elements in a single result for the result to be cached by the {@link QueryCache}.
+     */
+    public static final Configuration.Property QUERY_CACHE_MAX_RESULTS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.query.cache.max.results")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_QUERY_CACHE_MAX_RESULTS").build();
+
+    /**
+     * Whether to keep the in-memory {@link SearchIndex} of the entity ids, names and selected properties used to
+     * answer the text searches. The index is switched off by default.
+     */
+    public static final Configuration.Property SEARCH_INDEX_ENABLED = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.search.index.enabled")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_SEARCH_INDEX_ENABLED").build();
+
+    /**
+     * A comma-separated list of the names of the entity properties the {@link SearchIndex} should index apart from
+     * the ids and names.
+     */
+    public static final Configuration.Property SEARCH_INDEX_PROPERTIES = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.search.index.properties")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_SEARCH_INDEX_PROPERTIES").build();
+
+    /**
+     * The maximum number of entities a single text search can find in the {@link SearchIndex}. The searches that find
+     * more entities are evaluated by the backend instead.
+     */
+    public static final Configuration.Property SEARCH_INDEX_MAX_PATHS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.search.index.max.paths")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_SEARCH_INDEX_MAX_PATHS").build();
+
+    /**
+     * The maximum number of tree hashes of the synced entities cached in the {@link TreeHashCache}. Zero switches the
+     * cache off.
+     */
+    public static final Configuration.Property TREE_HASH_CACHE_SIZE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tree.hash.cache.size")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TREE_HASH_CACHE_SIZE").build();
+
+    /**
+     * The maximum number of the {@link GraphExporter graph exports} running at the same time. The further exports wait
+     * for one of the running ones to finish.
+     */
+    public static final Configuration.Property GRAPH_EXPORT_THREADS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.graph.export.threads")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_GRAPH_EXPORT_THREADS").build();
+
+    /**
+     * The time in milliseconds the {@link #getGraphSON(String) GraphSON dump} waits for its reader to read the
+     * data before it gives up and frees the export thread. Defaults to 1 minute.
+     */
+    public static final Configuration.Property GRAPH_EXPORT_PIPE_TIMEOUT = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.graph.export.pipe.timeout")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_GRAPH_EXPORT_PIPE_TIMEOUT").build();
+
     private InventoryBackend<E> backend;
     private final ObservableContext observableContext;
     private Configuration configuration;
     private TraversalContext<E, Tenant> tenantContext;
     private TraversalContext<E, Relationship> relationshipContext;
     private final TransactionConstructor<E> transactionConstructor;
+    private TransactionRetryScheduler transactionRetryScheduler;
+    private SyncCoordinator syncCoordinator;
+    private QueryCache queryCache;
+    private SearchIndex searchIndex;
+    private TreeHashCache treeHashCache;
+    private GraphExporter graphExporter;
+    private int hashParallelismThreshold;
 
     /**
      * This is a sort of copy constructor.
@@ -85,6 +212,13 @@ public abstract class BaseInventory<E> implements Inventory {
 
         this.observableContext = orig.observableContext;
         this.configuration = orig.configuration;
+        this.transactionRetryScheduler = orig.transactionRetryScheduler;
+        this.syncCoordinator = orig.syncCoordinator;
+        this.queryCache = orig.queryCache;
+        this.searchIndex = orig.searchIndex;
+        this.treeHashCache = orig.treeHashCache;
+        this.graphExporter = orig.graphExporter;
+        this.hashParallelismThreshold = orig.hashParallelismThreshold;
 
         this.backend = backend == null ? orig.backend : backend;
         this.transactionConstructor = transactionConstructor == null
@@ -132,9 +266,27 @@ public abstract class BaseInventory<E> implements Inventory {
         return txCtor;
     }
 
+    private static int getHashParallelismThreshold(Configuration configuration) {
+        String threshold = configuration.getProperty(HASH_PARALLELISM_THRESHOLD,
+                Integer.toString(SyncHash.DEFAULT_PARALLELISM_THRESHOLD));
+        try {
+            return Integer.parseInt(threshold.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The hash parallelism threshold must be an integer but was '"
+                    + threshold + "'.", e);
+        }
+    }
+
     @Override
     public final void initialize(Configuration configuration) {
         this.backend = doInitialize(configuration);
+        this.transactionRetryScheduler = new TransactionRetryScheduler(configuration);
+        this.syncCoordinator = new SyncCoordinator(configuration);
+        this.queryCache = new QueryCache(configuration);
+        this.searchIndex = new SearchIndex(configuration);
+        this.treeHashCache = new TreeHashCache(configuration);
+        this.graphExporter = new GraphExporter(configuration);
+        this.hashParallelismThreshold = getHashParallelismThreshold(configuration);
 
         tenantContext = new TraversalContext<>(this, Query.empty(),
                 Query.path().with(With.type(Tenant.class)).get(), backend, Tenant.class, configuration,
@@ -143,6 +295,13 @@ public abstract class BaseInventory<E> implements Inventory {
         relationshipContext = new TraversalContext<>(this, Query.empty(), Query.path().get(), backend,
                 Relationship.class, configuration, observableContext, transactionConstructor);
         this.configuration = configuration;
+
+        if (searchIndex.isEnabled()) {
+            Util.inReadOnlyTx(tenantContext, tx -> {
+                searchIndex.rebuild(tx);
+                return null;
+            });
+        }
     }
 
     @Override
@@ -188,6 +347,18 @@ public abstract class BaseInventory<E> implements Inventory {
             backend.close();
             backend = null;
         }
+
+        if (transactionRetryScheduler != null) {
+            transactionRetryScheduler.close();
+        }
+
+        if (syncCoordinator != null) {
+            syncCoordinator.close();
+        }
+
+        if (graphExporter != null) {
+            graphExporter.close();
+        }
     }
 
     @Override
@@ -210,6 +381,56 @@ public abstract class BaseInventory<E> implements Inventory {
         return backend;
     }
 
+    /**
+     * @return the scheduler of the retries of the failed transactions that also keeps the statistics about the
+     * transaction conflicts
+     */
+    public TransactionRetryScheduler getTransactionRetryScheduler() {
+        return transactionRetryScheduler;
+    }
+
+    /**
+     * @return the coordinator of the asynchronous synchronizations that also keeps the statistics about them
+     */
+    public SyncCoordinator getSyncCoordinator() {
+        return syncCoordinator;
+    }
+
+    /**
+     * @return the cache of the query results that also keeps the statistics about its hit rate
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * @return the index used to answer the text searches that also keeps the statistics about its use
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * @return the cache of the tree hashes of the synced entities that also keeps the statistics about its hit rate
+     */
+    public TreeHashCache getTreeHashCache() {
+        return treeHashCache;
+    }
+
+    /**
+     * @return the minimum number of siblings in a tree for which to compute the hashes in parallel during sync
+     */
+    int getHashParallelismThreshold() {
+        return hashParallelismThreshold;
+    }
+
+    /**
+     * @return the executor of the graph exports that also keeps track of the running exports
+     */
+    public GraphExporter getGraphExporter() {
+        return graphExporter;
+    }
+
     @Override
     public boolean hasObservers(Interest<?, ?> interest) {
         return observableContext.isObserved(interest);
@@ -222,7 +443,14 @@ public abstract class BaseInventory<E> implements Inventory {
 
     @Override
     public InputStream getGraphSON(String tenantId) {
-        return getBackend().getGraphSON(tenantId);
+        GraphExport export = new GraphExport(tenantId, GraphExport.Format.GRAPHSON);
+        return graphExporter.submitPiped(export, out -> getBackend().writeGraph(export, out));
+    }
+
+    @Override
+    public GraphExport exportGraph(String tenantId, GraphExport.Format format, OutputStream out) {
+        GraphExport export = new GraphExport(tenantId, format);
+        return graphExporter.submit(export, () -> getBackend().writeGraph(export, out));
     }
 
     @Override
@@ -237,6 +465,55 @@ public abstract class BaseInventory<E> implements Inventory {
         }
     }
 
+    @Override
+    public Map<CanonicalPath, AbstractElement<?, ?>> getElements(Collection<CanonicalPath> paths) {
+        Map<CanonicalPath, AbstractElement<?, ?>> ret = new LinkedHashMap<>();
+        List<CanonicalPath> entityPaths = new ArrayList<>(paths.size());
+        List<CanonicalPath> relationshipPaths = new ArrayList<>(0);
+        for (CanonicalPath p : paths) {
+            if (ret.containsKey(p)) {
+                continue;
+            }
+
+            ret.put(p, null);
+
+            if (p.getSegment().getElementType() == SegmentType.rl) {
+                relationshipPaths.add(p);
+            } else {
+                entityPaths.add(p);
+            }
+        }
+
+        if (ret.isEmpty()) {
+            return ret;
+        }
+
+        return Util.inReadOnlyTx(tenantContext, tx -> {
+            if (!entityPaths.isEmpty()) {
+                Query q = Query.path()
+                        .with(With.paths(entityPaths.toArray(new CanonicalPath[entityPaths.size()]))).get();
+
+                try (Page<E> results = tx.query(q, Pager.unlimited(Order.unspecified()))) {
+                    for (E e : results) {
+                        ret.put(tx.extractCanonicalPath(e), (AbstractElement<?, ?>) tx.convert(e, tx.extractType(e)));
+                    }
+                }
+            }
+
+            //relationships are not looked up by a query, because they're rarely requested in bulk
+            for (CanonicalPath p : relationshipPaths) {
+                try {
+                    E rel = tx.find(p);
+                    ret.put(p, tx.convert(rel, Relationship.class));
+                } catch (ElementNotFoundException ignored) {
+                    //leave the null marker in place
+                }
+            }
+
+            return ret;
+        });
+    }
+
     @Override
     public <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(CanonicalPath startingPoint,
                                                                     Relationships.Direction direction, Class<T> clazz,
@@ -245,6 +522,37 @@ public abstract class BaseInventory<E> implements Inventory {
         return getBackend().getTransitiveClosureOver(startingPoint, direction, clazz, relationshipNames);
     }
 
+    @Override
+    public <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint, Relationships.Direction direction,
+                                                     Class<T> projection, int maxDepth,
+                                                     String... relationshipNames) {
+        return getBackend().streamTransitiveClosureOver(startingPoint, direction, projection, maxDepth,
+                relationshipNames);
+    }
+
+    @Override
+    public Hashes getHashes(CanonicalPath path) {
+        return Util.inReadOnlyTx(tenantContext, tx -> {
+            try {
+                E element = tx.find(path);
+                return new Hashes(tx.extractIdentityHash(element), tx.extractContentHash(element),
+                        tx.extractSyncHash(element));
+            } catch (ElementNotFoundException e) {
+                throw new EntityNotFoundException("No element found on path: " + path.toString());
+            }
+        });
+    }
+
+    @Override
+    public long count(Query query) {
+        return Util.inReadOnlyTx(tenantContext, tx -> tx.count(query));
+    }
+
+    @Override
+    public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        return Util.inReadOnlyTx(tenantContext, tx -> tx.groupCount(query, groupBy));
+    }
+
     @Override
     public Configuration getConfiguration() {
         return configuration;
@@ -252,7 +560,17 @@ public abstract class BaseInventory<E> implements Inventory {
 
     @Override
     public <T extends AbstractElement> Page<T> execute(Query query, Class<T> requestedEntity, Pager pager) {
-        Transaction<E> tx = tenantContext.startTransaction();
+        QueryCache cache = tenantContext.getQueryCache();
+        if (cache == null) {
+            return doExecute(query, requestedEntity, pager);
+        } else {
+            return cache.get(backend.getStorePartition(), query, pager, requestedEntity,
+                    () -> doExecute(query, requestedEntity, pager));
+        }
+    }
+
+    private <T extends AbstractElement> Page<T> doExecute(Query query, Class<T> requestedEntity, Pager pager) {
+        Transaction<E> tx = tenantContext.startReadOnlyTransaction();
         try {
             return new TransformingPage<T, T>(tx.query(query, pager, e -> backend.convert(e, requestedEntity), null),
                     Function.identity()) {
@@ -288,6 +606,10 @@ public abstract class BaseInventory<E> implements Inventory {
         @Override public InventoryBackend<E> startTransaction() {
             return this;
         }
+
+        @Override public InventoryBackend<E> startReadOnlyTransaction() {
+            return this;
+        }
     }
 
     private static final class HidingPrecommit<E> extends Transaction.PreCommit.Simple<E> {
@@ -343,7 +665,7 @@ public abstract class BaseInventory<E> implements Inventory {
         };
 
         @Override public void commit() throws CommitException {
-            Util.onFailureRetry(p ->
+            Util.onFailureRetry(transactionRetryScheduler, TransactionFrame.class, p ->
                             new BackendTransaction<>(new TransactionIgnoringBackend<>(activeBackend, null), p),
                     Transaction.Committable.from(
                             adaptTransactionConstructor(fakeTxCtor)
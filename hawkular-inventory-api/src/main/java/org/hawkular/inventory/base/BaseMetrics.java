@@ -22,6 +22,7 @@ import static org.hawkular.inventory.api.Relationships.WellKnown.incorporates;
 import static org.hawkular.inventory.api.filters.With.id;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.hawkular.inventory.api.EntityAlreadyExistsException;
@@ -64,14 +65,23 @@ public final class BaseMetrics {
         protected EntityAndPendingNotifications<BE, Metric> wireUpNewEntity(BE entity, Metric.Blueprint blueprint,
                                                                             CanonicalPath parentPath, BE parent,
                                                                             Transaction<BE> tx) {
+            return wireUpNewEntity(entity, blueprint, parentPath, parent, new ResolvedDefinitions<>(), tx);
+        }
+
+        @Override
+        protected EntityAndPendingNotifications<BE, Metric> wireUpNewEntity(BE entity, Metric.Blueprint blueprint,
+                                                                            CanonicalPath parentPath, BE parent,
+                                                                            ResolvedDefinitions<BE> definitions,
+                                                                            Transaction<BE> tx) {
 
             BE metricTypeObject;
+            CanonicalPath metricTypePath;
 
             try {
                 CanonicalPath tenant = CanonicalPath.of().tenant(parentPath.ids().getTenantId()).get();
-                CanonicalPath metricTypePath = Util.canonicalize(blueprint.getMetricTypePath(), tenant, parentPath,
+                metricTypePath = Util.canonicalize(blueprint.getMetricTypePath(), tenant, parentPath,
                         MetricType.SEGMENT_TYPE);
-                metricTypeObject = tx.find(metricTypePath);
+                metricTypeObject = definitions.find(tx, metricTypePath);
 
             } catch (ElementNotFoundException e) {
                 throw new IllegalArgumentException("A metric type with path '" + blueprint.getMetricTypePath() +
@@ -85,7 +95,7 @@ public final class BaseMetrics {
 
             CanonicalPath entityPath = tx.extractCanonicalPath(entity);
 
-            MetricType metricType = tx.convert(metricTypeObject, MetricType.class);
+            MetricType metricType = definitions.convert(tx, metricTypePath, metricTypeObject, MetricType.class);
 
             Metric ret = new Metric(blueprint.getName(), parentPath.extend(Metric.SEGMENT_TYPE,
                     tx.extractId(entity)).get(), null, null, null, metricType, blueprint.getCollectionInterval(),
@@ -119,6 +129,17 @@ public final class BaseMetrics {
         public Metrics.Single create(Metric.Blueprint blueprint, boolean cache) throws EntityAlreadyExistsException {
             return new Single<>(context.toCreatedEntity(doCreate(blueprint), cache));
         }
+
+        @Override
+        public List<Metrics.Single> createAll(Collection<? extends Metric.Blueprint> blueprints, boolean cache)
+                throws EntityAlreadyExistsException {
+            List<Metrics.Single> ret = new ArrayList<>(blueprints.size());
+            for (Metric metric : doCreateAll(blueprints)) {
+                ret.add(new Single<>(context.toCreatedEntity(metric, cache)));
+            }
+
+            return ret;
+        }
     }
 
     public static class ReadContained<BE> extends Traversal<BE, Metric> implements Metrics.ReadContained {
@@ -25,6 +25,7 @@ import static org.hawkular.inventory.api.Relationships.WellKnown.isParentOf;
 import static org.hawkular.inventory.api.filters.With.id;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.hawkular.inventory.api.Data;
@@ -76,6 +77,15 @@ public final class BaseResources {
                                                                               Resource.Blueprint blueprint,
                                                                               CanonicalPath parentPath, BE parent,
                                                                               Transaction<BE> tx) {
+            return wireUpNewEntity(entity, blueprint, parentPath, parent, new ResolvedDefinitions<>(), tx);
+        }
+
+        @Override
+        protected EntityAndPendingNotifications<BE, Resource> wireUpNewEntity(BE entity,
+                                                                              Resource.Blueprint blueprint,
+                                                                              CanonicalPath parentPath, BE parent,
+                                                                              ResolvedDefinitions<BE> definitions,
+                                                                              Transaction<BE> tx) {
 
             BE resourceTypeObject;
             CanonicalPath resourceTypePath = null;
@@ -83,7 +93,7 @@ public final class BaseResources {
                 CanonicalPath tenant = CanonicalPath.of().tenant(parentPath.ids().getTenantId()).get();
                 resourceTypePath = Util.canonicalize(blueprint.getResourceTypePath(), tenant,
                         parentPath, ResourceType.SEGMENT_TYPE);
-                resourceTypeObject = tx.find(resourceTypePath);
+                resourceTypeObject = definitions.find(tx, resourceTypePath);
             } catch (ElementNotFoundException e) {
                 throw new IllegalArgumentException("Resource type '" + blueprint.getResourceTypePath() + "' not found" +
                         " when resolved to '" + resourceTypePath + "' while trying to wire up a new resource on path '"
@@ -96,9 +106,10 @@ public final class BaseResources {
             BE r = tx.relate(resourceTypeObject, entity, defines.name(), null);
 
             CanonicalPath entityPath = tx.extractCanonicalPath(entity);
-            resourceTypePath = tx.extractCanonicalPath(resourceTypeObject);
 
-            ResourceType resourceType = tx.convert(resourceTypeObject, ResourceType.class);
+            ResourceType resourceType = definitions.convert(tx, resourceTypePath, resourceTypeObject,
+                    ResourceType.class);
+            resourceTypePath = resourceType.getPath();
 
             Resource ret = new Resource(blueprint.getName(), parentPath.extend(Resource.SEGMENT_TYPE,
                     tx.extractId(entity)).get(), null, null, null, resourceType, blueprint.getProperties());
@@ -144,6 +155,23 @@ public final class BaseResources {
 
             return new Single<>(context.toCreatedEntity(doCreate(blueprint), cache));
         }
+
+        @Override
+        public List<Resources.Single> createAll(Collection<? extends Resource.Blueprint> blueprints, boolean cache)
+                throws EntityAlreadyExistsException {
+            for (Resource.Blueprint blueprint : blueprints) {
+                if (blueprint.getResourceTypePath() == null) {
+                    throw new IllegalArgumentException("ResourceType path is null");
+                }
+            }
+
+            List<Resources.Single> ret = new ArrayList<>(blueprints.size());
+            for (Resource resource : doCreateAll(blueprints)) {
+                ret.add(new Single<>(context.toCreatedEntity(resource, cache)));
+            }
+
+            return ret;
+        }
     }
 
     public static class ReadContained<BE> extends Traversal<BE, Resource> implements Resources.ReadContained {
@@ -16,12 +16,16 @@
  */
 package org.hawkular.inventory.base;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.AbstractElement;
@@ -85,6 +89,11 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.descendToData(dataEntityRepresentation, dataPath);
     }
 
+    @Override
+    public StructuredData loadData(E dataEntityRepresentation, RelativePath dataPath, boolean shallow) {
+        return backend.loadData(dataEntityRepresentation, dataPath, shallow);
+    }
+
     @Override
     public CanonicalPath extractCanonicalPath(E entityRepresentation) {
         return backend.extractCanonicalPath(entityRepresentation);
@@ -134,8 +143,8 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
     }
 
     @Override
-    public InputStream getGraphSON(String tenantId) {
-        return backend.getGraphSON(tenantId);
+    public void writeGraph(GraphExport export, OutputStream out) throws IOException {
+        backend.writeGraph(export, out);
     }
 
     @Override
@@ -167,6 +176,14 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.getTransitiveClosureOver(startingPoint, direction, clazz, relationshipNames);
     }
 
+    @Override
+    public <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint, Relationships.Direction direction,
+                                                     Class<T> projection, int maxDepth,
+                                                     String... relationshipNames) {
+        return backend.streamTransitiveClosureOver(startingPoint, direction, projection, maxDepth,
+                relationshipNames);
+    }
+
     @Override
     public Iterator<E> getTransitiveClosureOver(E startingPoint,
                                                 Relationships.Direction direction,
@@ -174,6 +191,12 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.getTransitiveClosureOver(startingPoint, direction, relationshipNames);
     }
 
+    @Override
+    public boolean isReachable(E startingPoint, Relationships.Direction direction, String relationshipName,
+                               E target) {
+        return backend.isReachable(startingPoint, direction, relationshipName, target);
+    }
+
     @Override
     public boolean hasRelationship(E entity, Relationships.Direction direction,
                                    String relationshipName) {
@@ -208,6 +231,16 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.query(query, pager, conversion, filter);
     }
 
+    @Override
+    public long count(Query query) {
+        return backend.count(query);
+    }
+
+    @Override
+    public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        return backend.groupCount(query, groupBy);
+    }
+
     @Override
     public E relate(E sourceEntity, E targetEntity, String name,
                     Map<String, Object> properties) {
@@ -229,6 +262,16 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.startTransaction();
     }
 
+    @Override
+    public InventoryBackend<E> startReadOnlyTransaction() {
+        return backend.startReadOnlyTransaction();
+    }
+
+    @Override
+    public String getStorePartition() {
+        return backend.getStorePartition();
+    }
+
     @Override
     public Page<E> traverse(E startingPoint, Query query,
                             Pager pager) {
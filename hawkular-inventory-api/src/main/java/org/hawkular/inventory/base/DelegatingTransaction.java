@@ -16,12 +16,15 @@
  */
 package org.hawkular.inventory.base;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.AbstractElement;
@@ -63,6 +66,10 @@ public class DelegatingTransaction<E> implements Transaction<E> {
         return tx.descendToData(dataEntityRepresentation, dataPath);
     }
 
+    @Override public StructuredData loadData(E dataEntityRepresentation, RelativePath dataPath, boolean shallow) {
+        return tx.loadData(dataEntityRepresentation, dataPath, shallow);
+    }
+
     @Override public InventoryBackend<E> directAccess() {
         return tx.directAccess();
     }
@@ -99,8 +106,8 @@ public class DelegatingTransaction<E> implements Transaction<E> {
         return tx.find(element);
     }
 
-    @Override public InputStream getGraphSON(String tenantId) {
-        return tx.getGraphSON(tenantId);
+    @Override public void writeGraph(GraphExport export, OutputStream out) throws IOException {
+        tx.writeGraph(export, out);
     }
 
     @Override public PreCommit<E> getPreCommit() {
@@ -137,6 +144,11 @@ public class DelegatingTransaction<E> implements Transaction<E> {
         return tx.getTransitiveClosureOver(startingPoint, direction, relationshipNames);
     }
 
+    @Override public boolean isReachable(E startingPoint, Relationships.Direction direction,
+                                         String relationshipName, E target) {
+        return tx.isReachable(startingPoint, direction, relationshipName, target);
+    }
+
     @Override public boolean hasRelationship(E entity, Relationships.Direction direction,
                                              String relationshipName) {
         return tx.hasRelationship(entity, direction, relationshipName);
@@ -175,6 +187,14 @@ public class DelegatingTransaction<E> implements Transaction<E> {
         return tx.query(query, pager, conversion, filter);
     }
 
+    @Override public long count(Query query) {
+        return tx.count(query);
+    }
+
+    @Override public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        return tx.groupCount(query, groupBy);
+    }
+
     @Override public E querySingle(Query query) {
         return tx.querySingle(query);
     }
@@ -16,6 +16,7 @@
  */
 package org.hawkular.inventory.base;
 
+import java.util.Collections;
 import java.util.function.Function;
 
 import org.hawkular.inventory.api.EntityNotFoundException;
@@ -28,7 +29,6 @@ import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
 import org.hawkular.inventory.api.paging.TransformingPage;
-import org.hawkular.inventory.base.spi.CommitFailureException;
 
 /**
  * A base class for all interface impls that need to resolve the entities.
@@ -52,7 +52,16 @@ abstract class Fetcher<BE, E extends AbstractElement<?, U>, U extends AbstractEl
             useCachedEntity = false;
             return context.getCreatedEntity();
         }
-        return loadEntity((b, e, tx) -> e);
+
+        QueryCache cache = context.getQueryCache();
+        if (cache == null) {
+            return loadEntity((b, e, tx) -> e);
+        }
+
+        Page<E> cached = cache.get(context.getStorePartition(), context.select().get(), null, context.entityClass,
+                () -> new Page<>(Collections.singleton(loadEntity((b, e, tx) -> e)).iterator(), Pager.single(), 1));
+
+        return cached.next();
     }
 
     /**
@@ -69,7 +78,7 @@ abstract class Fetcher<BE, E extends AbstractElement<?, U>, U extends AbstractEl
     protected <T> T loadEntity(EntityConvertor<BE, E, T> conversion)
             throws EntityNotFoundException, RelationNotFoundException {
 
-        return inTx(tx -> {
+        return inReadOnlyTx(tx -> {
             BE result = tx.querySingle(context.select().get());
 
             if (result == null) {
@@ -152,7 +161,13 @@ abstract class Fetcher<BE, E extends AbstractElement<?, U>, U extends AbstractEl
 
     @Override
     public Page<E> entities(Pager pager) {
-        return loadEntities(pager, (b, e, tx) -> e);
+        QueryCache cache = context.getQueryCache();
+        if (cache == null) {
+            return loadEntities(pager, (b, e, tx) -> e);
+        }
+
+        return cache.get(context.getStorePartition(), context.select().get(), pager, context.entityClass,
+                () -> loadEntities(pager, (b, e, tx) -> e));
     }
 
     /**
@@ -168,7 +183,9 @@ abstract class Fetcher<BE, E extends AbstractElement<?, U>, U extends AbstractEl
      * @return the page of the results as specified by the pager
      */
     protected <T> Page<T> loadEntities(Pager pager, EntityConvertor<BE, E, T> conversionFunction) {
-        return inCommittableTx(tx -> {
+        //the transaction needs to stay open until the page is closed, so we can't use inReadOnlyTx() here
+        Transaction<BE> tx = context.startReadOnlyTransaction();
+        try {
             Function<BE, Pair<BE, E>> conversion =
                     (e) -> new Pair<>(e, tx.convert(e, context.entityClass));
 
@@ -181,15 +198,14 @@ abstract class Fetcher<BE, E extends AbstractElement<?, U>, U extends AbstractEl
             return new TransformingPage<Pair<BE, E>, T>(intermediate,
                     (p) -> conversionFunction.convert(p.first, p.second, tx)) {
                 @Override public void close() {
-                    try {
-                        tx.commit();
-                    } catch (CommitFailureException e) {
-                        throw new IllegalStateException("Failed to commit the read operation.", e);
-                    }
+                    tx.directAccess().rollback();
                     super.close();
                 }
             };
-        });
+        } catch (Throwable t) {
+            tx.directAccess().rollback();
+            throw t;
+        }
     }
 
     @SuppressWarnings("unchecked")
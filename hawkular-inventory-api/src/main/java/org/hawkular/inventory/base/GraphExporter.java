@@ -0,0 +1,284 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.Log;
+
+/**
+ * Runs the exports of the tenant graphs on a bounded pool of worker threads, so that the exports, which read a lot of
+ * data, cannot starve the rest of the inventory, and keeps track of the running exports.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class GraphExporter implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final int threads;
+    private final long pipeTimeout;
+    private final LongSupplier clock;
+    private final Set<GraphExport> running = ConcurrentHashMap.newKeySet();
+    private volatile ExecutorService workers;
+
+    GraphExporter(Configuration configuration) {
+        this(configuration, System::currentTimeMillis);
+    }
+
+    /**
+     * @param configuration the configuration of the exporter
+     * @param clock         supplies the current time in milliseconds to measure the pipe timeout with
+     */
+    GraphExporter(Configuration configuration, LongSupplier clock) {
+        this.clock = clock;
+        this.threads = Util.getIntProperty(configuration, BaseInventory.GRAPH_EXPORT_THREADS, 2);
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least 1 graph export thread.");
+        }
+
+        this.pipeTimeout = Util.getLongProperty(configuration, BaseInventory.GRAPH_EXPORT_PIPE_TIMEOUT, 60000);
+        if (pipeTimeout < 1) {
+            throw new IllegalArgumentException("The graph export pipe timeout must be positive.");
+        }
+    }
+
+    /**
+     * Runs the export asynchronously.
+     *
+     * @param export the handle of the export
+     * @param work   the actual export
+     * @return the handle of the export
+     */
+    GraphExport submit(GraphExport export, Export work) {
+        running.add(export);
+        try {
+            getWorkers().execute(() -> {
+                Throwable failure = null;
+                try {
+                    export.checkNotCancelled();
+                    work.run();
+                } catch (CancellationException e) {
+                    failure = e;
+                } catch (Throwable t) {
+                    Log.LOGGER.wGraphExportFailed(export.getTenantId(), t);
+                    failure = t;
+                }
+
+                //the export must no longer be reported as running once its callers learn about the result
+                running.remove(export);
+
+                if (failure == null) {
+                    export.complete();
+                } else {
+                    export.fail(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.remove(export);
+            export.fail(e);
+        }
+
+        return export;
+    }
+
+    /**
+     * Runs the export asynchronously, writing the data into a pipe. The returned stream reads the data from the pipe
+     * and closing it cancels the export.
+     *
+     * <p>The export fails if the pipe stays full for longer than the
+     * {@link BaseInventory#GRAPH_EXPORT_PIPE_TIMEOUT configured time}, so that a reader that neither reads the data
+     * nor closes the stream cannot block the export thread (and the graph it reads) forever.
+     *
+     * @param export the handle of the export
+     * @param work   the actual export writing to the provided output stream
+     * @return the stream to read the exported data from
+     */
+    InputStream submitPiped(GraphExport export, PipedExport work) {
+        PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create the pipe for the graph export.", e);
+        }
+
+        submit(export, () -> {
+            try (OutputStream o = new TimedPipeOutputStream(in, out, export, pipeTimeout, clock)) {
+                work.run(o);
+            }
+        });
+
+        return new FilterInputStream(in) {
+            @Override public void close() throws IOException {
+                export.cancel();
+                super.close();
+            }
+        };
+    }
+
+    /**
+     * @return the exports that are currently running or waiting for a free worker thread
+     */
+    public List<GraphExport> getRunningExports() {
+        return Collections.unmodifiableList(new ArrayList<>(running));
+    }
+
+    @Override public void close() {
+        ExecutorService ex = workers;
+        if (ex != null) {
+            ex.shutdown();
+        }
+
+        running.forEach(GraphExport::cancel);
+    }
+
+    private ExecutorService getWorkers() {
+        ExecutorService ex = workers;
+        if (ex == null) {
+            synchronized (this) {
+                ex = workers;
+                if (ex == null) {
+                    int poolNumber = POOL_COUNTER.incrementAndGet();
+                    AtomicInteger threadCounter = new AtomicInteger();
+                    workers = ex = Executors.newFixedThreadPool(threads, r -> {
+                        Thread t = new Thread(r, "hawkular-inventory-graph-export-" + poolNumber + "-"
+                                + threadCounter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+
+        return ex;
+    }
+
+    @FunctionalInterface
+    interface Export {
+        void run() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface PipedExport {
+        void run(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Only ever writes as much data as fits into the pipe, so that the writes never block in the pipe itself, and
+     * waits for the reader to make room in the pipe for at most the configured time.
+     */
+    private static final class TimedPipeOutputStream extends OutputStream {
+        private final PipedInputStream in;
+        private final PipedOutputStream out;
+        private final GraphExport export;
+        private final long timeout;
+        private final LongSupplier clock;
+
+        TimedPipeOutputStream(PipedInputStream in, PipedOutputStream out, GraphExport export, long timeout,
+                              LongSupplier clock) {
+            this.in = in;
+            this.out = out;
+            this.export = export;
+            this.timeout = timeout;
+            this.clock = clock;
+        }
+
+        @Override public void write(int b) throws IOException {
+            awaitSpace();
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                throw closedByReader(e);
+            }
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, awaitSpace());
+                try {
+                    out.write(b, off, n);
+                } catch (IOException e) {
+                    throw closedByReader(e);
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override public void close() throws IOException {
+            out.close();
+        }
+
+        /**
+         * The reader might have closed the pipe right after we checked for the cancellation.
+         */
+        private IOException closedByReader(IOException failure) {
+            export.checkNotCancelled();
+            return failure;
+        }
+
+        private int awaitSpace() throws IOException {
+            long deadline = clock.getAsLong() + timeout;
+            while (true) {
+                //closing the reading end cancels the export, so check that before writing into the closed pipe
+                export.checkNotCancelled();
+
+                int space = PIPE_SIZE - in.available();
+                if (space > 0) {
+                    return space;
+                }
+
+                if (clock.getAsLong() >= deadline) {
+                    throw new IOException("The export of the graph of the tenant '" + export.getTenantId()
+                            + "' has not been read for " + timeout + "ms.");
+                }
+
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the graph export to be read.");
+                }
+            }
+        }
+    }
+}
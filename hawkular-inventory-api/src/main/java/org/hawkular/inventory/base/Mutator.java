@@ -23,7 +23,10 @@ import static org.hawkular.inventory.api.Relationships.WellKnown.contains;
 import static org.hawkular.inventory.api.filters.With.id;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,6 +37,7 @@ import org.hawkular.inventory.api.EntityAlreadyExistsException;
 import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.With;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Blueprint;
 import org.hawkular.inventory.api.model.Entity;
@@ -106,6 +110,85 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
         return entity;
     }
 
+    /**
+     * A helper method to be used in the implementation of the
+     * {@link org.hawkular.inventory.api.WriteInterface#createAll(Collection, boolean)} method.
+     *
+     * <p>All the entities are created in a single transaction. The parent is only looked up once for the whole batch,
+     * the existence of all the entities is checked using a single query and the definitions the entities are wired to
+     * (e.g. the resource types of resources) are only looked up once per distinct definition.
+     *
+     * @param blueprints the blueprints of the new entities
+     * @return the created entities in the order of the provided blueprints
+     */
+    protected final List<E> doCreateAll(Collection<? extends B> blueprints) {
+        if (blueprints.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        ResultWithNofifications<List<E>, BE> result = inTxWithNotifications(tx -> {
+            List<String> ids = new ArrayList<>(blueprints.size());
+            Set<String> distinctIds = new HashSet<>();
+            for (B blueprint : blueprints) {
+                String id = getProposedId(tx, blueprint);
+                if (!distinctIds.add(id)) {
+                    throw new EntityAlreadyExistsException(id, Query.filters(context.select().with(id(id)).get()));
+                }
+                ids.add(id);
+            }
+
+            if (!tx.isUniqueIndexSupported()) {
+                Query existenceCheck = context.hop().filter().with(With.ids(ids.toArray(new String[ids.size()])))
+                        .get();
+
+                Page<BE> results = tx.query(existenceCheck, Pager.single());
+
+                if (results.hasNext()) {
+                    throw new EntityAlreadyExistsException(tx.extractId(results.next()),
+                            Query.filters(existenceCheck));
+                }
+            }
+
+            BE parent = getParent(tx);
+            CanonicalPath parentCanonicalPath = parent == null ? null : tx.extractCanonicalPath(parent);
+            ResolvedDefinitions<BE> definitions = new ResolvedDefinitions<>();
+
+            List<E> created = new ArrayList<>(ids.size());
+            int i = 0;
+            for (B blueprint : blueprints) {
+                preCreate(blueprint, tx);
+                created.add(doCreate(ids.get(i++), blueprint, parent, parentCanonicalPath, definitions, tx)
+                        .getEntity());
+            }
+
+            return created;
+        });
+
+        //see doCreate(B) for why we look at the notifications
+        Map<CanonicalPath, E> notified = new HashMap<>();
+        for (EntityAndPendingNotifications<BE, ?> ns : result.getSentNotifications()) {
+            if (!context.entityClass.isInstance(ns.getEntity())) {
+                continue;
+            }
+
+            boolean createdNotification = ns.getNotifications().stream()
+                    .anyMatch(n -> n.getAction().asEnum() == Action.Enumerated.CREATED);
+
+            if (createdNotification) {
+                @SuppressWarnings("unchecked")
+                E e = (E) ns.getEntity();
+                notified.put(e.getPath(), e);
+            }
+        }
+
+        List<E> ret = new ArrayList<>(result.getResult().size());
+        for (E e : result.getResult()) {
+            ret.add(notified.getOrDefault(e.getPath(), e));
+        }
+
+        return ret;
+    }
+
     /**
      * Creates the entity specified by the provided blueprint using the provided transaction.
      *
@@ -136,6 +219,12 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
         BE parent = getParent(tx);
         CanonicalPath parentCanonicalPath = parent == null ? null : tx.extractCanonicalPath(parent);
 
+        return doCreate(id, blueprint, parent, parentCanonicalPath, new ResolvedDefinitions<>(), tx);
+    }
+
+    private EntityAndPendingNotifications<BE, E> doCreate(String id, B blueprint, BE parent,
+                                                          CanonicalPath parentCanonicalPath,
+                                                          ResolvedDefinitions<BE> definitions, Transaction<BE> tx) {
         EntityAndPendingNotifications<BE, E> newEntity;
         BE containsRel = null;
 
@@ -162,7 +251,7 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
                     new EntityAndPendingNotifications<>(containsRel, rel, new Notification<>(rel, rel, created())));
         }
 
-        newEntity = wireUpNewEntity(entityObject, blueprint, parentCanonicalPath, parent, tx);
+        newEntity = wireUpNewEntity(entityObject, blueprint, parentCanonicalPath, parent, definitions, tx);
 
         if (blueprint instanceof Entity.Blueprint) {
             Entity.Blueprint b = (Entity.Blueprint) blueprint;
@@ -286,6 +375,28 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
     wireUpNewEntity(BE entity, B blueprint, CanonicalPath parentPath, BE parent,
                     Transaction<BE> transaction);
 
+    /**
+     * Same as {@link #wireUpNewEntity(Object, Blueprint, CanonicalPath, Object, Transaction)} but can use the provided
+     * definitions to avoid looking up the same definition entities (like resource types of resources) over and over
+     * again when creating several entities at once.
+     *
+     * <p>By default this just calls the other overload.
+     *
+     * @param entity      the freshly created, uninitialized entity
+     * @param blueprint   the blueprint that it prescribes how the entity should be initialized
+     * @param parentPath  the path to the parent entity
+     * @param parent      the actual parent entity
+     * @param definitions the definitions already resolved in the current batch of created entities
+     * @param transaction the transaction this is being executed in
+     * @return an object with the initialized and converted entity together with any pending notifications to be sent
+     * out
+     */
+    protected EntityAndPendingNotifications<BE, E>
+    wireUpNewEntity(BE entity, B blueprint, CanonicalPath parentPath, BE parent, ResolvedDefinitions<BE> definitions,
+                    Transaction<BE> transaction) {
+        return wireUpNewEntity(entity, blueprint, parentPath, parent, transaction);
+    }
+
     private void createCustomRelationships(BE entity, Relationships.Direction direction,
                                            Map<String, Set<CanonicalPath>> otherEnds,
                                            Transaction<BE> tx) {
@@ -305,4 +416,35 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
             }
         }));
     }
+
+    /**
+     * Caches the definition entities (like resource types or metric types) and their converted forms looked up during
+     * the creation of a batch of entities.
+     *
+     * @param <BE> the type of the backend entity
+     */
+    static final class ResolvedDefinitions<BE> {
+        private final Map<CanonicalPath, BE> entities = new HashMap<>();
+        private final Map<CanonicalPath, Object> converted = new HashMap<>();
+
+        BE find(Transaction<BE> tx, CanonicalPath path) throws ElementNotFoundException {
+            BE ret = entities.get(path);
+            if (ret == null) {
+                ret = tx.find(path);
+                entities.put(path, ret);
+            }
+
+            return ret;
+        }
+
+        <T> T convert(Transaction<BE> tx, CanonicalPath path, BE entity, Class<T> type) {
+            Object ret = converted.get(path);
+            if (ret == null) {
+                ret = tx.convert(entity, type);
+                converted.put(path, ret);
+            }
+
+            return type.cast(ret);
+        }
+    }
 }
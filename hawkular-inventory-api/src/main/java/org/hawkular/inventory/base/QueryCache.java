@@ -0,0 +1,482 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryFragment;
+import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.Filter;
+import org.hawkular.inventory.api.filters.Related;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.Relationship;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.PageContext;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+
+/**
+ * An opt-in cache of the results of the read queries. The results are cached under the query, the pager, the
+ * requested type of the results and the {@link InventoryBackend#getStorePartition() store partition} they were read
+ * from. The cache is bounded and evicts the least recently used entries.
+ *
+ * <p>The cached results are invalidated using the notifications sent out after each successful commit. Each entry is
+ * scoped to the tenants its query starts in (the relationships cannot cross the tenant boundaries so the results
+ * can't come from anywhere else) and, if the query only descends down the {@code contains} hierarchy, to the
+ * canonical paths it starts at. An entry is only invalidated if a change happens in its scope or to an entity its
+ * results depend on (like the resource type of a resource). The entries of the queries that don't start at known
+ * tenants are invalidated by any change.
+ *
+ * <p>The results of a query that was running while a change was committed in any of the tenants the query starts in
+ * are not cached, because they might have been read before the change. The changes in other tenants don't prevent
+ * the caching. The results of the queries that don't start at known tenants are not cached if any change was
+ * committed while they were running.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class QueryCache {
+    private final int maxEntries;
+    private final int maxResults;
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<String, Set<Key>> entriesByTenant = new HashMap<>();
+    private final Set<Key> globalEntries = new HashSet<>();
+
+    /**
+     * Incremented with each change. Used to guard the caching of the results of the queries that don't start at
+     * known tenants.
+     */
+    private long epoch;
+
+    /**
+     * Incremented with each change in the tenant. Used to guard the caching of the results of the queries that start
+     * at known tenants.
+     */
+    private final Map<String, Long> tenantEpochs = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    QueryCache(Configuration configuration) {
+        this.maxEntries = Util.getIntProperty(configuration, BaseInventory.QUERY_CACHE_SIZE, 0);
+        this.maxResults = Util.getIntProperty(configuration, BaseInventory.QUERY_CACHE_MAX_RESULTS, 1000);
+
+        if (maxEntries < 0 || maxResults < 0) {
+            throw new IllegalArgumentException("The query cache size and the max number of cached results must not" +
+                    " be negative.");
+        }
+
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return true if the cache is switched on, false otherwise
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Returns the cached results of the query or loads them using the provided loader and caches them.
+     *
+     * @param partition  the store partition the query reads from, null if there is just a single store
+     * @param query      the query to look up the results for
+     * @param pager      the pager used with the query or null if a single result is requested
+     * @param resultType the type of the results
+     * @param loader     the function to load the results if they're not cached
+     * @param <T>        the type of the results
+     * @return the page of the results
+     */
+    <T> Page<T> get(String partition, Query query, PageContext pager, Class<?> resultType,
+                    Supplier<Page<T>> loader) {
+        Key key = new Key(partition, query, pager, resultType);
+        Set<String> tenants = Util.tenantsOf(Util.queryRoots(query));
+        long startEpoch;
+
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                hits.increment();
+                @SuppressWarnings("unchecked")
+                List<T> results = (List<T>) e.results;
+                return new Page<>(results.iterator(), e.pageContext, e.totalSize, e.continuationToken);
+            }
+
+            startEpoch = epochOf(tenants);
+        }
+
+        misses.increment();
+
+        Page<T> page = loader.get();
+        PageContext pageContext = page.getPageContext();
+        long totalSize = page.getTotalSize();
+        String continuationToken = page.getContinuationToken();
+
+        List<T> collected = new ArrayList<>();
+        try {
+            while (collected.size() <= maxResults && page.hasNext()) {
+                collected.add(page.next());
+            }
+        } catch (Throwable t) {
+            page.close();
+            throw t;
+        }
+
+        if (collected.size() > maxResults) {
+            //too many results to cache, let's not load the rest of them into memory
+            return new Page<T>(concat(collected.iterator(), page), pageContext, totalSize, continuationToken) {
+                @Override public void close() {
+                    try {
+                        page.close();
+                    } finally {
+                        super.close();
+                    }
+                }
+            };
+        }
+
+        page.close();
+
+        List<T> results = Collections.unmodifiableList(collected);
+        Entry e = new Entry(results, pageContext, totalSize, continuationToken, query);
+
+        synchronized (this) {
+            if (epochOf(tenants) == startEpoch) {
+                Entry previous = entries.put(key, e);
+                if (previous != null) {
+                    unindex(key, previous);
+                }
+                index(key, e);
+            }
+        }
+
+        return new Page<>(results.iterator(), pageContext, totalSize, continuationToken);
+    }
+
+    private static <T> Iterator<T> concat(Iterator<T> first, Iterator<T> second) {
+        return new Iterator<T>() {
+            @Override public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
+
+            @Override public T next() {
+                return first.hasNext() ? first.next() : second.next();
+            }
+        };
+    }
+
+    /**
+     * Invalidates the cached results that might have been affected by the change the provided notifications
+     * describe.
+     *
+     * @param changes the entity that changed together with the notifications about it
+     */
+    void invalidate(EntityAndPendingNotifications<?, ?> changes) {
+        List<CanonicalPath> changed = new ArrayList<>(2);
+        AbstractElement<?, ?> element = changes.getEntity();
+        if (element instanceof Relationship) {
+            changed.add(((Relationship) element).getSource());
+            changed.add(((Relationship) element).getTarget());
+        } else {
+            changed.add(element.getPath());
+        }
+
+        synchronized (this) {
+            epoch++;
+            changed.stream().map(p -> p.ids().getTenantId()).distinct()
+                    .forEach(t -> tenantEpochs.merge(t, 1L, Long::sum));
+
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            removeAll(globalEntries);
+
+            for (CanonicalPath path : changed) {
+                Set<Key> tenantEntries = entriesByTenant.get(path.ids().getTenantId());
+                if (tenantEntries == null) {
+                    continue;
+                }
+
+                List<Key> affected = new ArrayList<>();
+                for (Key k : tenantEntries) {
+                    if (entries.get(k).isAffectedBy(path)) {
+                        affected.add(k);
+                    }
+                }
+
+                removeAll(affected);
+            }
+        }
+    }
+
+    /**
+     * @return the number of lookups served from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to load the results
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the ratio of the hits to all the lookups or 0 if there were no lookups yet
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the number of entries evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of entries removed because of a change in the inventory
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return the current number of the cached entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The epochs only ever increase, so the sum of the epochs of the tenants only stays the same if there was no
+     * change in any of them.
+     *
+     * @param tenants the tenants or null if they're not known
+     * @return the epoch guarding the results of a query starting in the provided tenants
+     */
+    private long epochOf(Set<String> tenants) {
+        if (tenants == null) {
+            return epoch;
+        }
+
+        long ret = 0;
+        for (String t : tenants) {
+            ret += tenantEpochs.getOrDefault(t, 0L);
+        }
+        return ret;
+    }
+
+    private void removeAll(Iterable<Key> keys) {
+        //copy, because the keys might come from the indices we're going to modify
+        List<Key> toRemove = new ArrayList<>();
+        keys.forEach(toRemove::add);
+
+        for (Key k : toRemove) {
+            Entry e = entries.remove(k);
+            if (e != null) {
+                unindex(k, e);
+                invalidations.increment();
+            }
+        }
+    }
+
+    private void index(Key key, Entry entry) {
+        if (entry.tenants == null) {
+            globalEntries.add(key);
+        } else {
+            for (String t : entry.tenants) {
+                entriesByTenant.computeIfAbsent(t, x -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        if (entry.tenants == null) {
+            globalEntries.remove(key);
+        } else {
+            for (String t : entry.tenants) {
+                Set<Key> keys = entriesByTenant.get(t);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        entriesByTenant.remove(t);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String partition;
+        private final Query query;
+        private final PageContext pager;
+        private final Class<?> resultType;
+        private final int hashCode;
+
+        Key(String partition, Query query, PageContext pager, Class<?> resultType) {
+            this.partition = partition;
+            this.query = query;
+            this.pager = pager;
+            this.resultType = resultType;
+            this.hashCode = Objects.hash(partition, query, pager, resultType);
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return resultType == other.resultType && Objects.equals(partition, other.partition)
+                    && Objects.equals(pager, other.pager) && query.equals(other.query);
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        final List<?> results;
+        final PageContext pageContext;
+        final long totalSize;
+        final String continuationToken;
+
+        /**
+         * The tenants the query starts in or null if they're not known.
+         */
+        final Set<String> tenants;
+
+        /**
+         * The paths whose subtrees contain all the results or null if the results can come from anywhere in the
+         * tenants.
+         */
+        final List<CanonicalPath> scope;
+
+        /**
+         * The paths of the entities outside of the scope that are embedded in the results.
+         */
+        final Set<CanonicalPath> dependencies;
+
+        Entry(List<?> results, PageContext pageContext, long totalSize, String continuationToken, Query query) {
+            this.results = results;
+            this.pageContext = pageContext;
+            this.totalSize = totalSize;
+            this.continuationToken = continuationToken;
+
+            List<CanonicalPath> roots = Util.queryRoots(query);
+            Set<String> rootTenants = Util.tenantsOf(roots);
+            if (rootTenants == null) {
+                this.tenants = null;
+                this.scope = null;
+                this.dependencies = Collections.emptySet();
+            } else {
+                this.tenants = rootTenants;
+                this.scope = isContainedInRoots(query) ? roots : null;
+                this.dependencies = new HashSet<>();
+                for (Object r : results) {
+                    if (r instanceof Resource && ((Resource) r).getType() != null) {
+                        dependencies.add(((Resource) r).getType().getPath());
+                    } else if (r instanceof Metric && ((Metric) r).getType() != null) {
+                        dependencies.add(((Metric) r).getType().getPath());
+                    }
+                }
+            }
+        }
+
+        boolean isAffectedBy(CanonicalPath changed) {
+            if (scope == null) {
+                return true;
+            }
+
+            for (CanonicalPath root : scope) {
+                if (root.equals(changed) || root.isParentOf(changed) || changed.isParentOf(root)) {
+                    return true;
+                }
+            }
+
+            for (CanonicalPath dep : dependencies) {
+                if (dep.equals(changed) || dep.isParentOf(changed)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @return true if the query only goes down the {@code contains} hierarchy from its roots
+         */
+        private static boolean isContainedInRoots(Query query) {
+            if (!query.getSubTrees().isEmpty()) {
+                return false;
+            }
+
+            for (QueryFragment f : query.getFragments()) {
+                Filter filter = f.getFilter();
+                if (filter instanceof Related) {
+                    Related rel = (Related) filter;
+                    if (rel.getEntityPath() != null || rel.getRelationshipId() != null
+                            || rel.getEntityRole() != Related.EntityRole.SOURCE
+                            || !Relationships.WellKnown.contains.name().equals(rel.getRelationshipName())) {
+                        return false;
+                    }
+                } else if (!(filter instanceof With.CanonicalPaths || filter instanceof With.Ids
+                        || filter instanceof With.Types || filter instanceof With.Names
+                        || filter instanceof With.PropertyValues || filter instanceof With.TextSearch)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.hawkular.inventory.api.Inventory;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Blueprint;
+import org.hawkular.inventory.api.model.Hashes;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+
+/**
+ * A transaction that can only be used for reading the data. It is bound to a backend transaction started using
+ * {@link InventoryBackend#startReadOnlyTransaction()} and has no pre-commit actions or notifications associated with
+ * it. Any attempt to modify the data within it results in an {@link IllegalStateException}.
+ *
+ * <p>The read-only transactions are never committed, they are always rolled back once the read is done.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class ReadOnlyTransaction<E> extends BackendTransaction<E> {
+
+    public ReadOnlyTransaction(InventoryBackend<E> backend) {
+        super(backend, NoopPreCommit.instance());
+    }
+
+    @Override public void delete(E entity) {
+        throw readOnly();
+    }
+
+    @Override public void deleteStructuredData(E dataRepresentation) {
+        throw readOnly();
+    }
+
+    @Override public E persist(CanonicalPath path, Blueprint blueprint) {
+        throw readOnly();
+    }
+
+    @Override public E persist(StructuredData structuredData) {
+        throw readOnly();
+    }
+
+    @Override public E relate(E sourceEntity, E targetEntity, String name, Map<String, Object> properties) {
+        throw readOnly();
+    }
+
+    @Override public void update(E entity, AbstractElement.Update update) {
+        throw readOnly();
+    }
+
+    @Override public void updateHashes(E entity, Hashes hashes) {
+        throw readOnly();
+    }
+
+    private static IllegalStateException readOnly() {
+        return new IllegalStateException("Cannot modify inventory in a read-only transaction.");
+    }
+
+    private static final class NoopPreCommit<E> implements PreCommit<E> {
+        private static final NoopPreCommit<?> INSTANCE = new NoopPreCommit<>();
+
+        @SuppressWarnings("unchecked")
+        static <E> NoopPreCommit<E> instance() {
+            return (NoopPreCommit<E>) INSTANCE;
+        }
+
+        @Override public List<EntityAndPendingNotifications<E, ?>> getFinalNotifications() {
+            return Collections.emptyList();
+        }
+
+        @Override public void initialize(Inventory inventory, Transaction<E> tx) {
+        }
+
+        @Override public void reset() {
+        }
+
+        @Override public void addAction(Consumer<Transaction<E>> action) {
+            throw readOnly();
+        }
+
+        @Override public List<Consumer<Transaction<E>>> getActions() {
+            return Collections.emptyList();
+        }
+
+        @Override public void addNotifications(EntityAndPendingNotifications<E, ?> element) {
+            throw readOnly();
+        }
+
+        @Override public void addProcessedNotifications(EntityAndPendingNotifications<E, ?> element) {
+            throw readOnly();
+        }
+    }
+}
@@ -29,7 +29,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +36,7 @@ import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.Environment;
 import org.hawkular.inventory.api.model.Feed;
 import org.hawkular.inventory.api.model.MetadataPack;
+import org.hawkular.inventory.paths.CanonicalPath;
 
 /**
  * Some well-known relationships have certain semantic rules that need to be checked for when creating/deleting them.
@@ -147,27 +147,27 @@ public final class RelationshipRules {
                     " on the same entity.");
         }
 
-        if (direction == Relationships.Direction.incoming) {
-            Iterator<E> closure = backend.getTransitiveClosureOver(origin, outgoing, relationship);
+        boolean loop;
+        if (contains.name().equals(relationship)) {
+            //the contains hierarchy is reflected in the canonical paths, so we don't have to walk the graph at all
+            CanonicalPath originPath = backend.extractCanonicalPath(origin);
+            CanonicalPath targetPath = backend.extractCanonicalPath(target);
+            loop = direction == outgoing ? targetPath.isParentOf(originPath) : originPath.isParentOf(targetPath);
+        } else if (direction == Relationships.Direction.incoming) {
+            loop = backend.isReachable(origin, outgoing, relationship, target);
+        } else {
+            loop = backend.isReachable(origin, incoming, relationship, target);
+        }
 
-            while (closure.hasNext()) {
-                E e = closure.next();
-                if (e.equals(target)) {
-                    throw new IllegalArgumentException("The target and the source (indirectly) form a loop while" +
-                            " traversing over '" + relationship + "' relationships. This is illegal for that" +
-                            " relationship.");
-                }
-            }
-        } else if (direction == outgoing) {
-            Iterator<E> closure = backend.getTransitiveClosureOver(origin, incoming, relationship);
-
-            while (closure.hasNext()) {
-                E e = closure.next();
-                if (e.equals(target)) {
-                    throw new IllegalArgumentException("The source and the target (indirectly) form a loop while" +
-                            " traversing over '" + relationship + "' relationships. This is illegal for that" +
-                            " relationship.");
-                }
+        if (loop) {
+            if (direction == Relationships.Direction.incoming) {
+                throw new IllegalArgumentException("The target and the source (indirectly) form a loop while" +
+                        " traversing over '" + relationship + "' relationships. This is illegal for that" +
+                        " relationship.");
+            } else {
+                throw new IllegalArgumentException("The source and the target (indirectly) form a loop while" +
+                        " traversing over '" + relationship + "' relationships. This is illegal for that" +
+                        " relationship.");
             }
         }
     }
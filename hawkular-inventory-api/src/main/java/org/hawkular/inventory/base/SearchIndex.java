@@ -0,0 +1,608 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.GroupBy;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
+
+/**
+ * An opt-in in-memory index of the ids, names and selected properties of the entities that is used to answer the
+ * {@link With.TextSearch} filters without scanning the candidate elements in the backend.
+ *
+ * <p>The index is built from the backend when the inventory is initialized and is then kept up to date using the
+ * notifications sent out after each successful commit. If the backend keeps the data in several
+ * {@link org.hawkular.inventory.base.spi.InventoryBackend#getStorePartition() store partitions}, the entities of each
+ * partition are loaded when the partition is first searched in. The values are kept in sorted maps per tenant and field,
+ * so that the prefix searches only look at the matching values. The searches for a contained text use the trigrams
+ * of the values to find the candidates and the regular expressions are evaluated against the distinct values of the
+ * field.
+ *
+ * <p>The text searches in the read-only queries are replaced by filters on the canonical paths of the found entities.
+ * The searches on properties that are not indexed and the searches that would find too many entities are left for
+ * the backend to evaluate. Because the index only reflects the committed data, it is only used for the reads that
+ * only ever see the committed data.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class SearchIndex {
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final int GRAM_LENGTH = 3;
+
+    private final boolean enabled;
+    private final Set<String> properties;
+    private final int maxPaths;
+
+    private final Map<String, TenantIndex> tenants = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentMap<String, Boolean> loadedPartitions = new ConcurrentHashMap<>();
+    //the changes made while the partitions are being loaded, guarded by the lock
+    private final Set<List<EntityAndPendingNotifications<?, ?>>> pendingLoads =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    SearchIndex(Configuration configuration) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty(BaseInventory.SEARCH_INDEX_ENABLED, "false"));
+        this.maxPaths = Util.getIntProperty(configuration, BaseInventory.SEARCH_INDEX_MAX_PATHS, 1000);
+
+        String props = configuration.getProperty(BaseInventory.SEARCH_INDEX_PROPERTIES, "");
+        this.properties = Collections.unmodifiableSet(Stream.of(props.split(",")).map(String::trim)
+                .filter(p -> !p.isEmpty()).collect(Collectors.toSet()));
+
+        if (maxPaths < 0) {
+            throw new IllegalArgumentException("The max number of paths found by the search index must not be" +
+                    " negative.");
+        }
+    }
+
+    /**
+     * @return true if the index is switched on, false otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the names of the properties of the entities that are indexed apart from their ids and names
+     */
+    public Set<String> getIndexedProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the number of the entities in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return tenants.values().stream().mapToInt(t -> t.entities.size()).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of text searches answered from the index
+     */
+    public long getSearchCount() {
+        return searches.sum();
+    }
+
+    /**
+     * @return the number of text searches that were left for the backend to evaluate, because they either searched
+     * in a property that is not indexed or would find too many entities
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Replaces the contents of the index with all the entities found in the backend.
+     *
+     * @param tx the read-only transaction to load the entities with
+     */
+    <BE> void rebuild(Transaction<BE> tx) {
+        Map<String, TenantIndex> loaded = load(tx);
+
+        lock.writeLock().lock();
+        try {
+            tenants.clear();
+            tenants.putAll(loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the entities of the store partition the provided transaction reads from into the index, unless they have
+     * already been loaded. The indices of the tenants found in the partition are replaced with the loaded ones and
+     * the changes committed while the entities were being loaded are applied to them again, so that they are not lost.
+     * The concurrent callers for the same partition wait until the entities are loaded.
+     *
+     * @param partition the store partition to load
+     * @param tx        the read-only transaction to load the entities of the partition with
+     */
+    <BE> void ensureLoaded(String partition, Transaction<BE> tx) {
+        if (loadedPartitions.containsKey(partition)) {
+            return;
+        }
+
+        loadedPartitions.computeIfAbsent(partition, p -> {
+            List<EntityAndPendingNotifications<?, ?>> missed = new ArrayList<>();
+
+            lock.writeLock().lock();
+            try {
+                pendingLoads.add(missed);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Map<String, TenantIndex> loaded = null;
+            try {
+                loaded = load(tx);
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pendingLoads.remove(missed);
+                    if (loaded != null) {
+                        tenants.putAll(loaded);
+                        missed.forEach(this::apply);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            return Boolean.TRUE;
+        });
+    }
+
+    private <BE> Map<String, TenantIndex> load(Transaction<BE> tx) {
+        Query all = Query.path().with(With.types(SegmentType.t, SegmentType.e, SegmentType.f, SegmentType.rt,
+                SegmentType.mt, SegmentType.ot, SegmentType.mp, SegmentType.r, SegmentType.m, SegmentType.d)).get();
+
+        Map<String, TenantIndex> loaded = new HashMap<>();
+
+        try (Page<BE> entities = tx.query(all, Pager.none())) {
+            for (BE e : entities) {
+                CanonicalPath cp = tx.extractCanonicalPath(e);
+                Entity<?, ?> entity = (Entity<?, ?>) tx.convert(e, tx.extractType(e));
+                loaded.computeIfAbsent(cp.ids().getTenantId(), t -> new TenantIndex()).add(cp, entity, properties);
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Updates the index with the changes the provided notifications describe.
+     *
+     * @param changes the entity that changed together with the notifications about it
+     */
+    void update(EntityAndPendingNotifications<?, ?> changes) {
+        lock.writeLock().lock();
+        try {
+            pendingLoads.forEach(l -> l.add(changes));
+            apply(changes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(EntityAndPendingNotifications<?, ?> changes) {
+        for (Notification<?, ?> n : changes.getNotifications()) {
+            Entity<?, ?> entity = changedEntity(n, changes.getEntity());
+            if (entity == null) {
+                continue;
+            }
+
+            CanonicalPath cp = entity.getPath();
+            String tenantId = cp.ids().getTenantId();
+
+            if (n.getAction() == Action.deleted()) {
+                if (cp.getSegment().getElementType() == Tenant.SEGMENT_TYPE) {
+                    tenants.remove(tenantId);
+                } else {
+                    TenantIndex idx = tenants.get(tenantId);
+                    if (idx != null) {
+                        idx.removeWithDescendants(cp);
+                    }
+                }
+            } else {
+                tenants.computeIfAbsent(tenantId, t -> new TenantIndex()).add(cp, entity, properties);
+            }
+        }
+    }
+
+    /**
+     * @return the entity as it is after the change the notification describes or null if the notification is not
+     * about a change of an entity
+     */
+    @SuppressWarnings("unchecked")
+    private static Entity<?, ?> changedEntity(Notification<?, ?> notification, AbstractElement<?, ?> entity) {
+        Object value = notification.getValue();
+        if (value instanceof Entity) {
+            return (Entity<?, ?>) value;
+        } else if (!(value instanceof Action.Update)
+                || !(((Action.Update<?, ?>) value).getOriginalEntity() instanceof Entity)) {
+            return null;
+        }
+
+        Action.Update<Entity<?, Entity.Update>, Entity.Update> update =
+                (Action.Update<Entity<?, Entity.Update>, Entity.Update>) value;
+
+        Entity<?, Entity.Update> orig = update.getOriginalEntity();
+
+        //the notified entity is the one read back from the backend after the update, so prefer it to the one
+        //computed from the update
+        if (entity instanceof Entity && orig.getPath().equals(entity.getPath())) {
+            return (Entity<?, ?>) entity;
+        }
+
+        return (Entity<?, ?>) orig.update().with(update.getUpdate());
+    }
+
+    /**
+     * Replaces the text searches in the query that can be answered by this index with the filters on the canonical
+     * paths of the found entities.
+     *
+     * @param query     the query to rewrite
+     * @param tenantIds supplies the ids of the tenants the results of the query can come from or null if not known.
+     *                  Only called if there is a text search in the query.
+     * @return the rewritten query or the provided instance if there is nothing to replace
+     */
+    Query rewrite(Query query, Supplier<Set<String>> tenantIds) {
+        return query.mapFilters(f -> {
+            if (!(f instanceof With.TextSearch)) {
+                return f;
+            }
+
+            Set<CanonicalPath> found = search((With.TextSearch) f, tenantIds.get());
+            if (found == null) {
+                fallbacks.increment();
+                return f;
+            }
+
+            searches.increment();
+            return With.paths(found.toArray(new CanonicalPath[found.size()]));
+        });
+    }
+
+    /**
+     * @param search    the text search to perform
+     * @param tenantIds the ids of the tenants to search in or null to search in all tenants
+     * @return the paths of the found entities or null if the search cannot be answered by the index
+     */
+    Set<CanonicalPath> search(With.TextSearch search, Set<String> tenantIds) {
+        String field = fieldKey(search);
+        if (field == null) {
+            return null;
+        }
+
+        Set<CanonicalPath> ret = new LinkedHashSet<>();
+
+        lock.readLock().lock();
+        try {
+            Collection<TenantIndex> scope;
+            if (tenantIds == null) {
+                scope = tenants.values();
+            } else {
+                scope = new ArrayList<>(tenantIds.size());
+                for (String t : tenantIds) {
+                    TenantIndex idx = tenants.get(t);
+                    if (idx != null) {
+                        scope.add(idx);
+                    }
+                }
+            }
+
+            for (TenantIndex idx : scope) {
+                if (!idx.search(field, search, ret, maxPaths)) {
+                    return null;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return ret;
+    }
+
+    private String fieldKey(With.TextSearch search) {
+        switch (search.getField()) {
+            case id:
+                return ID;
+            case name:
+                return NAME;
+            default:
+                return properties.contains(search.getPropertyName()) ? propertyKey(search.getPropertyName()) : null;
+        }
+    }
+
+    private static String propertyKey(String propertyName) {
+        return "p:" + propertyName;
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> ret = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); ++i) {
+            ret.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return ret;
+    }
+
+    private static final class TenantIndex {
+        final NavigableMap<String, Indexed> entities = new TreeMap<>();
+        final Map<String, FieldIndex> fields = new HashMap<>();
+
+        void add(CanonicalPath cp, Entity<?, ?> entity, Set<String> properties) {
+            remove(cp.toString());
+
+            Map<String, String> values = new HashMap<>();
+            values.put(ID, entity.getId());
+            if (entity.getName() != null) {
+                values.put(NAME, entity.getName());
+            }
+
+            for (String p : properties) {
+                Object value = entity.getProperties().get(p);
+                if (value != null) {
+                    values.put(propertyKey(p), String.valueOf(value));
+                }
+            }
+
+            entities.put(cp.toString(), new Indexed(cp, values));
+            values.forEach((f, v) -> fields.computeIfAbsent(f, k -> new FieldIndex()).add(v, cp));
+        }
+
+        void removeWithDescendants(CanonicalPath cp) {
+            String path = cp.toString();
+            String prefix = path + "/";
+
+            List<String> toRemove = new ArrayList<>();
+            toRemove.add(path);
+            for (String p : entities.tailMap(prefix, true).keySet()) {
+                if (!p.startsWith(prefix)) {
+                    break;
+                }
+                toRemove.add(p);
+            }
+
+            toRemove.forEach(this::remove);
+        }
+
+        /**
+         * @return false if the search found more than {@code maxPaths} entities in total, true otherwise
+         */
+        boolean search(String field, With.TextSearch search, Set<CanonicalPath> result, int maxPaths) {
+            FieldIndex idx = fields.get(field);
+            if (idx == null) {
+                return true;
+            }
+
+            String text = search.getText();
+
+            if (search.getMode() == With.TextSearch.Mode.prefix) {
+                for (Map.Entry<String, Set<CanonicalPath>> e : idx.values.tailMap(text, true).entrySet()) {
+                    if (!e.getKey().startsWith(text)) {
+                        break;
+                    }
+                    if (!addAll(e.getValue(), result, maxPaths)) {
+                        return false;
+                    }
+                }
+            } else if (search.getMode() == With.TextSearch.Mode.contains && text.length() >= GRAM_LENGTH) {
+                Set<CanonicalPath> candidates = null;
+                for (String gram : grams(text)) {
+                    Set<CanonicalPath> withGram = idx.grams.get(gram);
+                    if (withGram == null) {
+                        return true;
+                    }
+                    if (candidates == null) {
+                        candidates = new HashSet<>(withGram);
+                    } else {
+                        candidates.retainAll(withGram);
+                    }
+                }
+
+                //the trigrams can come from different places in the value, so the candidates need to be checked
+                for (CanonicalPath cp : candidates) {
+                    String value = entities.get(cp.toString()).values.get(field);
+                    if (search.matches(value) && result.add(cp) && result.size() > maxPaths) {
+                        return false;
+                    }
+                }
+            } else {
+                for (Map.Entry<String, Set<CanonicalPath>> e : idx.values.entrySet()) {
+                    if (search.matches(e.getKey()) && !addAll(e.getValue(), result, maxPaths)) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        private void remove(String path) {
+            Indexed old = entities.remove(path);
+            if (old != null) {
+                old.values.forEach((f, v) -> {
+                    FieldIndex idx = fields.get(f);
+                    if (idx != null) {
+                        idx.remove(v, old.path);
+                    }
+                });
+            }
+        }
+
+        private static boolean addAll(Set<CanonicalPath> paths, Set<CanonicalPath> result, int maxPaths) {
+            result.addAll(paths);
+            return result.size() <= maxPaths;
+        }
+    }
+
+    private static final class FieldIndex {
+        final NavigableMap<String, Set<CanonicalPath>> values = new TreeMap<>();
+        final Map<String, Set<CanonicalPath>> grams = new HashMap<>();
+
+        void add(String value, CanonicalPath cp) {
+            values.computeIfAbsent(value, k -> new HashSet<>()).add(cp);
+            for (String g : grams(value)) {
+                grams.computeIfAbsent(g, k -> new HashSet<>()).add(cp);
+            }
+        }
+
+        void remove(String value, CanonicalPath cp) {
+            removeFrom(values, value, cp);
+            for (String g : grams(value)) {
+                removeFrom(grams, g, cp);
+            }
+        }
+
+        private static void removeFrom(Map<String, Set<CanonicalPath>> map, String key, CanonicalPath cp) {
+            Set<CanonicalPath> paths = map.get(key);
+            if (paths != null) {
+                paths.remove(cp);
+                if (paths.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        }
+    }
+
+    private static final class Indexed {
+        final CanonicalPath path;
+        final Map<String, String> values;
+
+        Indexed(CanonicalPath path, Map<String, String> values) {
+            this.path = path;
+            this.values = values;
+        }
+    }
+
+    /**
+     * A transaction that answers the text searches in the queries from the index.
+     *
+     * @param <BE> the type of the backend elements
+     */
+    static final class SearchingTransaction<BE> extends DelegatingTransaction<BE> {
+        private final Transaction<BE> tx;
+        private final SearchIndex index;
+        private final String partition;
+
+        /**
+         * @param tx        the read-only transaction to delegate to
+         * @param index     the index to answer the text searches from
+         * @param partition the store partition the transaction reads from or null if it reads from the main store
+         */
+        SearchingTransaction(Transaction<BE> tx, SearchIndex index, String partition) {
+            super(tx);
+            this.tx = tx;
+            this.index = index;
+            this.partition = partition;
+        }
+
+        @Override public Page<BE> query(Query query, Pager pager) {
+            return super.query(rewrite(query), pager);
+        }
+
+        @Override public <T> Page<T> query(Query query, Pager pager, Function<BE, T> conversion,
+                                           Function<T, Boolean> filter) {
+            return super.query(rewrite(query), pager, conversion, filter);
+        }
+
+        @Override public long count(Query query) {
+            return super.count(rewrite(query));
+        }
+
+        @Override public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+            return super.groupCount(rewrite(query), groupBy);
+        }
+
+        @Override public BE querySingle(Query query) {
+            return super.querySingle(rewrite(query));
+        }
+
+        @Override public Page<BE> traverse(BE startingPoint, Query query, Pager pager) {
+            return super.traverse(startingPoint, rewrite(startingPoint, query), pager);
+        }
+
+        @Override public BE traverseToSingle(BE startingPoint, Query query) {
+            return super.traverseToSingle(startingPoint, rewrite(startingPoint, query));
+        }
+
+        private Query rewrite(Query query) {
+            return index.rewrite(query, () -> {
+                ensureLoaded();
+                return Util.tenantsOf(Util.queryRoots(query));
+            });
+        }
+
+        private Query rewrite(BE startingPoint, Query query) {
+            return index.rewrite(query, () -> {
+                ensureLoaded();
+                String tenantId = extractCanonicalPath(startingPoint).ids().getTenantId();
+                return tenantId == null ? null : Collections.singleton(tenantId);
+            });
+        }
+
+        /**
+         * The main store is indexed when the inventory is initialized, the other partitions only when they are first
+         * searched in.
+         */
+        private void ensureLoaded() {
+            if (partition != null) {
+                index.ensureLoaded(partition, tx);
+            }
+        }
+    }
+}
@@ -16,26 +16,23 @@
  */
 package org.hawkular.inventory.base;
 
-import static java.util.Collections.singletonList;
-
 import static org.hawkular.inventory.api.Relationships.Direction.outgoing;
 import static org.hawkular.inventory.api.Relationships.WellKnown.contains;
 
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.Spliterators;
 import java.util.TreeSet;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.hawkular.inventory.api.Data;
 import org.hawkular.inventory.api.EntityNotFoundException;
@@ -92,86 +89,98 @@ abstract class SingleSyncedFetcher<BE, E extends Entity<B, U> & Syncable, B exte
     }
 
     @Override public void synchronize(SyncRequest<B> syncRequest) {
-        inTx(tx -> {
-            BE root = tx.querySingle(context.select().get());
+        inTx(tx -> doSynchronize(syncRequest, tx));
+    }
 
-            E entity;
+    /**
+     * The asynchronous syncs of the same root are serialized and coalesced by the {@link SyncCoordinator}, so
+     * that the concurrent syncs of the same feed don't conflict with each other.
+     */
+    @Override public CompletableFuture<Void> synchronizeAsync(SyncRequest<B> syncRequest) {
+        return context.inventory.getSyncCoordinator().submit(context.select().get(), syncRequest,
+                req -> inTxAsync(tx -> doSynchronize(req, tx)));
+    }
 
-            if (root == null) {
-                Mutator<BE, E, B, U, String> mutator = createMutator(tx);
-                EntityAndPendingNotifications<BE, E> res =
-                        mutator.doCreate(syncRequest.getInventoryStructure().getRoot(), tx);
-                root = res.getEntityRepresentation();
-                entity = res.getEntity();
-            } else {
-                entity = tx.convert(root, context.entityClass);
-            }
+    private Void doSynchronize(SyncRequest<B> syncRequest, Transaction<BE> tx) throws Exception {
+        BE root = tx.querySingle(context.select().get());
 
-            CanonicalPath rootPath = tx.extractCanonicalPath(root);
+        E entity;
 
-            InventoryStructure<B> currentStructure =
-                    InventoryStructure.of(entity, context.inventory.keepTransaction(tx));
+        if (root == null) {
+            Mutator<BE, E, B, U, String> mutator = createMutator(tx);
+            EntityAndPendingNotifications<BE, E> res =
+                    mutator.doCreate(syncRequest.getInventoryStructure().getRoot(), tx);
+            root = res.getEntityRepresentation();
+            entity = res.getEntity();
+        } else {
+            entity = tx.convert(root, context.entityClass);
+        }
 
-            //If we're using the deep search we need to load both trees in full to be able to determine what is synced.
-            //If on the other hand we're syncing "shallowly", we can skip a lot of database access by computing the hash
-            //only for the parts of the tree that has been changed in the incoming inventory structure.
-            //This is the value of the hash loader which is used either if we're doing deep search or if we're syncing
-            //everything - in which case we don't actually load anything from the database and just recompute the
-            //hash of the whole new structure.
-            Function<RelativePath, Hashes> hashLoader = rp -> null;
+        CanonicalPath rootPath = tx.extractCanonicalPath(root);
 
-            InventoryStructure<B> newStructure;
+        InventoryStructure<B> currentStructure =
+                InventoryStructure.of(entity, context.inventory.keepTransaction(tx));
 
-            if (syncRequest.getConfiguration().getSyncedTypes().size() == SegmentType.values().length) {
-                //special case if we are syncing everything - in this case we need no merging of the already persisted
-                //parts of the tree into the new structure.
-                DBG.debugf("Using the fast lane for full sync of %s", rootPath);
+        //If we're using the deep search we need to load both trees in full to be able to determine what is synced.
+        //If on the other hand we're syncing "shallowly", we can skip a lot of database access by computing the hash
+        //only for the parts of the tree that has been changed in the incoming inventory structure.
+        //This is the value of the hash loader which is used either if we're doing deep search or if we're syncing
+        //everything - in which case we don't actually load anything from the database and just recompute the
+        //hash of the whole new structure.
+        Function<RelativePath, Hashes> hashLoader = rp -> null;
 
-                newStructure = syncRequest.getInventoryStructure();
-            } else {
-                DBG.debugf("Merging persisted structure with the new data of %s", rootPath);
-                newStructure =
-                        mergeTree(currentStructure, syncRequest.getInventoryStructure(),
-                                syncRequest.getConfiguration());
-                DBG.debugf("Done merging the persisted and new data of %s", rootPath);
-
-                if (!syncRequest.getConfiguration().isDeepSearch()) {
-                    //Ok, so this is not deep search and we merged parts of the persisted tree into our new tree.
-                    //So if we encounter such persisted node while computing the hashes, we actually don't need to
-                    //compute its hash - it hasn't changed (because it's not in the incoming structure) and we know
-                    //its hash already.
-                    hashLoader = rp -> {
-                        //just check if the node on the position has attachment - in that case it's been loaded from
-                        //the database and we need not recompute its hash.
-                        InventoryStructure.FullNode node = newStructure.getNode(rp);
-                        if (node == null) {
-                            return null;
-                        }
+        InventoryStructure<B> newStructure;
 
-                        Entity<?, ?> e = (Entity<?, ?>) node.getAttachment();
-                        if (e == null) {
-                            return null;
-                        }
+        if (syncRequest.getConfiguration().getSyncedTypes().size() == SegmentType.values().length) {
+            //special case if we are syncing everything - in this case we need no merging of the already persisted
+            //parts of the tree into the new structure.
+            DBG.debugf("Using the fast lane for full sync of %s", rootPath);
 
-                        return Hashes.of(e);
-                    };
-                }
+            newStructure = syncRequest.getInventoryStructure();
+        } else {
+            DBG.debugf("Merging persisted structure with the new data of %s", rootPath);
+            newStructure =
+                    mergeTree(currentStructure, syncRequest.getInventoryStructure(),
+                            syncRequest.getConfiguration());
+            DBG.debugf("Done merging the persisted and new data of %s", rootPath);
+
+            if (!syncRequest.getConfiguration().isDeepSearch()) {
+                //Ok, so this is not deep search and we merged parts of the persisted tree into our new tree.
+                //So if we encounter such persisted node while computing the hashes, we actually don't need to
+                //compute its hash - it hasn't changed (because it's not in the incoming structure) and we know
+                //its hash already.
+                hashLoader = rp -> {
+                    //just check if the node on the position has attachment - in that case it's been loaded from
+                    //the database and we need not recompute its hash.
+                    InventoryStructure.FullNode node = newStructure.getNode(rp);
+                    if (node == null) {
+                        return null;
+                    }
+
+                    Entity<?, ?> e = (Entity<?, ?>) node.getAttachment();
+                    if (e == null) {
+                        return null;
+                    }
+
+                    return Hashes.of(e);
+                };
             }
+        }
 
-            DBG.debugf("Computing sync tree of the merged structure of %s", rootPath);
-            SyncHash.Tree newTree = SyncHash.treeOf(newStructure, rootPath, hashLoader);
-            DBG.debugf("Done computing sync tree of the merged structure of %s", rootPath);
+        DBG.debugf("Computing sync tree of the merged structure of %s", rootPath);
+        SyncHash.Tree newTree = SyncHash.treeOf(newStructure, rootPath, hashLoader,
+                context.getHashParallelismThreshold());
+        DBG.debugf("Done computing sync tree of the merged structure of %s", rootPath);
 
-            DBG.debugf("Syncing the merged tree to the database state of root %s", rootPath);
-            syncTrees(tx, rootPath, RelativePath.empty().get(), root, newTree, newStructure, currentStructure);
-            DBG.debugf("Done syncing the merged tree and the database state of root %s", rootPath);
+        DBG.debugf("Syncing the merged tree to the database state of root %s", rootPath);
+        syncTrees(tx, rootPath, RelativePath.empty().get(), root, newTree, newStructure, currentStructure);
+        DBG.debugf("Done syncing the merged tree and the database state of root %s", rootPath);
 
-            return null;
-        });
+        return null;
     }
 
     @Override public SyncHash.Tree treeHash() {
-        return inTx(tx -> treeHashAndStructure(tx).getValue());
+        return inReadOnlyTx(this::treeHash);
     }
 
     private InventoryStructure<B> mergeTree(InventoryStructure<B> currentTree, InventoryStructure<B> newTree,
@@ -468,117 +477,61 @@ abstract class SingleSyncedFetcher<BE, E extends Entity<B, U> & Syncable, B exte
         }, null);
     }
 
-    private Map.Entry<InventoryStructure<B>, SyncHash.Tree> treeHashAndStructure(Transaction<BE> tx) {
+    /**
+     * Assembles the tree hash from the sync hashes persisted on the entities in the tree, which is much cheaper than
+     * loading the whole inventory structure and recomputing the hashes. The trees are cached under the sync hash of
+     * the root, so that the repeated requests (like the agents asking for the tree hashes of their feeds after a
+     * server restart) don't even need to read the tree.
+     */
+    private SyncHash.Tree treeHash(Transaction<BE> tx) {
         BE root = tx.querySingle(context.select().get());
-        E entity = tx.convert(root, context.entityClass);
-
-        SyncHash.Tree.Builder bld = SyncHash.Tree.builder();
-        InventoryStructure.Builder<B> structBld = InventoryStructure.of(Inventory.asBlueprint(entity));
-
-        bld.withPath(RelativePath.empty().get()).withHash(entity.getSyncHash());
-
-        //the closure is returned in a breadth-first manner
-        Iterator<BE> closure = tx.getTransitiveClosureOver(root, outgoing, contains.name());
-
-        if (closure.hasNext()) {
-            Function<BE, Entity<? extends Entity.Blueprint, ?>> convert =
-                    e -> (Entity<Entity.Blueprint, ?>) tx.convert(e, tx.extractType(e));
-            Stream<BE> st = StreamSupport.stream(Spliterators.spliteratorUnknownSize(closure, 0), false);
-            Iterator<Entity<? extends Entity.Blueprint, ?>> entities = st.map(convert).iterator();
-
-            buildChildTree(tx, entity.getPath(), singletonList(bld), singletonList(structBld), new ArrayList<>(),
-                    new ArrayList<>(), entities.next(), entities);
+        if (root == null) {
+            throwNotFoundException();
         }
 
-        return new SimpleImmutableEntry<>(structBld.build(), bld.build());
-    }
-
-    @SuppressWarnings("unchecked")
-    private void buildChildTree(Transaction<BE> tx, CanonicalPath root,
-                                List<? extends SyncHash.Tree.AbstractBuilder<?>> possibleTreeParents,
-                                List<? extends InventoryStructure.AbstractBuilder<?>> possibleStructParents,
-                                List<SyncHash.Tree.ChildBuilder<?>> currentTreeRow,
-                                List<InventoryStructure.ChildBuilder<?>> currentStructRow,
-                                Entity<? extends Entity.Blueprint, ?> currentElement,
-                                Iterator<Entity<? extends Entity.Blueprint, ?>> nextElements) {
-
-        Consumer<Entity<? extends Entity.Blueprint, ?>> decider = e -> {
-            if (!(e instanceof Syncable)) {
-                return;
-            }
-
-            CanonicalPath currentPath = e.getPath();
-            RelativePath relativeCurrentPath = currentPath.relativeTo(root);
-            SyncHash.Tree.AbstractBuilder<?> treeParent = findTreeParent(possibleTreeParents, relativeCurrentPath);
-            InventoryStructure.AbstractBuilder<?> structParent = findStructParent(possibleStructParents, relativeCurrentPath);
+        CanonicalPath rootPath = tx.extractCanonicalPath(root);
+        String rootHash = tx.extractSyncHash(root);
+
+        return context.inventory.getTreeHashCache().get(rootPath, rootHash, () -> {
+            //the closure is returned in a breadth-first manner, so the children are ordered the same as before
+            Map<CanonicalPath, List<Map.Entry<CanonicalPath, String>>> children = new HashMap<>();
+            Iterator<BE> closure = tx.getTransitiveClosureOver(root, outgoing, contains.name());
+            while (closure.hasNext()) {
+                BE e = closure.next();
+                if (!Syncable.class.isAssignableFrom(tx.extractType(e))) {
+                    continue;
+                }
 
-            if ((treeParent == null && structParent != null) || (treeParent != null && structParent == null)) {
-                throw new IllegalStateException(
-                        "Inconsistent tree hash and inventory structure builders while computing the child tree of" +
-                                " entity " + root + ". This is a bug.");
+                CanonicalPath cp = tx.extractCanonicalPath(e);
+                children.computeIfAbsent(cp.up(), p -> new ArrayList<>())
+                        .add(new SimpleImmutableEntry<>(cp, tx.extractSyncHash(e)));
             }
 
-            if (treeParent == null) {
-                //ok, our parents don't have this child. Seems like we need to start a new row.
-
-                //first end our parents
-                possibleTreeParents.forEach(p -> {
-                    if (p instanceof SyncHash.Tree.ChildBuilder) {
-                        ((SyncHash.Tree.ChildBuilder<?>) p).endChild();
-                    }
-                });
-
-                possibleStructParents.forEach(p -> {
-                    if (p instanceof InventoryStructure.ChildBuilder) {
-                        ((InventoryStructure.ChildBuilder<?>) p).end();
-                    }
-                });
-
-                //and start processing the next row
-                buildChildTree(tx, root, currentTreeRow, currentStructRow, new ArrayList<>(), new ArrayList<>(), e,
-                        nextElements);
-            } else {
-                SyncHash.Tree.ChildBuilder<?> childTreeBuilder = treeParent.startChild();
-                childTreeBuilder.withHash(((Syncable) e).getSyncHash());
-                childTreeBuilder.withPath(relativeCurrentPath);
-                currentTreeRow.add(childTreeBuilder);
-
-                InventoryStructure.ChildBuilder<?> childStructBuilder =
-                        structParent.startChild(Inventory.asBlueprint(e));
-                currentStructRow.add(childStructBuilder);
-            }
-        };
+            SyncHash.Tree.Builder bld = SyncHash.Tree.builder();
+            bld.withPath(RelativePath.empty().get()).withHash(rootHash);
+            addChildTrees(bld, rootPath, rootPath, children);
 
-        decider.accept(currentElement);
-        while (nextElements.hasNext()) {
-            decider.accept(nextElements.next());
-        }
+            return bld.build();
+        });
+    }
 
-        for (SyncHash.Tree.ChildBuilder<?> cb : currentTreeRow) {
-            cb.endChild();
+    private static void addChildTrees(SyncHash.Tree.AbstractBuilder<?> parent, CanonicalPath parentPath,
+                                      CanonicalPath root,
+                                      Map<CanonicalPath, List<Map.Entry<CanonicalPath, String>>> children) {
+        List<Map.Entry<CanonicalPath, String>> cs = children.get(parentPath);
+        if (cs == null) {
+            return;
         }
 
-        for (InventoryStructure.ChildBuilder<?> cb : currentStructRow) {
-            cb.end();
+        for (Map.Entry<CanonicalPath, String> c : cs) {
+            SyncHash.Tree.ChildBuilder<?> childBuilder = parent.startChild();
+            childBuilder.withHash(c.getValue());
+            childBuilder.withPath(c.getKey().relativeTo(root));
+            addChildTrees(childBuilder, c.getKey(), root, children);
+            childBuilder.endChild();
         }
     }
 
-    private static SyncHash.Tree.AbstractBuilder<?>
-    findTreeParent(List<? extends SyncHash.Tree.AbstractBuilder<?>> possibleParents, RelativePath childPath) {
-        return possibleParents.stream()
-                .filter(p -> p.getPath().isParentOf(childPath) && p.getPath().getDepth() == childPath.getDepth() - 1)
-                .findAny()
-                .orElse(null);
-    }
-
-    private static InventoryStructure.AbstractBuilder<?>
-    findStructParent(List<? extends InventoryStructure.AbstractBuilder<?>> possibleParents, RelativePath childPath) {
-        return possibleParents.stream()
-                .filter(p -> p.getPath().isParentOf(childPath) && p.getPath().getDepth() == childPath.getDepth() - 1)
-                .findAny()
-                .orElse(null);
-    }
-
     @SuppressWarnings({"unchecked", "rawtypes"})
     private Mutator<BE, E, B, U, String> createMutator(Transaction<BE> tx) {
         return (Mutator<BE, E, B, U, String>) ElementTypeVisitor.accept(
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.SyncRequest;
+
+/**
+ * Coordinates the asynchronous synchronizations of the inventory structures.
+ *
+ * <p>The synchronizations of the same root (e.g. a feed) are run one after another so that they don't conflict with
+ * each other. While a synchronization of a root is running, the subsequent requests for the same root are queued. If
+ * a newer request covers everything the last queued request would sync, the queued request is replaced by the newer
+ * one (i.e. coalesced) because applying it would be a wasted effort. The callers of the replaced requests are notified
+ * when the newer request finishes.
+ *
+ * <p>The synchronizations of different roots run in parallel on a bounded pool of worker threads.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class SyncCoordinator implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final int threads;
+    private final Map<Object, Lane> lanes = new HashMap<>();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private int queueLength;
+
+    private volatile ExecutorService workers;
+
+    SyncCoordinator(Configuration configuration) {
+        this.threads = Util.getIntProperty(configuration, BaseInventory.SYNC_THREADS, 4);
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least 1 sync thread.");
+        }
+    }
+
+    /**
+     * Submits the synchronization request for execution.
+     *
+     * @param root    the key identifying the root of the synchronized structure
+     * @param request the synchronization request
+     * @param sync    the function to actually perform the synchronization
+     * @param <B>     the type of the blueprint of the root
+     * @return the future that completes once the request or a newer request that replaced it is applied
+     */
+    <B extends Entity.Blueprint> CompletableFuture<Void> submit(Object root, SyncRequest<B> request,
+            Function<SyncRequest<B>, CompletableFuture<Void>> sync) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Pending start = null;
+
+        synchronized (this) {
+            Lane lane = lanes.get(root);
+            if (lane == null) {
+                lanes.put(root, new Lane());
+                start = new Pending(request, sync, result);
+            } else {
+                Pending last = lane.queue.peekLast();
+                if (last != null && covers(request, last.request)) {
+                    last.replace(request, sync, result);
+                    coalescedRequests.increment();
+                } else {
+                    lane.queue.add(new Pending(request, sync, result));
+                    queueLength++;
+                }
+            }
+        }
+
+        if (start != null) {
+            run(root, start);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the number of synchronization requests waiting for the synchronization of the same root to finish
+     */
+    public synchronized int getQueueLength() {
+        return queueLength;
+    }
+
+    /**
+     * @return the number of roots that are being synchronized at the moment
+     */
+    public synchronized int getActiveSyncCount() {
+        return lanes.size();
+    }
+
+    /**
+     * @return the total number of synchronization requests that were replaced by a newer request for the same root
+     */
+    public long getCoalescedRequestCount() {
+        return coalescedRequests.sum();
+    }
+
+    @Override public void close() {
+        ExecutorService ex = workers;
+        if (ex != null) {
+            ex.shutdown();
+        }
+    }
+
+    private void run(Object root, Pending pending) {
+        try {
+            getWorkers().execute(() -> execute(root, pending));
+        } catch (RejectedExecutionException e) {
+            abandon(root, pending, e);
+        }
+    }
+
+    private void execute(Object root, Pending pending) {
+        CompletableFuture<Void> sync;
+        try {
+            sync = pending.run();
+        } catch (Throwable t) {
+            sync = new CompletableFuture<>();
+            sync.completeExceptionally(t);
+        }
+
+        sync.whenComplete((ignored, failure) -> {
+            //the lane needs to be freed (or handed over to the next request) before the waiters learn about the
+            //result, so that they see the coordinator in the state after the synchronization. The pending request is
+            //no longer in the queue so it can't be coalesced with the newer requests anymore.
+            runNext(root);
+
+            for (CompletableFuture<Void> f : pending.waiting) {
+                if (failure == null) {
+                    f.complete(null);
+                } else {
+                    f.completeExceptionally(failure);
+                }
+            }
+        });
+    }
+
+    private void runNext(Object root) {
+        Pending next;
+        synchronized (this) {
+            Lane lane = lanes.get(root);
+            next = lane.queue.poll();
+            if (next == null) {
+                lanes.remove(root);
+            } else {
+                queueLength--;
+            }
+        }
+
+        if (next != null) {
+            run(root, next);
+        }
+    }
+
+    /**
+     * Removes the lane of the root and fails the provided request and all the requests queued for the root. This is
+     * used when the synchronizations can no longer be run, e.g. because the coordinator has been closed. Otherwise
+     * the lane would stay registered and all the subsequent requests for the root would wait forever.
+     */
+    private void abandon(Object root, Pending pending, Throwable failure) {
+        List<Pending> abandoned = new ArrayList<>();
+        abandoned.add(pending);
+
+        synchronized (this) {
+            Lane lane = lanes.remove(root);
+            if (lane != null) {
+                queueLength -= lane.queue.size();
+                abandoned.addAll(lane.queue);
+            }
+        }
+
+        for (Pending p : abandoned) {
+            for (CompletableFuture<Void> f : p.waiting) {
+                f.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static boolean covers(SyncRequest<?> newer, SyncRequest<?> older) {
+        return newer.getConfiguration().getSyncedTypes().containsAll(older.getConfiguration().getSyncedTypes());
+    }
+
+    private ExecutorService getWorkers() {
+        ExecutorService ex = workers;
+        if (ex == null) {
+            synchronized (this) {
+                ex = workers;
+                if (ex == null) {
+                    int poolNumber = POOL_COUNTER.incrementAndGet();
+                    AtomicInteger threadCounter = new AtomicInteger();
+                    workers = ex = Executors.newFixedThreadPool(threads, r -> {
+                        Thread t = new Thread(r, "hawkular-inventory-sync-" + poolNumber + "-"
+                                + threadCounter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+
+        return ex;
+    }
+
+    private static final class Lane {
+        final Deque<Pending> queue = new ArrayDeque<>();
+    }
+
+    private static final class Pending {
+        final List<CompletableFuture<Void>> waiting = new ArrayList<>(1);
+        SyncRequest<?> request;
+        private Function<SyncRequest<?>, CompletableFuture<Void>> sync;
+
+        <B extends Entity.Blueprint> Pending(SyncRequest<B> request,
+                Function<SyncRequest<B>, CompletableFuture<Void>> sync, CompletableFuture<Void> result) {
+            replace(request, sync, result);
+        }
+
+        @SuppressWarnings("unchecked")
+        <B extends Entity.Blueprint> void replace(SyncRequest<B> request,
+                Function<SyncRequest<B>, CompletableFuture<Void>> sync, CompletableFuture<Void> result) {
+            this.request = request;
+            this.sync = r -> sync.apply((SyncRequest<B>) r);
+            this.waiting.add(result);
+        }
+
+        CompletableFuture<Void> run() {
+            return sync.apply(request);
+        }
+    }
+}
@@ -16,7 +16,8 @@
  */
 package org.hawkular.inventory.base;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -25,6 +26,8 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
@@ -85,6 +88,8 @@ public interface Transaction<E> {
 
     E descendToData(E dataEntityRepresentation, RelativePath dataPath);
 
+    StructuredData loadData(E dataEntityRepresentation, RelativePath dataPath, boolean shallow);
+
     CanonicalPath extractCanonicalPath(E entityRepresentation);
 
     String extractId(E entityRepresentation);
@@ -101,7 +106,7 @@ public interface Transaction<E> {
 
     E find(CanonicalPath element) throws ElementNotFoundException;
 
-    InputStream getGraphSON(String tenantId);
+    void writeGraph(GraphExport export, OutputStream out) throws IOException;
 
     E getRelationship(E source, E target, String relationshipName) throws ElementNotFoundException;
 
@@ -121,6 +126,8 @@ public interface Transaction<E> {
                                          Relationships.Direction direction,
                                          String... relationshipNames);
 
+    boolean isReachable(E startingPoint, Relationships.Direction direction, String relationshipName, E target);
+
     boolean hasRelationship(E entity, Relationships.Direction direction,
                             String relationshipName);
 
@@ -143,6 +150,10 @@ public interface Transaction<E> {
                       Function<E, T> conversion,
                       Function<T, Boolean> filter);
 
+    long count(Query query);
+
+    Map<Object, Long> groupCount(Query query, GroupBy groupBy);
+
     E querySingle(Query query);
 
     E relate(E sourceEntity, E targetEntity, String name,
@@ -37,8 +37,47 @@ public interface TransactionConstructor<BE> {
      * @return a transaction constructor that initializes the transaction also in the backend
      */
     static <BE> TransactionConstructor<BE> startInBackend() {
-        return (backend, preCommit) -> new BackendTransaction<>(backend.startTransaction(), preCommit);
+        return new TransactionConstructor<BE>() {
+            @Override
+            public Transaction<BE> construct(InventoryBackend<BE> backend, Transaction.PreCommit<BE> preCommit) {
+                return new BackendTransaction<>(backend.startTransaction(), preCommit);
+            }
+
+            @Override public Transaction<BE> constructReadOnly(InventoryBackend<BE> backend) {
+                return new ReadOnlyTransaction<>(backend.startReadOnlyTransaction());
+            }
+
+            @Override public boolean isReadingCommittedData() {
+                return true;
+            }
+        };
     }
 
     Transaction<BE> construct(InventoryBackend<BE> backend, Transaction.PreCommit<BE> preCommit);
+
+    /**
+     * Constructs a transaction that is only going to be used for reading the data. The returned transaction is never
+     * committed, it is always rolled back after the read.
+     *
+     * <p>By default this just {@link #construct(InventoryBackend, Transaction.PreCommit) constructs} an ordinary
+     * transaction so that the reads see the same data as the writes of the constructor (which is important for
+     * example in the transaction frames).
+     *
+     * @param backend the backend to start the transaction in
+     * @return a new transaction to read the data in
+     */
+    default Transaction<BE> constructReadOnly(InventoryBackend<BE> backend) {
+        return construct(backend, new BasePreCommit<>());
+    }
+
+    /**
+     * The results of the reads can only be cached if the transactions don't see any uncommitted changes (as is the
+     * case for example in the transaction frames).
+     *
+     * @return true if the read-only transactions of this constructor only ever see the committed data, false
+     * otherwise
+     */
+    default boolean isReadingCommittedData() {
+        return false;
+    }
 }
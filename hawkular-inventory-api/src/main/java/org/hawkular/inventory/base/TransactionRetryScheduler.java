@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hawkular.inventory.api.Configuration;
+
+/**
+ * Computes the wait times between the attempts of failed transactions, schedules the asynchronous retries and keeps
+ * track of the number of conflicts and retries per entity type.
+ *
+ * <p>The wait time starts at the configured initial wait time and is doubled (plus a random jitter) after each failed
+ * attempt up to the configured maximum. The jitter makes sure that competing transactions started at roughly the same
+ * time don't knock each other out again on the next attempt.
+ *
+ * <p>The asynchronous retries are run on a small pool of daemon threads that is only created once the first retry
+ * needs to be scheduled.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class TransactionRetryScheduler implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final long initialWaitTime;
+    private final long maxWaitTime;
+    private final double jitter;
+    private final int threads;
+
+    private final Map<Class<?>, LongAdder> conflicts = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LongAdder> retries = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService executor;
+
+    TransactionRetryScheduler(Configuration configuration) {
+        this.initialWaitTime = Util.getLongProperty(configuration, BaseInventory.TRANSACTION_RETRY_INITIAL_WAIT, 300);
+        this.maxWaitTime = Util.getLongProperty(configuration, BaseInventory.TRANSACTION_RETRY_MAX_WAIT, 30000);
+        this.jitter = Util.getDoubleProperty(configuration, BaseInventory.TRANSACTION_RETRY_JITTER, 0.5);
+        this.threads = Util.getIntProperty(configuration, BaseInventory.TRANSACTION_RETRY_THREADS, 2);
+
+        if (initialWaitTime < 0 || maxWaitTime < initialWaitTime) {
+            throw new IllegalArgumentException("The initial transaction retry wait time must not be negative and" +
+                    " must not be greater than the max wait time.");
+        }
+
+        if (jitter < 0) {
+            throw new IllegalArgumentException("The transaction retry jitter must not be negative.");
+        }
+
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least 1 transaction retry thread.");
+        }
+    }
+
+    /**
+     * @return the time in milliseconds to wait before the first retry
+     */
+    long initialWaitTime() {
+        return Math.min(maxWaitTime, initialWaitTime + randomJitter(initialWaitTime));
+    }
+
+    /**
+     * @param previousWaitTime the time waited before the previous attempt
+     * @return the time in milliseconds to wait before the next retry
+     */
+    long nextWaitTime(long previousWaitTime) {
+        return Math.min(maxWaitTime, previousWaitTime * 2 + randomJitter(previousWaitTime));
+    }
+
+    /**
+     * Schedules the retry to run after given delay.
+     *
+     * @param retry the retry to run
+     * @param delay the delay in milliseconds
+     */
+    void schedule(Runnable retry, long delay) {
+        getExecutor().schedule(retry, delay, TimeUnit.MILLISECONDS);
+    }
+
+    void recordConflict(Class<?> entityType) {
+        conflicts.computeIfAbsent(entityType, t -> new LongAdder()).increment();
+    }
+
+    void recordRetry(Class<?> entityType) {
+        retries.computeIfAbsent(entityType, t -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param entityType the type of the entity the transactions operated on ({@link
+     *                   org.hawkular.inventory.api.TransactionFrame} for the commits of transaction frames)
+     * @return the number of transaction attempts that failed with a conflict (or another error the backend deemed
+     * worth a retry)
+     */
+    public long getConflictCount(Class<?> entityType) {
+        LongAdder cnt = conflicts.get(entityType);
+        return cnt == null ? 0 : cnt.sum();
+    }
+
+    /**
+     * @param entityType the type of the entity the transactions operated on ({@link
+     *                   org.hawkular.inventory.api.TransactionFrame} for the commits of transaction frames)
+     * @return the number of times a failed transaction was retried
+     */
+    public long getRetryCount(Class<?> entityType) {
+        LongAdder cnt = retries.get(entityType);
+        return cnt == null ? 0 : cnt.sum();
+    }
+
+    /**
+     * @return the conflict counts of all the entity types that ever experienced a conflict
+     * @see #getConflictCount(Class)
+     */
+    public Map<Class<?>, Long> getConflictCounts() {
+        return snapshot(conflicts);
+    }
+
+    /**
+     * @return the retry counts of all the entity types that were ever retried
+     * @see #getRetryCount(Class)
+     */
+    public Map<Class<?>, Long> getRetryCounts() {
+        return snapshot(retries);
+    }
+
+    @Override public void close() {
+        ScheduledExecutorService ex = executor;
+        if (ex != null) {
+            ex.shutdown();
+        }
+    }
+
+    private long randomJitter(long waitTime) {
+        long bound = (long) (waitTime * jitter);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound);
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        ScheduledExecutorService ex = executor;
+        if (ex == null) {
+            synchronized (this) {
+                ex = executor;
+                if (ex == null) {
+                    int poolNumber = POOL_COUNTER.incrementAndGet();
+                    AtomicInteger threadCounter = new AtomicInteger();
+                    ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, r -> {
+                        Thread t = new Thread(r, "hawkular-inventory-tx-retry-" + poolNumber + "-"
+                                + threadCounter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    pool.setRemoveOnCancelPolicy(true);
+                    executor = ex = pool;
+                }
+            }
+        }
+
+        return ex;
+    }
+
+    private static Map<Class<?>, Long> snapshot(Map<Class<?>, LongAdder> counters) {
+        Map<Class<?>, Long> ret = new HashMap<>();
+        counters.forEach((t, c) -> ret.put(t, c.sum()));
+        return Collections.unmodifiableMap(ret);
+    }
+}
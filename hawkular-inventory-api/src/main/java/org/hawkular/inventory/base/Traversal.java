@@ -17,6 +17,7 @@
 package org.hawkular.inventory.base;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Query;
@@ -79,6 +80,19 @@ public abstract class Traversal<BE, E extends AbstractElement<?, ?>> {
         return inTx(context, payload);
     }
 
+    /**
+     * Runs the payload in a read-only transaction. This is cheaper than {@link #inTx(TransactionPayload)} because no
+     * pre-commit actions nor notifications are involved. The payload MUST NOT modify the inventory.
+     *
+     * @param payload the payload to execute in transaction
+     * @param <R>     the return type
+     * @return the return value provided by the payload
+     * @see Util#inReadOnlyTx(TraversalContext, TransactionPayload)
+     */
+    protected <R> R inReadOnlyTx(TransactionPayload<R, BE> payload) {
+        return Util.inReadOnlyTx(context, payload);
+    }
+
     /**
      * Identical to {@link #inTx(TransactionPayload)} but also returns the notifications emitted from the transaction.
      * The list of notifications is final and they have already been sent. The caller should NOT send them again.
@@ -96,6 +110,24 @@ public abstract class Traversal<BE, E extends AbstractElement<?, ?>> {
         return inCommittableTx(context, TransactionPayload.Committing.committing(payload));
     }
 
+    /**
+     * Asynchronous version of {@link #inTx(TransactionPayload)}. The retries of the failed transaction are scheduled
+     * instead of blocking the calling thread.
+     *
+     * @param payload the payload to run within a transaction
+     * @param <R> the type of the result
+     * @return the future result of the payload
+     */
+    protected <R> CompletableFuture<R> inTxAsync(TransactionPayload<R, BE> payload) {
+        return Util.inCommittableTxAsync(context, tx -> {
+            R v = TransactionPayload.Committing.committing(payload).run(tx);
+
+            tx.getPreCommit().getFinalNotifications().forEach(context::notifyAll);
+
+            return v;
+        });
+    }
+
     protected <R> R inCommittableTx(TransactionPayload.Committing<R, BE> payload) {
         return inCommittableTx(context, payload);
     }
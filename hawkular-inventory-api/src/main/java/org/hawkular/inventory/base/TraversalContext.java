@@ -31,6 +31,7 @@ import org.hawkular.inventory.api.filters.Filter;
 import org.hawkular.inventory.api.filters.Related;
 import org.hawkular.inventory.api.filters.SwitchElementType;
 import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.DataEntity;
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.Relationship;
 import org.hawkular.inventory.base.spi.InventoryBackend;
@@ -307,6 +308,44 @@ public final class TraversalContext<BE, E extends AbstractElement<?, ?>> {
         return transactionRetries;
     }
 
+    public TransactionRetryScheduler getTransactionRetryScheduler() {
+        return inventory.getTransactionRetryScheduler();
+    }
+
+    /**
+     * @return the query cache to use for the reads or null if the results of the reads should not be cached, because
+     * the cache is switched off or because the reads can see uncommitted data
+     */
+    QueryCache getQueryCache() {
+        QueryCache cache = inventory.getQueryCache();
+        return cache != null && cache.isEnabled() && transactionConstructor.isReadingCommittedData() ? cache : null;
+    }
+
+    /**
+     * @return the store partition the reads of this context go to, used to tell apart the cached results read from
+     * different stores
+     * @see InventoryBackend#getStorePartition()
+     */
+    String getStorePartition() {
+        return backend.getStorePartition();
+    }
+
+    /**
+     * @return the search index to answer the text searches of the reads with or null if the text searches should be
+     * evaluated by the backend, because the index is switched off or because the reads can see uncommitted data
+     */
+    SearchIndex getSearchIndex() {
+        SearchIndex index = inventory.getSearchIndex();
+        return index != null && index.isEnabled() && transactionConstructor.isReadingCommittedData() ? index : null;
+    }
+
+    /**
+     * @return the minimum number of siblings in a tree for which to compute the hashes in parallel
+     */
+    public int getHashParallelismThreshold() {
+        return inventory.getHashParallelismThreshold();
+    }
+
     public TransactionConstructor<BE> getTransactionConstructor() {
         return transactionConstructor;
     }
@@ -317,6 +356,20 @@ public final class TraversalContext<BE, E extends AbstractElement<?, ?>> {
      * @param entityAndNotifications the list of pending notifications
      */
     void notifyAll(EntityAndPendingNotifications<BE, ?> entityAndNotifications) {
+        QueryCache cache = inventory.getQueryCache();
+        if (cache != null && cache.isEnabled()) {
+            cache.invalidate(entityAndNotifications);
+        }
+
+        if (entityAndNotifications.getEntity() instanceof DataEntity) {
+            BaseData.Validator.invalidate(entityAndNotifications.getEntity().getPath());
+        }
+
+        SearchIndex index = inventory.getSearchIndex();
+        if (index != null && index.isEnabled()) {
+            index.update(entityAndNotifications);
+        }
+
         entityAndNotifications.getNotifications().forEach(this::notify);
     }
 
@@ -335,6 +388,16 @@ public final class TraversalContext<BE, E extends AbstractElement<?, ?>> {
         return startTransaction(new BasePreCommit<>());
     }
 
+    /**
+     * @return a new transaction that is only going to be used for reading
+     * @see TransactionConstructor#constructReadOnly(InventoryBackend)
+     */
+    Transaction<BE> startReadOnlyTransaction() {
+        Transaction<BE> tx = transactionConstructor.constructReadOnly(backend);
+        SearchIndex index = getSearchIndex();
+        return index == null ? tx : new SearchIndex.SearchingTransaction<>(tx, index, getStorePartition());
+    }
+
     Transaction<BE> startTransaction(Transaction.PreCommit<BE> preCommit) {
         Transaction<BE> tx = transactionConstructor.construct(backend, preCommit);
         tx.getPreCommit().initialize(inventory.keepTransaction(tx), tx);
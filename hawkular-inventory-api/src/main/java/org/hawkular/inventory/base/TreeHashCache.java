@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.model.SyncHash;
+import org.hawkular.inventory.paths.CanonicalPath;
+
+/**
+ * A cache of the tree hashes of the synced entities. The trees are cached under the path and the sync hash of their
+ * root. Because the sync hash of the root changes whenever anything in the tree changes, the entries never need to be
+ * invalidated - the stale entries are just never looked up again and are eventually evicted as the least recently
+ * used ones.
+ *
+ * <p>The concurrent requests for the tree of the same root (e.g. the agents asking for the tree hashes of their feeds
+ * after a server restart) wait for the first of them to load the tree instead of loading it each on their own.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public final class TreeHashCache {
+    private final int maxEntries;
+
+    private final LinkedHashMap<Key, SyncHash.Tree> entries;
+    private final Map<Key, CompletableFuture<SyncHash.Tree>> loading = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    TreeHashCache(Configuration configuration) {
+        this.maxEntries = Util.getIntProperty(configuration, BaseInventory.TREE_HASH_CACHE_SIZE, 100);
+
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("The tree hash cache size must not be negative.");
+        }
+
+        this.entries = new LinkedHashMap<Key, SyncHash.Tree>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, SyncHash.Tree> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return true if the cache is switched on, false otherwise
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Returns the cached tree hash or loads it using the provided loader and caches it.
+     *
+     * @param rootPath the path to the root of the tree
+     * @param rootHash the sync hash of the root of the tree, if null, the tree is always loaded and never cached
+     * @param loader   the function to load the tree if it is not cached
+     * @return the tree hash
+     */
+    SyncHash.Tree get(CanonicalPath rootPath, String rootHash, Supplier<SyncHash.Tree> loader) {
+        if (!isEnabled() || rootHash == null) {
+            return loader.get();
+        }
+
+        Key key = new Key(rootPath, rootHash);
+        CompletableFuture<SyncHash.Tree> pending;
+        CompletableFuture<SyncHash.Tree> ours = null;
+
+        synchronized (this) {
+            SyncHash.Tree tree = entries.get(key);
+            if (tree != null) {
+                hits.increment();
+                return tree;
+            }
+
+            pending = loading.get(key);
+            if (pending == null) {
+                ours = new CompletableFuture<>();
+                loading.put(key, ours);
+            }
+        }
+
+        if (pending != null) {
+            try {
+                SyncHash.Tree tree = pending.join();
+                hits.increment();
+                return tree;
+            } catch (CompletionException e) {
+                //the loading of the tree failed in the other thread, let's try ourselves but don't bother to cache
+                //the result - the next request can try again.
+                misses.increment();
+                return loader.get();
+            }
+        }
+
+        misses.increment();
+
+        try {
+            SyncHash.Tree tree = loader.get();
+            synchronized (this) {
+                entries.put(key, tree);
+                loading.remove(key);
+            }
+            ours.complete(tree);
+            return tree;
+        } catch (Throwable t) {
+            synchronized (this) {
+                loading.remove(key);
+            }
+            ours.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * @return the number of tree hashes found in the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of tree hashes that had to be loaded
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of tree hashes currently in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Key {
+        private final CanonicalPath rootPath;
+        private final String rootHash;
+
+        Key(CanonicalPath rootPath, String rootHash) {
+            this.rootPath = rootPath;
+            this.rootHash = rootHash;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return rootPath.equals(key.rootPath) && rootHash.equals(key.rootHash);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(rootPath, rootHash);
+        }
+    }
+}
@@ -24,26 +24,33 @@ import static org.hawkular.inventory.api.Relationships.WellKnown.contains;
 import static org.hawkular.inventory.api.Relationships.WellKnown.defines;
 import static org.hawkular.inventory.api.Relationships.WellKnown.hasData;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.Configuration;
 import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.InventoryException;
 import org.hawkular.inventory.api.Log;
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryFragment;
 import org.hawkular.inventory.api.RelationAlreadyExistsException;
 import org.hawkular.inventory.api.RelationNotFoundException;
 import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.Filter;
 import org.hawkular.inventory.api.filters.Marker;
 import org.hawkular.inventory.api.filters.With;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Relationship;
+import org.hawkular.inventory.api.model.Tenant;
 import org.hawkular.inventory.base.spi.CommitFailureException;
 import org.hawkular.inventory.base.spi.ElementNotFoundException;
 import org.hawkular.inventory.paths.CanonicalPath;
@@ -57,8 +64,6 @@ import org.hawkular.inventory.paths.SegmentType;
  */
 final class Util {
 
-    private static final Random rand = new Random();
-
     private Util() {
 
     }
@@ -70,25 +75,76 @@ final class Util {
         return onFailureRetry(context, transaction, payload, payload, maxFailures);
     }
 
+    /**
+     * Runs the payload in a {@link ReadOnlyTransaction read-only transaction}. There are no pre-commit actions or
+     * notifications associated with such transaction and it is always rolled back after the payload finishes.
+     *
+     * <p>Because nothing is committed, there are no commit conflicts to recover from and therefore the payload is
+     * never retried.
+     *
+     * @param context the traversal context to start the transaction from
+     * @param payload the payload that only reads the data
+     * @return the result of the payload
+     */
+    public static <R, BE> R inReadOnlyTx(TraversalContext<BE, ?> context, TransactionPayload<R, BE> payload) {
+        Transaction<BE> tx = context.startReadOnlyTransaction();
+        try {
+            return payload.run(tx);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InventoryException("Transaction payload failed.", e);
+        } finally {
+            tx.directAccess().rollback();
+        }
+    }
+
     public static <R, BE> R inCommittableTx(TraversalContext<BE, ?> context,
                                             TransactionPayload.Committing<R, BE> payload) {
 
         Transaction.Committable<BE> tx = Transaction.Committable.from(context.startTransaction());
         Log.LOGGER.trace("Starting self-committing transaction: " + tx);
         int maxFailures = context.getTransactionRetriesCount();
-        return onFailureRetry(context::startTransaction, tx, payload, payload, maxFailures);
+        return onFailureRetry(context.getTransactionRetryScheduler(), context.entityClass, context::startTransaction,
+                tx, payload, payload, maxFailures);
+    }
+
+    /**
+     * Asynchronous version of {@link #inCommittableTx(TraversalContext, TransactionPayload.Committing)}. The first
+     * attempt is run in the calling thread, while the retries of the failed attempts are scheduled to run later on
+     * the threads of the {@link TransactionRetryScheduler} so that the caller is not blocked waiting for them.
+     *
+     * @return the future that completes once the payload succeeds or fails for good
+     */
+    public static <R, BE> CompletableFuture<R> inCommittableTxAsync(TraversalContext<BE, ?> context,
+                                                                   TransactionPayload.Committing<R, BE> payload) {
+
+        CompletableFuture<R> result = new CompletableFuture<>();
+
+        try {
+            Transaction.Committable<BE> tx = Transaction.Committable.from(context.startTransaction());
+            Log.LOGGER.trace("Starting asynchronous self-committing transaction: " + tx);
+
+            new AsyncRetry<>(context.getTransactionRetryScheduler(), context.entityClass, context::startTransaction,
+                    payload, payload, context.getTransactionRetriesCount(), result).attempt(tx);
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        return result;
     }
 
     public static <R, BE> R onFailureRetry(TraversalContext<BE, ?> ctx, Transaction<BE> tx,
                                            TransactionPayload<R, BE> firstPayload,
                                            TransactionPayload<R, BE> succeedingPayload, int maxFailures) {
 
-        return onFailureRetry(ctx::startTransaction, Transaction.Committable.from(tx),
-                TransactionPayload.Committing.committing(firstPayload),
+        return onFailureRetry(ctx.getTransactionRetryScheduler(), ctx.entityClass, ctx::startTransaction,
+                Transaction.Committable.from(tx), TransactionPayload.Committing.committing(firstPayload),
                 TransactionPayload.Committing.committing(succeedingPayload), maxFailures);
     }
 
-    public static <R, BE> R onFailureRetry(Function<Transaction.PreCommit<BE>, Transaction<BE>> txCtor,
+    public static <R, BE> R onFailureRetry(TransactionRetryScheduler scheduler, Class<?> entityType,
+                                           Function<Transaction.PreCommit<BE>, Transaction<BE>> txCtor,
                                            Transaction.Committable<BE> tx,
                                            TransactionPayload.Committing<R, BE> firstPayload,
                                            TransactionPayload.Committing<R, BE> succeedingPayload,
@@ -96,41 +152,21 @@ final class Util {
         int failures = 0;
         Exception lastException;
 
-        //this could be configurable, but let's just start with the hardcoded 300ms + a random bit
-        //as the first retry wait time.
-        int waitTime = 300 + rand.nextInt(150);
+        long waitTime = scheduler.initialWaitTime();
 
         do {
             try {
-                try {
-                    R ret;
-                    if (failures == 0) {
-                        ret = firstPayload.run(tx);
-                        tx.registerCommittedPayload(firstPayload);
-                    } else {
-                        tx.getPreCommit().reset();
-                        tx = Transaction.Committable.from(txCtor.apply(tx.getPreCommit()));
-
-                        ret = succeedingPayload.run(tx);
-                        tx.registerCommittedPayload(succeedingPayload);
-                    }
-
-                    return ret;
-                } catch (Throwable t) {
-                    Log.LOGGER.dTransactionFailed(t.getMessage());
-                    if (tx.requiresRollbackAfterFailure(t)) {
-                        tx.rollback();
-                    }
+                if (failures == 0) {
+                    return attempt(tx, firstPayload);
+                } else {
+                    tx.getPreCommit().reset();
+                    tx = Transaction.Committable.from(txCtor.apply(tx.getPreCommit()));
 
-                    if (tx.isTransactionRetryWarranted(t)) {
-                        Log.LOGGER.debug("Backend deems this error worth a retry.", t);
-                        throw new RetryWarrantedException(t);
-                    } else {
-                        throw t;
-                    }
+                    return attempt(tx, succeedingPayload);
                 }
             } catch (CommitFailureException | RetryWarrantedException e) {
                 failures++;
+                scheduler.recordConflict(entityType);
 
                 //if the backend fails the commit, we can retry
                 Log.LOGGER.debugf(e, "Commit attempt %d/%d failed. Will wait for %d ms before retrying." +
@@ -139,6 +175,7 @@ final class Util {
                 lastException = e;
 
                 if (failures < maxFailures) {
+                    scheduler.recordRetry(entityType);
                     try {
                         Thread.sleep(waitTime);
                     } catch (InterruptedException ie) {
@@ -149,11 +186,9 @@ final class Util {
                         break;
                     }
 
-                    //double the wait time for the next attempt - the assumption is that if the competing transaction
-                    //takes a long time to complete, it probably is going to be really long.
-                    //We randomize the value a little bit so that competing transactions started at roughly same time
-                    //don't knock each other out easily.
-                    waitTime = waitTime * 2 + rand.nextInt(waitTime / 2);
+                    //the assumption is that if the competing transaction takes a long time to complete, it probably
+                    //is going to be really long, so the wait time grows with each attempt.
+                    waitTime = scheduler.nextWaitTime(waitTime);
                 }
             } catch (RuntimeException e) {
                 throw e;
@@ -166,6 +201,33 @@ final class Util {
         throw new TransactionFailureException(lastException, failures);
     }
 
+    /**
+     * Runs a single attempt of the payload in the provided transaction.
+     *
+     * @throws RetryWarrantedException if the attempt failed but the backend thinks it is worth retrying
+     * @throws CommitFailureException if the commit failed
+     */
+    private static <R, BE> R attempt(Transaction.Committable<BE> tx, TransactionPayload.Committing<R, BE> payload)
+            throws Exception {
+        try {
+            R ret = payload.run(tx);
+            tx.registerCommittedPayload(payload);
+            return ret;
+        } catch (Throwable t) {
+            Log.LOGGER.dTransactionFailed(t.getMessage());
+            if (tx.requiresRollbackAfterFailure(t)) {
+                tx.rollback();
+            }
+
+            if (tx.isTransactionRetryWarranted(t)) {
+                Log.LOGGER.debug("Backend deems this error worth a retry.", t);
+                throw new RetryWarrantedException(t);
+            } else {
+                throw t;
+            }
+        }
+    }
+
     public static <BE> BE getSingle(Transaction<BE> backend, Query query,
                                     SegmentType entityType) {
         BE result = backend.querySingle(query);
@@ -436,6 +498,57 @@ final class Util {
         }
     }
 
+    /**
+     * @param query the query to inspect
+     * @return the canonical paths the query starts at or null if they cannot be determined
+     */
+    public static List<CanonicalPath> queryRoots(Query query) {
+        QueryFragment[] fragments = query.getFragments();
+        if (fragments.length == 0) {
+            return null;
+        }
+
+        Filter first = fragments[0].getFilter();
+        if (first instanceof With.CanonicalPaths) {
+            return Arrays.asList(((With.CanonicalPaths) first).getPaths());
+        }
+
+        if (fragments.length > 1 && first instanceof With.Types
+                && Arrays.equals(((With.Types) first).getTypes(), new Class<?>[]{Tenant.class})
+                && fragments[1].getFilter() instanceof With.Ids) {
+            List<CanonicalPath> ret = new ArrayList<>();
+            for (String id : ((With.Ids) fragments[1].getFilter()).getIds()) {
+                ret.add(CanonicalPath.of().tenant(id).get());
+            }
+            return ret;
+        }
+
+        return null;
+    }
+
+    /**
+     * The relationships cannot cross the tenant boundaries, so the results of a query always come from the tenants
+     * the query starts in.
+     *
+     * @param roots the canonical paths a query starts at as returned from {@link #queryRoots(Query)}
+     * @return the ids of the tenants of the roots or null if the roots are null or some of them are not in a tenant
+     */
+    public static Set<String> tenantsOf(List<CanonicalPath> roots) {
+        if (roots == null) {
+            return null;
+        }
+
+        Set<String> ret = new HashSet<>();
+        for (CanonicalPath r : roots) {
+            String tenantId = r.ids().getTenantId();
+            if (tenantId == null) {
+                return null;
+            }
+            ret.add(tenantId);
+        }
+        return ret;
+    }
+
     /**
      * Certain constructs in backend are not representable in API - such as the
      * {@link org.hawkular.inventory.api.Relationships.WellKnown#hasData} relationship.
@@ -459,6 +572,44 @@ final class Util {
         return true;
     }
 
+    /**
+     * @return the value of the integer configuration property or the default value if it is not set
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public static int getIntProperty(Configuration configuration, Configuration.Property property, int defaultValue) {
+        return parseProperty(configuration, property, Integer.toString(defaultValue), Integer::parseInt, "an integer");
+    }
+
+    /**
+     * @return the value of the long integer configuration property or the default value if it is not set
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    public static long getLongProperty(Configuration configuration, Configuration.Property property,
+                                       long defaultValue) {
+        return parseProperty(configuration, property, Long.toString(defaultValue), Long::parseLong, "an integer");
+    }
+
+    /**
+     * @return the value of the decimal configuration property or the default value if it is not set
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    public static double getDoubleProperty(Configuration configuration, Configuration.Property property,
+                                           double defaultValue) {
+        return parseProperty(configuration, property, Double.toString(defaultValue), Double::parseDouble,
+                "a number");
+    }
+
+    private static <T> T parseProperty(Configuration configuration, Configuration.Property property,
+                                       String defaultValue, Function<String, T> parser, String expected) {
+        String value = configuration.getProperty(property, defaultValue);
+        try {
+            return parser.apply(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The configuration property '" + property.getPropertyName()
+                    + "' must be " + expected + " but was '" + value + "'.", e);
+        }
+    }
+
     public interface TransactionParticipant<BE, E> {
         void execute(BE entityRepresentation, E entity, Transaction<BE> transaction);
     }
@@ -468,4 +619,72 @@ final class Util {
             super(cause);
         }
     }
+
+    /**
+     * The state of an asynchronously retried transaction. Instead of blocking the thread until the next attempt, each
+     * failed attempt schedules the next one with the {@link TransactionRetryScheduler}.
+     */
+    private static final class AsyncRetry<R, BE> {
+        private final TransactionRetryScheduler scheduler;
+        private final Class<?> entityType;
+        private final Function<Transaction.PreCommit<BE>, Transaction<BE>> txCtor;
+        private final TransactionPayload.Committing<R, BE> firstPayload;
+        private final TransactionPayload.Committing<R, BE> succeedingPayload;
+        private final int maxFailures;
+        private final CompletableFuture<R> result;
+        private int failures;
+        private long waitTime;
+
+        AsyncRetry(TransactionRetryScheduler scheduler, Class<?> entityType,
+                   Function<Transaction.PreCommit<BE>, Transaction<BE>> txCtor,
+                   TransactionPayload.Committing<R, BE> firstPayload,
+                   TransactionPayload.Committing<R, BE> succeedingPayload, int maxFailures,
+                   CompletableFuture<R> result) {
+            this.scheduler = scheduler;
+            this.entityType = entityType;
+            this.txCtor = txCtor;
+            this.firstPayload = firstPayload;
+            this.succeedingPayload = succeedingPayload;
+            this.maxFailures = maxFailures;
+            this.result = result;
+            this.waitTime = scheduler.initialWaitTime();
+        }
+
+        void attempt(Transaction.Committable<BE> tx) {
+            try {
+                result.complete(Util.attempt(tx, failures == 0 ? firstPayload : succeedingPayload));
+            } catch (CommitFailureException | RetryWarrantedException e) {
+                failures++;
+                scheduler.recordConflict(entityType);
+
+                Log.LOGGER.debugf(e, "Commit attempt %d/%d failed. Will retry in %d ms." +
+                        " The failure message was: %s", failures, maxFailures, waitTime, e.getMessage());
+
+                if (failures < maxFailures) {
+                    scheduler.recordRetry(entityType);
+
+                    long delay = waitTime;
+                    waitTime = scheduler.nextWaitTime(waitTime);
+
+                    scheduler.schedule(() -> {
+                        try {
+                            tx.getPreCommit().reset();
+                            attempt(Transaction.Committable.from(txCtor.apply(tx.getPreCommit())));
+                        } catch (Throwable t) {
+                            result.completeExceptionally(t);
+                        }
+                    }, delay);
+                } else {
+                    result.completeExceptionally(new TransactionFailureException(e, failures));
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } catch (Exception e) {
+                //an exception in the payload itself, not caused by a failed commit. We don't retry those...
+                result.completeExceptionally(new InventoryException("Transaction payload failed.", e));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+    }
 }
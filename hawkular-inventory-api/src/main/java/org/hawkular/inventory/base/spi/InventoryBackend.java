@@ -16,12 +16,17 @@
  */
 package org.hawkular.inventory.base.spi;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.AbstractElement;
@@ -29,6 +34,7 @@ import org.hawkular.inventory.api.model.Blueprint;
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.Hashes;
 import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.api.paging.Order;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
 import org.hawkular.inventory.paths.CanonicalPath;
@@ -65,6 +71,29 @@ public interface InventoryBackend<E> extends AutoCloseable {
      */
     InventoryBackend<E> startTransaction();
 
+    /**
+     * Starts a transaction that is only going to be used for reading the data. No modifications are going to be made
+     * in it and it is always going to be rolled back rather than committed.
+     *
+     * <p>The backends can use this to map the transaction to a cheaper read-only or snapshot mode if the underlying
+     * database supports it. By default this is the same as {@link #startTransaction()}.
+     *
+     * @return a new inventory backend instance that is bound to a new read-only transaction
+     */
+    default InventoryBackend<E> startReadOnlyTransaction() {
+        return startTransaction();
+    }
+
+    /**
+     * The backends that keep the data in several separate stores (like a graph per tenant) return the identifier of
+     * the store they work with, so that the data read from the different stores is not mixed up (e.g. in the caches).
+     *
+     * @return the identifier of the store this backend works with or null if there is just a single store
+     */
+    default String getStorePartition() {
+        return null;
+    }
+
     /**
      * Tries to find an element at given canonical path.
      *
@@ -119,6 +148,72 @@ public interface InventoryBackend<E> extends AutoCloseable {
      */
     <T> Page<T> query(Query query, Pager pager, Function<E, T> conversion, Function<T, Boolean> filter);
 
+    /**
+     * Counts the elements matching the query.
+     *
+     * <p>The default implementation iterates over all the results of the query. The implementations are encouraged
+     * to count the elements in the database instead.
+     *
+     * @param query the query to count the results of
+     * @return the number of results of the query
+     */
+    default long count(Query query) {
+        long count = 0;
+        try (Page<E> results = query(query, Pager.unlimited(Order.unspecified()))) {
+            for (E e : results) {
+                if (!isBackendInternal(e)) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the elements matching the query in groups.
+     *
+     * <p>The default implementation iterates over all the results of the query (converting them if grouping by
+     * a property). The implementations are encouraged to count the elements in the database instead.
+     *
+     * @param query   the query to count the results of
+     * @param groupBy how to group the results
+     * @return the map of group keys to the number of results in the groups, the type of the keys is described in
+     * {@link GroupBy}
+     */
+    default Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        Map<Object, Long> ret = new HashMap<>();
+        try (Page<E> results = query(query, Pager.unlimited(Order.unspecified()))) {
+            for (E e : results) {
+                if (isBackendInternal(e)) {
+                    continue;
+                }
+
+                Object key;
+                switch (groupBy.getKind()) {
+                    case entityType:
+                        key = extractType(e);
+                        break;
+                    case relationshipName:
+                        key = extractRelationshipName(e);
+                        break;
+                    case property:
+                        AbstractElement<?, ?> element = (AbstractElement<?, ?>) convert(e, extractType(e));
+                        key = element.getProperties().get(groupBy.getPropertyName());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported grouping: " + groupBy);
+                }
+
+                if (key != null) {
+                    ret.merge(key, 1L, Long::sum);
+                }
+            }
+        }
+
+        return ret;
+    }
+
     /**
      * Going from the starting poing, this will return an iterator over all elements that are connected to the starting
      * point using relationships with provided name and recursively down to the elements connected in the same way to
@@ -133,6 +228,31 @@ public interface InventoryBackend<E> extends AutoCloseable {
     Iterator<E> getTransitiveClosureOver(E startingPoint, Relationships.Direction direction,
             String... relationshipNames);
 
+    /**
+     * Checks whether the target is reachable from the starting point by following the relationships with provided
+     * name in the provided direction. Unlike {@link #getTransitiveClosureOver(Object, Relationships.Direction,
+     * String...)}, this should stop as soon as the target is found.
+     *
+     * <p>The default implementation scans the transitive closure.
+     *
+     * @param startingPoint    the starting element
+     * @param direction        the direction in which to follow the relationships
+     * @param relationshipName the name of the relationships to follow
+     * @param target           the element to look for
+     * @return true if the target can be reached from the starting point, false otherwise
+     */
+    default boolean isReachable(E startingPoint, Relationships.Direction direction, String relationshipName,
+                                E target) {
+        Iterator<E> closure = getTransitiveClosureOver(startingPoint, direction, relationshipName);
+        while (closure.hasNext()) {
+            if (closure.next().equals(target)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Checks whether there exists any relationship in given direction relative to the given entity with given name.
      *
@@ -261,6 +381,30 @@ public interface InventoryBackend<E> extends AutoCloseable {
      */
     E descendToData(E dataEntityRepresentation, RelativePath dataPath);
 
+    /**
+     * Loads the structured data on the given path "inside" the data entity.
+     *
+     * <p>The default implementation {@link #descendToData(Object, RelativePath) descends} to the data and
+     * {@link #convert(Object, Class) converts} it. The backends that don't represent every value inside the
+     * structured data by an element of its own can override this to read the value directly.
+     *
+     * @param dataEntityRepresentation the representation of the {@link org.hawkular.inventory.api.model.DataEntity}
+     *                                 instance
+     * @param dataPath                 the path in the data to load
+     * @param shallow                  if true, the lists and maps are loaded without their contents
+     * @return the structured data on the path or null if there's no data on the path
+     * @see org.hawkular.inventory.api.Data.Single#data(RelativePath)
+     * @see org.hawkular.inventory.api.Data.Single#flatData(RelativePath)
+     */
+    default StructuredData loadData(E dataEntityRepresentation, RelativePath dataPath, boolean shallow) {
+        E data = descendToData(dataEntityRepresentation, dataPath);
+        if (data == null) {
+            return null;
+        }
+
+        return shallow ? convert(data, ShallowStructuredData.class).getData() : convert(data, StructuredData.class);
+    }
+
     /**
      * Creates a new relationship from source to target with given name and properties.
      *
@@ -340,14 +484,28 @@ public interface InventoryBackend<E> extends AutoCloseable {
     boolean isBackendInternal(E element);
 
     /**
-     * See the javadoc in {@link org.hawkular.inventory.api.Inventory#getGraphSON(String)}
+     * Writes the sub-graph of the tenant to the output stream as described in
+     * {@link org.hawkular.inventory.api.Inventory#exportGraph(String, GraphExport.Format, OutputStream)}. The export
+     * runs in the calling thread. The implementations should report the progress to and check the cancellation of
+     * the provided export but must not complete it.
+     *
+     * @param export the export to write the graph for
+     * @param out    the output stream to write to
+     * @throws IOException on failure to write the data
      */
-    InputStream getGraphSON(String tenantId);
+    void writeGraph(GraphExport export, OutputStream out) throws IOException;
 
     <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(CanonicalPath startingPoint,
                                                                   Relationships.Direction direction, Class<T> clazz,
                                                                   String... relationshipNames);
 
+    /**
+     * See the javadoc in {@link org.hawkular.inventory.api.Inventory#streamTransitiveClosureOver(CanonicalPath,
+     * Relationships.Direction, Class, int, String...)}
+     */
+    <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint, Relationships.Direction direction,
+                                              Class<T> projection, int maxDepth, String... relationshipNames);
+
     /**
      * Checks the exception thrown during the commit and returns true if the backend requires explicit rollback after
      * such failure occured or false if the failure caused the transaction to close itself automatically.
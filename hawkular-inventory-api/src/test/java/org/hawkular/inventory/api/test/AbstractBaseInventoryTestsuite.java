@@ -17,6 +17,7 @@
 package org.hawkular.inventory.api.test;
 
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -42,7 +43,9 @@ import static org.hawkular.inventory.paths.DataRole.Resource.connectionConfigura
 import static org.hawkular.inventory.paths.DataRole.ResourceType.configurationSchema;
 import static org.hawkular.inventory.paths.DataRole.ResourceType.connectionConfigurationSchema;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -56,6 +59,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -65,10 +69,13 @@ import java.util.stream.StreamSupport;
 import org.hawkular.inventory.api.Action;
 import org.hawkular.inventory.api.Configuration;
 import org.hawkular.inventory.api.Data;
+import org.hawkular.inventory.api.EntityAlreadyExistsException;
 import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Environments;
 import org.hawkular.inventory.api.FeedAlreadyRegisteredException;
 import org.hawkular.inventory.api.Feeds;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.Metrics;
@@ -100,6 +107,7 @@ import org.hawkular.inventory.api.model.DataEntity;
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.Environment;
 import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.Hashes;
 import org.hawkular.inventory.api.model.IdentityHash;
 import org.hawkular.inventory.api.model.InventoryStructure;
 import org.hawkular.inventory.api.model.MetadataPack;
@@ -120,6 +128,7 @@ import org.hawkular.inventory.api.paging.Order;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
 import org.hawkular.inventory.base.BaseInventory;
+import org.hawkular.inventory.base.TreeHashCache;
 import org.hawkular.inventory.base.spi.InventoryBackend;
 import org.hawkular.inventory.paths.CanonicalPath;
 import org.hawkular.inventory.paths.DataRole;
@@ -1471,6 +1480,43 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         assert msList.size() == 0;
     }
 
+    @Test
+    public void testKeysetPaging() throws Exception {
+        List<Metric> allResults = inventory.tenants().getAll().environments().getAll().metrics()
+                .getAll().entities(Pager.unlimited(Order.by("id", Order.Direction.DESCENDING))).toList();
+
+        assert allResults.size() == 3;
+
+        Metrics.Multiple metrics = inventory.tenants().getAll().environments().getAll().metrics().getAll();
+
+        Pager pager = Pager.keyset(2, Order.by("id", Order.Direction.DESCENDING));
+
+        Page<Metric> ms = metrics.entities(pager);
+        List<Metric> msList = ms.toList();
+        Assert.assertEquals(allResults.subList(0, 2), msList);
+        Assert.assertNotNull(ms.getContinuationToken());
+
+        ms = metrics.entities(pager.withContinuationToken(ms.getContinuationToken()));
+        msList = ms.toList();
+        Assert.assertEquals(allResults.subList(2, 3), msList);
+        Assert.assertNull(ms.getContinuationToken());
+
+        //unspecified order is stabilized by the canonical paths
+        pager = Pager.keyset(1, Order.unspecified());
+        Set<Metric> seen = new HashSet<>();
+        String token;
+        do {
+            ms = metrics.entities(pager);
+            msList = ms.toList();
+            assert msList.size() == 1;
+            assert seen.add(msList.get(0));
+            token = ms.getContinuationToken();
+            pager = pager.withContinuationToken(token);
+        } while (token != null);
+
+        Assert.assertEquals(new HashSet<>(allResults), seen);
+    }
+
     @Test
     public void testGettingResourcesFromFeedsUsingEnvironments() throws Exception {
         Set<Resource> rs = inventory.tenants().get("com.acme.tenant").environments().get("production")
@@ -2250,6 +2296,233 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testTreeHashCache() throws Exception {
+        String tenantId = "testTreeHashCache";
+        try {
+            Feeds.Single f = inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("feed").build(), false);
+
+            f.resourceTypes().create(ResourceType.Blueprint.builder().withId("resourceType").build());
+
+            TreeHashCache cache = inventory.getTreeHashCache();
+            long hits = cache.getHitCount();
+            long misses = cache.getMissCount();
+
+            SyncHash.Tree first = f.treeHash();
+            SyncHash.Tree second = f.treeHash();
+
+            Assert.assertEquals(first, second);
+            Assert.assertEquals(misses + 1, cache.getMissCount());
+            Assert.assertEquals(hits + 1, cache.getHitCount());
+
+            //the change in the tree changes the hash of the root, so the cached tree must not be used anymore
+            f.resources().create(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                    .build());
+
+            SyncHash.Tree third = f.treeHash();
+
+            Assert.assertEquals(misses + 2, cache.getMissCount());
+            Assert.assertEquals(f.entity().getSyncHash(), third.getHash());
+            Assert.assertNotEquals(first.getHash(), third.getHash());
+            Assert.assertEquals(2, third.getChildren().size());
+            Assert.assertNotNull(third.getChild(Path.Segment.from("r;resource")));
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testGraphExport() throws Exception {
+        String tenantId = "testGraphExport";
+        String otherTenantId = "otherTenantOfGraphExport";
+        try {
+            inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("exportedFeed").build(), false);
+            inventory.tenants().create(Tenant.Blueprint.builder().withId(otherTenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("hiddenFeed").build(), false);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            GraphExport export = inventory.exportGraph(tenantId, GraphExport.Format.GRAPHSON, out);
+            export.await();
+
+            String graph = new String(out.toByteArray(), StandardCharsets.UTF_8);
+
+            Assert.assertTrue(export.isDone());
+            //at least the tenant and the feed with the contains edge between them
+            Assert.assertTrue(export.getVertexCount() >= 2);
+            Assert.assertTrue(export.getEdgeCount() >= 1);
+            Assert.assertTrue(graph.contains("exportedFeed"));
+            Assert.assertFalse(graph.contains("hiddenFeed"));
+            Assert.assertFalse(graph.contains(otherTenantId));
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+            if (inventory.tenants().get(otherTenantId).exists()) {
+                inventory.tenants().get(otherTenantId).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testGetHashes() throws Exception {
+        String tenantId = "testGetHashes";
+        try {
+            Feeds.Single f = inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("feed").build(), false);
+
+            f.resourceTypes().create(ResourceType.Blueprint.builder().withId("resourceType").build());
+            Resource resource = f.resources()
+                    .create(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                            .build())
+                    .entity();
+
+            Hashes hashes = inventory.getHashes(resource.getPath());
+            Assert.assertEquals(Hashes.of(resource), hashes);
+
+            Assert.assertEquals(f.treeHash().getHash(), inventory.getHashes(f.entity().getPath()).getSyncHash());
+
+            try {
+                inventory.getHashes(CanonicalPath.of().tenant(tenantId).feed("feed").resource("nonExistent").get());
+                Assert.fail("Reading hashes of a non-existent entity should fail.");
+            } catch (EntityNotFoundException e) {
+                //good
+            }
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testGetElements() throws Exception {
+        String tenantId = "testGetElements";
+        try {
+            Feeds.Single f = inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("feed").build(), false);
+
+            ResourceType rt = f.resourceTypes().create(ResourceType.Blueprint.builder().withId("resourceType")
+                    .build()).entity();
+            Resource resource = f.resources()
+                    .create(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                            .build())
+                    .entity();
+
+            CanonicalPath nonExistent = CanonicalPath.of().tenant(tenantId).feed("feed").resource("nonExistent").get();
+
+            Map<CanonicalPath, AbstractElement<?, ?>> elements = inventory.getElements(Arrays.asList(
+                    resource.getPath(), nonExistent, rt.getPath(), resource.getPath()));
+
+            Assert.assertEquals(Arrays.asList(resource.getPath(), nonExistent, rt.getPath()),
+                    new ArrayList<>(elements.keySet()));
+            Assert.assertEquals(resource, elements.get(resource.getPath()));
+            Assert.assertEquals(rt, elements.get(rt.getPath()));
+            Assert.assertNull(elements.get(nonExistent));
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testCountAndGroupCount() throws Exception {
+        String tenantId = "testCountAndGroupCount";
+        try {
+            Feeds.Single f = inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("feed").build(), false);
+
+            f.resourceTypes().create(ResourceType.Blueprint.builder().withId("resourceType").build());
+            f.metricTypes().create(MetricType.Blueprint.builder(MetricDataType.GAUGE).withId("metricType")
+                    .withInterval(0L).withUnit(MetricUnit.NONE).build());
+            for (String[] idAndHost : new String[][]{{"r1", "a"}, {"r2", "a"}, {"r3", "b"}}) {
+                f.resources().create(Resource.Blueprint.builder().withId(idAndHost[0])
+                        .withResourceTypePath("resourceType").withProperty("hostname", idAndHost[1]).build());
+            }
+
+            CanonicalPath feedPath = f.entity().getPath();
+
+            Query children = Query.path().with(path(feedPath), by(contains)).get();
+            Assert.assertEquals(5, inventory.count(children));
+
+            Map<Object, Long> byType = inventory.groupCount(children, GroupBy.entityType());
+            Assert.assertEquals(3, byType.size());
+            Assert.assertEquals(Long.valueOf(1), byType.get(ResourceType.class));
+            Assert.assertEquals(Long.valueOf(1), byType.get(MetricType.class));
+            Assert.assertEquals(Long.valueOf(3), byType.get(Resource.class));
+
+            Query resources = Query.path().with(path(feedPath), by(contains), type(Resource.class)).get();
+            Map<Object, Long> byHost = inventory.groupCount(resources, GroupBy.property("hostname"));
+            Assert.assertEquals(2, byHost.size());
+            Assert.assertEquals(Long.valueOf(2), byHost.get("a"));
+            Assert.assertEquals(Long.valueOf(1), byHost.get("b"));
+
+            Query relationships = Query.path().with(path(feedPath), SwitchElementType.outgoingRelationships())
+                    .get();
+            Map<Object, Long> byName = inventory.groupCount(relationships, GroupBy.relationshipName());
+            Assert.assertEquals(Collections.singletonMap(contains.name(), 5L), byName);
+
+            Assert.assertEquals(0, inventory.count(Query.path().with(path(feedPath), by(contains),
+                    type(Environment.class)).get()));
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testTextSearch() throws Exception {
+        String tenantId = "testTextSearch";
+        try {
+            Feeds.Single f = inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("feed").build(), false);
+
+            f.resourceTypes().create(ResourceType.Blueprint.builder().withId("resourceType").build());
+            for (String[] idNameAndHost : new String[][]{{"web-1", "Frontend", "host-a"},
+                    {"web-2", "Frontend backup", "host-b"}, {"db-1", "Database", "db-host-a"}}) {
+                f.resources().create(Resource.Blueprint.builder().withId(idNameAndHost[0])
+                        .withName(idNameAndHost[1]).withResourceTypePath("resourceType")
+                        .withProperty("hostname", idNameAndHost[2]).build());
+            }
+
+            Function<Filter, Set<String>> find = filter -> f.resources().getAll(filter).entities().stream()
+                    .map(Resource::getId).collect(toSet());
+
+            long indexSearches = inventory.getSearchIndex().getSearchCount();
+
+            Assert.assertEquals(new HashSet<>(asList("web-1", "web-2")), find.apply(With.idStartingWith("web")));
+            Assert.assertEquals(new HashSet<>(asList("web-1", "db-1")), find.apply(With.idContaining("-1")));
+            Assert.assertEquals(Collections.singleton("db-1"), find.apply(With.idMatching("d.-\\d")));
+            Assert.assertEquals(new HashSet<>(asList("web-1", "web-2")), find.apply(With.nameStartingWith("Front")));
+            Assert.assertEquals(Collections.singleton("web-2"), find.apply(With.nameContaining("backup")));
+            Assert.assertEquals(new HashSet<>(asList("web-1", "db-1")),
+                    find.apply(With.propertyContaining("hostname", "host-a")));
+            Assert.assertEquals(Collections.singleton("db-1"),
+                    find.apply(With.propertyMatching("hostname", "db-.*")));
+            Assert.assertTrue(find.apply(With.nameContaining("nonexistent")).isEmpty());
+
+            if (inventory.getSearchIndex().isEnabled()) {
+                Assert.assertTrue(inventory.getSearchIndex().getSearchCount() > indexSearches);
+            }
+
+            f.resources().get("web-2").update(Resource.Update.builder().withName("Gateway").build());
+            Assert.assertEquals(Collections.singleton("web-1"), find.apply(With.nameStartingWith("Front")));
+
+            f.resources().delete("web-1");
+            Assert.assertTrue(find.apply(With.nameStartingWith("Front")).isEmpty());
+            Assert.assertEquals(Collections.singleton("web-2"), find.apply(With.idStartingWith("web")));
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+        }
+    }
+
     @Test
     public void testSynchronizeNew() throws Exception {
         String tenantId = "testSynchronizeNew";
@@ -2319,6 +2592,32 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testSynchronizeAsync() throws Exception {
+        String tenantId = "testSynchronizeAsync";
+        try {
+            Feeds.Single f = inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build())
+                    .feeds().create(Feed.Blueprint.builder().withId("feed").build(), false);
+
+            InventoryStructure<Feed.Blueprint> structure = InventoryStructure.Offline
+                    .of(Feed.Blueprint.builder().withId("feed").build())
+                    .addChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                    .addChild(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                            .build())
+                    .build();
+
+            f.synchronizeAsync(SyncRequest.syncEverything(structure)).get(1, TimeUnit.MINUTES);
+
+            Assert.assertTrue(f.resourceTypes().get("resourceType").exists());
+            Assert.assertTrue(f.resources().get("resource").exists());
+            Assert.assertEquals(f.entity().getSyncHash(), f.treeHash().getHash());
+        } finally {
+            if (inventory.tenants().get(tenantId).exists()) {
+                inventory.tenants().get(tenantId).delete();
+            }
+        }
+    }
+
     @Test
     public void testSynchronizeNonExistent() throws Exception {
         String tenantId = "testSynchronizeNonExistent";
@@ -3142,6 +3441,30 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testStreamTransitiveClosure() throws Exception {
+        CanonicalPath feed = CanonicalPath.of().tenant("com.acme.tenant").feed("feed1").get();
+
+        try (Stream<Entity> all = inventory.streamTransitiveClosureOver(feed, outgoing, Entity.class, 0,
+                "contains")) {
+            Assert.assertEquals(8, all.count());
+        }
+
+        try (Stream<CanonicalPath> children = inventory.streamTransitiveClosureOver(feed, outgoing,
+                CanonicalPath.class, 1, "contains")) {
+            List<CanonicalPath> paths = children.collect(toList());
+            Assert.assertFalse(paths.isEmpty());
+            Assert.assertTrue(paths.size() < 8);
+            Assert.assertTrue(paths.stream().allMatch(p -> feed.equals(p.up())));
+        }
+
+        try (Stream<CanonicalPath> ancestors = inventory.streamTransitiveClosureOver(feed, incoming,
+                CanonicalPath.class, 0, "contains")) {
+            Assert.assertEquals(Collections.singletonList(CanonicalPath.of().tenant("com.acme.tenant").get()),
+                    ancestors.collect(toList()));
+        }
+    }
+
     @Test
     public void testBackendHasRelationship() throws Exception {
         InventoryBackend<E> backend = inventory.getBackend().startTransaction();
@@ -3270,6 +3593,59 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         Assert.assertFalse(res.data().get(connectionConfiguration).exists());
     }
 
+    @Test
+    public void testPersistNestedStructuredData() throws Exception {
+        Tenant t = inventory.tenants().create(Tenant.Blueprint.builder().withId(UUID.randomUUID().toString()).build())
+                .entity();
+        try {
+            Feed f = inventory.inspect(t).feeds().create(Feed.Blueprint.builder().withId("f").build()).entity();
+            ResourceType rt = inventory.inspect(f).resourceTypes()
+                    .create(ResourceType.Blueprint.builder().withId("rt").build()).entity();
+            Resource r = inventory.inspect(f).resources().create(Resource.Blueprint.builder().withId("r")
+                    .withResourceTypePath(rt.getPath().toString()).build()).entity();
+
+            StructuredData.MapBuilder bld = StructuredData.get().map()
+                    .putBool("bool", true)
+                    .putIntegral("integral", 42L)
+                    .putFloatingPoint("float", 4.2)
+                    .putString("string", "value")
+                    .putUndefined("undefined");
+
+            StructuredData.InnerListBuilder<StructuredData.MapBuilder> list = bld.putList("list");
+            for (int i = 0; i < 50; ++i) {
+                list.addMap()
+                        .putIntegral("index", (long) i)
+                        .putList("nested")
+                        /**/.addString("a" + i)
+                        /**/.addList()
+                        /**//**/.addBool(i % 2 == 0)
+                        /**//**/.addMap().putString("deep", "d" + i).closeMap()
+                        /**/.closeList()
+                        .closeList()
+                        .closeMap();
+            }
+            StructuredData config = list.closeList().build();
+
+            Data.Single data = inventory.inspect(r).data().create(DataEntity.Blueprint.<DataRole.Resource>builder()
+                    .withRole(configuration).withValue(config).build());
+
+            StructuredData loaded = data.entity().getValue();
+            Assert.assertEquals(config, loaded);
+            Assert.assertEquals(new ArrayList<>(config.map().keySet()), new ArrayList<>(loaded.map().keySet()));
+
+            //the persistence of the structured data must have left the backend in a state usable for further writes
+            StructuredData connection = StructuredData.get().map().putMap("m").putString("k", "v").closeMap().build();
+            inventory.inspect(r).data().create(DataEntity.Blueprint.<DataRole.Resource>builder()
+                    .withRole(connectionConfiguration).withValue(connection).build());
+
+            Assert.assertEquals(connection, inventory.inspect(r).data().get(connectionConfiguration).entity()
+                    .getValue());
+            Assert.assertEquals(config, inventory.inspect(r).data().get(configuration).entity().getValue());
+        } finally {
+            inventory.tenants().delete(t.getId());
+        }
+    }
+
     @Test
     public void testUpdateStructuredDataSimpleValue() throws Exception {
 
@@ -3399,6 +3775,161 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testPartialStructuredDataUpdate() throws Exception {
+        Tenant t = inventory.tenants().create(Tenant.Blueprint.builder().withId(UUID.randomUUID().toString()).build())
+                .entity();
+        try {
+            Feed f = inventory.inspect(t).feeds().create(Feed.Blueprint.builder().withId("f").build()).entity();
+            ResourceType rt = inventory.inspect(f).resourceTypes()
+                    .create(ResourceType.Blueprint.builder().withId("rt").build()).entity();
+            Resource r = inventory.inspect(f).resources().create(Resource.Blueprint.builder().withId("r")
+                    .withResourceTypePath(rt.getPath().toString()).build()).entity();
+
+            StructuredData original = StructuredData.get().map()
+                    .putIntegral("a", 1L)
+                    .putList("b")
+                    /**/.addIntegral(1L)
+                    /**/.addIntegral(2L)
+                    /**/.addIntegral(3L)
+                    .closeList()
+                    .putMap("c")
+                    /**/.putString("x", "y")
+                    .closeMap()
+                    .putString("unchanged", "value")
+                    .build();
+
+            Data.Single config = inventory.inspect(r).data().create(DataEntity.Blueprint.<DataRole.Resource>builder()
+                    .withRole(configuration).withValue(original).build());
+
+            StructuredData updated = StructuredData.get().map()
+                    .putList("b")
+                    /**/.addIntegral(1L)
+                    /**/.addMap()
+                    /**//**/.putBool("nested", true)
+                    /**/.closeMap()
+                    .closeList()
+                    .putString("c", "no longer a map")
+                    .putString("unchanged", "value")
+                    .putBool("d", true)
+                    .putFloatingPoint("a", 2.0)
+                    .build();
+
+            config.update(DataEntity.Update.builder().withValue(updated).build());
+
+            StructuredData loaded = config.entity().getValue();
+            Assert.assertEquals(updated, loaded);
+            Assert.assertEquals(new ArrayList<>(updated.map().keySet()), new ArrayList<>(loaded.map().keySet()));
+
+            config.update(DataEntity.Update.builder().withValue(original).build());
+            Assert.assertEquals(original, config.entity().getValue());
+
+            config.update(DataEntity.Update.builder().withValue(StructuredData.get().string("scalar")).build());
+            Assert.assertEquals(StructuredData.get().string("scalar"), config.entity().getValue());
+        } finally {
+            inventory.tenants().delete(t.getId());
+        }
+    }
+
+    @Test
+    public void testConfigurationValidatedAgainstUpdatedSchema() throws Exception {
+        Tenant t = inventory.tenants().create(Tenant.Blueprint.builder().withId(UUID.randomUUID().toString()).build())
+                .entity();
+        try {
+            Feed f = inventory.inspect(t).feeds().create(Feed.Blueprint.builder().withId("f").build()).entity();
+            ResourceType rt = inventory.inspect(f).resourceTypes()
+                    .create(ResourceType.Blueprint.builder().withId("rt").build()).entity();
+            inventory.inspect(rt).data().create(DataEntity.Blueprint.<DataRole.ResourceType>builder()
+                    .withRole(configurationSchema).withValue(StructuredData.get().map()
+                            .putString("type", "string").build()).build());
+
+            Resource r = inventory.inspect(f).resources().create(Resource.Blueprint.builder().withId("r")
+                    .withResourceTypePath(rt.getPath().toString()).build()).entity();
+
+            Data.Single config = inventory.inspect(r).data().create(DataEntity.Blueprint.<DataRole.Resource>builder()
+                    .withRole(configuration).withValue(StructuredData.get().string("valid")).build());
+
+            try {
+                config.update(DataEntity.Update.builder().withValue(StructuredData.get().integral(42L)).build());
+                Assert.fail("Updating a config that doesn't conform to the schema shouldn't be possible.");
+            } catch (ValidationException e) {
+                //expected
+            }
+
+            inventory.inspect(rt).data().get(configurationSchema).update(DataEntity.Update.builder()
+                    .withValue(StructuredData.get().map().putString("type", "integer").build()).build());
+
+            config.update(DataEntity.Update.builder().withValue(StructuredData.get().integral(42L)).build());
+
+            try {
+                config.update(DataEntity.Update.builder().withValue(StructuredData.get().string("invalid")).build());
+                Assert.fail("The config should have been validated against the updated schema.");
+            } catch (ValidationException e) {
+                //expected
+            }
+        } finally {
+            inventory.tenants().delete(t.getId());
+        }
+    }
+
+    @Test
+    public void testConfigurationValidatedAgainstRolledBackSchema() throws Exception {
+        Tenant t = inventory.tenants().create(Tenant.Blueprint.builder().withId(UUID.randomUUID().toString()).build())
+                .entity();
+        try {
+            Feed f = inventory.inspect(t).feeds().create(Feed.Blueprint.builder().withId("f").build()).entity();
+            ResourceType rt = inventory.inspect(f).resourceTypes()
+                    .create(ResourceType.Blueprint.builder().withId("rt").build()).entity();
+            inventory.inspect(rt).data().create(DataEntity.Blueprint.<DataRole.ResourceType>builder()
+                    .withRole(configurationSchema).withValue(StructuredData.get().map()
+                            .putString("type", "string").build()).build());
+
+            Resource r = inventory.inspect(f).resources().create(Resource.Blueprint.builder().withId("r")
+                    .withResourceTypePath(rt.getPath().toString()).build()).entity();
+
+            //validates against (and caches) the committed schema
+            Data.Single config = inventory.inspect(r).data().create(DataEntity.Blueprint.<DataRole.Resource>builder()
+                    .withRole(configuration).withValue(StructuredData.get().string("valid")).build());
+
+            TransactionFrame frame = inventory.newTransactionFrame();
+            try {
+                Inventory inv = frame.boundInventory();
+
+                inv.inspect(rt).data().get(configurationSchema).update(DataEntity.Update.builder()
+                        .withValue(StructuredData.get().map().putString("type", "integer").build()).build());
+
+                //validated against the uncommitted schema
+                inv.inspect(r).data().get(configuration).update(DataEntity.Update.builder()
+                        .withValue(StructuredData.get().integral(42L)).build());
+            } finally {
+                frame.rollback();
+            }
+
+            //with backends that don't prefer big transactions, the changes in the frame have been committed
+            //regardless of the rollback, so let's validate against whatever is the persisted schema
+            boolean rolledBack = StructuredData.get().map().putString("type", "string").build()
+                    .equals(inventory.inspect(rt).data().get(configurationSchema).entity().getValue());
+
+            try {
+                config.update(DataEntity.Update.builder().withValue(StructuredData.get().integral(42L)).build());
+                Assert.assertFalse("The config should have been validated against the rolled back schema.",
+                        rolledBack);
+            } catch (ValidationException e) {
+                Assert.assertTrue("The config should have been validated against the committed schema.", rolledBack);
+            }
+
+            try {
+                config.update(DataEntity.Update.builder().withValue(StructuredData.get().string("valid")).build());
+                Assert.assertTrue("The config should have been validated against the committed schema.", rolledBack);
+            } catch (ValidationException e) {
+                Assert.assertFalse("The config should have been validated against the rolled back schema.",
+                        rolledBack);
+            }
+        } finally {
+            inventory.tenants().delete(t.getId());
+        }
+    }
+
     @Test
     public void testCreateWithRelationships() throws Exception {
         try {
@@ -3420,6 +3951,41 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testCreateAll() throws Exception {
+        Resources.ReadWrite resources = inventory.tenants().get("com.acme.tenant").environments().get("production")
+                .resources();
+        try {
+            List<Resources.Single> created = resources.createAll(Arrays.asList(
+                    Resource.Blueprint.builder().withId("batch1").withResourceTypePath("/URL").build(),
+                    Resource.Blueprint.builder().withId("batch2").withResourceTypePath("/URL").build(),
+                    Resource.Blueprint.builder().withId("batch3").withResourceTypePath("/Person").build()));
+
+            Assert.assertEquals(3, created.size());
+            Assert.assertEquals("batch1", created.get(0).entity().getId());
+            Assert.assertEquals("URL", created.get(1).entity().getType().getId());
+            Assert.assertEquals("Person", created.get(2).entity().getType().getId());
+            Assert.assertTrue(resources.get("batch2").exists());
+
+            try {
+                resources.createAll(Arrays.asList(
+                        Resource.Blueprint.builder().withId("batch4").withResourceTypePath("/URL").build(),
+                        Resource.Blueprint.builder().withId("batch1").withResourceTypePath("/URL").build()));
+                Assert.fail("Creating an already existing resource in a batch should fail.");
+            } catch (EntityAlreadyExistsException e) {
+                //good
+            }
+
+            Assert.assertFalse(resources.get("batch4").exists());
+        } finally {
+            for (String id : Arrays.asList("batch1", "batch2", "batch3", "batch4")) {
+                if (resources.get(id).exists()) {
+                    resources.delete(id);
+                }
+            }
+        }
+    }
+
     @Test
     public void testResourceOwnedMetrics() throws Exception {
         inventory.tenants().get("com.acme.tenant").feeds().get("feed1")
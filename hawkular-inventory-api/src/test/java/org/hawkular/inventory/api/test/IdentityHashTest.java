@@ -62,6 +62,20 @@ public class IdentityHashTest {
         Assert.assertEquals(expectedHash, blueprintHash);
     }
 
+    @Test
+    public void testNonAsciiCharactersHashedAsUtf8() throws Exception {
+        //2-byte, 3-byte, 4-byte (surrogate pair) and an unpaired surrogate
+        String id = "mt-é€😀\ud800-end";
+        MetricType.Blueprint mtb =
+                MetricType.Blueprint.builder(MetricDataType.GAUGE).withId(id).withUnit(MetricUnit.NONE).build();
+
+        String blueprintHash = IdentityHash.of(InventoryStructure.of(mtb).build());
+
+        String expectedHash = digest(mtb.getId() + mtb.getMetricDataType() + mtb.getUnit());
+
+        Assert.assertEquals(expectedHash, blueprintHash);
+    }
+
     @Test
     public void testResourceTypeHashWithNoAppendages() throws Exception {
         ResourceType.Blueprint rtb = ResourceType.Blueprint.builder().withId("rt").build();
@@ -21,6 +21,8 @@ import static org.hawkular.inventory.api.filters.Related.by;
 import static org.hawkular.inventory.api.filters.With.id;
 import static org.hawkular.inventory.api.filters.With.type;
 
+import java.util.List;
+
 import org.hawkular.inventory.api.FilterFragment;
 import org.hawkular.inventory.api.PathFragment;
 import org.hawkular.inventory.api.Query;
@@ -162,4 +164,28 @@ public class QueryTest {
 
         Assert.assertTrue(newQuery.equals(oldQuery));
     }
+
+    @Test
+    public void testSplitAtFirstBranch() {
+        CanonicalPath cp = CanonicalPath.fromString("/t;tenant/f;feed/r;resource");
+
+        Query linear = Query.path().with(With.path(cp), by(contains), type(Resource.class)).get();
+        Assert.assertEquals(1, linear.splitAtFirstBranch().size());
+        Assert.assertSame(linear, linear.splitAtFirstBranch().get(0));
+
+        Query branched = new Query.Builder().with(new PathFragment(With.path(cp)))
+                .branch().path().with(by(contains)).done()
+                .branch().path().with(by("incorporates")).done()
+                .build();
+
+        List<Query> split = branched.splitAtFirstBranch();
+        Assert.assertEquals(2, split.size());
+
+        for (int i = 0; i < 2; ++i) {
+            Query branch = split.get(i);
+            Assert.assertArrayEquals(branched.getFragments(), branch.getFragments());
+            Assert.assertEquals(1, branch.getSubTrees().size());
+            Assert.assertEquals(branched.getSubTrees().get(i), branch.getSubTrees().get(0));
+        }
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api.test;
+
+import static org.hawkular.inventory.paths.DataRole.Resource.configuration;
+
+import java.util.function.Function;
+
+import org.hawkular.inventory.api.model.AbstractHashTree;
+import org.hawkular.inventory.api.model.DataEntity;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.Hashes;
+import org.hawkular.inventory.api.model.InventoryStructure;
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.api.model.SyncHash;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.RelativePath;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class SyncHashTest {
+
+    @Test
+    public void testParallelTreeHashSameAsSequential() throws Exception {
+        InventoryStructure<Feed.Blueprint> structure = createStructure(20, 10);
+        CanonicalPath rootPath = CanonicalPath.of().tenant("t").feed("f").get();
+
+        SyncHash.Tree sequential = SyncHash.treeOf(structure, rootPath, rp -> null, 0);
+        SyncHash.Tree parallel = SyncHash.treeOf(structure, rootPath, rp -> null, 2);
+
+        assertSameTrees(sequential, parallel);
+
+        Hashes.Tree sequentialHashes = Hashes.treeOf(structure, rootPath, rp -> null, 0);
+        Hashes.Tree parallelHashes = Hashes.treeOf(structure, rootPath, rp -> null, 2);
+
+        assertSameTrees(sequentialHashes, parallelHashes);
+    }
+
+    @Test
+    public void testDefaultParallelismSameAsSequential() throws Exception {
+        InventoryStructure<Feed.Blueprint> structure =
+                createStructure(SyncHash.DEFAULT_PARALLELISM_THRESHOLD + 1, 2);
+        CanonicalPath rootPath = CanonicalPath.of().tenant("t").feed("f").get();
+
+        SyncHash.Tree sequential = SyncHash.treeOf(structure, rootPath, rp -> null, 0);
+        SyncHash.Tree parallel = SyncHash.treeOf(structure, rootPath, rp -> null);
+
+        assertSameTrees(sequential, parallel);
+    }
+
+    @Test
+    public void testParallelTreeHashWithLoadedHashesSameAsSequential() throws Exception {
+        InventoryStructure<Feed.Blueprint> structure = createStructure(20, 10);
+        CanonicalPath rootPath = CanonicalPath.of().tenant("t").feed("f").get();
+
+        Hashes loaded = new Hashes("identity", "content", "sync");
+
+        //the loader is called concurrently when hashing in parallel
+        Function<RelativePath, Hashes> loader = rp -> rp.toString().endsWith("-0") ? loaded : null;
+
+        SyncHash.Tree sequential = SyncHash.treeOf(structure, rootPath, loader, 0);
+        SyncHash.Tree parallel = SyncHash.treeOf(structure, rootPath, loader, 2);
+
+        assertSameTrees(sequential, parallel);
+        Assert.assertNotEquals(SyncHash.treeOf(structure, rootPath, rp -> null, 0).getHash(), parallel.getHash());
+    }
+
+    private static InventoryStructure<Feed.Blueprint> createStructure(int resourceCount, int childCount) {
+        InventoryStructure.Builder<Feed.Blueprint> bld =
+                InventoryStructure.of(Feed.Blueprint.builder().withId("f").build());
+
+        for (int i = 0; i < resourceCount; ++i) {
+            InventoryStructure.ChildBuilder<InventoryStructure.Builder<Feed.Blueprint>> res =
+                    bld.startChild(Resource.Blueprint.builder().withId("r" + i).withResourceTypePath("../rt;type")
+                            .build());
+
+            res.addChild(DataEntity.Blueprint.builder().withRole(configuration)
+                    .withValue(StructuredData.get().integral((long) i)).build());
+
+            for (int j = 0; j < childCount; ++j) {
+                res.startChild(Resource.Blueprint.builder().withId("r" + i + "-" + j)
+                        .withResourceTypePath("../rt;type").build())
+                        .addChild(Metric.Blueprint.builder().withId("m" + i + "-" + j)
+                                .withMetricTypePath("../mt;type").build())
+                        .end();
+            }
+
+            res.end();
+        }
+
+        return bld.build();
+    }
+
+    private static <T extends AbstractHashTree<T, ?>> void assertSameTrees(T expected, T actual) {
+        Assert.assertEquals(expected.getPath(), actual.getPath());
+        Assert.assertEquals(expected.getHash(), actual.getHash());
+        Assert.assertEquals(expected.getChildren().size(), actual.getChildren().size());
+
+        for (T child : expected.getChildren()) {
+            T actualChild = actual.getChild(child.getPath().getSegment());
+            Assert.assertNotNull("Child " + child.getPath() + " not found.", actualChild);
+            assertSameTrees(child, actualChild);
+        }
+    }
+}
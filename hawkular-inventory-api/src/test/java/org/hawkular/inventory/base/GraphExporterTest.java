@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.GraphExport;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class GraphExporterTest {
+
+    @Test
+    public void testRunningExportsTracked() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        try (GraphExporter exporter = newExporter(60000)) {
+            GraphExport export = exporter.submit(new GraphExport("t", GraphExport.Format.GRAPHSON), () -> {
+                try {
+                    finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            Assert.assertEquals(1, exporter.getRunningExports().size());
+            Assert.assertFalse(export.isDone());
+
+            finish.countDown();
+            export.await();
+
+            Assert.assertTrue(export.isDone());
+            Assert.assertTrue(exporter.getRunningExports().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPipedDataReadFully() throws Exception {
+        //more than fits into the pipe at once
+        byte[] data = new byte[256 * 1024];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+
+        try (GraphExporter exporter = newExporter(60000)) {
+            GraphExport export = new GraphExport("t", GraphExport.Format.GRAPHSON);
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            try (InputStream in = exporter.submitPiped(export, out -> out.write(data))) {
+                byte[] buffer = new byte[1024];
+                int cnt;
+                while ((cnt = in.read(buffer)) != -1) {
+                    read.write(buffer, 0, cnt);
+                }
+            }
+
+            export.await();
+            Assert.assertTrue(Arrays.equals(data, read.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testUnreadPipeTimesOut() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        try (GraphExporter exporter = newExporter(60000, clock::get)) {
+            GraphExport export = new GraphExport("t", GraphExport.Format.GRAPHSON);
+            try (InputStream in = exporter.submitPiped(export, out -> out.write(new byte[256 * 1024]))) {
+                //wait for the pipe to fill up, the export then waits for the reader until the clock is moved on
+                long deadline = System.currentTimeMillis() + 10000;
+                while (in.available() == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                Assert.assertTrue(in.available() > 0);
+                Assert.assertFalse(export.isDone());
+
+                clock.addAndGet(60000);
+
+                try {
+                    export.await();
+                    Assert.fail("The export that is not being read should have failed.");
+                } catch (IOException e) {
+                    //expected
+                }
+            }
+
+            Assert.assertTrue(exporter.getRunningExports().isEmpty());
+        }
+    }
+
+    @Test
+    public void testClosingPipeCancelsExport() throws Exception {
+        try (GraphExporter exporter = newExporter(60000)) {
+            GraphExport export = new GraphExport("t", GraphExport.Format.GRAPHSON);
+            InputStream in = exporter.submitPiped(export, out -> {
+                while (true) {
+                    out.write(new byte[1024]);
+                }
+            });
+
+            Assert.assertTrue(in.read() != -1);
+            in.close();
+
+            try {
+                export.await();
+                Assert.fail("The export should have been cancelled.");
+            } catch (CancellationException e) {
+                //expected
+            }
+
+            Assert.assertTrue(export.isCancelled());
+        }
+    }
+
+    private static GraphExporter newExporter(long pipeTimeout) {
+        return newExporter(pipeTimeout, System::currentTimeMillis);
+    }
+
+    private static GraphExporter newExporter(long pipeTimeout, LongSupplier clock) {
+        return new GraphExporter(Configuration.builder()
+                .addConfigurationProperty(BaseInventory.GRAPH_EXPORT_PIPE_TIMEOUT.getPropertyName(),
+                        Long.toString(pipeTimeout)).build(), clock);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.paging.Order;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class QueryCacheTest {
+
+    private static final CanonicalPath FEED_A = CanonicalPath.of().tenant("a").feed("f").get();
+    private static final CanonicalPath FEED_B = CanonicalPath.of().tenant("b").feed("f").get();
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        QueryCache cache = new QueryCache(Configuration.builder().build());
+        Assert.assertFalse(cache.isEnabled());
+    }
+
+    @Test
+    public void testMalformedSizeReported() throws Exception {
+        try {
+            new QueryCache(Configuration.builder()
+                    .addConfigurationProperty(BaseInventory.QUERY_CACHE_SIZE.getPropertyName(), "1k").build());
+            Assert.fail("The malformed cache size should have been reported.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains(BaseInventory.QUERY_CACHE_SIZE.getPropertyName()));
+            Assert.assertTrue(e.getMessage().contains("1k"));
+        }
+    }
+
+    @Test
+    public void testHits() throws Exception {
+        QueryCache cache = newCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertEquals(1, get(cache, Query.to(FEED_A), counting(loads)));
+        Assert.assertEquals(1, get(cache, Query.to(FEED_A), counting(loads)));
+        Assert.assertEquals(1, get(cache, Query.to(FEED_B), counting(loads)));
+
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testPartitionsCachedSeparately() throws Exception {
+        QueryCache cache = newCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertEquals(1, get(cache, null, Query.to(FEED_A), counting(loads)));
+        Assert.assertEquals(2, get(cache, "a", Query.to(FEED_A), () -> {
+            loads.incrementAndGet();
+            return page(2);
+        }));
+
+        Assert.assertEquals(1, get(cache, null, Query.to(FEED_A), counting(loads)));
+        Assert.assertEquals(2, get(cache, "a", Query.to(FEED_A), counting(loads)));
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(2, cache.size());
+
+        //the change in the tenant invalidates its entries in all the partitions
+        cache.invalidate(changeOf(FEED_A));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidationScopedToTenant() throws Exception {
+        QueryCache cache = newCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        get(cache, Query.to(FEED_A), counting(loads));
+        get(cache, Query.to(FEED_B), counting(loads));
+        get(cache, Query.empty(), counting(loads));
+
+        cache.invalidate(changeOf(FEED_A));
+
+        //the entry of tenant "a" and the entry of the query not starting at a known tenant are gone
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, cache.getInvalidationCount());
+
+        get(cache, Query.to(FEED_B), counting(loads));
+        Assert.assertEquals(3, loads.get());
+
+        get(cache, Query.to(FEED_A), counting(loads));
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testResultsLoadedDuringChangeNotCached() throws Exception {
+        QueryCache cache = newCache(10);
+
+        get(cache, Query.to(FEED_A), () -> {
+            cache.invalidate(changeOf(FEED_A));
+            return page(1);
+        });
+
+        Assert.assertEquals(0, cache.size());
+
+        get(cache, Query.empty(), () -> {
+            cache.invalidate(changeOf(FEED_B));
+            return page(1);
+        });
+
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResultsLoadedDuringChangeInOtherTenantCached() throws Exception {
+        QueryCache cache = newCache(10);
+
+        get(cache, Query.to(FEED_A), () -> {
+            cache.invalidate(changeOf(FEED_B));
+            return page(1);
+        });
+
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        QueryCache cache = newCache(2);
+        AtomicInteger loads = new AtomicInteger();
+
+        CanonicalPath feedC = CanonicalPath.of().tenant("c").feed("f").get();
+
+        get(cache, Query.to(FEED_A), counting(loads));
+        get(cache, Query.to(FEED_B), counting(loads));
+
+        //make "a" the most recently used
+        get(cache, Query.to(FEED_A), counting(loads));
+
+        get(cache, Query.to(feedC), counting(loads));
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        get(cache, Query.to(FEED_A), counting(loads));
+        Assert.assertEquals(3, loads.get());
+
+        get(cache, Query.to(FEED_B), counting(loads));
+        Assert.assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testTooLargeResultsNotCached() throws Exception {
+        QueryCache cache = new QueryCache(Configuration.builder()
+                .addConfigurationProperty(BaseInventory.QUERY_CACHE_SIZE.getPropertyName(), "10")
+                .addConfigurationProperty(BaseInventory.QUERY_CACHE_MAX_RESULTS.getPropertyName(), "1").build());
+
+        Assert.assertEquals(2, get(cache, Query.to(FEED_A), () -> page(2)));
+        Assert.assertEquals(0, cache.size());
+
+        //the results over the limit are streamed from the loaded page, which is closed together with the result
+        AtomicInteger read = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        Iterator<Integer> loaded = IntStream.range(0, 5).peek(i -> read.incrementAndGet()).iterator();
+
+        Page<Integer> result = cache.get(null, Query.to(FEED_A), Pager.unlimited(Order.unspecified()), Integer.class,
+                () -> new Page<Integer>(loaded, Pager.unlimited(Order.unspecified()), 5) {
+                    @Override public void close() {
+                        closed.set(true);
+                        super.close();
+                    }
+                });
+
+        Assert.assertEquals(2, read.get());
+        Assert.assertFalse(closed.get());
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), result.toList());
+        Assert.assertTrue(closed.get());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private static QueryCache newCache(int size) {
+        return new QueryCache(Configuration.builder()
+                .addConfigurationProperty(BaseInventory.QUERY_CACHE_SIZE.getPropertyName(), Integer.toString(size))
+                .build());
+    }
+
+    private static int get(QueryCache cache, Query query, Supplier<Page<Integer>> loader) {
+        return get(cache, null, query, loader);
+    }
+
+    private static int get(QueryCache cache, String partition, Query query, Supplier<Page<Integer>> loader) {
+        return cache.get(partition, query, Pager.unlimited(Order.unspecified()), Integer.class, loader).toList().size();
+    }
+
+    private static Supplier<Page<Integer>> counting(AtomicInteger loads) {
+        return () -> {
+            loads.incrementAndGet();
+            return page(1);
+        };
+    }
+
+    private static Page<Integer> page(int size) {
+        return new Page<>(Collections.nCopies(size, 0).iterator(), Pager.unlimited(Order.unspecified()), size);
+    }
+
+    private static EntityAndPendingNotifications<?, ?> changeOf(CanonicalPath path) {
+        return new EntityAndPendingNotifications<>(null, new Feed(path, null, null, null));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class SearchIndexTest {
+
+    private static final CanonicalPath TENANT = CanonicalPath.of().tenant("t").get();
+
+    @Test
+    public void testUpdatesIndexed() throws Exception {
+        SearchIndex index = newIndex();
+        Tenant orig = new Tenant("Old", TENANT, null);
+        Tenant.Update update = Tenant.Update.builder().withName("New").build();
+
+        index.update(new EntityAndPendingNotifications<>(null, orig, Action.created()));
+        Assert.assertEquals(Collections.singleton(TENANT), search(index, "Old"));
+
+        index.update(new EntityAndPendingNotifications<>(null, new Tenant("New", TENANT, null),
+                new Action.Update<>(orig, update), Action.updated()));
+
+        Assert.assertTrue(search(index, "Old").isEmpty());
+        Assert.assertEquals(Collections.singleton(TENANT), search(index, "New"));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testUpdatesAppliedWithoutUpdatedEntity() throws Exception {
+        SearchIndex index = newIndex();
+        Tenant orig = new Tenant("Old", TENANT, null);
+        Tenant.Update update = Tenant.Update.builder().withName("New").build();
+
+        index.update(new EntityAndPendingNotifications<>(null, orig, Action.created()));
+
+        //only the original entity and the update are known
+        index.update(new EntityAndPendingNotifications<>(null, null,
+                new Notification(orig, new Action.Update<>(orig, update), Action.updated())));
+
+        Assert.assertTrue(search(index, "Old").isEmpty());
+        Assert.assertEquals(Collections.singleton(TENANT), search(index, "New"));
+    }
+
+    @Test
+    public void testChangesDuringLoadNotLost() throws Exception {
+        SearchIndex index = newIndex();
+        Tenant orig = new Tenant("Old", TENANT, null);
+
+        //the change is committed after the load read the original entity from the partition
+        Transaction<Entity<?, ?>> tx = new LoadingTransaction(orig, () -> index.update(
+                new EntityAndPendingNotifications<>(null, new Tenant("New", TENANT, null),
+                        new Action.Update<>(orig, Tenant.Update.builder().withName("New").build()),
+                        Action.updated())));
+
+        index.ensureLoaded("t", tx);
+
+        Assert.assertTrue(search(index, "Old").isEmpty());
+        Assert.assertEquals(Collections.singleton(TENANT), search(index, "New"));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testPartitionLoadedOnce() throws Exception {
+        SearchIndex index = newIndex();
+        int[] loads = new int[1];
+
+        index.ensureLoaded("t", new LoadingTransaction(new Tenant("Old", TENANT, null), () -> loads[0]++));
+        index.ensureLoaded("t", new LoadingTransaction(new Tenant("Old", TENANT, null), () -> loads[0]++));
+
+        Assert.assertEquals(1, loads[0]);
+        Assert.assertEquals(Collections.singleton(TENANT), search(index, "Old"));
+    }
+
+    @Test
+    public void testMalformedMaxPathsReported() throws Exception {
+        try {
+            new SearchIndex(Configuration.builder()
+                    .addConfigurationProperty(BaseInventory.SEARCH_INDEX_MAX_PATHS.getPropertyName(), "many").build());
+            Assert.fail("The malformed max number of paths should have been reported.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains(BaseInventory.SEARCH_INDEX_MAX_PATHS.getPropertyName()));
+            Assert.assertTrue(e.getMessage().contains("many"));
+        }
+    }
+
+    private static SearchIndex newIndex() {
+        return new SearchIndex(Configuration.builder()
+                .addConfigurationProperty(BaseInventory.SEARCH_INDEX_ENABLED.getPropertyName(), "true")
+                .build());
+    }
+
+    private static Set<CanonicalPath> search(SearchIndex index, String namePrefix) {
+        return index.search(With.nameStartingWith(namePrefix), null);
+    }
+
+    /**
+     * Reads the single provided entity and runs the provided action once the entity has been read.
+     */
+    private static final class LoadingTransaction extends DelegatingTransaction<Entity<?, ?>> {
+        private final Entity<?, ?> entity;
+        private final Runnable afterRead;
+
+        LoadingTransaction(Entity<?, ?> entity, Runnable afterRead) {
+            super(null);
+            this.entity = entity;
+            this.afterRead = afterRead;
+        }
+
+        @Override public Page<Entity<?, ?>> query(Query query, Pager pager) {
+            Page<Entity<?, ?>> ret = new Page<>(Collections.<Entity<?, ?>>singletonList(entity).iterator(), pager, 1);
+            afterRead.run();
+            return ret;
+        }
+
+        @Override public CanonicalPath extractCanonicalPath(Entity<?, ?> entityRepresentation) {
+            return entityRepresentation.getPath();
+        }
+
+        @Override public Class<?> extractType(Entity<?, ?> entityRepresentation) {
+            return entityRepresentation.getClass();
+        }
+
+        @Override public <T> T convert(Entity<?, ?> entityRepresentation, Class<T> entityType) {
+            return entityType.cast(entityRepresentation);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.InventoryStructure;
+import org.hawkular.inventory.api.model.SyncConfiguration;
+import org.hawkular.inventory.api.model.SyncRequest;
+import org.hawkular.inventory.paths.SegmentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class SyncCoordinatorTest {
+
+    private SyncCoordinator coordinator;
+
+    @Before
+    public void setup() {
+        coordinator = new SyncCoordinator(Configuration.builder()
+                .addConfigurationProperty(BaseInventory.SYNC_THREADS.getPropertyName(), "4").build());
+    }
+
+    @After
+    public void teardown() {
+        coordinator.close();
+    }
+
+    @Test
+    public void testSyncsOfSameRootSerialized() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+
+        Function<SyncRequest<Feed.Blueprint>, CompletableFuture<Void>> sync = r -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            finished.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        };
+
+        //different types, so that none of the requests is coalesced with another
+        SegmentType[] types = {SegmentType.f, SegmentType.r, SegmentType.m, SegmentType.d, SegmentType.rt};
+        CompletableFuture<?>[] results = new CompletableFuture<?>[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            results[i] = coordinator.submit("root", request(types[i]), sync);
+        }
+
+        CompletableFuture.allOf(results).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(1, maxRunning.get());
+        Assert.assertEquals(results.length, finished.get());
+        Assert.assertEquals(0, coordinator.getActiveSyncCount());
+        Assert.assertEquals(0, coordinator.getQueueLength());
+        Assert.assertEquals(0, coordinator.getCoalescedRequestCount());
+    }
+
+    @Test
+    public void testSyncsOfDifferentRootsRunInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        Function<SyncRequest<Feed.Blueprint>, CompletableFuture<Void>> sync = r -> {
+            bothRunning.countDown();
+            try {
+                //this would time out if the syncs were serialized
+                Assert.assertTrue(bothRunning.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+
+        CompletableFuture<Void> a = coordinator.submit("a", request(SegmentType.r), sync);
+        CompletableFuture<Void> b = coordinator.submit("b", request(SegmentType.r), sync);
+
+        CompletableFuture.allOf(a, b).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testQueuedRequestsCoalesced() throws Exception {
+        CompletableFuture<Void> firstSync = new CompletableFuture<>();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        List<SyncRequest<?>> applied = new CopyOnWriteArrayList<>();
+
+        Function<SyncRequest<Feed.Blueprint>, CompletableFuture<Void>> sync = r -> {
+            applied.add(r);
+            if (applied.size() == 1) {
+                firstStarted.countDown();
+                return firstSync;
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+
+        SyncRequest<Feed.Blueprint> first = request(SegmentType.r);
+        SyncRequest<Feed.Blueprint> second = request(SegmentType.m);
+        SyncRequest<Feed.Blueprint> third = request(SegmentType.r, SegmentType.m);
+
+        CompletableFuture<Void> firstResult = coordinator.submit("root", first, sync);
+        Assert.assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> secondResult = coordinator.submit("root", second, sync);
+        Assert.assertEquals(1, coordinator.getQueueLength());
+
+        //the third one syncs everything the second one would, so it replaces it
+        CompletableFuture<Void> thirdResult = coordinator.submit("root", third, sync);
+        Assert.assertEquals(1, coordinator.getQueueLength());
+        Assert.assertEquals(1, coordinator.getCoalescedRequestCount());
+
+        firstSync.complete(null);
+
+        CompletableFuture.allOf(firstResult, secondResult, thirdResult).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, applied.size());
+        Assert.assertSame(first, applied.get(0));
+        Assert.assertSame(third, applied.get(1));
+        Assert.assertEquals(0, coordinator.getQueueLength());
+    }
+
+    @Test
+    public void testFailureReportedAndNextRequestRun() throws Exception {
+        RuntimeException failure = new RuntimeException("sync failed");
+
+        CompletableFuture<Void> failed = coordinator.submit("root", request(SegmentType.r), r -> {
+            throw failure;
+        });
+
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            Assert.fail("The sync failure should have been reported.");
+        } catch (ExecutionException e) {
+            Assert.assertSame(failure, e.getCause());
+        }
+
+        coordinator.submit("root", request(SegmentType.r), r -> CompletableFuture.completedFuture(null))
+                .get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(0, coordinator.getActiveSyncCount());
+    }
+
+    @Test
+    public void testRejectedSyncsFailAndReleaseTheRoot() throws Exception {
+        CompletableFuture<Void> firstSync = new CompletableFuture<>();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = coordinator.submit("root", request(SegmentType.r), r -> {
+            firstStarted.countDown();
+            return firstSync;
+        });
+        Assert.assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> queued = coordinator.submit("root", request(SegmentType.m),
+                r -> CompletableFuture.completedFuture(null));
+
+        coordinator.close();
+
+        //finishing the running sync tries to run the queued one, which is rejected by the closed coordinator
+        firstSync.complete(null);
+        first.get(10, TimeUnit.SECONDS);
+
+        assertRejected(queued);
+
+        Assert.assertEquals(0, coordinator.getActiveSyncCount());
+        Assert.assertEquals(0, coordinator.getQueueLength());
+
+        //subsequent requests fail immediately instead of waiting forever for the lane
+        assertRejected(coordinator.submit("root", request(SegmentType.r),
+                r -> CompletableFuture.completedFuture(null)));
+        Assert.assertEquals(0, coordinator.getActiveSyncCount());
+    }
+
+    @Test
+    public void testMalformedThreadCountReported() throws Exception {
+        try {
+            new SyncCoordinator(Configuration.builder()
+                    .addConfigurationProperty(BaseInventory.SYNC_THREADS.getPropertyName(), "four").build());
+            Assert.fail("The malformed number of threads should have been reported.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains(BaseInventory.SYNC_THREADS.getPropertyName()));
+            Assert.assertTrue(e.getMessage().contains("four"));
+        }
+    }
+
+    private static void assertRejected(CompletableFuture<Void> result) throws Exception {
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            Assert.fail("The sync should have been rejected.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    private static SyncRequest<Feed.Blueprint> request(SegmentType... types) {
+        return new SyncRequest<>(SyncConfiguration.builder().withTypes(types).build(),
+                InventoryStructure.of(Feed.Blueprint.builder().withId("feed").build()).build());
+    }
+}
@@ -23,7 +23,9 @@ import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__met
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceCp;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceEid;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceType;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataBlob;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataIndex;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataIndexEntry;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataKey;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataType;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataValue_b;
@@ -143,6 +145,18 @@ public final class Constants {
 
         __structuredDataValue_s(String.class),
 
+        /**
+         * When the structured data is stored in the compact form, this property on the root structured data vertex
+         * holds the whole serialized value.
+         */
+        __structuredDataBlob(String.class),
+
+        /**
+         * Marks the structured data vertices that only "index" a part of the structured data stored in the compact
+         * form. The actual value is always read from the {@link #__structuredDataBlob} of the root.
+         */
+        __structuredDataIndexEntry(Boolean.class),
+
         __sourceType("sourceType", String.class),
 
         __targetType("targetType", String.class),
@@ -231,7 +245,7 @@ public final class Constants {
         dataEntity(DataEntity.class, name, __identityHash, __contentHash, __syncHash),
         structuredData(StructuredData.class, __structuredDataType,
                 __structuredDataValue_b, __structuredDataValue_i, __structuredDataValue_f, __structuredDataValue_s,
-                __structuredDataIndex, __structuredDataKey);
+                __structuredDataIndex, __structuredDataKey, __structuredDataBlob, __structuredDataIndexEntry);
 
         private final String[] mappedProperties;
         private final Class<?> entityType;
@@ -18,7 +18,9 @@ package org.hawkular.inventory.impl.tinkerpop.spi;
 
 import static org.hawkular.inventory.impl.tinkerpop.spi.Log.LOG;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.tinkerpop.gremlin.structure.Graph;
@@ -52,6 +54,35 @@ public interface GraphProvider {
      */
     boolean isUniqueIndexSupported();
 
+    /**
+     * Tells whether the graph can be read concurrently from several threads, each in its own
+     * {@link #startReadOnlyTransaction(Graph) read-only transaction}, while the elements read in one of the
+     * transactions can still be looked up by their ids in another one.
+     *
+     * <p>The default implementation returns false.
+     *
+     * @return true if the concurrent reads are supported, false otherwise
+     */
+    default boolean isSupportingConcurrentReads() {
+        return false;
+    }
+
+    /**
+     * Tells how many more read-only transactions can be started right now without waiting for the resources (like
+     * the connections in a pool) held by the already running transactions. This bounds the number of the query
+     * branches evaluated concurrently, because the query waiting for its branches holds its own transaction and could
+     * otherwise starve the branches of the resources they need. The value is only a hint, because the resources can
+     * be taken by other threads in the meantime.
+     *
+     * <p>The default implementation returns {@link Integer#MAX_VALUE}.
+     *
+     * @param graph the graph to start the transactions in
+     * @return the number of the read-only transactions that can be started without waiting
+     */
+    default int getConcurrentReadCapacity(Graph graph) {
+        return Integer.MAX_VALUE;
+    }
+
     /**
      * Given provided configuration, tries to instantiate a graph to be used by the inventory.
      *
@@ -60,6 +91,36 @@ public interface GraphProvider {
      */
     Graph instantiateGraph(Configuration configuration);
 
+    /**
+     * Tells whether the provider can {@link #instantiateTenantGraph(Configuration, String) instantiate} a separate
+     * graph for each tenant.
+     *
+     * <p>The default implementation returns false.
+     *
+     * @return true if the tenant graphs are supported, false otherwise
+     */
+    default boolean isSupportingTenantGraphs() {
+        return false;
+    }
+
+    /**
+     * Instantiates the graph to store the data of a single tenant in. The graphs of different tenants must not share
+     * any data (e.g. they can be stored in different keyspaces or directories). The graph is opened when the tenant
+     * is first accessed and may be closed again once the tenant is not accessed for some time, so the data must
+     * survive the closing of the graph.
+     *
+     * <p>The default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param configuration the configuration of the graph
+     * @param tenantId      the id of the tenant to instantiate the graph for
+     * @return a configured instance of the graph of the tenant
+     * @see #isSupportingTenantGraphs()
+     */
+    default Graph instantiateTenantGraph(Configuration configuration, String tenantId) {
+        throw new UnsupportedOperationException("The graph provider " + getClass().getName() + " doesn't support" +
+                " the tenant graphs.");
+    }
+
     /**
      * Makes sure all the indexes needed for good performance.
      * <p>
@@ -72,6 +133,20 @@ public interface GraphProvider {
      */
     void ensureIndices(Graph graph, IndexSpec... indexSpecs);
 
+    /**
+     * Reports the indices that are active in the graph, i.e. the indices that the queries can take advantage of. These
+     * may differ from the indices requested in {@link #ensureIndices(Graph, IndexSpec...)}, because the provider might
+     * not support some of them or because some of them might not be usable yet.
+     *
+     * <p>The default implementation returns an empty list, meaning that the provider doesn't maintain any indices.
+     *
+     * @param graph the graph instance to inspect
+     * @return the list of active indices
+     */
+    default List<IndexSpec> getActiveIndices(Graph graph) {
+        return Collections.emptyList();
+    }
+
     /**
      * Initializes new transaction for use with given graph.
      *
@@ -112,6 +187,20 @@ public interface GraphProvider {
         }
     }
 
+    /**
+     * Initializes new transaction that is only going to be used for reading. Such transaction is never committed, it
+     * is always {@link #rollback(Graph) rolled back}.
+     *
+     * <p>The implementations can switch the transaction to a cheaper read-only or snapshot mode, if the graph supports
+     * it. The default implementation just {@link #startTransaction(Graph) starts} an ordinary transaction.
+     *
+     * @param graph the graph to start the transaction in
+     * @return a new transactional graph that is bound to a new read-only transaction
+     */
+    default Graph startReadOnlyTransaction(Graph graph) {
+        return startTransaction(graph);
+    }
+
     /**
      * Commits the transaction in the graph.
      *
@@ -166,6 +255,45 @@ public interface GraphProvider {
         }
     }
 
+    /**
+     * Switches the current transaction into a mode optimized for inserting a large number of elements, if the graph
+     * supports such thing. In the batch mode, the writes can be buffered and only sent to the underlying storage
+     * on {@link #flushBatch(Graph)}, {@link #endBatch(Graph)} or commit. Because of that, the elements created in the
+     * batch mode may not have their IDs assigned until the batch is flushed.
+     *
+     * <p>The default implementation doesn't support batching and returns false.
+     *
+     * @param graph the graph with an active transaction
+     * @return true if the batch mode was switched on, false if it is not supported or the transaction is already in
+     * the batch mode (in which case the caller should not {@link #endBatch(Graph) end} it).
+     */
+    default boolean startBatch(Graph graph) {
+        return false;
+    }
+
+    /**
+     * Writes out all the pending changes of the batch but leaves the transaction in the batch mode. This needs to be
+     * called before reading anything that depends on the data written in the batch (like the IDs of the new
+     * elements).
+     *
+     * <p>The default implementation does nothing.
+     *
+     * @param graph the graph with the transaction in the batch mode
+     */
+    default void flushBatch(Graph graph) {
+    }
+
+    /**
+     * Flushes the pending changes and switches the transaction out of the batch mode.
+     *
+     * <p>The default implementation does nothing.
+     *
+     * @param graph the graph with the transaction in the batch mode
+     * @see #startBatch(Graph)
+     */
+    default void endBatch(Graph graph) {
+    }
+
     /**
      * Translates the graph specific exception to an inventory exception.
      * <p>
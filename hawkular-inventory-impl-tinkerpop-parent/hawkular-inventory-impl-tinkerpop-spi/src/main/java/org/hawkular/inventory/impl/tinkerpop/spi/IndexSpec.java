@@ -53,6 +53,18 @@ public final class IndexSpec {
         return unique;
     }
 
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IndexSpec indexSpec = (IndexSpec) o;
+        return unique == indexSpec.unique && Objects.equals(properties, indexSpec.properties)
+                && Objects.equals(elementType, indexSpec.elementType);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(properties, elementType, unique);
+    }
+
     @Override
     public String toString() {
         return "IndexSpec[type=" + elementType.getSimpleName() + ",properties=" + properties + "]";
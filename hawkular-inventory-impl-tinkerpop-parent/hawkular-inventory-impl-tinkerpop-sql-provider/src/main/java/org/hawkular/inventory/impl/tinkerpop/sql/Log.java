@@ -16,7 +16,9 @@
  */
 package org.hawkular.inventory.impl.tinkerpop.sql;
 
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
 import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.LogMessage;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
@@ -38,4 +40,25 @@ public interface Log {
     @Message(id = 30001, value = "Using JDBC URL: %s")
     @LogMessage(level = Logger.Level.INFO)
     void iUsingJdbcUrl(String connectionString);
+
+    @Message(id = 30002, value = "Using connection pool with minSize=%d, maxSize=%d, maxIdleTime=%ds," +
+            " checkoutTimeout=%dms, statementCacheSize=%d")
+    @LogMessage(level = Logger.Level.INFO)
+    void iUsingConnectionPool(int minSize, int maxSize, int maxIdleTime, int checkoutTimeout,
+                              int statementCacheSize);
+
+    @Message(id = 30003, value = "Failed to switch the JDBC connection to the read-only mode. The read will run in" +
+            " an ordinary transaction.")
+    @LogMessage(level = Logger.Level.DEBUG)
+    void dFailedToSwitchToReadOnly(@Cause Throwable cause);
+
+    @Message(id = 30004, value = "The SQL graph doesn't support the unique constraints on edges. %s is created as" +
+            " an ordinary index.")
+    @LogMessage(level = Logger.Level.INFO)
+    void iUniqueEdgeIndexNotSupported(IndexSpec indexSpec);
+
+    @Message(id = 30005, value = "The SQL graph only supports the indices on the edges with the well-known labels." +
+            " %s is not created.")
+    @LogMessage(level = Logger.Level.WARN)
+    void wEdgeIndexOnCustomLabelNotSupported(IndexSpec indexSpec);
 }
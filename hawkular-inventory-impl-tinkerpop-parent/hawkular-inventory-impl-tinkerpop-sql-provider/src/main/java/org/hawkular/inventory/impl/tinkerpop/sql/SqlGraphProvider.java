@@ -36,6 +36,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -55,6 +56,9 @@ import org.umlg.sqlg.structure.SchemaTable;
 import org.umlg.sqlg.structure.SqlgExceptions;
 import org.umlg.sqlg.structure.SqlgGraph;
 
+import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+
 /**
  * This is a "toy" provider for Hawkular that uses the primitive Blueprints implementation for an RDBMS. It only
  * supports H2 and Postgres and should not be used for anything but playful experiments.
@@ -67,6 +71,16 @@ import org.umlg.sqlg.structure.SqlgGraph;
  * @since 0.13.0
  */
 public class SqlGraphProvider implements GraphProvider {
+    /**
+     * The name of the connection pool, under which it is registered in JMX.
+     */
+    public static final String POOL_NAME = "hawkular-inventory";
+
+    /**
+     * The indices created in each of the graphs instantiated by this provider.
+     */
+    private final Map<Graph, List<IndexSpec>> activeIndices = new WeakHashMap<>();
+
     @Override public boolean isPreferringBigTransactions() {
         return false;
     }
@@ -79,6 +93,28 @@ public class SqlGraphProvider implements GraphProvider {
         return true;
     }
 
+    @Override public boolean isSupportingConcurrentReads() {
+        return true;
+    }
+
+    /**
+     * Each transaction holds a connection from the pool, so only as many transactions can be started as there are
+     * connections that can still be checked out. If the pool is not known (e.g. the datasource comes from JNDI), no
+     * capacity is assumed.
+     */
+    @Override public int getConcurrentReadCapacity(Graph graph) {
+        int capacity = 0;
+        for (ComboPooledDataSource pool : pools((SqlgGraph) graph)) {
+            try {
+                capacity += Math.max(0, pool.getMaxPoolSize() - pool.getNumBusyConnectionsDefaultUser());
+            } catch (SQLException e) {
+                //we can't tell, so let's not assume any capacity of this pool
+            }
+        }
+
+        return capacity;
+    }
+
     @Override public SqlgGraph instantiateGraph(Configuration configuration) {
         try {
             Map<String, String> conf = configuration.prefixedWith("sql.")
@@ -90,12 +126,85 @@ public class SqlGraphProvider implements GraphProvider {
                     toMap(e -> e.getKey().startsWith("sql.") ? e.getKey().substring(4) : e.getKey(),
                             Map.Entry::getValue));
 
-            return SqlgGraph.open(new MapConfiguration(conf));
+            SqlgGraph graph = SqlgGraph.open(new MapConfiguration(conf));
+
+            configurePool(graph, configuration);
+
+            return graph;
         } catch (Exception e) {
             throw new IllegalArgumentException("Could not instantiate the SQL graph.", e);
         }
     }
 
+    /**
+     * Sqlg pools the connections using C3P0 but doesn't expose most of the pool configuration. We therefore look up
+     * the pool Sqlg created for our JDBC URL and configure it directly. The pool is registered in JMX by C3P0 under
+     * the {@link #POOL_NAME} name so that its health (busy, idle connections, threads awaiting checkout, statement
+     * cache size) can be monitored.
+     */
+    private static void configurePool(SqlgGraph graph, Configuration configuration) {
+        List<ComboPooledDataSource> pools = pools(graph);
+
+        if (pools.isEmpty()) {
+            //sqlg is using a datasource from JNDI, which is configured elsewhere
+            return;
+        }
+
+        Integer minSize = intProperty(configuration, PropertyKeys.POOL_MIN_SIZE);
+        Integer maxSize = intProperty(configuration, PropertyKeys.POOL_MAX_SIZE);
+        Integer maxIdleTime = intProperty(configuration, PropertyKeys.POOL_MAX_IDLE_TIME);
+        Integer checkoutTimeout = intProperty(configuration, PropertyKeys.POOL_CHECKOUT_TIMEOUT);
+        Integer statementCacheSize = intProperty(configuration, PropertyKeys.STATEMENT_CACHE_SIZE);
+
+        for (ComboPooledDataSource pool : pools) {
+            pool.setDataSourceName(POOL_NAME);
+            if (maxSize != null) {
+                pool.setMaxPoolSize(maxSize);
+            }
+            if (minSize != null) {
+                pool.setMinPoolSize(minSize);
+                pool.setInitialPoolSize(minSize);
+            }
+            if (maxIdleTime != null) {
+                pool.setMaxIdleTime(maxIdleTime);
+            }
+            if (checkoutTimeout != null) {
+                pool.setCheckoutTimeout(checkoutTimeout);
+            }
+            if (statementCacheSize != null) {
+                pool.setMaxStatementsPerConnection(statementCacheSize);
+            }
+
+            Log.LOG.iUsingConnectionPool(pool.getMinPoolSize(), pool.getMaxPoolSize(), pool.getMaxIdleTime(),
+                    pool.getCheckoutTimeout(), pool.getMaxStatementsPerConnection());
+        }
+    }
+
+    private static List<ComboPooledDataSource> pools(SqlgGraph graph) {
+        List<ComboPooledDataSource> pools = new ArrayList<>();
+        for (Object ds : C3P0Registry.getPooledDataSources()) {
+            if (ds instanceof ComboPooledDataSource
+                    && graph.getJdbcUrl().equals(((ComboPooledDataSource) ds).getJdbcUrl())) {
+                pools.add((ComboPooledDataSource) ds);
+            }
+        }
+        return pools;
+    }
+
+    private static Integer intProperty(Configuration configuration, Configuration.Property property) {
+        String value = configuration.getProperty(property, null);
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of the configuration property '" +
+                    property.getPropertyName() + "': " + value, e);
+        }
+    }
+
     @Override public void ensureIndices(Graph graph, IndexSpec... indexSpecs) {
         SqlgGraph sqlg = (SqlgGraph) graph;
 
@@ -109,6 +218,8 @@ public class SqlGraphProvider implements GraphProvider {
 
         String[] edgeLabels = Stream.of(Relationships.WellKnown.values()).map(Enum::name).toArray(String[]::new);
 
+        List<IndexSpec> created = new ArrayList<>(specs.size());
+
         sqlg.tx().open();
 
         Iterator<IndexSpec> it = specs.iterator();
@@ -136,16 +247,50 @@ public class SqlGraphProvider implements GraphProvider {
                 is.getProperties().stream().filter(IndexSpec.Property::isUnique)
                         .findAny().ifPresent(p -> sqlg.createVertexUniqueConstraint(p.getName(), entityLabels));
             } else {
-                for (String l : edgeLabels) {
+                //the edge indices are created per label, so only the edges with the well-known labels can be indexed
+                Set<String> labels = is.getProperties().stream().map(IndexSpec.Property::getLabelIndex)
+                        .filter(l -> l != null).collect(Collectors.toSet());
+                if (labels.isEmpty()) {
+                    labels.addAll(Arrays.asList(edgeLabels));
+                } else if (!Arrays.asList(edgeLabels).containsAll(labels)) {
+                    Log.LOG.wEdgeIndexOnCustomLabelNotSupported(is);
+                    continue;
+                }
+
+                for (String l : labels) {
                     sqlg.createEdgeLabeledIndex(l, keyValues.toArray());
                 }
-//Sqlg doesn't support this yet...
-//                is.getProperties().stream().filter(IndexSpec.Property::isUnique)
-//                        .findAny().ifPresent(p -> sqlg.createEdgeUniqueConstraint(p.getName(), entityLabels));
+
+                //Sqlg doesn't support the unique constraints on edges yet, so the index is only an ordinary one
+                if (is.isUnique() || is.getProperties().stream().anyMatch(IndexSpec.Property::isUnique)) {
+                    Log.LOG.iUniqueEdgeIndexNotSupported(is);
+                    is = nonUnique(is);
+                }
             }
+
+            created.add(is);
         }
 
         sqlg.tx().commit();
+
+        synchronized (activeIndices) {
+            List<IndexSpec> active = activeIndices.computeIfAbsent(graph, g -> new ArrayList<>());
+            created.stream().filter(is -> !active.contains(is)).forEach(active::add);
+        }
+    }
+
+    private static IndexSpec nonUnique(IndexSpec spec) {
+        Set<IndexSpec.Property> properties = spec.getProperties().stream()
+                .map(p -> new IndexSpec.Property(p.getName(), p.getType(), false, p.getLabelIndex()))
+                .collect(Collectors.toSet());
+        return new IndexSpec(spec.getElementType(), properties, false);
+    }
+
+    @Override public List<IndexSpec> getActiveIndices(Graph graph) {
+        synchronized (activeIndices) {
+            List<IndexSpec> active = activeIndices.get(graph);
+            return active == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(active));
+        }
     }
 
     private static void ensureSchema(SqlgGraph graph) {
@@ -306,6 +451,42 @@ public class SqlGraphProvider implements GraphProvider {
         }
     }
 
+    /**
+     * Switches the JDBC connection of the transaction to the read-only mode which allows the database to skip some of
+     * the bookkeeping needed for the writes. The connection pool resets the read-only flag when the connection is
+     * returned to it after the rollback.
+     */
+    @Override public Graph startReadOnlyTransaction(Graph graph) {
+        SqlgGraph sqlg = (SqlgGraph) startTransaction(graph);
+        try {
+            sqlg.tx().getConnection().setReadOnly(true);
+        } catch (SQLException e) {
+            Log.LOG.dFailedToSwitchToReadOnly(e);
+        }
+
+        return sqlg;
+    }
+
+    @Override public boolean startBatch(Graph graph) {
+        SqlgGraph sqlg = (SqlgGraph) graph;
+        if (sqlg.tx().isInBatchMode()) {
+            return false;
+        }
+
+        sqlg.tx().normalBatchModeOn();
+        return true;
+    }
+
+    @Override public void flushBatch(Graph graph) {
+        ((SqlgGraph) graph).tx().flush();
+    }
+
+    @Override public void endBatch(Graph graph) {
+        SqlgGraph sqlg = (SqlgGraph) graph;
+        sqlg.tx().flush();
+        sqlg.tx().batchModeOff();
+    }
+
     @Override public RuntimeException translateException(RuntimeException inputException, CanonicalPath affectedPath) {
         if (inputException instanceof SqlgExceptions.UniqueConstraintViolationException) {
             return new EntityAlreadyExistsException(inputException, affectedPath);
@@ -345,7 +526,33 @@ public class SqlGraphProvider implements GraphProvider {
         JDBC_USERNAME("sql.jdbc.username", "hawkular.inventory.sql.jdbc.username",
                 "HAWKULAR_INVENTORY_SQL_JDBC_USERNAME"),
         JDBC_PASSWORD("sql.jdbc.password", "hawkular.inventory.sql.jdbc.password",
-                "HAWKULAR_INVENTORY_SQL_JDBC_PASSWORD");
+                "HAWKULAR_INVENTORY_SQL_JDBC_PASSWORD"),
+        /**
+         * The minimum number of connections kept in the pool.
+         */
+        POOL_MIN_SIZE("sql.pool.minSize", "hawkular.inventory.sql.pool.minSize",
+                "HAWKULAR_INVENTORY_SQL_POOL_MIN_SIZE"),
+        /**
+         * The maximum number of connections in the pool.
+         */
+        POOL_MAX_SIZE("sql.pool.maxSize", "hawkular.inventory.sql.pool.maxSize",
+                "HAWKULAR_INVENTORY_SQL_POOL_MAX_SIZE"),
+        /**
+         * The number of seconds after which an idle connection is closed. 0 means never.
+         */
+        POOL_MAX_IDLE_TIME("sql.pool.maxIdleTime", "hawkular.inventory.sql.pool.maxIdleTime",
+                "HAWKULAR_INVENTORY_SQL_POOL_MAX_IDLE_TIME"),
+        /**
+         * The number of milliseconds to wait for a connection to become available in an exhausted pool. 0 means
+         * wait indefinitely.
+         */
+        POOL_CHECKOUT_TIMEOUT("sql.pool.checkoutTimeout", "hawkular.inventory.sql.pool.checkoutTimeout",
+                "HAWKULAR_INVENTORY_SQL_POOL_CHECKOUT_TIMEOUT"),
+        /**
+         * The number of prepared statements cached per connection. 0 disables the statement caching.
+         */
+        STATEMENT_CACHE_SIZE("sql.pool.statementCacheSize", "hawkular.inventory.sql.pool.statementCacheSize",
+                "HAWKULAR_INVENTORY_SQL_POOL_STATEMENT_CACHE_SIZE");
 
         private final String propertyName;
         private final List<String> systemPropertyNames;
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop.sql.provider;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+import org.hawkular.inventory.impl.tinkerpop.sql.SqlGraphProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.umlg.sqlg.structure.SqlgGraph;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class ActiveIndicesTest {
+
+    private static final IndexSpec HOSTNAME = IndexSpec.builder()
+            .withElementType(Vertex.class)
+            .withProperty(IndexSpec.Property.builder().withName("hostname").withType(String.class).build())
+            .build();
+
+    @Test
+    public void testUserDefinedIndexReportedActive() throws Exception {
+        SqlGraphProvider provider = new SqlGraphProvider();
+        SqlgGraph graph = provider.instantiateGraph(configuration("activeIndicesTest"));
+        try {
+            Assert.assertTrue(provider.getActiveIndices(graph).isEmpty());
+
+            provider.ensureIndices(graph, HOSTNAME);
+            //ensuring the same index again must not report it twice
+            provider.ensureIndices(graph, HOSTNAME);
+
+            Assert.assertEquals(1, provider.getActiveIndices(graph).size());
+            Assert.assertEquals(HOSTNAME, provider.getActiveIndices(graph).get(0));
+        } finally {
+            graph.close();
+        }
+    }
+
+    @Test
+    public void testActiveIndicesReportedPerGraph() throws Exception {
+        SqlGraphProvider provider = new SqlGraphProvider();
+        SqlgGraph indexed = provider.instantiateGraph(configuration("activeIndicesIndexed"));
+        SqlgGraph other = provider.instantiateGraph(configuration("activeIndicesOther"));
+        try {
+            provider.ensureIndices(indexed, HOSTNAME);
+            provider.ensureIndices(other);
+
+            Assert.assertEquals(1, provider.getActiveIndices(indexed).size());
+            Assert.assertTrue(provider.getActiveIndices(other).isEmpty());
+        } finally {
+            indexed.close();
+            other.close();
+        }
+    }
+
+    @Test
+    public void testUniqueEdgeIndexReportedAsOrdinary() throws Exception {
+        SqlGraphProvider provider = new SqlGraphProvider();
+        SqlgGraph graph = provider.instantiateGraph(configuration("activeIndicesUniqueEdge"));
+        try {
+            provider.ensureIndices(graph, edgeIndex(true, null));
+
+            Assert.assertEquals(1, provider.getActiveIndices(graph).size());
+            Assert.assertFalse(property(provider.getActiveIndices(graph).get(0)).isUnique());
+        } finally {
+            graph.close();
+        }
+    }
+
+    @Test
+    public void testEdgeIndexOnCustomLabelNotReported() throws Exception {
+        SqlGraphProvider provider = new SqlGraphProvider();
+        SqlgGraph graph = provider.instantiateGraph(configuration("activeIndicesCustomLabel"));
+        try {
+            provider.ensureIndices(graph, edgeIndex(false, "customLabel"));
+            Assert.assertTrue(provider.getActiveIndices(graph).isEmpty());
+
+            provider.ensureIndices(graph, edgeIndex(false, "contains"));
+            Assert.assertEquals(1, provider.getActiveIndices(graph).size());
+            Assert.assertEquals("contains", property(provider.getActiveIndices(graph).get(0)).getLabelIndex());
+        } finally {
+            graph.close();
+        }
+    }
+
+    private static IndexSpec edgeIndex(boolean unique, String label) {
+        return IndexSpec.builder()
+                .withElementType(Edge.class)
+                .withProperty(IndexSpec.Property.builder().withName("weight").withType(String.class)
+                        .withUnique(unique).withLabelIndex(label).build())
+                .build();
+    }
+
+    private static IndexSpec.Property property(IndexSpec spec) {
+        return spec.getProperties().iterator().next();
+    }
+
+    private static Configuration configuration(String dbName) {
+        return Configuration.builder()
+                .addConfigurationProperty("sql.jdbc.url", "jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1")
+                .addConfigurationProperty("sql.jdbc.username", "SA")
+                .addConfigurationProperty("sql.jdbc.password", "")
+                .build();
+    }
+}
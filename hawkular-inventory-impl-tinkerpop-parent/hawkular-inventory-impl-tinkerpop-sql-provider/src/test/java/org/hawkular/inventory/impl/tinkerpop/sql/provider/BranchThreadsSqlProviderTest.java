@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop.sql.provider;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.hawkular.inventory.api.test.AbstractBaseInventoryTestsuite;
+import org.hawkular.inventory.base.BaseInventory;
+import org.hawkular.inventory.impl.tinkerpop.TinkerpopInventory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Runs the testsuite with the branches of the queries evaluated concurrently. Unlike TinkerGraph, the SQL graph
+ * supports the concurrent reads.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class BranchThreadsSqlProviderTest extends AbstractBaseInventoryTestsuite<Element> {
+    private static final TinkerpopInventory INVENTORY = new TinkerpopInventory();
+
+    @BeforeClass
+    public static void setupInventory() throws Exception {
+        String originalConfig = System.getProperty("graph.config");
+        System.setProperty("graph.config", System.getProperty("branch-threads.config"));
+        try {
+            setupNewInventory(INVENTORY);
+            setupData(INVENTORY);
+        } finally {
+            //the other tests in the same JVM read the default config
+            System.setProperty("graph.config", originalConfig);
+        }
+    }
+
+    @AfterClass
+    public static void teardownInventory() throws Exception {
+        teardownData(INVENTORY);
+        INVENTORY.close();
+    }
+
+    @Override protected BaseInventory<Element> getInventoryForTest() {
+        return INVENTORY;
+    }
+}
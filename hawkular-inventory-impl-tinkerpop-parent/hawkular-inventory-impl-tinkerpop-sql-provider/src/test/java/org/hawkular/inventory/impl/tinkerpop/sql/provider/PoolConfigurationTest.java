@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop.sql.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.impl.tinkerpop.sql.SqlGraphProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.umlg.sqlg.structure.SqlgGraph;
+
+import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class PoolConfigurationTest {
+
+    @Test
+    public void testPoolConfigurationApplied() throws Exception {
+        String url = "jdbc:h2:mem:poolConfigurationTest;DB_CLOSE_DELAY=-1";
+
+        Configuration conf = Configuration.builder()
+                .addConfigurationProperty("sql.jdbc.url", url)
+                .addConfigurationProperty("sql.jdbc.username", "SA")
+                .addConfigurationProperty("sql.jdbc.password", "")
+                .addConfigurationProperty("sql.pool.minSize", "2")
+                .addConfigurationProperty("sql.pool.maxSize", "4")
+                .addConfigurationProperty("sql.pool.maxIdleTime", "120")
+                .addConfigurationProperty("sql.pool.checkoutTimeout", "5000")
+                .addConfigurationProperty("sql.pool.statementCacheSize", "50")
+                .build();
+
+        SqlgGraph graph = new SqlGraphProvider().instantiateGraph(conf);
+        try {
+            ComboPooledDataSource pool = null;
+            for (Object ds : C3P0Registry.getPooledDataSources()) {
+                if (ds instanceof ComboPooledDataSource && url.equals(((ComboPooledDataSource) ds).getJdbcUrl())) {
+                    pool = (ComboPooledDataSource) ds;
+                }
+            }
+
+            Assert.assertNotNull(pool);
+            Assert.assertEquals(SqlGraphProvider.POOL_NAME, pool.getDataSourceName());
+            Assert.assertEquals(2, pool.getMinPoolSize());
+            Assert.assertEquals(4, pool.getMaxPoolSize());
+            Assert.assertEquals(120, pool.getMaxIdleTime());
+            Assert.assertEquals(5000, pool.getCheckoutTimeout());
+            Assert.assertEquals(50, pool.getMaxStatementsPerConnection());
+
+            //more concurrent transactions than there are connections in the pool must all eventually succeed
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Long>> results = new ArrayList<>();
+                for (int i = 0; i < 32; ++i) {
+                    results.add(executor.submit(() -> {
+                        try {
+                            return graph.traversal().V().count().next();
+                        } finally {
+                            graph.tx().rollback();
+                        }
+                    }));
+                }
+
+                for (Future<Long> f : results) {
+                    Assert.assertEquals(0L, (long) f.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            Assert.assertTrue(pool.getNumConnectionsDefaultUser() <= 4);
+        } finally {
+            graph.close();
+        }
+    }
+}
@@ -16,10 +16,16 @@
  */
 package org.hawkular.inventory.impl.tinkerpop.provider;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
@@ -74,6 +80,39 @@ public final class TinkerGraphProvider implements GraphProvider {
                         Collections.singleton(PropertyKey.DIRECTORY_NAME))));
     }
 
+    @Override public boolean isSupportingTenantGraphs() {
+        return true;
+    }
+
+    /**
+     * The graph of the tenant is held in memory while it is open and is written to a file in the configured
+     * directory when it is closed. Therefore the tenant graphs require the directory to be configured.
+     */
+    @Override
+    public WrappedTinkerGraph instantiateTenantGraph(Configuration configuration, String tenantId) {
+        String directory = configuration.getProperty(PropertyKey.DIRECTORY_NAME, null);
+        if (directory == null) {
+            throw new IllegalStateException("The tenant graphs need the '" + PropertyKey.DIRECTORY_NAME
+                    .getPropertyName() + "' configuration property to be set, so that the data of the tenants is" +
+                    " not lost when their graphs are closed.");
+        }
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(TinkerGraph.GREMLIN_TINKERGRAPH_GRAPH_LOCATION,
+                Paths.get(directory, getTenantGraphFile(tenantId)).toString());
+        config.put(TinkerGraph.GREMLIN_TINKERGRAPH_GRAPH_FORMAT, "gryo");
+
+        return new WrappedTinkerGraph(new MapConfiguration(config));
+    }
+
+    static String getTenantGraphFile(String tenantId) {
+        //the readable part is lossy and the file systems may not distinguish the case in the file names, so it is
+        //the hash of the exact tenant id that keeps the files of different tenants apart
+        String readable = tenantId.replaceAll("[^A-Za-z0-9_]", "_");
+        String hash = UUID.nameUUIDFromBytes(tenantId.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+        return (readable + "_" + hash).toLowerCase(Locale.ROOT) + ".kryo";
+    }
+
     @Override
     public void ensureIndices(Graph graph, IndexSpec... indexSpecs) {
         //don't bother with this for a demo graph
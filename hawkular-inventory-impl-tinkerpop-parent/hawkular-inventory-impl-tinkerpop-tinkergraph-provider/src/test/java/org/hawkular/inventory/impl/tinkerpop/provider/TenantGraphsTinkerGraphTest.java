@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop.provider;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.impl.tinkerpop.TinkerpopInventory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class TenantGraphsTinkerGraphTest {
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("tenant-graphs");
+    }
+
+    @After
+    public void deleteDirectory() throws Exception {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File f : files) {
+                Files.delete(f.toPath());
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testTenantGraphPersistedWhenClosed() throws Exception {
+        TinkerGraphProvider provider = new TinkerGraphProvider();
+
+        Graph graph = provider.instantiateTenantGraph(configuration(false), "tenant");
+        graph.addVertex("v");
+        graph.close();
+
+        graph = provider.instantiateTenantGraph(configuration(false), "tenant");
+        Assert.assertEquals(1, IteratorUtils.count(graph.vertices()));
+        graph.close();
+
+        graph = provider.instantiateTenantGraph(configuration(false), "other");
+        Assert.assertEquals(0, IteratorUtils.count(graph.vertices()));
+        graph.close();
+    }
+
+    @Test
+    public void testTenantGraphFilesDiffer() throws Exception {
+        Assert.assertNotEquals(TinkerGraphProvider.getTenantGraphFile("a-b"),
+                TinkerGraphProvider.getTenantGraphFile("a_b"));
+        Assert.assertNotEquals(TinkerGraphProvider.getTenantGraphFile("tenant"),
+                TinkerGraphProvider.getTenantGraphFile("Tenant"));
+        Assert.assertEquals(TinkerGraphProvider.getTenantGraphFile("tenant"),
+                TinkerGraphProvider.getTenantGraphFile("tenant"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDirectoryRequired() throws Exception {
+        new TinkerGraphProvider().instantiateTenantGraph(Configuration.builder().build(), "tenant");
+    }
+
+    @Test
+    public void testTenantsStoredInTheirGraphs() throws Exception {
+        TinkerpopInventory inventory = new TinkerpopInventory();
+        inventory.initialize(configuration(true));
+        try {
+            inventory.forTenant("tenant").tenants().create(Tenant.Blueprint.builder().withId("tenant").build());
+
+            Assert.assertTrue(inventory.forTenant("tenant").tenants().get("tenant").exists());
+            Assert.assertFalse(inventory.forTenant("other").tenants().get("tenant").exists());
+            Assert.assertFalse(inventory.tenants().get("tenant").exists());
+        } finally {
+            inventory.close();
+        }
+
+        inventory = new TinkerpopInventory();
+        inventory.initialize(configuration(true));
+        try {
+            Assert.assertTrue(inventory.forTenant("tenant").tenants().get("tenant").exists());
+        } finally {
+            inventory.close();
+        }
+    }
+
+    private Configuration configuration(boolean tenantGraphs) {
+        return Configuration.builder()
+                .addConfigurationProperty("blueprints.tg.directory", directory.toString())
+                .addConfigurationProperty(TinkerpopInventory.TENANT_GRAPHS.getPropertyName(),
+                        Boolean.toString(tenantGraphs))
+                .build();
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.hawkular.inventory.impl.tinkerpop.provider;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -23,14 +25,19 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Predicate;
 
 import org.apache.commons.configuration.MapConfiguration;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Transaction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.hawkular.inventory.api.Configuration;
 import org.hawkular.inventory.api.EntityAlreadyExistsException;
 import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
@@ -43,6 +50,8 @@ import com.thinkaurelius.titan.core.TitanException;
 import com.thinkaurelius.titan.core.TitanFactory;
 import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.schema.PropertyKeyMaker;
+import com.thinkaurelius.titan.core.schema.SchemaStatus;
+import com.thinkaurelius.titan.core.schema.TitanGraphIndex;
 import com.thinkaurelius.titan.core.schema.TitanManagement;
 
 /**
@@ -102,6 +111,10 @@ public class TitanProvider implements GraphProvider {
         return false;
     }
 
+    @Override public boolean isSupportingConcurrentReads() {
+        return true;
+    }
+
     @Override
     public TitanGraph instantiateGraph(Configuration configuration) {
         TitanGraph g = TitanFactory.open(new MapConfiguration(configuration.prefixedWith(ALLOWED_PREFIXES)
@@ -110,6 +123,55 @@ public class TitanProvider implements GraphProvider {
         return g;
     }
 
+    @Override public boolean isSupportingTenantGraphs() {
+        return true;
+    }
+
+    /**
+     * Opens the graph of the tenant in its own Cassandra keyspace (or its own subdirectory for the local storage
+     * backends). The keyspace is named after the configured keyspace with the tenant id and its hash appended to it.
+     */
+    @Override
+    public TitanGraph instantiateTenantGraph(Configuration configuration, String tenantId) {
+        Map<String, String> config = new HashMap<>(configuration.prefixedWith(ALLOWED_PREFIXES)
+                .getImplementationConfiguration(EnumSet.allOf(PropertyKeys.class)));
+
+        String keyspace = config.getOrDefault(PropertyKeys.STORAGE_CASSANDRA_KEYSPACE.getPropertyName(), "titan");
+        config.put(PropertyKeys.STORAGE_CASSANDRA_KEYSPACE.getPropertyName(), getTenantKeyspace(keyspace, tenantId));
+
+        String directory = config.get("storage.directory");
+        if (directory != null) {
+            config.put("storage.directory", Paths.get(directory, getTenantDirectory(tenantId)).toString());
+        }
+
+        TitanGraph g = TitanFactory.open(new MapConfiguration(config));
+        g.tx().onReadWrite(Transaction.READ_WRITE_BEHAVIOR.MANUAL);
+        return g;
+    }
+
+    static String getTenantKeyspace(String keyspace, String tenantId) {
+        //the readable part is only informative and may be truncated, the hash is what keeps the keyspaces of different
+        //tenants apart
+        String hash = "_" + hash(tenantId);
+        String ret = (keyspace + "_" + sanitize(tenantId)).toLowerCase(Locale.ROOT);
+        return ret.substring(0, Math.min(ret.length(), MAX_KEYSPACE_LENGTH - hash.length())) + hash;
+    }
+
+    static String getTenantDirectory(String tenantId) {
+        return (sanitize(tenantId) + "_" + hash(tenantId)).toLowerCase(Locale.ROOT);
+    }
+
+    private static String sanitize(String tenantId) {
+        //Cassandra only allows alphanumeric characters and underscores in the keyspace names and doesn't distinguish
+        //the case in them, so this is lossy and needs to be accompanied by the hash of the tenant id
+        return tenantId.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    private static String hash(String tenantId) {
+        //a name-based UUID of the tenant id, i.e. its MD5 hash in hex, which only contains the allowed characters
+        return UUID.nameUUIDFromBytes(tenantId.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+    }
+
     @Override
     public void ensureIndices(Graph graph, IndexSpec... indexSpecs) {
         Set<IndexSpec.Property> undefinedPropertyKeys = new HashSet<>();
@@ -180,6 +242,42 @@ public class TitanProvider implements GraphProvider {
         mgmt.commit();
     }
 
+    @Override
+    public List<IndexSpec> getActiveIndices(Graph graph) {
+        TitanManagement mgmt = ((TitanGraph) graph).openManagement();
+        try {
+            List<IndexSpec> ret = new ArrayList<>();
+            for (Class<? extends Element> elementType : Arrays.asList(Vertex.class, Edge.class)) {
+                for (TitanGraphIndex index : mgmt.getGraphIndexes(elementType)) {
+                    PropertyKey[] keys = index.getFieldKeys();
+
+                    //an index that is still being installed or reindexed is not used by the queries
+                    boolean enabled = true;
+                    for (PropertyKey key : keys) {
+                        enabled &= index.getIndexStatus(key) == SchemaStatus.ENABLED;
+                    }
+
+                    if (!enabled) {
+                        continue;
+                    }
+
+                    IndexSpec.Builder bld = IndexSpec.builder().withElementType(elementType)
+                            .withUnique(index.isUnique());
+                    for (PropertyKey key : keys) {
+                        bld.withProperty(IndexSpec.Property.builder().withName(key.name()).withType(key.dataType())
+                                .build());
+                    }
+
+                    ret.add(bld.build());
+                }
+            }
+
+            return ret;
+        } finally {
+            mgmt.rollback();
+        }
+    }
+
     private String getIndexName(Set<IndexSpec.Property> properties) {
         StringBuilder bld = new StringBuilder("by");
 
@@ -190,6 +288,8 @@ public class TitanProvider implements GraphProvider {
         return bld.toString();
     }
 
+    private static final int MAX_KEYSPACE_LENGTH = 48;
+
     public static final String[] ALLOWED_PREFIXES = {"attributes", "cache", "cluster", "graph", "ids", "index", "log" +
             "metrics", "query", "schema", "storage", "tx"};
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop.provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class TenantGraphNamesTest {
+
+    @Test
+    public void testDistinctTenantsGetDistinctKeyspaces() throws Exception {
+        Assert.assertNotEquals(TitanProvider.getTenantKeyspace("ks", "a-b"),
+                TitanProvider.getTenantKeyspace("ks", "a_b"));
+        Assert.assertNotEquals(TitanProvider.getTenantKeyspace("ks", "tenant"),
+                TitanProvider.getTenantKeyspace("ks", "Tenant"));
+
+        Assert.assertNotEquals(TitanProvider.getTenantDirectory("a-b"), TitanProvider.getTenantDirectory("a_b"));
+        Assert.assertNotEquals(TitanProvider.getTenantDirectory("tenant"), TitanProvider.getTenantDirectory("Tenant"));
+    }
+
+    @Test
+    public void testKeyspaceNamesValid() throws Exception {
+        String longId = "a very long tenant id with characters not allowed in the Cassandra keyspaces!";
+
+        for (String tenantId : new String[]{"t", "Tenant-1", longId}) {
+            String keyspace = TitanProvider.getTenantKeyspace("hawkular_inventory", tenantId);
+
+            Assert.assertTrue(keyspace, keyspace.matches("[a-z0-9_]+"));
+            Assert.assertTrue(keyspace, keyspace.length() <= 48);
+            Assert.assertEquals(keyspace, TitanProvider.getTenantKeyspace("hawkular_inventory", tenantId));
+        }
+
+        Assert.assertNotEquals(TitanProvider.getTenantKeyspace("ks", longId),
+                TitanProvider.getTenantKeyspace("ks", longId + "2"));
+    }
+}
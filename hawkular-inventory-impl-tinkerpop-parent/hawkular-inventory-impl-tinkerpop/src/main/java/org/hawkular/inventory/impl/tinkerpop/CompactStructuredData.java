@@ -0,0 +1,312 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.inventory.api.model.StructuredData;
+
+/**
+ * The compact serialized form of the structured data used when the structured data is stored as a single property
+ * instead of a tree of vertices.
+ *
+ * <p>The format is a simple binary encoding where each value is prefixed with a type tag, strings are length-prefixed
+ * UTF-8 and lists and maps are prefixed by the number of their elements. The binary form is Base64 encoded so that it
+ * can be stored in a string property supported by all the graph providers.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+final class CompactStructuredData {
+    private static final byte UNDEFINED = 'u';
+    private static final byte BOOL = 'b';
+    private static final byte INTEGRAL = 'i';
+    private static final byte FLOATING_POINT = 'f';
+    private static final byte STRING = 's';
+    private static final byte LIST = 'l';
+    private static final byte MAP = 'm';
+
+    private CompactStructuredData() {
+
+    }
+
+    static String encode(StructuredData data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(data, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize structured data.", e);
+        }
+
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    static StructuredData decode(String encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder()
+                .decode(encoded)))) {
+            //the builders only support adding the values to lists and maps, so let's read the value as the only
+            //element of a list
+            StructuredData.ListBuilder holder = StructuredData.get().list();
+            read(in, listTarget(holder));
+            return holder.build().list().get(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to deserialize structured data.", e);
+        }
+    }
+
+    /**
+     * Finds the value on given path in the provided structured data.
+     *
+     * @param data the data to look into
+     * @param path the path of keys (in maps) or indices (in lists)
+     * @return the value on the path or null if there is no such value
+     */
+    static StructuredData navigate(StructuredData data, List<String> path) {
+        StructuredData current = data;
+        for (String seg : path) {
+            if (current == null) {
+                return null;
+            }
+
+            switch (current.getType()) {
+                case map:
+                    current = current.map().get(seg);
+                    break;
+                case list:
+                    Integer index = toIndex(seg);
+                    List<StructuredData> items = current.list();
+                    current = index == null || index >= items.size() ? null : items.get(index);
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * @return the data without the children if the data is a list or a map, the data itself otherwise
+     */
+    static StructuredData shallow(StructuredData data) {
+        switch (data.getType()) {
+            case list:
+                return StructuredData.get().list().build();
+            case map:
+                return StructuredData.get().map().build();
+            default:
+                return data;
+        }
+    }
+
+    static Integer toIndex(String segment) {
+        try {
+            int idx = Integer.parseInt(segment);
+            return idx < 0 ? null : idx;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void write(StructuredData data, DataOutputStream out) throws IOException {
+        switch (data.getType()) {
+            case undefined:
+                out.writeByte(UNDEFINED);
+                break;
+            case bool:
+                out.writeByte(BOOL);
+                out.writeBoolean(data.bool());
+                break;
+            case integral:
+                out.writeByte(INTEGRAL);
+                out.writeLong(data.integral());
+                break;
+            case floatingPoint:
+                out.writeByte(FLOATING_POINT);
+                out.writeDouble(data.floatingPoint());
+                break;
+            case string:
+                out.writeByte(STRING);
+                writeString(data.string(), out);
+                break;
+            case list:
+                out.writeByte(LIST);
+                List<StructuredData> items = data.list();
+                out.writeInt(items.size());
+                for (StructuredData item : items) {
+                    write(item, out);
+                }
+                break;
+            case map:
+                out.writeByte(MAP);
+                Map<String, StructuredData> entries = data.map();
+                out.writeInt(entries.size());
+                for (Map.Entry<String, StructuredData> e : entries.entrySet()) {
+                    writeString(e.getKey(), out);
+                    write(e.getValue(), out);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type of structured data: " + data.getType());
+        }
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a single value including its type tag and adds it to the provided target.
+     */
+    private static void read(DataInputStream in, Target target) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case UNDEFINED:
+                target.addUndefined();
+                break;
+            case BOOL:
+                target.addBool(in.readBoolean());
+                break;
+            case INTEGRAL:
+                target.addIntegral(in.readLong());
+                break;
+            case FLOATING_POINT:
+                target.addFloatingPoint(in.readDouble());
+                break;
+            case STRING:
+                target.addString(readString(in));
+                break;
+            case LIST:
+                StructuredData.InnerListBuilder<?> lst = target.addList();
+                int size = in.readInt();
+                for (int i = 0; i < size; ++i) {
+                    read(in, listTarget(lst));
+                }
+                lst.closeList();
+                break;
+            case MAP:
+                StructuredData.InnerMapBuilder<?> mp = target.addMap();
+                int entries = in.readInt();
+                for (int i = 0; i < entries; ++i) {
+                    read(in, mapTarget(mp, readString(in)));
+                }
+                mp.closeMap();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type of compact structured data: " + (char) type);
+        }
+    }
+
+    private static Target listTarget(StructuredData.AbstractListBuilder<?> bld) {
+        return new Target() {
+            @Override public void addUndefined() {
+                bld.addUndefined();
+            }
+
+            @Override public void addBool(boolean value) {
+                bld.addBool(value);
+            }
+
+            @Override public void addIntegral(long value) {
+                bld.addIntegral(value);
+            }
+
+            @Override public void addFloatingPoint(double value) {
+                bld.addFloatingPoint(value);
+            }
+
+            @Override public void addString(String value) {
+                bld.addString(value);
+            }
+
+            @Override public StructuredData.InnerListBuilder<?> addList() {
+                return bld.addList();
+            }
+
+            @Override public StructuredData.InnerMapBuilder<?> addMap() {
+                return bld.addMap();
+            }
+        };
+    }
+
+    private static Target mapTarget(StructuredData.AbstractMapBuilder<?> bld, String key) {
+        return new Target() {
+            @Override public void addUndefined() {
+                bld.putUndefined(key);
+            }
+
+            @Override public void addBool(boolean value) {
+                bld.putBool(key, value);
+            }
+
+            @Override public void addIntegral(long value) {
+                bld.putIntegral(key, value);
+            }
+
+            @Override public void addFloatingPoint(double value) {
+                bld.putFloatingPoint(key, value);
+            }
+
+            @Override public void addString(String value) {
+                bld.putString(key, value);
+            }
+
+            @Override public StructuredData.InnerListBuilder<?> addList() {
+                return bld.putList(key);
+            }
+
+            @Override public StructuredData.InnerMapBuilder<?> addMap() {
+                return bld.putMap(key);
+            }
+        };
+    }
+
+    /**
+     * Abstracts away the difference between adding a value to a list and putting it to a map under some key.
+     */
+    private interface Target {
+        void addUndefined();
+
+        void addBool(boolean value);
+
+        void addIntegral(long value);
+
+        void addFloatingPoint(double value);
+
+        void addString(String value);
+
+        StructuredData.InnerListBuilder<?> addList();
+
+        StructuredData.InnerMapBuilder<?> addMap();
+    }
+}
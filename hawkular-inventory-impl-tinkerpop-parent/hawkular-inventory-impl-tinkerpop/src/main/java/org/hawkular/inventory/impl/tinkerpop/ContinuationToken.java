@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+/**
+ * The continuation token of the keyset based paging. It remembers the value of the sort property and the canonical
+ * path of the last element on a page. The canonical path is unique and therefore breaks the ties between the elements
+ * with the same value of the sort property.
+ *
+ * <p>The token is serialized into an opaque URL-safe string.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+final class ContinuationToken {
+    private static final byte NULL = 'n';
+    private static final byte STRING = 's';
+    private static final byte LONG = 'l';
+    private static final byte INTEGER = 'i';
+    private static final byte DOUBLE = 'd';
+    private static final byte BOOLEAN = 'b';
+
+    private final String property;
+    private final Object value;
+    private final String cp;
+
+    private ContinuationToken(String property, Object value, String cp) {
+        this.property = property;
+        this.value = value;
+        this.cp = cp;
+    }
+
+    /**
+     * Creates a continuation token pointing right after the provided element.
+     *
+     * @param property the property the results are ordered by
+     * @param last     the last element on the page
+     */
+    static ContinuationToken after(String property, Element last) {
+        String cp = last.value(__cp.name());
+        Object value = __cp.name().equals(property) ? cp : last.property(property).orElse(null);
+        return new ContinuationToken(property, value, cp);
+    }
+
+    /**
+     * Parses the token.
+     *
+     * @param token            the token to parse
+     * @param expectedProperty the property the results are currently ordered by
+     * @throws IllegalArgumentException if the token cannot be parsed or was created for a different ordering
+     */
+    static ContinuationToken parse(String token, String expectedProperty) {
+        Object value;
+        String property;
+        String cp;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder()
+                .decode(token)))) {
+            property = in.readUTF();
+            byte type = in.readByte();
+            switch (type) {
+                case NULL:
+                    value = null;
+                    break;
+                case STRING:
+                    value = in.readUTF();
+                    break;
+                case LONG:
+                    value = in.readLong();
+                    break;
+                case INTEGER:
+                    value = in.readInt();
+                    break;
+                case DOUBLE:
+                    value = in.readDouble();
+                    break;
+                case BOOLEAN:
+                    value = in.readBoolean();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid continuation token: " + token);
+            }
+            cp = in.readUTF();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+
+        if (!property.equals(expectedProperty)) {
+            throw new IllegalArgumentException("The continuation token was obtained using a different ordering" +
+                    " of the results.");
+        }
+
+        return new ContinuationToken(property, value, cp);
+    }
+
+    String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(property);
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Double || value instanceof Float) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(STRING);
+                out.writeUTF(value.toString());
+            }
+            out.writeUTF(cp);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize the continuation token.", e);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Restricts the traversal only to the elements that come after the position represented by this token in the
+     * ordering by {@link #property} and then canonical path.
+     *
+     * @param traversal the traversal to restrict
+     * @param ascending whether the ordering is ascending or descending
+     */
+    void applyTo(GraphTraversal<?, ? extends Element> traversal, boolean ascending) {
+        P<Object> afterCp = ascending ? P.gt(cp) : P.lt(cp);
+
+        if (__cp.name().equals(property) || value == null) {
+            traversal.has(__cp.name(), afterCp);
+        } else {
+            traversal.or(__.has(property, ascending ? P.gt(value) : P.lt(value)),
+                    __.and(__.has(property, value), __.has(__cp.name(), afterCp)));
+        }
+    }
+}
@@ -81,6 +81,7 @@ abstract class FilterApplicator<T extends Filter> {
         applicators.put(RecurseFilter.class, RecurseApplicator.class);
         applicators.put(With.SameIdentityHash.class, SameIdentityHashApplicator.class);
         applicators.put(With.Names.class, NamesApplicator.class);
+        applicators.put(With.TextSearch.class, TextSearchApplicator.class);
     }
 
     protected final T filter;
@@ -516,4 +517,15 @@ abstract class FilterApplicator<T extends Filter> {
             visitor.visit(query, filter, state);
         }
     }
+
+    private static final class TextSearchApplicator extends FilterApplicator<With.TextSearch> {
+
+        private TextSearchApplicator(With.TextSearch search) {
+            super(search);
+        }
+
+        @Override public void applyTo(GraphTraversal<?, ?> query, QueryTranslationState state) {
+            visitor.visit(query, filter, state);
+        }
+    }
 }
@@ -38,6 +38,8 @@ import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
 import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
 import org.apache.tinkerpop.gremlin.structure.T;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.filters.Filter;
@@ -191,6 +193,29 @@ class FilterVisitor {
         query.has(prop, P.within(names.getNames()));
     }
 
+    public void visit(GraphTraversal<?, ?> query, With.TextSearch search, QueryTranslationState state) {
+        goBackFromEdges(query, state);
+
+        String prop;
+        switch (search.getField()) {
+            case id:
+                prop = __eid.name();
+                break;
+            case name:
+                prop = Constants.Property.name.name();
+                break;
+            default:
+                prop = Constants.Property.mapUserDefined(search.getPropertyName());
+        }
+
+        //the graph providers don't have a common way of expressing the text searches, so this is evaluated in memory
+        //on the candidate elements. The inventory can short-circuit this using its search index.
+        query.has(prop).filter(t -> {
+            Property<?> p = ((Element) t.get()).property(prop);
+            return p.isPresent() && search.matches(String.valueOf(p.value()));
+        });
+    }
+
     @SuppressWarnings("unchecked")
     public void visit(GraphTraversal<?, ?> query, RelationWith.Ids ids, QueryTranslationState state) {
         if (ids.getIds().length == 1) {
@@ -341,6 +366,13 @@ class FilterVisitor {
 
     @SuppressWarnings("unchecked")
     public void visit(GraphTraversal<?, ?> query, With.CanonicalPaths filter, QueryTranslationState state) {
+        if (filter.getPaths().length == 0) {
+            //nothing can match
+            query.not(__.identity());
+            goBackFromEdges(query, state);
+            return;
+        }
+
         String prop = chooseBasedOnDirection(__cp, __targetCp, __sourceCp, state.getComingFrom()).name();
 
         String typeName = null;
@@ -350,8 +382,8 @@ class FilterVisitor {
             typeName = Constants.Type.of(filter.getPaths()[0].getSegment().getElementType()).name();
             query.has(prop, filter.getPaths()[0].toString());
         } else {
-            typeNames = Stream.of(filter.getPaths()).map(p -> p.getSegment().getElementType())
-                    .toArray(String[]::new);
+            typeNames = Stream.of(filter.getPaths()).map(p -> Constants.Type.of(p.getSegment().getElementType()).name())
+                    .distinct().toArray(String[]::new);
 
             String[] paths = Stream.of(filter.getPaths()).map(Object::toString).toArray(String[]::new);
 
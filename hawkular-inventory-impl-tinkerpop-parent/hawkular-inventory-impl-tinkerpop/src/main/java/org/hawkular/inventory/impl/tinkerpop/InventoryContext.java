@@ -16,6 +16,9 @@
  */
 package org.hawkular.inventory.impl.tinkerpop;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
 import org.hawkular.inventory.paths.CanonicalPath;
@@ -31,15 +34,55 @@ final class InventoryContext {
     private final Graph graph;
     private final TinkerpopInventory inventory;
     private final GraphProvider graphProvider;
+    private final boolean compactStructuredData;
+    private final List<List<String>> indexedDataPaths;
+    private final QueryBranchExecutor branchExecutor;
+    private final TenantGraphs tenantGraphs;
+    private final String tenantId;
 
     public InventoryContext(TinkerpopInventory inventory, Graph graph, GraphProvider graphProvider) {
+        this(inventory, graph, graphProvider, false, Collections.emptyList(), null);
+    }
+
+    public InventoryContext(TinkerpopInventory inventory, Graph graph, GraphProvider graphProvider,
+                            boolean compactStructuredData, List<List<String>> indexedDataPaths,
+                            QueryBranchExecutor branchExecutor) {
+        this(inventory, graph, graphProvider, compactStructuredData, indexedDataPaths, branchExecutor, null, null);
+    }
+
+    public InventoryContext(TinkerpopInventory inventory, Graph graph, GraphProvider graphProvider,
+                            boolean compactStructuredData, List<List<String>> indexedDataPaths,
+                            QueryBranchExecutor branchExecutor, TenantGraphs tenantGraphs, String tenantId) {
         this.inventory = inventory;
         this.graph = graph;
         this.graphProvider = graphProvider;
+        this.compactStructuredData = compactStructuredData;
+        this.indexedDataPaths = indexedDataPaths;
+        this.branchExecutor = branchExecutor;
+        this.tenantGraphs = tenantGraphs;
+        this.tenantId = tenantId;
     }
 
     public InventoryContext cloneWith(Graph graph) {
-        return new InventoryContext(inventory, graph, graphProvider);
+        return new InventoryContext(inventory, graph, graphProvider, compactStructuredData, indexedDataPaths,
+                branchExecutor, tenantGraphs, tenantId);
+    }
+
+    /**
+     * If the data of each tenant is stored in a separate graph, returns a context that works with the graph of the
+     * provided tenant. Otherwise returns this context.
+     *
+     * @param tenantId the id of the tenant
+     * @return the context bound to the graph of the tenant
+     * @see TinkerpopInventory#TENANT_GRAPHS
+     */
+    public InventoryContext forTenant(String tenantId) {
+        if (tenantGraphs == null) {
+            return this;
+        }
+
+        return new InventoryContext(inventory, null, graphProvider, compactStructuredData, indexedDataPaths,
+                branchExecutor, tenantGraphs, tenantId);
     }
 
     public TinkerpopInventory getInventory() {
@@ -47,19 +90,132 @@ final class InventoryContext {
     }
 
     public Graph getGraph() {
-        return graph;
+        return graph != null || tenantId == null ? graph : tenantGraphs.get(tenantId);
+    }
+
+    /**
+     * @return the id of the tenant whose graph this context works with or null if this context works with the shared
+     * graph
+     */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * @return the graphs of the individual tenants or null if all the tenants share a single graph
+     */
+    public TenantGraphs getTenantGraphs() {
+        return tenantGraphs;
     }
 
     public Graph startTransaction() {
-        return graphProvider.startTransaction(graph);
+        Graph g = acquireGraph();
+        try {
+            return graphProvider.startTransaction(g);
+        } catch (Throwable t) {
+            releaseGraph();
+            throw t;
+        }
+    }
+
+    public Graph startReadOnlyTransaction() {
+        Graph g = acquireGraph();
+        try {
+            return graphProvider.startReadOnlyTransaction(g);
+        } catch (Throwable t) {
+            releaseGraph();
+            throw t;
+        }
     }
 
     public void commit() {
-        graphProvider.commit(graph);
+        boolean release = true;
+        try {
+            graphProvider.commit(graph);
+        } catch (Throwable t) {
+            //the transaction is still going to be rolled back, let's keep the graph until then
+            release = !graphProvider.requiresRollbackAfterFailure(t);
+            throw t;
+        } finally {
+            if (release) {
+                releaseGraph();
+            }
+        }
     }
 
     public void rollback() {
-        graphProvider.rollback(graph);
+        try {
+            graphProvider.rollback(graph);
+        } finally {
+            releaseGraph();
+        }
+    }
+
+    /**
+     * The graph of a tenant must not be closed while there is a transaction running in it, so each start of
+     * a transaction acquires the graph and each commit or rollback releases it again.
+     */
+    private Graph acquireGraph() {
+        if (tenantId == null) {
+            return graph;
+        }
+
+        Graph g = tenantGraphs.acquire(tenantId);
+        return graph == null ? g : graph;
+    }
+
+    private void releaseGraph() {
+        if (tenantId != null) {
+            tenantGraphs.release(tenantId);
+        }
+    }
+
+    public boolean startBatch() {
+        return graphProvider.startBatch(graph);
+    }
+
+    public void flushBatch() {
+        graphProvider.flushBatch(graph);
+    }
+
+    public void endBatch() {
+        graphProvider.endBatch(graph);
+    }
+
+    /**
+     * @return true if the structured data should be stored in the compact form, i.e. serialized in a single property
+     * instead of as a tree of vertices
+     * @see TinkerpopInventory#COMPACT_STRUCTURED_DATA
+     */
+    public boolean isCompactStructuredData() {
+        return compactStructuredData;
+    }
+
+    /**
+     * @return the paths (as lists of map keys or list indices) in the compactly stored structured data that should
+     * be indexed as vertices so that they can be queried for
+     * @see TinkerpopInventory#INDEXED_DATA_PATHS
+     */
+    public List<List<String>> getIndexedDataPaths() {
+        return indexedDataPaths;
+    }
+
+    /**
+     * @return the executor to evaluate the independent branches of the read-only queries concurrently or null if the
+     * branches should be evaluated sequentially in a single traversal
+     * @see TinkerpopInventory#QUERY_BRANCH_THREADS
+     */
+    public QueryBranchExecutor getBranchExecutor() {
+        return branchExecutor;
+    }
+
+    /**
+     * @return the number of the read-only transactions that can be started right now without waiting for the
+     * resources held by the running transactions
+     * @see GraphProvider#getConcurrentReadCapacity(Graph)
+     */
+    public int getConcurrentReadCapacity() {
+        return graphProvider.getConcurrentReadCapacity(getGraph());
     }
 
     public boolean isUniqueIndexSupported() {
@@ -83,7 +239,7 @@ final class InventoryContext {
     }
 
     public boolean isTransactionRetryWarranted(Throwable t) {
-        return graphProvider.isTransactionRetryWarranted(graph, t);
+        return graphProvider.isTransactionRetryWarranted(getGraph(), t);
     }
 
 }
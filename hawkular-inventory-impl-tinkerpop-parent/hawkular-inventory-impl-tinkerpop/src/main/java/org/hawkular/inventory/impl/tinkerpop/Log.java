@@ -16,8 +16,11 @@
  */
 package org.hawkular.inventory.impl.tinkerpop;
 
+import java.util.List;
+
 import org.jboss.logging.BasicLogger;
 import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.LogMessage;
 import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageLogger;
@@ -38,4 +41,17 @@ import org.jboss.logging.annotations.ValidIdRange;
     @LogMessage(level = Logger.Level.INFO)
     @Message(id = 1000, value = "Using graph provider: %s")
     void iUsingGraphProvider(String backend);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 1001, value = "The graph provider reports %d active indices: %s")
+    void iActiveIndices(int count, List<?> indices);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 1002, value = "Storing the data of each tenant in a separate graph. Idle graphs are closed after %d" +
+            " ms (0 means never).")
+    void iUsingTenantGraphs(long idleTimeout);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 1003, value = "Failed to close the graph of the tenant '%s'.")
+    void wFailedToCloseTenantGraph(String tenantId, @Cause Throwable cause);
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs the evaluations of the independent branches of a query on a bounded pool of worker threads. The pool is only
+ * created once the first branches need to be evaluated.
+ *
+ * <p>The calling thread evaluates the first branch itself and never waits for a branch that no worker has started
+ * yet. It evaluates such branches itself, too. So it only waits for the branches that are already being evaluated.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+final class QueryBranchExecutor implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final int threads;
+    private volatile ExecutorService workers;
+
+    QueryBranchExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least 1 query branch thread.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Evaluates the provided branches and waits for all of them to finish. The first branch and the branches over the
+     * {@code maxForked} limit are evaluated on the calling thread, the rest is handed over to the workers.
+     *
+     * @param branches  the branches to evaluate
+     * @param maxForked the maximum number of the branches to hand over to the workers
+     * @param inWorker  the evaluation of a branch on a worker thread
+     * @param inCaller  the evaluation of a branch on the calling thread
+     * @param <B>       the type of the branches
+     * @param <T>       the type of the results of the branches
+     * @return the results of the branches in the same order as the branches
+     */
+    <B, T> List<T> evaluate(List<B> branches, int maxForked, Function<B, T> inWorker, Function<B, T> inCaller) {
+        int forkedCount = Math.max(0, Math.min(maxForked, branches.size() - 1));
+        List<Forked<B, T>> forked = new ArrayList<>(forkedCount);
+        try {
+            if (forkedCount > 0) {
+                ExecutorService ex = getWorkers();
+                for (B b : branches.subList(1, forkedCount + 1)) {
+                    Forked<B, T> f = new Forked<>(b, inWorker);
+                    forked.add(f);
+                    try {
+                        ex.execute(f::evaluate);
+                    } catch (RejectedExecutionException e) {
+                        //the calling thread evaluates it below
+                    }
+                }
+            }
+
+            List<T> ret = new ArrayList<>(branches.size());
+            ret.add(inCaller.apply(branches.get(0)));
+            forked.forEach(f -> ret.add(null));
+            for (B b : branches.subList(forkedCount + 1, branches.size())) {
+                ret.add(inCaller.apply(b));
+            }
+
+            for (int i = 0; i < forked.size(); ++i) {
+                ret.set(i + 1, forked.get(i).join(inCaller));
+            }
+
+            return ret;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating the query branches.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException("Failed to evaluate a query branch.", cause);
+            }
+        } finally {
+            //the workers won't start evaluating the branches that are no longer needed
+            forked.forEach(Forked::claim);
+        }
+    }
+
+    @Override public void close() {
+        ExecutorService ex = workers;
+        if (ex != null) {
+            ex.shutdown();
+        }
+    }
+
+    private ExecutorService getWorkers() {
+        ExecutorService ex = workers;
+        if (ex == null) {
+            synchronized (this) {
+                ex = workers;
+                if (ex == null) {
+                    int poolNumber = POOL_COUNTER.incrementAndGet();
+                    AtomicInteger threadCounter = new AtomicInteger();
+                    workers = ex = Executors.newFixedThreadPool(threads, r -> {
+                        Thread t = new Thread(r, "hawkular-inventory-query-" + poolNumber + "-"
+                                + threadCounter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+
+        return ex;
+    }
+
+    /**
+     * A branch handed over to the workers. It is evaluated by whoever claims it first - either a worker or the calling
+     * thread once it needs the result.
+     */
+    private static final class Forked<B, T> {
+        private final B branch;
+        private final Function<B, T> inWorker;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Forked(B branch, Function<B, T> inWorker) {
+            this.branch = branch;
+            this.inWorker = inWorker;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void evaluate() {
+            if (claim()) {
+                try {
+                    result.complete(inWorker.apply(branch));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }
+        }
+
+        T join(Function<B, T> inCaller) throws InterruptedException, ExecutionException {
+            return claim() ? inCaller.apply(branch) : result.get();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.api.Relationships.WellKnown.contains;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataIndex;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataKey;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataType;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataValue_b;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataValue_f;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataValue_i;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataValue_s;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+
+/**
+ * Updates the persisted structured data in place so that it corresponds to the new value. Only the nodes that actually
+ * differ from the new value are modified, removed or added.
+ *
+ * <p>The map entries are matched by their keys, the list items by their position in the list.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+final class StructuredDataUpdater {
+    private static final String[] VALUE_PROPERTIES = {__structuredDataValue_b.name(), __structuredDataValue_i.name(),
+            __structuredDataValue_f.name(), __structuredDataValue_s.name()};
+
+    private final TinkerpopBackend backend;
+    private int mutatedNodes;
+
+    StructuredDataUpdater(TinkerpopBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Updates the tree of structured data starting at the provided root vertex.
+     *
+     * @param root     the root vertex of the persisted structured data
+     * @param newValue the new value to store
+     * @return the number of vertices that were modified, added or removed
+     */
+    int update(Vertex root, StructuredData newValue) {
+        mutatedNodes = 0;
+        updateNode(root, newValue);
+        return mutatedNodes;
+    }
+
+    private void updateNode(Vertex node, StructuredData newValue) {
+        StructuredData.Type oldType = StructuredData.Type.valueOf(node.value(__structuredDataType.name()));
+        StructuredData.Type newType = newValue.getType();
+
+        if (oldType != newType) {
+            if (oldType == StructuredData.Type.list || oldType == StructuredData.Type.map) {
+                children(node).forEach(this::deleteSubtree);
+            }
+            node.property(__structuredDataType.name(), newType.name());
+            setValue(node, newValue);
+            mutatedNodes++;
+
+            if (newType == StructuredData.Type.list || newType == StructuredData.Type.map) {
+                updateChildren(node, newValue);
+            }
+            return;
+        }
+
+        switch (newType) {
+            case list:
+            case map:
+                updateChildren(node, newValue);
+                break;
+            default:
+                String prop = valueProperty(newType);
+                Object oldValue = prop == null ? null : node.property(prop).orElse(null);
+                if (!Objects.equals(oldValue, newValue.getValue())) {
+                    setValue(node, newValue);
+                    mutatedNodes++;
+                }
+        }
+    }
+
+    private void updateChildren(Vertex node, StructuredData newValue) {
+        List<Vertex> children = children(node);
+
+        if (newValue.getType() == StructuredData.Type.list) {
+            List<StructuredData> items = newValue.list();
+            children.sort((a, b) -> Integer.compare(index(a), index(b)));
+
+            int i = 0;
+            for (; i < items.size(); ++i) {
+                if (i < children.size()) {
+                    Vertex child = children.get(i);
+                    if (index(child) != i) {
+                        child.property(__structuredDataIndex.name(), i);
+                        mutatedNodes++;
+                    }
+                    updateNode(child, items.get(i));
+                } else {
+                    addChild(node, items.get(i), i, null);
+                }
+            }
+
+            for (; i < children.size(); ++i) {
+                deleteSubtree(children.get(i));
+            }
+        } else {
+            Map<String, Vertex> childrenByKey = new HashMap<>();
+            children.forEach(c -> childrenByKey.put(c.value(__structuredDataKey.name()), c));
+
+            int i = 0;
+            for (Map.Entry<String, StructuredData> e : newValue.map().entrySet()) {
+                Vertex child = childrenByKey.remove(e.getKey());
+                if (child == null) {
+                    addChild(node, e.getValue(), i, e.getKey());
+                } else {
+                    //maps preserve the insertion order, so we need to keep track of the positions, too
+                    if (index(child) != i) {
+                        child.property(__structuredDataIndex.name(), i);
+                        mutatedNodes++;
+                    }
+                    updateNode(child, e.getValue());
+                }
+                i++;
+            }
+
+            childrenByKey.values().forEach(this::deleteSubtree);
+        }
+    }
+
+    private void addChild(Vertex parent, StructuredData value, int index, String key) {
+        Vertex child = backend.persist(value);
+        child.property(__structuredDataIndex.name(), index);
+        if (key != null) {
+            child.property(__structuredDataKey.name(), key);
+        }
+        backend.relate(parent, child, contains.name(), null);
+
+        mutatedNodes += count(value);
+    }
+
+    private void deleteSubtree(Vertex root) {
+        Iterator<Element> subtree = backend.getTransitiveClosureOver(root, Relationships.Direction.outgoing,
+                contains.name());
+
+        //the closure is evaluated eagerly, so we can modify the graph while iterating
+        while (subtree.hasNext()) {
+            subtree.next().remove();
+            mutatedNodes++;
+        }
+
+        root.remove();
+        mutatedNodes++;
+    }
+
+    private static List<Vertex> children(Vertex node) {
+        List<Vertex> ret = new ArrayList<>();
+        node.vertices(Direction.OUT, contains.name()).forEachRemaining(ret::add);
+        return ret;
+    }
+
+    private static int index(Vertex node) {
+        return node.<Integer>value(__structuredDataIndex.name());
+    }
+
+    static void setValue(Vertex node, StructuredData value) {
+        String prop = valueProperty(value.getType());
+        for (String p : VALUE_PROPERTIES) {
+            if (!p.equals(prop)) {
+                node.property(p).remove();
+            }
+        }
+
+        if (prop != null) {
+            Object val = value.getValue();
+            node.property(prop, prop.equals(__structuredDataValue_s.name()) ? val.toString() : val);
+        }
+    }
+
+    private static String valueProperty(StructuredData.Type type) {
+        switch (type) {
+            case bool:
+                return Constants.Property.__structuredDataValue_b.name();
+            case integral:
+                return Constants.Property.__structuredDataValue_i.name();
+            case floatingPoint:
+                return Constants.Property.__structuredDataValue_f.name();
+            case string:
+                return Constants.Property.__structuredDataValue_s.name();
+            default:
+                return null;
+        }
+    }
+
+    private static int count(StructuredData value) {
+        switch (value.getType()) {
+            case list:
+                return 1 + value.list().stream().mapToInt(StructuredDataUpdater::count).sum();
+            case map:
+                return 1 + value.map().values().stream().mapToInt(StructuredDataUpdater::count).sum();
+            default:
+                return 1;
+        }
+    }
+}
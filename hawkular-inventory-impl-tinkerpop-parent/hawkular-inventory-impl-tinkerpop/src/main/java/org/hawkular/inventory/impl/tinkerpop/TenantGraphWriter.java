@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.api.Relationships.WellKnown.contains;
+import static org.hawkular.inventory.api.Relationships.WellKnown.hasData;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cp;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceCp;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__targetCp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.io.GraphWriter;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.hawkular.inventory.api.EntityNotFoundException;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.paths.CanonicalPath;
+
+/**
+ * Writes the sub-graph of a single tenant, i.e. the tenant vertex and everything it transitively contains (the
+ * entities, their structured data and the identity hash nodes) together with the edges between them. The vertices are
+ * read lazily and written one by one as they are read, so the sub-graph is never held in memory as a whole.
+ *
+ * <p>The output has the same adjacency list form as {@link GraphSONWriter#writeGraph(OutputStream, Graph)} and can be
+ * read back using the corresponding graph readers.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+final class TenantGraphWriter {
+    private final Graph graph;
+    private final GraphExport export;
+    private final String tenantPath;
+    private final String tenantPathPrefix;
+
+    /**
+     * @param graph  the graph with an open transaction to read the data from
+     * @param export the export to report the progress to
+     */
+    TenantGraphWriter(Graph graph, GraphExport export) {
+        this.graph = graph;
+        this.export = export;
+        this.tenantPath = CanonicalPath.of().tenant(export.getTenantId()).get().toString();
+        this.tenantPathPrefix = tenantPath + "/";
+    }
+
+    /**
+     * Writes the sub-graph of the tenant.
+     *
+     * @param out           the output stream to write to
+     * @param closeIterator the function to clean up after the traversals
+     * @throws IOException on failure to write the data
+     * @throws EntityNotFoundException if the tenant doesn't exist
+     */
+    void write(OutputStream out, Consumer<Iterator<?>> closeIterator) throws IOException {
+        GraphTraversal<Vertex, Vertex> tenants = graph.traversal().V().has(__cp.name(), tenantPath)
+                .hasLabel(Constants.Type.tenant.name());
+
+        Vertex tenant;
+        try {
+            if (!tenants.hasNext()) {
+                throw new EntityNotFoundException(Tenant.class, null);
+            }
+            tenant = tenants.next();
+        } finally {
+            closeIterator.accept(tenants);
+        }
+
+        //the contains, hasData and __containsIdentityHash edges form a tree under the tenant, so each vertex of the
+        //sub-graph is emitted exactly once without the need to remember the visited ones
+        GraphTraversal<Vertex, Vertex> subgraph = graph.traversal().V(tenant).emit()
+                .repeat(__.out(contains.name(), hasData.name(),
+                        Constants.InternalEdge.__containsIdentityHash.name()));
+
+        Iterator<Vertex> vertices = new Iterator<Vertex>() {
+            @Override public boolean hasNext() {
+                return subgraph.hasNext();
+            }
+
+            @Override public Vertex next() {
+                export.checkNotCancelled();
+                Vertex v = subgraph.next();
+                export.vertexWritten();
+                return new TenantVertex(v);
+            }
+        };
+
+        try {
+            getWriter().writeVertices(out, vertices, Direction.BOTH);
+            out.flush();
+        } finally {
+            closeIterator.accept(subgraph);
+        }
+    }
+
+    private GraphWriter getWriter() {
+        switch (export.getFormat()) {
+            case GRAPHSON:
+                return GraphSONWriter.build().create();
+            case GRYO:
+                //the graph provides the serializers of its own classes (like the ids), that Gryo needs registered
+                return graph.io(IoCore.gryo()).writer().create();
+            default:
+                throw new IllegalArgumentException("Unsupported graph export format: " + export.getFormat());
+        }
+    }
+
+    /**
+     * The relationships remember the paths of their source and target. The internal edges (to the structured data and
+     * the identity hashes) don't have them but never leave the tenant.
+     */
+    private boolean isExported(Edge edge) {
+        return isInTenant(edge.property(__sourceCp.name())) && isInTenant(edge.property(__targetCp.name()));
+    }
+
+    private boolean isInTenant(Property<Object> path) {
+        if (!path.isPresent()) {
+            return true;
+        }
+
+        String p = path.value().toString();
+        return p.equals(tenantPath) || p.startsWith(tenantPathPrefix);
+    }
+
+    /**
+     * Hides the edges leading out of the tenant (i.e. the relationships with the entities of other tenants) from the
+     * graph writers.
+     */
+    private final class TenantVertex implements Vertex {
+        private final Vertex vertex;
+
+        TenantVertex(Vertex vertex) {
+            this.vertex = vertex;
+        }
+
+        @Override public Iterator<Edge> edges(Direction direction, String... edgeLabels) {
+            return IteratorUtils.filter(vertex.edges(direction, edgeLabels), e -> {
+                if (!isExported(e)) {
+                    return false;
+                }
+
+                //the writers read the edges from both ends, so let's only count them at their source
+                if (direction != Direction.IN && e.outVertex().id().equals(vertex.id())) {
+                    export.edgeWritten();
+                }
+
+                return true;
+            });
+        }
+
+        @Override public Iterator<Vertex> vertices(Direction direction, String... edgeLabels) {
+            return vertex.vertices(direction, edgeLabels);
+        }
+
+        @Override public Edge addEdge(String label, Vertex inVertex, Object... keyValues) {
+            throw new UnsupportedOperationException("The exported vertices are read-only.");
+        }
+
+        @Override public <V> VertexProperty<V> property(VertexProperty.Cardinality cardinality, String key, V value,
+                                                        Object... keyValues) {
+            throw new UnsupportedOperationException("The exported vertices are read-only.");
+        }
+
+        @Override public <V> Iterator<VertexProperty<V>> properties(String... propertyKeys) {
+            return vertex.properties(propertyKeys);
+        }
+
+        @Override public Object id() {
+            return vertex.id();
+        }
+
+        @Override public String label() {
+            return vertex.label();
+        }
+
+        @Override public Graph graph() {
+            return vertex.graph();
+        }
+
+        @Override public void remove() {
+            throw new UnsupportedOperationException("The exported vertices are read-only.");
+        }
+
+        @Override public boolean equals(Object o) {
+            return vertex.equals(o instanceof TenantVertex ? ((TenantVertex) o).vertex : o);
+        }
+
+        @Override public int hashCode() {
+            return vertex.hashCode();
+        }
+
+        @Override public String toString() {
+            return vertex.toString();
+        }
+    }
+}
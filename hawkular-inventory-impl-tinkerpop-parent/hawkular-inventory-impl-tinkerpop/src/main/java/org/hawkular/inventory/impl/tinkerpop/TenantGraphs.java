@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+
+/**
+ * Holds the graphs of the individual tenants when each tenant has its data stored in a separate graph. The graph of
+ * a tenant is opened when the tenant is first accessed and closed again after it has not been used for the configured
+ * idle time, so that only the graphs of the active tenants hold the resources.
+ *
+ * <p>The graph of a tenant is never closed while there are transactions running in it. Each start of a transaction
+ * needs to {@link #acquire(String) acquire} the graph and each end of it {@link #release(String) release} it.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+final class TenantGraphs implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final Function<String, Graph> opener;
+    private final long idleTimeout;
+    private final Map<String, Entry> graphs = new HashMap<>();
+    private volatile ScheduledExecutorService reaper;
+    private boolean closed;
+
+    /**
+     * @param opener      the function to open the graph of the tenant with given id
+     * @param idleTimeout the time in milliseconds after which an unused graph is closed, 0 to never close them
+     */
+    TenantGraphs(Function<String, Graph> opener, long idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("The idle timeout of the tenant graphs must not be negative.");
+        }
+        this.opener = opener;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the graph of the tenant without keeping it {@link #acquire(String) acquired}. The graph may be closed
+     * once it is idle for the configured time, so this is only suitable for short operations outside of transactions.
+     *
+     * @param tenantId the id of the tenant
+     * @return the graph of the tenant
+     */
+    Graph get(String tenantId) {
+        Graph ret = acquire(tenantId);
+        release(tenantId);
+        return ret;
+    }
+
+    /**
+     * Returns the graph of the tenant, opening it if needed, and makes sure it is not closed until it is
+     * {@link #release(String) released}.
+     *
+     * @param tenantId the id of the tenant
+     * @return the graph of the tenant
+     */
+    Graph acquire(String tenantId) {
+        Entry entry;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The tenant graphs have already been closed.");
+            }
+
+            entry = graphs.get(tenantId);
+            if (entry == null) {
+                entry = new Entry();
+                graphs.put(tenantId, entry);
+            }
+            entry.users++;
+            entry.lastUse = System.currentTimeMillis();
+        }
+
+        try {
+            //open the graph outside of the global lock so that opening the graph of one tenant doesn't block the
+            //others
+            synchronized (entry) {
+                if (entry.graph == null) {
+                    entry.graph = opener.apply(tenantId);
+                    ensureReaper();
+                }
+                return entry.graph;
+            }
+        } catch (Throwable t) {
+            release(tenantId);
+            throw t;
+        }
+    }
+
+    /**
+     * Marks the end of the use of the graph of the tenant previously {@link #acquire(String) acquired}.
+     *
+     * @param tenantId the id of the tenant
+     */
+    synchronized void release(String tenantId) {
+        Entry entry = graphs.get(tenantId);
+        if (entry == null) {
+            return;
+        }
+
+        entry.users--;
+        entry.lastUse = System.currentTimeMillis();
+        if (entry.users == 0 && entry.graph == null) {
+            //the opening failed
+            graphs.remove(tenantId);
+        }
+    }
+
+    /**
+     * @return the number of the currently open tenant graphs
+     */
+    synchronized int size() {
+        return graphs.size();
+    }
+
+    /**
+     * Closes the graphs that are not used and have not been used for longer than the idle time.
+     *
+     * <p>The entry of a graph stays in place while the graph is being closed so that a concurrent
+     * {@link #acquire(String)} waits for the close to finish and only then opens the graph again instead of opening
+     * a second instance of it alongside the one being closed.
+     */
+    void closeIdle() {
+        long threshold = System.currentTimeMillis() - idleTimeout;
+        Map<String, Entry> idle = new HashMap<>();
+        synchronized (this) {
+            graphs.forEach((tenantId, entry) -> {
+                if (isIdle(entry, threshold)) {
+                    idle.put(tenantId, entry);
+                }
+            });
+        }
+
+        idle.forEach((tenantId, entry) -> {
+            synchronized (entry) {
+                synchronized (this) {
+                    //the graph might have been acquired again before we got the lock on the entry
+                    if (!isIdle(entry, threshold)) {
+                        return;
+                    }
+                }
+
+                close(tenantId, entry);
+            }
+
+            synchronized (this) {
+                if (entry.users == 0 && entry.graph == null && graphs.get(tenantId) == entry) {
+                    graphs.remove(tenantId);
+                }
+            }
+        });
+    }
+
+    @Override public void close() {
+        List<Map.Entry<String, Entry>> all;
+        synchronized (this) {
+            closed = true;
+            all = new ArrayList<>(graphs.entrySet());
+            graphs.clear();
+        }
+
+        ScheduledExecutorService ex = reaper;
+        if (ex != null) {
+            ex.shutdown();
+        }
+
+        all.forEach(e -> close(e.getKey(), e.getValue()));
+    }
+
+    private static boolean isIdle(Entry entry, long threshold) {
+        return entry.users == 0 && entry.graph != null && entry.lastUse < threshold;
+    }
+
+    private void close(String tenantId, Entry entry) {
+        synchronized (entry) {
+            if (entry.graph == null) {
+                return;
+            }
+
+            try {
+                entry.graph.close();
+            } catch (Exception e) {
+                Log.LOG.wFailedToCloseTenantGraph(tenantId, e);
+            } finally {
+                entry.graph = null;
+            }
+        }
+    }
+
+    private void ensureReaper() {
+        if (idleTimeout == 0 || reaper != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (reaper == null && !closed) {
+                int poolNumber = POOL_COUNTER.incrementAndGet();
+                AtomicInteger threadCounter = new AtomicInteger();
+                ScheduledExecutorService ex = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "hawkular-inventory-tenant-graphs-" + poolNumber + "-"
+                            + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+                long period = Math.max(1, idleTimeout / 2);
+                ex.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.MILLISECONDS);
+                reaper = ex;
+            }
+        }
+    }
+
+    private static final class Entry {
+        volatile Graph graph;
+        int users;
+        long lastUse;
+    }
+}
@@ -17,6 +17,7 @@
 package org.hawkular.inventory.impl.tinkerpop;
 
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import static org.hawkular.inventory.api.Relationships.Direction.incoming;
@@ -28,6 +29,11 @@ import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__eid
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceCp;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceEid;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceType;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataBlob;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataIndex;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataIndexEntry;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataKey;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__structuredDataType;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__targetCp;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__targetEid;
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__targetType;
@@ -35,17 +41,18 @@ import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__typ
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Type.relationship;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -54,10 +61,11 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import org.apache.tinkerpop.gremlin.process.traversal.P;
 import org.apache.tinkerpop.gremlin.process.traversal.Scope;
-import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
 import org.apache.tinkerpop.gremlin.structure.Direction;
@@ -66,8 +74,9 @@ import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Property;
 import org.apache.tinkerpop.gremlin.structure.T;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
-import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
 import org.hawkular.inventory.api.EntityNotFoundException;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.filters.Filter;
@@ -105,6 +114,7 @@ import org.hawkular.inventory.base.spi.ShallowStructuredData;
 import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
 import org.hawkular.inventory.paths.CanonicalPath;
 import org.hawkular.inventory.paths.DataRole;
+import org.hawkular.inventory.paths.Path;
 import org.hawkular.inventory.paths.RelativePath;
 import org.hawkular.inventory.paths.SegmentType;
 
@@ -114,9 +124,15 @@ import org.hawkular.inventory.paths.SegmentType;
  */
 final class TinkerpopBackend implements InventoryBackend<Element> {
     private final InventoryContext context;
+    private final boolean readOnly;
 
     public TinkerpopBackend(InventoryContext context) {
+        this(context, false);
+    }
+
+    private TinkerpopBackend(InventoryContext context, boolean readOnly) {
         this.context = context;
+        this.readOnly = readOnly;
     }
 
     @Override public boolean isUniqueIndexSupported() {
@@ -127,11 +143,34 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return context.isPreferringBigTransactions();
     }
 
+    /**
+     * @param tenantId the id of the tenant
+     * @return a backend working with the graph of the tenant if the tenants have separate graphs, or this backend
+     * otherwise
+     * @see TinkerpopInventory#TENANT_GRAPHS
+     */
+    TinkerpopBackend forTenant(String tenantId) {
+        InventoryContext tenantContext = context.forTenant(tenantId);
+        return tenantContext == context ? this : new TinkerpopBackend(tenantContext, readOnly);
+    }
+
+    /**
+     * @return the id of the tenant whose graph this backend works with or null if it works with the shared graph
+     */
+    @Override public String getStorePartition() {
+        return context.getTenantId();
+    }
+
     @Override
     public InventoryBackend<Element> startTransaction() {
         return new TinkerpopBackend(context.cloneWith(context.startTransaction()));
     }
 
+    @Override
+    public InventoryBackend<Element> startReadOnlyTransaction() {
+        return new TinkerpopBackend(context.cloneWith(context.startReadOnlyTransaction()), true);
+    }
+
     @Override
     public Element find(CanonicalPath path) throws ElementNotFoundException {
         Iterator<? extends Element> it;
@@ -153,10 +192,14 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
     @SuppressWarnings("unchecked")
     @Override
     public Page<Element> traverse(Element startingPoint, Query query, Pager pager) {
-        GraphTraversal<?, ? extends Element> q = translate(startingPoint, query);
+        GraphTraversal<?, ? extends Element> q = translateOrEvaluateBranches(startingPoint, query);
 
         Log.LOG.debugf("Query execution (starting at %s):\nquery:\n%s\n\npipeline:\n%s", startingPoint, query, q);
 
+        if (pager.isKeyset()) {
+            return keysetPage(q, pager, Function.identity(), null);
+        }
+
         return page(q, pager, Function.identity());
     }
 
@@ -180,6 +223,103 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return traverseToSingle(null, query);
     }
 
+    /**
+     * Translates the query to a traversal. If the query branches, this is a read-only transaction and the concurrent
+     * evaluation of the branches is switched on, the branches are instead evaluated separately and the returned
+     * traversal merely goes through the merged results. The results of the branches are merged in the order of the
+     * branches with the duplicates removed.
+     *
+     * <p>The first branch is evaluated in this transaction. Only as many of the other branches are evaluated
+     * concurrently, each in its own read-only transaction, as there are transactions that can be started without
+     * waiting for the resources held by the running ones (e.g. the pooled connections). The rest is evaluated in this
+     * transaction, too. Otherwise the queries holding their transactions while waiting for their branches could
+     * starve the branches of the resources.
+     */
+    private GraphTraversal<?, ? extends Element> translateOrEvaluateBranches(Element startingPoint, Query query) {
+        QueryBranchExecutor executor = context.getBranchExecutor();
+        if (executor == null || !readOnly) {
+            return translate(startingPoint, query);
+        }
+
+        List<Query> branches = query.splitAtFirstBranch();
+        if (branches.size() < 2) {
+            return translate(startingPoint, query);
+        }
+
+        Log.LOG.debugf("Evaluating %d branches of the query concurrently:\nquery:\n%s", branches.size(), query);
+
+        Set<ElementRef> merged = new LinkedHashSet<>();
+        executor.evaluate(branches, context.getConcurrentReadCapacity(), b -> evaluateBranch(startingPoint, b),
+                b -> evaluateBranchInline(startingPoint, b)).forEach(merged::addAll);
+
+        return context.getGraph().traversal().inject(load(merged));
+    }
+
+    /**
+     * Evaluates a query branch in a new read-only transaction of the current thread. Only the ids of the results
+     * are returned, because the elements themselves are bound to the transaction.
+     */
+    private List<ElementRef> evaluateBranch(Element startingPoint, Query branch) {
+        context.startReadOnlyTransaction();
+        try {
+            Element start = null;
+            if (startingPoint != null) {
+                Element[] found = load(Collections.singleton(new ElementRef(startingPoint)));
+                if (found.length == 0) {
+                    return Collections.emptyList();
+                }
+                start = found[0];
+            }
+
+            return evaluateBranchInline(start, branch);
+        } finally {
+            context.rollback();
+        }
+    }
+
+    /**
+     * Evaluates a query branch in the current transaction. Only the ids of the results are returned, so that they
+     * can be merged with the results of the branches evaluated in other transactions.
+     */
+    private List<ElementRef> evaluateBranchInline(Element startingPoint, Query branch) {
+        GraphTraversal<?, ? extends Element> q = translate(startingPoint, branch);
+        return drainAfter(q, () -> {
+            List<ElementRef> ret = new ArrayList<>();
+            q.forEachRemaining(e -> ret.add(new ElementRef(e)));
+            return ret;
+        });
+    }
+
+    /**
+     * Loads the referenced elements in the current transaction. The elements that no longer exist are left out.
+     */
+    private Element[] load(Collection<ElementRef> refs) {
+        List<Object> vertexIds = new ArrayList<>();
+        List<Object> edgeIds = new ArrayList<>();
+        refs.forEach(r -> (r.vertex ? vertexIds : edgeIds).add(r.id));
+
+        Map<Object, Element> vertices = new HashMap<>();
+        if (!vertexIds.isEmpty()) {
+            Iterator<Vertex> it = context.getGraph().vertices(vertexIds.toArray());
+            closeAfter(it, () -> {
+                it.forEachRemaining(v -> vertices.put(v.id(), v));
+                return null;
+            });
+        }
+
+        Map<Object, Element> edges = new HashMap<>();
+        if (!edgeIds.isEmpty()) {
+            Iterator<Edge> it = context.getGraph().edges(edgeIds.toArray());
+            closeAfter(it, () -> {
+                it.forEachRemaining(e -> edges.put(e.id(), e));
+                return null;
+            });
+        }
+
+        return refs.stream().map(r -> (r.vertex ? vertices : edges).get(r.id)).filter(Objects::nonNull)
+                .toArray(Element[]::new);
+    }
+
     private GraphTraversal<?, ? extends Element> translate(Element startingPoint, Query query) {
         GraphTraversal<?, ? extends Element> q;
 
@@ -188,7 +328,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
             if (first instanceof RelationFilter) {
                 q = context.getGraph().traversal().E();
-            } else if (first instanceof With.CanonicalPaths) {
+            } else if (first instanceof With.CanonicalPaths && ((With.CanonicalPaths) first).getPaths().length > 0) {
                 //XXX this does NOT handle the situation where we mix relationships and entities in one filter
                 SegmentType elementType = ((With.CanonicalPaths) first).getPaths()[0].getSegment().getElementType();
                 if (SegmentType.rl == elementType) {
@@ -214,13 +354,17 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
     public <T> Page<T> query(Query query, Pager pager,
             Function<Element, T> conversion, Function<T, Boolean> filter) {
 
-        GraphTraversal<?, ? extends Element> q = translate(null, query);
+        GraphTraversal<?, ? extends Element> q = translateOrEvaluateBranches(null, query);
 
         //XXX this probably would be more efficient as a proper pipe
         q.filter(e -> !isBackendInternal(e.get()));
 
         Log.LOG.debugf("Query execution:\nquery:\n%s\n\npipeline:\n%s", query, q);
 
+        if (pager.isKeyset()) {
+            return keysetPage(q, pager, conversion, filter);
+        }
+
         if (filter == null) {
             return page(q, pager, conversion);
         } else {
@@ -237,6 +381,56 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         }
     }
 
+    @Override
+    public long count(Query query) {
+        GraphTraversal<?, ? extends Element> q = withoutBackendInternals(translate(null, query));
+
+        Log.LOG.debugf("Count execution:\nquery:\n%s\n\npipeline:\n%s", query, q);
+
+        return q.count().next();
+    }
+
+    @Override
+    public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+        GraphTraversal<?, ? extends Element> q = withoutBackendInternals(translate(null, query));
+
+        GraphTraversal<?, ? extends Map<?, Long>> grouped;
+        switch (groupBy.getKind()) {
+            case entityType:
+                //edges don't have the type property
+                grouped = q.groupCount().by(__.coalesce(__.values(__type.name()), __.constant(relationship.name())));
+                break;
+            case relationshipName:
+                grouped = q.groupCount().by(T.label);
+                break;
+            case property:
+                String property = Constants.Property.mapUserDefined(groupBy.getPropertyName());
+                grouped = q.has(property).groupCount().by(property);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported grouping: " + groupBy);
+        }
+
+        Log.LOG.debugf("Group count execution:\nquery:\n%s\n\npipeline:\n%s", query, grouped);
+
+        Map<?, Long> counts;
+        if (grouped.hasNext()) {
+            counts = grouped.next();
+        } else {
+            counts = Collections.emptyMap();
+        }
+
+        Map<Object, Long> ret = new HashMap<>();
+        if (groupBy.getKind() == GroupBy.Kind.entityType) {
+            counts.forEach((type, cnt) -> ret.merge(Constants.Type.valueOf((String) type).getEntityType(), cnt,
+                    Long::sum));
+        } else {
+            ret.putAll(counts);
+        }
+
+        return ret;
+    }
+
     @Override
     public Iterator<Element> getTransitiveClosureOver(Element startingPoint, Relationships.Direction direction,
                                                       String... relationshipNames) {
@@ -263,32 +457,85 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         }
     }
 
+    @Override
+    public <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint,
+                                                     Relationships.Direction direction, Class<T> projection,
+                                                     int maxDepth, String... relationshipNames) {
+        Element startingElement;
+        try {
+            startingElement = find(startingPoint);
+        } catch (ElementNotFoundException e) {
+            throw new EntityNotFoundException(startingPoint.getSegment().getElementType(), null);
+        }
+
+        if (!(startingElement instanceof Vertex)) {
+            return Stream.empty();
+        }
+
+        Vertex start = (Vertex) startingElement;
+
+        //dedup() inside the loop makes sure we visit each vertex only once (which also guarantees termination in
+        //case of cycles)
+        GraphTraversal<Vertex, Vertex> closure = context.getGraph().traversal().V(start)
+                .repeat(closureStep(direction, relationshipNames).dedup()).emit();
+
+        if (maxDepth > 0) {
+            closure = closure.times(maxDepth);
+        }
+
+        closure = closure.is(P.neq(start));
+
+        Function<Vertex, T> convert = CanonicalPath.class.equals(projection)
+                ? v -> projection.cast(extractCanonicalPath(v))
+                : v -> convert(v, projection);
+
+        GraphTraversal<Vertex, Vertex> results = closure;
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED
+                | Spliterator.NONNULL | Spliterator.DISTINCT), false)
+                .map(convert)
+                .onClose(() -> closeIfNeeded(results));
+    }
+
     @SuppressWarnings("unchecked")
     private List<Element> getTransitiveClosureOverImpl(Element startingPoint, Relationships.Direction direction,
                                                        String... relationshipNames) {
         if (!(startingPoint instanceof Vertex)) {
             return emptyList();
         } else {
-            GraphTraversal<?, ? extends Element> loop;
-
-            switch (direction) {
-                case incoming:
-                    loop = __.in(relationshipNames);
-                    break;
-                case outgoing:
-                    loop = __.out(relationshipNames);
-                    break;
-                case both:
-                    loop = __.both(relationshipNames);
-                    break;
-                default:
-                    throw new IllegalStateException("Unhandled traversal direction: " + direction);
-            }
-
             //toList() is important as it ensures eager evaluation of the closure - the callers might modify the
             //conditions for the evaluation during the iteration which would skew the results.
             return (List<Element>) (List) context.getGraph().traversal().V((Vertex) startingPoint)
-                    .repeat((Traversal<?, Vertex>) loop).emit().toList();
+                    .repeat(closureStep(direction, relationshipNames)).emit().toList();
+        }
+    }
+
+    @Override
+    public boolean isReachable(Element startingPoint, Relationships.Direction direction, String relationshipName,
+                               Element target) {
+        if (!(startingPoint instanceof Vertex) || !(target instanceof Vertex)) {
+            return false;
+        }
+
+        //the dedup() inside the loop guarantees termination even if there is a cycle in the graph not including
+        //the target and limit(1) stops the traversal on the first hit
+        GraphTraversal<Vertex, Vertex> reach = context.getGraph().traversal().V((Vertex) startingPoint)
+                .repeat(closureStep(direction, relationshipName).dedup()).until(__.is(target)).limit(1);
+
+        return drainAfter(reach, reach::hasNext);
+    }
+
+    private static GraphTraversal<Vertex, Vertex> closureStep(Relationships.Direction direction,
+                                                              String... relationshipNames) {
+        switch (direction) {
+            case incoming:
+                return __.in(relationshipNames);
+            case outgoing:
+                return __.out(relationshipNames);
+            case both:
+                return __.both(relationshipNames);
+            default:
+                throw new IllegalStateException("Unhandled traversal direction: " + direction);
         }
     }
 
@@ -700,6 +947,42 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         });
     }
 
+    @Override
+    public StructuredData loadData(Element dataEntityRepresentation, RelativePath dataPath, boolean shallow) {
+        Element dataElement = descendToData(dataEntityRepresentation, dataPath);
+        if (dataElement != null) {
+            return shallow ? convert(dataElement, ShallowStructuredData.class).getData()
+                    : convert(dataElement, StructuredData.class);
+        }
+
+        if (!(dataEntityRepresentation instanceof Vertex)) {
+            return null;
+        }
+
+        //the path might not be indexed in the compactly stored data
+        StructuredData data = loadCompactData((Vertex) dataEntityRepresentation, dataPath);
+        return data == null || !shallow ? data : CompactStructuredData.shallow(data);
+    }
+
+    private StructuredData loadCompactData(Vertex dataEntity, RelativePath dataPath) {
+        Iterator<Vertex> it = dataEntity.vertices(Direction.OUT, hasData.name());
+        Vertex root = closeAfter(it, () -> it.hasNext() ? it.next() : null);
+        if (root == null || !root.property(__structuredDataBlob.name()).isPresent()) {
+            return null;
+        }
+
+        List<String> path = new ArrayList<>();
+        for (Path.Segment seg : dataPath.getPath()) {
+            if (SegmentType.up.equals(seg.getElementType())) {
+                return null;
+            }
+            path.add(seg.getElementId());
+        }
+
+        return CompactStructuredData.navigate(CompactStructuredData.decode(root.value(__structuredDataBlob.name())),
+                path);
+    }
+
     @Override
     public Element relate(Element sourceEntity, Element targetEntity, String name, Map<String, Object> properties) {
         if (name == null) {
@@ -714,6 +997,14 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
             throw new IllegalArgumentException("Target not a vertex.");
         }
 
+        Edge e = addEdge((Vertex) sourceEntity, (Vertex) targetEntity, name, properties);
+
+        assignIdentity(e);
+
+        return e;
+    }
+
+    private Edge addEdge(Vertex sourceEntity, Vertex targetEntity, String name, Map<String, Object> properties) {
         Map<String, Object> props = properties == null ? Collections.emptyMap() : properties;
 
         Object[] keyValues = asKeyValues(props,
@@ -724,13 +1015,13 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                 __sourceEid.name(), sourceEntity.property(__eid.name()).orElse(null),
                 __targetEid.name(), targetEntity.property(__eid.name()).orElse(null));
 
-        Edge e = ((Vertex) sourceEntity).addEdge(name, (Vertex) targetEntity, keyValues);
+        return sourceEntity.addEdge(name, targetEntity, keyValues);
+    }
 
+    private static void assignIdentity(Edge e) {
         //these need the ID of the edge, so we need to set the props after the edge has been created
         e.property(__eid.name(), e.id().toString());
         e.property(__cp.name(), CanonicalPath.of().relationship(e.id().toString()).get().toString());
-
-        return e;
     }
 
     private void setNonNullProperty(Element el, String propertyName, Object propertyValue) {
@@ -839,6 +1130,26 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
     @Override
     public Vertex persist(StructuredData structuredData) {
+        if (context.isCompactStructuredData()) {
+            return persistCompact(structuredData);
+        }
+
+        //structured data can easily consist of thousands of nodes, so let's try to insert them all in one go.
+        //The IDs of the edges are only known after the batch is flushed, so we need to assign the edge identities
+        //only after that.
+        boolean batch = context.startBatch();
+        try {
+            return persistNodes(structuredData, batch);
+        } finally {
+            if (batch) {
+                context.endBatch();
+            }
+        }
+    }
+
+    private Vertex persistNodes(StructuredData structuredData, boolean batch) {
+        List<Edge> edgesWithoutIdentity = new ArrayList<>();
+
         Vertex thisVertex = context.getGraph().addVertex(Constants.Type.structuredData.name());
 
         Pair<Vertex, Vertex> parentAndCurrent = new Pair<>(null, thisVertex);
@@ -930,12 +1241,22 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
             private void relateToParent() {
                 if (parentAndCurrent.first != null) {
-                    relate(parentAndCurrent.first, parentAndCurrent.second, Relationships.WellKnown.contains.name(),
-                            null);
+                    Edge e = addEdge(parentAndCurrent.first, parentAndCurrent.second,
+                            Relationships.WellKnown.contains.name(), null);
+                    if (batch) {
+                        edgesWithoutIdentity.add(e);
+                    } else {
+                        assignIdentity(e);
+                    }
                 }
             }
         }, structuredData);
 
+        if (batch) {
+            context.flushBatch();
+            edgesWithoutIdentity.forEach(TinkerpopBackend::assignIdentity);
+        }
+
         return thisVertex;
     }
 
@@ -1006,25 +1327,37 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                 common(data.getName(), data.getProperties(), DataEntity.class);
 
                 Vertex v = (Vertex) entity;
-                Vertex dataVertex = v.vertices(Direction.OUT, Relationships.WellKnown.hasData.name())
-                        .next();
-
-                Iterator<Element> children = getTransitiveClosureOver(dataVertex,
-                        Relationships.Direction.outgoing, Relationships.WellKnown.contains.name());
-
-                while (children.hasNext()) {
-                    Vertex c = (Vertex) children.next();
-                    c.remove();
-                }
-                dataVertex.remove();
 
                 StructuredData dataValue = data.getValue();
                 if (dataValue == null) {
                     dataValue = StructuredData.get().undefined();
                 }
-                Element newData = persist(dataValue);
 
-                relate(v, newData, Relationships.WellKnown.hasData.name(), null);
+                Iterator<Vertex> dataVertices = v.vertices(Direction.OUT, Relationships.WellKnown.hasData.name());
+                Vertex dataVertex = closeAfter(dataVertices, () -> dataVertices.hasNext() ? dataVertices.next()
+                        : null);
+
+                if (dataVertex == null) {
+                    Element newData = persist(dataValue);
+                    relate(v, newData, Relationships.WellKnown.hasData.name(), null);
+                    return null;
+                }
+
+                if (context.isCompactStructuredData() || dataVertex.property(__structuredDataBlob.name())
+                        .isPresent()) {
+                    //the compact form is cheap to rewrite and the index entries are easier to recreate than to diff
+                    deleteStructuredData(dataVertex);
+                    Element newData = persist(dataValue);
+                    relate(v, newData, Relationships.WellKnown.hasData.name(), null);
+                    return null;
+                }
+
+                //rewriting the whole tree is very expensive for large data, so only update what has changed
+                int mutatedNodes = new StructuredDataUpdater(TinkerpopBackend.this).update(dataVertex, dataValue);
+
+                Log.LOG.debugf("Updated %d structured data nodes of %s", mutatedNodes,
+                        v.property(__cp.name()).orElse(null));
+
                 return null;
             }
 
@@ -1103,6 +1436,21 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
     @Override
     public void close() throws Exception {
+        if (context.getTenantId() != null) {
+            //the graphs of the tenants are shared by all the backends and closed with the main one
+            return;
+        }
+
+        QueryBranchExecutor executor = context.getBranchExecutor();
+        if (executor != null) {
+            executor.close();
+        }
+
+        TenantGraphs tenantGraphs = context.getTenantGraphs();
+        if (tenantGraphs != null) {
+            tenantGraphs.close();
+        }
+
         context.getGraph().close();
     }
 
@@ -1114,6 +1462,80 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return context.isTransactionRetryWarranted(t);
     }
 
+    /**
+     * Stores the whole structured data serialized in a single vertex. Only the values on the configured indexed paths
+     * are stored as separate (index entry) vertices so that they can be found using the data filters.
+     */
+    private Vertex persistCompact(StructuredData structuredData) {
+        Vertex root = context.getGraph().addVertex(T.label, Constants.Type.structuredData.name(),
+                __type.name(), Constants.Type.structuredData.name(),
+                __structuredDataType.name(), structuredData.getType().name(),
+                __structuredDataBlob.name(), CompactStructuredData.encode(structuredData));
+
+        for (List<String> path : context.getIndexedDataPaths()) {
+            Vertex parent = root;
+            StructuredData current = structuredData;
+
+            for (String seg : path) {
+                StructuredData child;
+                Integer index;
+                String key;
+
+                if (current.getType() == StructuredData.Type.map) {
+                    child = current.map().get(seg);
+                    index = new ArrayList<>(current.map().keySet()).indexOf(seg);
+                    key = seg;
+                } else if (current.getType() == StructuredData.Type.list) {
+                    index = CompactStructuredData.toIndex(seg);
+                    child = index == null || index >= current.list().size() ? null : current.list().get(index);
+                    key = null;
+                } else {
+                    child = null;
+                    index = null;
+                    key = null;
+                }
+
+                if (child == null) {
+                    break;
+                }
+
+                Vertex entry = findIndexEntry(parent, key, index);
+                if (entry == null) {
+                    entry = context.getGraph().addVertex(T.label, Constants.Type.structuredData.name(),
+                            __type.name(), Constants.Type.structuredData.name(),
+                            __structuredDataType.name(), child.getType().name(),
+                            __structuredDataIndex.name(), index,
+                            __structuredDataIndexEntry.name(), true);
+                    if (key != null) {
+                        entry.property(__structuredDataKey.name(), key);
+                    }
+                    StructuredDataUpdater.setValue(entry, child);
+                    relate(parent, entry, contains.name(), null);
+                }
+
+                parent = entry;
+                current = child;
+            }
+        }
+
+        return root;
+    }
+
+    private Vertex findIndexEntry(Vertex parent, String key, Integer index) {
+        Iterator<Vertex> it = parent.vertices(Direction.OUT, contains.name());
+        return closeAfter(it, () -> {
+            while (it.hasNext()) {
+                Vertex v = it.next();
+                if (key == null ? (!v.property(__structuredDataKey.name()).isPresent()
+                        && index.equals(v.property(__structuredDataIndex.name()).orElse(null)))
+                        : key.equals(v.property(__structuredDataKey.name()).orElse(null))) {
+                    return v;
+                }
+            }
+            return null;
+        });
+    }
+
     private StructuredData loadStructuredData(Vertex owner, Relationships.WellKnown owningEdge) {
         Iterator<Vertex> it = owner.vertices(Direction.OUT, owningEdge.name());
         if (!it.hasNext()) {
@@ -1125,6 +1547,12 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
     }
 
     private StructuredData loadStructuredData(Vertex root, boolean recurse) {
+        if (root.property(__structuredDataBlob.name()).isPresent()
+                || root.property(__structuredDataIndexEntry.name()).isPresent()) {
+            StructuredData data = loadCompactStructuredData(root);
+            return recurse ? data : CompactStructuredData.shallow(data);
+        }
+
         StructuredData.Type type = StructuredData.Type.valueOf((String) root.property(
                 Constants.Property.__structuredDataType.name()).value());
 
@@ -1160,6 +1588,24 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         }
     }
 
+    private StructuredData loadCompactStructuredData(Vertex vertex) {
+        //the index entries only mirror the data stored in the blob of the root, so let's find it and read from there
+        LinkedList<String> path = new LinkedList<>();
+        Vertex root = vertex;
+        while (root.property(__structuredDataIndexEntry.name()).isPresent()) {
+            path.addFirst(root.property(__structuredDataKey.name()).isPresent()
+                    ? root.<String>value(__structuredDataKey.name())
+                    : root.value(__structuredDataIndex.name()).toString());
+
+            Iterator<Vertex> parents = root.vertices(Direction.IN, contains.name());
+            root = closeAfter(parents, parents::next);
+        }
+
+        StructuredData data = CompactStructuredData.decode(root.value(__structuredDataBlob.name()));
+
+        return CompactStructuredData.navigate(data, path);
+    }
+
     private void loadStructuredDataList(Vertex root, StructuredData.AbstractListBuilder<?> bld) {
         Comparator<Vertex> orderFn = (a, b) -> {
             Integer idxA = (Integer) a.property(Constants.Property.__structuredDataIndex.name()).value();
@@ -1315,6 +1761,15 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         });
     }
 
+    /**
+     * Filters out the vertices and edges the backend uses internally (e.g. for the identity hash lookups).
+     */
+    private static <S, E extends Element> GraphTraversal<S, E> withoutBackendInternals(GraphTraversal<S, E> q) {
+        return q.not(__.hasLabel(Constants.InternalType.__identityHash.name(),
+                Constants.InternalEdge.__withIdentityHash.name(),
+                Constants.InternalEdge.__containsIdentityHash.name()));
+    }
+
     /**
      * Gets the type of the entity that the provided vertex represents.
      */
@@ -1335,16 +1790,18 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                 : Direction.BOTH);
     }
 
-    public InputStream getGraphSON(String tenantId) {
-        PipedInputStream in = new PipedInputStream();
-        new Thread(() -> {
-            try (PipedOutputStream out = new PipedOutputStream(in)) {
-                GraphSONWriter.build().create().writeGraph(out, context.getGraph());
-            } catch (IOException e) {
-                throw new IllegalStateException("Unable to create the GraphSON dump.", e);
-            }
-        }).start();
-        return in;
+    @Override
+    public void writeGraph(GraphExport export, OutputStream out) throws IOException {
+        //the main backend exports the tenant from its own graph if the tenants are stored separately
+        InventoryContext tenantContext = context.getTenantId() == null
+                ? context.forTenant(export.getTenantId()) : context;
+
+        InventoryContext tx = tenantContext.cloneWith(tenantContext.startReadOnlyTransaction());
+        try {
+            new TenantGraphWriter(tx.getGraph(), export).write(out, this::closeIfNeeded);
+        } finally {
+            tx.rollback();
+        }
     }
 
     private void drainIfNeeded(GraphTraversal<?, ?> pipeline) {
@@ -1375,6 +1832,32 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return ret;
     }
 
+    /**
+     * A reference to a vertex or an edge that is not bound to any transaction.
+     */
+    private static final class ElementRef {
+        final boolean vertex;
+        final Object id;
+
+        ElementRef(Element element) {
+            this.vertex = element instanceof Vertex;
+            this.id = element.id();
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ElementRef)) return false;
+
+            ElementRef that = (ElementRef) o;
+
+            return vertex == that.vertex && id.equals(that.id);
+        }
+
+        @Override public int hashCode() {
+            return 31 * Boolean.hashCode(vertex) + id.hashCode();
+        }
+    }
+
     private static final class Pair<F, S> {
         public F first;
         public S second;
@@ -1408,6 +1891,60 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return new Page<>(results.stream().map(transform).iterator(), pager, total);
     }
 
+    /**
+     * Keyset based paging doesn't skip over the preceding results but rather only selects the elements that come
+     * after the last element of the previous page in the ordering. The ordering is therefore always "stabilized" by
+     * the canonical path of the elements and at most 1 specific ordering field is supported.
+     *
+     * <p>The total number of results is not computed (because that would defeat the purpose of not going over all
+     * the preceding results) and therefore is reported as -1.
+     *
+     * <p>Note that the result filter is applied only after the page is determined, so the page can contain fewer
+     * elements than the page size even if there are more results to come.
+     */
+    private <T> Page<T> keysetPage(GraphTraversal<?, ? extends Element> traversal, Pager pager,
+                                   Function<Element, T> conversion, Function<T, Boolean> filter) {
+        List<Order> specific = pager.getOrder().stream().filter(Order::isSpecific).collect(toList());
+        if (specific.size() > 1) {
+            throw new IllegalArgumentException("Keyset based paging supports ordering by at most 1 field.");
+        }
+
+        String property = specific.isEmpty() ? __cp.name() : Constants.Property.mapUserDefined(specific.get(0)
+                .getField());
+        Order.Direction direction = specific.isEmpty() ? Order.Direction.ASCENDING : specific.get(0).getDirection();
+        boolean ascending = direction == Order.Direction.ASCENDING;
+
+        if (pager.getContinuationToken() != null) {
+            ContinuationToken.parse(pager.getContinuationToken(), property).applyTo(traversal, ascending);
+        }
+
+        traversal.order().by(property, toTinkerpopOrder(direction));
+        if (!__cp.name().equals(property)) {
+            traversal.by(__cp.name(), toTinkerpopOrder(direction));
+        }
+
+        if (pager.isLimited()) {
+            //fetch 1 more to find out if there is a next page
+            traversal.limit(pager.getPageSize() + 1);
+        }
+
+        List<Element> results = drainAfter(traversal, () -> {
+            List<Element> ret = new ArrayList<>();
+            traversal.forEachRemaining(ret::add);
+            return ret;
+        });
+
+        String token = null;
+        if (pager.isLimited() && results.size() > pager.getPageSize()) {
+            results = results.subList(0, pager.getPageSize());
+            token = ContinuationToken.after(property, results.get(results.size() - 1)).encode();
+        }
+
+        Iterator<T> it = results.stream().map(conversion).filter(t -> filter == null || filter.apply(t)).iterator();
+
+        return new Page<>(it, pager, -1, token);
+    }
+
     private <S, E> GraphTraversal<S, E> applyOrdering(GraphTraversal<S, E> traversal, Pager pager) {
         boolean specific = pager.getOrder().stream().anyMatch(Order::isSpecific);
 
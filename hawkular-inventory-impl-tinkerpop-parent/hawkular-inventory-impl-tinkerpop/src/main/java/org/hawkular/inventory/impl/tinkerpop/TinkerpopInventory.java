@@ -16,6 +16,10 @@
  */
 package org.hawkular.inventory.impl.tinkerpop;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.ServiceLoader;
 
 import org.apache.tinkerpop.gremlin.structure.Edge;
@@ -39,6 +43,68 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
             .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.graph-provider-impl")
             .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_GRAPH_PROVIDER_IMPL").build();
 
+    /**
+     * When set to true, the structured data of the data entities is stored serialized in a single property of a
+     * single vertex instead of a tree of vertices (one per each value). This makes reading and writing of large
+     * configurations much cheaper but the values inside the data can only be queried for using the
+     * {@link #INDEXED_DATA_PATHS indexed paths}.
+     */
+    public static final Configuration.Property COMPACT_STRUCTURED_DATA = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.compact-structured-data")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_COMPACT_STRUCTURED_DATA").build();
+
+    /**
+     * A comma-separated list of paths in the compactly stored structured data that should be indexed. Each path is
+     * a slash-separated list of map keys or list indices, e.g. {@code connection/url,ports/0}. The values on these
+     * paths can be found using the {@link org.hawkular.inventory.api.filters.With.DataAt} and
+     * {@link org.hawkular.inventory.api.filters.With.DataValued} filters.
+     */
+    public static final Configuration.Property INDEXED_DATA_PATHS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.indexed-data-paths")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_INDEXED_DATA_PATHS").build();
+
+    /**
+     * A comma-separated list of the user-defined properties that should be indexed, so that the
+     * {@link org.hawkular.inventory.api.filters.With.PropertyValues} filters on them don't need to scan all the
+     * elements. Each declaration has the form {@code vertex:<name>} or {@code edge:<name>}, optionally followed by
+     * {@code :<type>} where the type is one of {@code string} (the default), {@code long}, {@code double} or
+     * {@code boolean}, e.g. {@code vertex:hostname,vertex:port:long,edge:weight:double}. Depending on the graph
+     * provider, the values of the indexed properties may be required to be of the declared type.
+     */
+    public static final Configuration.Property INDEXED_PROPERTIES = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.index.properties")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_INDEX_PROPERTIES").build();
+
+    /**
+     * The number of threads used to evaluate the independent branches of the read-only queries concurrently. Zero
+     * (the default) switches off the concurrent evaluation and the branches are evaluated one after another in a single
+     * traversal. The concurrent evaluation is only used with the graph providers that support concurrent reads.
+     */
+    public static final Configuration.Property QUERY_BRANCH_THREADS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.query.branch.threads")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_QUERY_BRANCH_THREADS").build();
+
+    /**
+     * When set to true, the data of each tenant is stored in a separate graph, so that the traversals of one tenant
+     * never touch the data of the others and the graphs of the tenants can be sized (and dropped) independently. The
+     * graph of a tenant is opened when the tenant is first accessed through an inventory
+     * {@link org.hawkular.inventory.api.Inventory#forTenant(String) scoped} to it. This requires a graph provider that
+     * {@link GraphProvider#isSupportingTenantGraphs() supports} the tenant graphs.
+     */
+    public static final Configuration.Property TENANT_GRAPHS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.tenant-graphs")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_TENANT_GRAPHS").build();
+
+    /**
+     * The time in milliseconds after which the graph of a tenant that is not being accessed is closed to free up
+     * the resources. Defaults to 10 minutes, zero means that the graphs of the tenants are never closed.
+     *
+     * @see #TENANT_GRAPHS
+     */
+    public static final Configuration.Property TENANT_GRAPH_IDLE_TIMEOUT = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.tenant-graph.idle-timeout")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_TENANT_GRAPH_IDLE_TIMEOUT").build();
+
 
     public TinkerpopInventory() {
     }
@@ -52,6 +118,12 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
         return new TinkerpopInventory(this, null, transactionCtor);
     }
 
+    @Override public TinkerpopInventory forTenant(String tenantId) {
+        TinkerpopBackend backend = (TinkerpopBackend) getBackend();
+        TinkerpopBackend tenantBackend = backend.forTenant(tenantId);
+        return tenantBackend == backend ? this : new TinkerpopInventory(this, tenantBackend, null);
+    }
+
     @Override
     protected InventoryBackend<Element> doInitialize(Configuration configuration) {
         InventoryContext context = loadGraph(configuration);
@@ -63,15 +135,44 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
 
         Log.LOG.iUsingGraphProvider(gp.getClass().getName());
 
-        Graph g = ensureIndices(gp, configuration);
+        Graph g = ensureIndices(gp, gp.instantiateGraph(configuration), configuration);
 
-        return new InventoryContext(this, g, gp);
-    }
+        TenantGraphs tenantGraphs = null;
+        if (configuration.getFlag(TENANT_GRAPHS, "false")) {
+            if (!gp.isSupportingTenantGraphs()) {
+                throw new IllegalStateException("The graph provider " + gp.getClass().getName() + " doesn't support" +
+                        " storing the tenants in separate graphs. Please switch off the '" +
+                        TENANT_GRAPHS.getPropertyName() + "' configuration property.");
+            }
 
-    private Graph ensureIndices(GraphProvider graphProvider, Configuration config) {
-        Graph graph = graphProvider.instantiateGraph(config);
+            long idleTimeout = longProperty(configuration, TENANT_GRAPH_IDLE_TIMEOUT, 600000);
+            tenantGraphs = new TenantGraphs(tenantId -> ensureIndices(gp, gp.instantiateTenantGraph(configuration,
+                    tenantId), configuration), idleTimeout);
 
-        graphProvider.ensureIndices(graph,
+            Log.LOG.iUsingTenantGraphs(idleTimeout);
+        }
+
+        boolean compact = configuration.getFlag(COMPACT_STRUCTURED_DATA, "false");
+
+        List<List<String>> indexedPaths = new ArrayList<>();
+        String paths = configuration.getProperty(INDEXED_DATA_PATHS, "");
+        for (String path : paths.split(",")) {
+            path = path.trim();
+            if (!path.isEmpty()) {
+                indexedPaths.add(Collections.unmodifiableList(Arrays.asList(path.split("/"))));
+            }
+        }
+
+        int branchThreads = intProperty(configuration, QUERY_BRANCH_THREADS, 0);
+        QueryBranchExecutor branchExecutor = branchThreads > 0 && gp.isSupportingConcurrentReads()
+                ? new QueryBranchExecutor(branchThreads) : null;
+
+        return new InventoryContext(this, g, gp, compact, Collections.unmodifiableList(indexedPaths),
+                branchExecutor, tenantGraphs, null);
+    }
+
+    private Graph ensureIndices(GraphProvider graphProvider, Graph graph, Configuration config) {
+        List<IndexSpec> indices = new ArrayList<>(Arrays.asList(
                 IndexSpec.builder()
                         .withElementType(Vertex.class)
                         .withProperty(IndexSpec.Property.builder()
@@ -184,10 +285,98 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
                                 .withName(Constants.Property.__targetIdentityHash.name())
                                 .withType(String.class)
                                 .build())
-                        .build());
+                        .build()));
+
+        indices.addAll(parseIndexedProperties(config.getProperty(INDEXED_PROPERTIES, "")));
+
+        graphProvider.ensureIndices(graph, indices.toArray(new IndexSpec[indices.size()]));
+
+        List<IndexSpec> active = graphProvider.getActiveIndices(graph);
+        Log.LOG.iActiveIndices(active.size(), active);
+
         return graph;
     }
 
+    static List<IndexSpec> parseIndexedProperties(String declarations) {
+        List<IndexSpec> ret = new ArrayList<>();
+        for (String decl : declarations.split(",")) {
+            decl = decl.trim();
+            if (decl.isEmpty()) {
+                continue;
+            }
+
+            String[] parts = decl.split(":");
+            if (parts.length < 2 || parts.length > 3 || parts[1].trim().isEmpty()) {
+                throw new IllegalArgumentException("Invalid index declaration '" + decl + "' in the configuration" +
+                        " property '" + INDEXED_PROPERTIES.getPropertyName() + "'. Expected" +
+                        " '(vertex|edge):<name>[:<type>]'.");
+            }
+
+            Class<? extends Element> elementType;
+            switch (parts[0].trim()) {
+                case "vertex":
+                    elementType = Vertex.class;
+                    break;
+                case "edge":
+                    elementType = Edge.class;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid element type '" + parts[0] + "' in the index" +
+                            " declaration '" + decl + "'. Expected 'vertex' or 'edge'.");
+            }
+
+            Class<?> type;
+            switch (parts.length == 3 ? parts[2].trim() : "string") {
+                case "string":
+                    type = String.class;
+                    break;
+                case "long":
+                    type = Long.class;
+                    break;
+                case "double":
+                    type = Double.class;
+                    break;
+                case "boolean":
+                    type = Boolean.class;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid property type '" + parts[2] + "' in the index" +
+                            " declaration '" + decl + "'. Expected one of 'string', 'long', 'double' or 'boolean'.");
+            }
+
+            ret.add(IndexSpec.builder()
+                    .withElementType(elementType)
+                    .withProperty(IndexSpec.Property.builder()
+                            .withName(Constants.Property.mapUserDefined(parts[1].trim()))
+                            .withType(type)
+                            .build())
+                    .build());
+        }
+
+        return ret;
+    }
+
+    private static int intProperty(Configuration configuration, Configuration.Property property, int defaultValue) {
+        String value = configuration.getProperty(property, Integer.toString(defaultValue));
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The configuration property '" + property.getPropertyName()
+                    + "' must be an integer but was '" + value + "'.", e);
+        }
+    }
+
+    private static long longProperty(Configuration configuration, Configuration.Property property,
+                                     long defaultValue) {
+        String value = configuration.getProperty(property, Long.toString(defaultValue));
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The configuration property '" + property.getPropertyName()
+                    + "' must be an integer but was '" + value + "'.", e);
+        }
+    }
+
     private GraphProvider instantiateGraphProvider(Configuration config) {
         String implClass = config.getProperty(GRAPH_PROVIDER_IMPL_CLASS, null);
         if (implClass != null) {
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayList;
+import java.util.Base64;
+
+import org.hawkular.inventory.api.model.StructuredData;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class CompactStructuredDataTest {
+
+    @Test
+    public void testPrimitivesRoundTrip() throws Exception {
+        assertRoundTrip(StructuredData.get().undefined());
+        assertRoundTrip(StructuredData.get().bool(true));
+        assertRoundTrip(StructuredData.get().bool(false));
+        assertRoundTrip(StructuredData.get().integral(Long.MIN_VALUE));
+        assertRoundTrip(StructuredData.get().integral(42L));
+        assertRoundTrip(StructuredData.get().floatingPoint(-4.2));
+        assertRoundTrip(StructuredData.get().string(""));
+        assertRoundTrip(StructuredData.get().string("\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148"));
+    }
+
+    @Test
+    public void testNestedRoundTrip() throws Exception {
+        StructuredData data = createNested();
+
+        StructuredData decoded = assertRoundTrip(data);
+
+        //the maps need to retain the order of their keys
+        Assert.assertEquals(new ArrayList<>(data.map().keySet()), new ArrayList<>(decoded.map().keySet()));
+        Assert.assertEquals(new ArrayList<>(data.map().get("map").map().keySet()),
+                new ArrayList<>(decoded.map().get("map").map().keySet()));
+
+        assertRoundTrip(StructuredData.get().list().build());
+        assertRoundTrip(StructuredData.get().map().build());
+        assertRoundTrip(StructuredData.get().list().addList().addMap().closeMap().closeList().build());
+    }
+
+    @Test
+    public void testNavigate() throws Exception {
+        StructuredData data = createNested();
+
+        Assert.assertEquals(data, CompactStructuredData.navigate(data, emptyList()));
+        Assert.assertEquals(StructuredData.get().bool(true),
+                CompactStructuredData.navigate(data, asList("list", "2", "nested")));
+        Assert.assertEquals(StructuredData.get().string("z"),
+                CompactStructuredData.navigate(data, asList("map", "z")));
+
+        Assert.assertNull(CompactStructuredData.navigate(data, asList("nonexistent")));
+        Assert.assertNull(CompactStructuredData.navigate(data, asList("list", "3")));
+        Assert.assertNull(CompactStructuredData.navigate(data, asList("list", "-1")));
+        Assert.assertNull(CompactStructuredData.navigate(data, asList("list", "nan")));
+        Assert.assertNull(CompactStructuredData.navigate(data, asList("int", "0")));
+    }
+
+    @Test
+    public void testShallow() throws Exception {
+        StructuredData data = createNested();
+
+        Assert.assertEquals(StructuredData.get().map().build(), CompactStructuredData.shallow(data));
+        Assert.assertEquals(StructuredData.get().list().build(),
+                CompactStructuredData.shallow(data.map().get("list")));
+        Assert.assertEquals(StructuredData.get().integral(1L),
+                CompactStructuredData.shallow(data.map().get("int")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTypeRejected() throws Exception {
+        CompactStructuredData.decode(Base64.getEncoder().encodeToString(new byte[]{'x'}));
+    }
+
+    private static StructuredData createNested() {
+        return StructuredData.get().map()
+                .putIntegral("int", 1L)
+                .putUndefined("undefined")
+                .putList("list")
+                /**/.addFloatingPoint(1.5)
+                /**/.addString("s")
+                /**/.addMap()
+                /**//**/.putBool("nested", true)
+                /**//**/.putList("empty").closeList()
+                /**/.closeMap()
+                .closeList()
+                .putMap("map")
+                /**/.putString("z", "z")
+                /**/.putString("a", "a")
+                /**/.putUndefined("m")
+                .closeMap()
+                .build();
+    }
+
+    private static StructuredData assertRoundTrip(StructuredData data) {
+        StructuredData decoded = CompactStructuredData.decode(CompactStructuredData.encode(data));
+        Assert.assertEquals(data, decoded);
+        return decoded;
+    }
+}
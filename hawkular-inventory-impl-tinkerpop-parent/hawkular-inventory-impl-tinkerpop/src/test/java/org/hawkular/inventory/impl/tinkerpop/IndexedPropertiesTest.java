@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.util.List;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class IndexedPropertiesTest {
+
+    @Test
+    public void testEmpty() throws Exception {
+        Assert.assertTrue(TinkerpopInventory.parseIndexedProperties("").isEmpty());
+        Assert.assertTrue(TinkerpopInventory.parseIndexedProperties(" , ,").isEmpty());
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        List<IndexSpec> specs = TinkerpopInventory.parseIndexedProperties(
+                " vertex:hostname , edge:weight:double,vertex:enabled:boolean, vertex:count:long,vertex:name");
+
+        Assert.assertEquals(5, specs.size());
+        Assert.assertEquals(spec(Vertex.class, "hostname", String.class), specs.get(0));
+        Assert.assertEquals(spec(Edge.class, "weight", Double.class), specs.get(1));
+        Assert.assertEquals(spec(Vertex.class, "enabled", Boolean.class), specs.get(2));
+        Assert.assertEquals(spec(Vertex.class, "count", Long.class), specs.get(3));
+        Assert.assertEquals(spec(Vertex.class, "name", String.class), specs.get(4));
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        assertMalformed("hostname");
+        assertMalformed("vertex:");
+        assertMalformed("vertex: :long");
+        assertMalformed("vertex:hostname:long:extra");
+        assertMalformed("node:hostname");
+        assertMalformed("vertex:hostname:int");
+        assertMalformed("vertex:hostname,edge");
+    }
+
+    /**
+     * The property names are mapped the same way as in the queries.
+     */
+    private static IndexSpec spec(Class<? extends Element> elementType, String name, Class<?> type) {
+        return IndexSpec.builder().withElementType(elementType)
+                .withProperty(IndexSpec.Property.builder()
+                        .withName(Constants.Property.mapUserDefined(name))
+                        .withType(type)
+                        .build())
+                .build();
+    }
+
+    private static void assertMalformed(String declarations) {
+        try {
+            TinkerpopInventory.parseIndexedProperties(declarations);
+            Assert.fail("Parsing '" + declarations + "' should have failed.");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static java.util.Arrays.asList;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class QueryBranchExecutorTest {
+
+    private static final List<Integer> BRANCHES = asList(0, 1, 2, 3, 4);
+
+    @Test
+    public void testResultsInBranchOrder() throws Exception {
+        try (QueryBranchExecutor executor = new QueryBranchExecutor(2)) {
+            List<String> results = executor.evaluate(BRANCHES, Integer.MAX_VALUE, b -> "w" + b, b -> "c" + b);
+
+            Assert.assertEquals(BRANCHES.size(), results.size());
+            //the first branch is always evaluated by the caller
+            Assert.assertEquals("c0", results.get(0));
+            for (int i = 1; i < BRANCHES.size(); ++i) {
+                Assert.assertTrue(results.get(i).endsWith(Integer.toString(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testNoCapacityEvaluatesInCaller() throws Exception {
+        try (QueryBranchExecutor executor = new QueryBranchExecutor(2)) {
+            Assert.assertEquals(asList("c0", "c1", "c2", "c3", "c4"),
+                    executor.evaluate(BRANCHES, 0, b -> "w" + b, b -> "c" + b));
+        }
+    }
+
+    @Test
+    public void testBranchesOverCapacityEvaluatedInCaller() throws Exception {
+        try (QueryBranchExecutor executor = new QueryBranchExecutor(2)) {
+            List<String> results = executor.evaluate(BRANCHES, 1, b -> "w" + b, b -> "c" + b);
+
+            Assert.assertEquals("c0", results.get(0));
+            Assert.assertEquals(asList("c2", "c3", "c4"), results.subList(2, 5));
+        }
+    }
+
+    @Test
+    public void testRejectedBranchesEvaluatedInCaller() throws Exception {
+        QueryBranchExecutor executor = new QueryBranchExecutor(1);
+        //start and shut down the workers
+        executor.evaluate(asList(0, 1), 1, b -> b, b -> b);
+        executor.close();
+
+        Assert.assertEquals(asList("c0", "c1", "c2", "c3", "c4"),
+                executor.evaluate(BRANCHES, Integer.MAX_VALUE, b -> "w" + b, b -> "c" + b));
+    }
+
+    @Test
+    public void testFailurePropagated() throws Exception {
+        IllegalStateException failure = new IllegalStateException();
+        Function<Integer, List<Integer>> failing = b -> {
+            if (b == 3) {
+                throw failure;
+            }
+            return Collections.singletonList(b);
+        };
+
+        try (QueryBranchExecutor executor = new QueryBranchExecutor(2)) {
+            executor.evaluate(BRANCHES, Integer.MAX_VALUE, failing, failing);
+            Assert.fail("The failure of the branch should have been propagated.");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(failure, e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.api.Relationships.WellKnown.contains;
+import static org.hawkular.inventory.api.Relationships.WellKnown.hasData;
+import static org.hawkular.inventory.api.Relationships.WellKnown.incorporates;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cp;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__sourceCp;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__targetCp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.io.GraphReader;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.EntityNotFoundException;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class TenantGraphWriterTest {
+
+    private static final CanonicalPath TENANT = CanonicalPath.of().tenant("t").get();
+    private static final CanonicalPath FEED = CanonicalPath.of().tenant("t").feed("f").get();
+    private static final CanonicalPath OTHER_TENANT = CanonicalPath.of().tenant("u").get();
+    private static final CanonicalPath OTHER_FEED = CanonicalPath.of().tenant("u").feed("f").get();
+
+    private TinkerGraph graph;
+
+    @Before
+    public void setupGraph() {
+        graph = TinkerGraph.open();
+
+        Vertex tenant = vertex(Constants.Type.tenant, TENANT);
+        Vertex feed = vertex(Constants.Type.feed, FEED);
+        Vertex data = graph.addVertex(Constants.Type.structuredData.name());
+        relationship(tenant, contains.name(), feed);
+        feed.addEdge(hasData.name(), data);
+
+        Vertex otherTenant = vertex(Constants.Type.tenant, OTHER_TENANT);
+        Vertex otherFeed = vertex(Constants.Type.feed, OTHER_FEED);
+        relationship(otherTenant, contains.name(), otherFeed);
+
+        //the relationship to the other tenant must not be exported
+        relationship(feed, incorporates.name(), otherFeed);
+    }
+
+    @Test
+    public void testGryoRoundTrip() throws Exception {
+        testRoundTrip(GraphExport.Format.GRYO);
+    }
+
+    @Test
+    public void testGraphSONRoundTrip() throws Exception {
+        testRoundTrip(GraphExport.Format.GRAPHSON);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        GraphExport export = new GraphExport("t", GraphExport.Format.GRYO);
+        export.cancel();
+
+        try {
+            new TenantGraphWriter(graph, export).write(new ByteArrayOutputStream(), it -> {});
+            Assert.fail("The cancelled export should have failed.");
+        } catch (CancellationException e) {
+            //expected
+        }
+
+        Assert.assertEquals(0, export.getVertexCount());
+        Assert.assertEquals(0, export.getEdgeCount());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void testUnknownTenant() throws Exception {
+        new TenantGraphWriter(graph, new GraphExport("nonexistent", GraphExport.Format.GRAPHSON))
+                .write(new ByteArrayOutputStream(), it -> {});
+    }
+
+    private void testRoundTrip(GraphExport.Format format) throws IOException {
+        GraphExport export = new GraphExport("t", format);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new TenantGraphWriter(graph, export).write(out, it -> {});
+
+        //tenant, feed and its data and the contains and hasData edges between them
+        Assert.assertEquals(3, export.getVertexCount());
+        Assert.assertEquals(2, export.getEdgeCount());
+
+        TinkerGraph copy = TinkerGraph.open();
+        GraphReader reader = format == GraphExport.Format.GRYO
+                ? copy.io(IoCore.gryo()).reader().create()
+                : copy.io(IoCore.graphson()).reader().create();
+        reader.readGraph(new ByteArrayInputStream(out.toByteArray()), copy);
+
+        Assert.assertEquals(3, count(copy.vertices()));
+        Assert.assertEquals(2, count(copy.edges()));
+
+        Set<String> paths = copy.traversal().V().<String>values(__cp.name()).toSet();
+        Assert.assertEquals(2, paths.size());
+        Assert.assertTrue(paths.contains(TENANT.toString()));
+        Assert.assertTrue(paths.contains(FEED.toString()));
+
+        Set<String> labels = copy.traversal().E().label().toStream().collect(Collectors.toSet());
+        Assert.assertEquals(2, labels.size());
+        Assert.assertTrue(labels.contains(contains.name()));
+        Assert.assertTrue(labels.contains(hasData.name()));
+    }
+
+    private Vertex vertex(Constants.Type type, CanonicalPath cp) {
+        return graph.addVertex(T.label, type.name(), __cp.name(), cp.toString());
+    }
+
+    private static void relationship(Vertex source, String label, Vertex target) {
+        source.addEdge(label, target, __sourceCp.name(), source.value(__cp.name()), __targetCp.name(),
+                target.value(__cp.name()));
+    }
+
+    private static int count(Iterator<?> it) {
+        int ret = 0;
+        while (it.hasNext()) {
+            it.next();
+            ret++;
+        }
+        return ret;
+    }
+}
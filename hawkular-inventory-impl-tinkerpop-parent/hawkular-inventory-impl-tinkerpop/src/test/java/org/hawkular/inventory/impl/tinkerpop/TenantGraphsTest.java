@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class TenantGraphsTest {
+
+    @Test
+    public void testGraphOpenedOncePerTenant() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        try (TenantGraphs graphs = new TenantGraphs(t -> {
+            opened.incrementAndGet();
+            return TinkerGraph.open();
+        }, 0)) {
+            Graph a = graphs.acquire("a");
+            Assert.assertSame(a, graphs.acquire("a"));
+            Assert.assertSame(a, graphs.get("a"));
+            Assert.assertNotSame(a, graphs.get("b"));
+
+            Assert.assertEquals(2, opened.get());
+            Assert.assertEquals(2, graphs.size());
+        }
+    }
+
+    @Test
+    public void testOnlyIdleGraphsClosed() throws Exception {
+        AtomicInteger open = new AtomicInteger();
+        try (TenantGraphs graphs = new TenantGraphs(t -> tracked(TinkerGraph.open(), open, null, null), 0)) {
+            graphs.acquire("used");
+            graphs.acquire("idle");
+            graphs.release("idle");
+
+            Thread.sleep(10);
+            graphs.closeIdle();
+
+            Assert.assertEquals(1, open.get());
+            Assert.assertEquals(1, graphs.size());
+
+            graphs.release("used");
+            Thread.sleep(10);
+            graphs.closeIdle();
+
+            Assert.assertEquals(0, open.get());
+            Assert.assertEquals(0, graphs.size());
+
+            //the closed graph is opened again on the next access
+            graphs.acquire("idle");
+            Assert.assertEquals(1, open.get());
+        }
+    }
+
+    @Test
+    public void testIdleGraphsClosedByReaper() throws Exception {
+        AtomicInteger open = new AtomicInteger();
+        try (TenantGraphs graphs = new TenantGraphs(t -> tracked(TinkerGraph.open(), open, null, null), 10)) {
+            graphs.get("a");
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (graphs.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            Assert.assertEquals(0, graphs.size());
+            Assert.assertEquals(0, open.get());
+        }
+    }
+
+    @Test
+    public void testFailedOpenNotRemembered() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        try (TenantGraphs graphs = new TenantGraphs(t -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("failed");
+            }
+            return TinkerGraph.open();
+        }, 0)) {
+            try {
+                graphs.acquire("a");
+                Assert.fail("The failure to open the graph should have been propagated.");
+            } catch (IllegalStateException e) {
+                //expected
+            }
+
+            Assert.assertEquals(0, graphs.size());
+            Assert.assertNotNull(graphs.acquire("a"));
+            Assert.assertEquals(2, attempts.get());
+        }
+    }
+
+    @Test
+    public void testCloseClosesAllGraphs() throws Exception {
+        AtomicInteger open = new AtomicInteger();
+        TenantGraphs graphs = new TenantGraphs(t -> tracked(TinkerGraph.open(), open, null, null), 0);
+        graphs.acquire("a");
+        graphs.get("b");
+        Assert.assertEquals(2, open.get());
+
+        graphs.close();
+        Assert.assertEquals(0, open.get());
+
+        try {
+            graphs.acquire("a");
+            Assert.fail("Acquiring a graph after close should have failed.");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testAcquireWaitsForIdleGraphToClose() throws Exception {
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        CountDownLatch closing = new CountDownLatch(1);
+        CountDownLatch finishClose = new CountDownLatch(1);
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try (TenantGraphs graphs = new TenantGraphs(t -> {
+            Graph g = tracked(TinkerGraph.open(), open, closing, finishClose);
+            maxOpen.accumulateAndGet(open.get(), Math::max);
+            return g;
+        }, 0)) {
+            Graph first = graphs.get("a");
+
+            Thread.sleep(10);
+            Future<?> closeIdle = threads.submit(graphs::closeIdle);
+            Assert.assertTrue(closing.await(5, TimeUnit.SECONDS));
+
+            Future<Graph> reacquire = threads.submit(() -> graphs.acquire("a"));
+            try {
+                reacquire.get(100, TimeUnit.MILLISECONDS);
+                Assert.fail("The graph should not be acquired while it is being closed.");
+            } catch (TimeoutException e) {
+                //expected
+            }
+
+            finishClose.countDown();
+            closeIdle.get(5, TimeUnit.SECONDS);
+            Graph second = reacquire.get(5, TimeUnit.SECONDS);
+
+            Assert.assertNotSame(first, second);
+            Assert.assertEquals(1, open.get());
+            Assert.assertEquals(1, maxOpen.get());
+            Assert.assertEquals(1, graphs.size());
+        } finally {
+            finishClose.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Wraps the graph so that it is counted in the {@code open} counter until it is closed. If the latches are given,
+     * the closing of the graph signals the {@code closing} latch and waits for the {@code finishClose} one before
+     * actually closing the graph.
+     */
+    private static Graph tracked(Graph graph, AtomicInteger open, CountDownLatch closing,
+                                 CountDownLatch finishClose) {
+        open.incrementAndGet();
+
+        return (Graph) Proxy.newProxyInstance(TenantGraphsTest.class.getClassLoader(), new Class<?>[]{Graph.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        if (closing != null) {
+                            closing.countDown();
+                            finishClose.await(5, TimeUnit.SECONDS);
+                        }
+                        open.decrementAndGet();
+                    }
+
+                    try {
+                        return method.invoke(graph, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
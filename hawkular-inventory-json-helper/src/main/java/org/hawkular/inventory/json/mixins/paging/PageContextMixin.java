@@ -41,4 +41,10 @@ public abstract class PageContextMixin {
 
     @JsonIgnore
     public abstract boolean isLimited();
+
+    @JsonIgnore
+    public abstract boolean isKeyset();
+
+    @JsonIgnore
+    public abstract String getContinuationToken();
 }
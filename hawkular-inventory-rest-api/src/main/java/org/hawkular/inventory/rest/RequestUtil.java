@@ -53,6 +53,7 @@ public final class RequestUtil {
         String perPageS = params.getFirst("per_page");
         List<String> sort = params.get("sort");
         List<String> order = params.get("order");
+        String continuation = params.getFirst("continuation");
 
         int page = pageS == null ? 0 : Integer.parseInt(pageS);
         int perPage = perPageS == null ? PageContext.UNLIMITED_PAGE_SIZE : Integer.parseInt(perPageS);
@@ -73,6 +74,11 @@ public final class RequestUtil {
             }
         }
 
+        if (continuation != null) {
+            //keyset paging - an empty continuation token denotes the first page
+            return new Pager(perPage, continuation.isEmpty() ? null : continuation, ordering);
+        }
+
         return new Pager(page, perPage, ordering);
     }
 
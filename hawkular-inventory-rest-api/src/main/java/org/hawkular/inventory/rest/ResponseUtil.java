@@ -168,6 +168,8 @@ public final class ResponseUtil {
      * Create the paging headers for collections and attach them to the passed builder. Those are represented as
      * <i>Link:</i> http headers that carry the URL for the pages and the respective relation.
      * <br/>In addition a <i>X-Total-Count</i> header is created that contains the whole collection size.
+     * <br/>Keyset based pages only link to the next page (using the <i>continuation</i> query parameter) and don't
+     * report the total size, because it is not known.
      *
      * @param builder    The ResponseBuilder that receives the headers
      * @param uriInfo    The uriInfo of the incoming request to build the urls
@@ -183,6 +185,11 @@ public final class ResponseUtil {
 
         List<Link> links = new ArrayList<>();
 
+        if (pc.isKeyset()) {
+            createKeysetPagingHeader(builder, uriInfo, resultList);
+            return;
+        }
+
         if (pc.isLimited() && resultList.getTotalSize() > (pc.getPageNumber() + 1) * pc.getPageSize()) {
             int nextPage = page + 1;
             uriBuilder = uriInfo.getRequestUriBuilder(); // adds ?q, ?per_page, ?page, etc. if needed
@@ -225,4 +232,25 @@ public final class ResponseUtil {
         // Create a total size header
         builder.header("X-Total-Count", resultList.getTotalSize());
     }
+
+    private static void createKeysetPagingHeader(final Response.ResponseBuilder builder, final UriInfo uriInfo,
+                                                 final Page<?> resultList) {
+        UriBuilder uriBuilder = uriInfo.getRequestUriBuilder();
+
+        StringBuilder linkHeader = new StringBuilder(new Link("current", uriBuilder.build().toString())
+                .rfc5988String());
+
+        if (resultList.getContinuationToken() != null) {
+            uriBuilder = uriInfo.getRequestUriBuilder();
+            uriBuilder.replaceQueryParam("page");
+            uriBuilder.replaceQueryParam("continuation", resultList.getContinuationToken());
+            linkHeader.append(", ").append(new Link("next", uriBuilder.build().toString()).rfc5988String());
+        }
+
+        builder.header("Link", linkHeader.toString());
+
+        if (resultList.getTotalSize() >= 0) {
+            builder.header("X-Total-Count", resultList.getTotalSize());
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import static org.hawkular.inventory.rest.json.SmileJacksonConfig.APPLICATION_JACKSON_SMILE;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.hawkular.inventory.api.GroupBy;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.jboss.resteasy.spi.BadRequestException;
+
+/**
+ * Counts the results of the traversals without returning them. The traversal paths are the same as for the
+ * {@link RestTraversal traversal endpoint}.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+@Path("/aggregate")
+@Produces({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+@Consumes({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+public class RestAggregate extends RestBase {
+
+    public RestAggregate() {
+        super("/aggregate".length());
+    }
+
+    /**
+     * Without the {@code groupBy} parameter, the response is {@code {"count": <number>}}. Otherwise it is a map of the
+     * group keys to the number of the results in the groups. The results can be grouped by {@code type} (the keys are
+     * the type names like {@code resource}), {@code relationshipName} or {@code property} (the name of the property is
+     * given by the {@code property} parameter and the keys are the values of the property).
+     */
+    @GET
+    @Path("{path:.+}")
+    public Response get(@Context UriInfo uriInfo, @QueryParam("groupBy") String groupBy,
+                        @QueryParam("property") String property) throws Exception {
+
+        Query q = getTraverser(uriInfo).navigate(getPath(uriInfo));
+
+        if (groupBy == null) {
+            return Response.ok(Collections.singletonMap("count", inventory.count(q))).build();
+        }
+
+        GroupBy grouping;
+        switch (groupBy) {
+            case "type":
+                grouping = GroupBy.entityType();
+                break;
+            case "relationshipName":
+                grouping = GroupBy.relationshipName();
+                break;
+            case "property":
+                if (property == null) {
+                    throw new BadRequestException("The 'property' parameter is required when grouping by property.");
+                }
+                grouping = GroupBy.property(property);
+                break;
+            default:
+                throw new BadRequestException("Unsupported value of the 'groupBy' parameter: '" + groupBy + "'." +
+                        " Expected one of 'type', 'relationshipName' or 'property'.");
+        }
+
+        Map<String, Long> counts = new HashMap<>();
+        inventory.groupCount(q, grouping).forEach((key, count) -> counts.merge(groupName(key), count, Long::sum));
+
+        return Response.ok(counts).build();
+    }
+
+    private static String groupName(Object key) {
+        if (key instanceof Class) {
+            Class<?> type = (Class<?>) key;
+            return AbstractElement.class.isAssignableFrom(type)
+                    ? AbstractElement.segmentTypeFromType(type).getSimpleName()
+                    : type.getSimpleName();
+        } else {
+            return String.valueOf(key);
+        }
+    }
+}
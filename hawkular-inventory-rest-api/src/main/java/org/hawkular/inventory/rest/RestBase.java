@@ -20,15 +20,21 @@ import static org.hawkular.inventory.api.filters.With.path;
 import static org.hawkular.inventory.rest.Utils.createUnder;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
 
 import org.hawkular.inventory.api.Configuration;
 import org.hawkular.inventory.api.Inventory;
@@ -42,6 +48,7 @@ import org.hawkular.inventory.paths.SegmentType;
 import org.hawkular.inventory.rest.cdi.AutoTenant;
 import org.hawkular.inventory.rest.cdi.Our;
 import org.hawkular.inventory.rest.cdi.TenantAware;
+import org.hawkular.inventory.rest.json.SmileJacksonConfig;
 import org.hawkular.inventory.rest.security.Security;
 import org.hawkular.inventory.rest.security.TenantId;
 import org.jboss.resteasy.annotations.GZIP;
@@ -76,6 +83,12 @@ public class RestBase {
     @Inject @TenantAware
     private ObjectMapper defaultMapper;
 
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Context
+    private Providers providers;
+
     private final int pathLength;
 
     /**
@@ -90,9 +103,20 @@ public class RestBase {
         this.pathLength = pathLength;
     }
 
+    /**
+     * Scopes the inventory to the tenant of the request, so that the implementations storing the tenants separately
+     * only touch the storage of that tenant.
+     */
+    @PostConstruct
+    void scopeInventoryToTenant() {
+        if (tenantId != null) {
+            inventory = inventory.forTenant(tenantId);
+        }
+    }
+
     protected <T> Response.ResponseBuilder pagedResponse(Response.ResponseBuilder response,
                                                          UriInfo uriInfo, Page<T> page) {
-        return pagedResponse(response, uriInfo, getMapper(), page);
+        return pagedResponse(response, uriInfo, getResponseMapper(), page);
     }
 
     protected <T> Response.ResponseBuilder pagedResponse(Response.ResponseBuilder response, UriInfo uriInfo,
@@ -106,7 +130,7 @@ public class RestBase {
                 RestApiLogger.LOGGER.debug("Fetching data from backend");
                 List<?> data = page.toList();
                 RestApiLogger.LOGGER.debug("Finished fetching data from backend");
-                return ResponseUtil.pagedResponse(response, uriInfo, page, mapper.writeValueAsString(data));
+                return ResponseUtil.pagedResponse(response, uriInfo, page, mapper.writeValueAsBytes(data));
             } catch (JsonProcessingException e) {
                 RestApiLogger.LOGGER.warn(e);
                 // fallback to the default object mapper
@@ -179,11 +203,11 @@ public class RestBase {
         return chopped;
     }
 
-    protected Object create(CanonicalPath parentPath, SegmentType elementType, Reader input)
+    protected Object create(CanonicalPath parentPath, SegmentType elementType, InputStream input)
             throws IOException {
         Class<?> blueprintType = Inventory.types().bySegment(elementType).getBlueprintType();
 
-        JsonNode data = getMapper().readTree(input);
+        JsonNode data = getRequestMapper().readTree(input);
 
         setupMapper(parentPath);
 
@@ -224,6 +248,45 @@ public class RestBase {
         }
     }
 
+    /**
+     * @return the mapper to read the request body with - this is the Smile mapper if the body is in the Smile format
+     * and {@link #getMapper()} otherwise
+     */
+    protected ObjectMapper getRequestMapper() {
+        if (httpHeaders != null && SmileJacksonConfig.isSmile(httpHeaders.getMediaType())) {
+            return getSmileMapper();
+        } else {
+            return getMapper();
+        }
+    }
+
+    /**
+     * @return the mapper to write the response body with - this is the Smile mapper if the client prefers the Smile
+     * format over JSON and {@link #getMapper()} otherwise
+     */
+    protected ObjectMapper getResponseMapper() {
+        if (httpHeaders != null) {
+            //the acceptable media types are sorted by preference
+            for (MediaType mt : httpHeaders.getAcceptableMediaTypes()) {
+                if (SmileJacksonConfig.isSmile(mt)) {
+                    return getSmileMapper();
+                } else if (mt.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                    break;
+                }
+            }
+        }
+
+        return getMapper();
+    }
+
+    private ObjectMapper getSmileMapper() {
+        ContextResolver<ObjectMapper> resolver = providers.getContextResolver(ObjectMapper.class,
+                SmileJacksonConfig.APPLICATION_JACKSON_SMILE_TYPE);
+
+        //same hack as in getMapper()
+        return resolver.getContext(pathLength == 0 ? ObjectMapper.class : TenantAware.class);
+    }
+
     protected void setupMapper(CanonicalPath relativePathOrigin) {
         DetypedPathDeserializer.setCurrentCanonicalOrigin(getTenantPath());
         DetypedPathDeserializer.setCurrentRelativePathOrigin(relativePathOrigin);
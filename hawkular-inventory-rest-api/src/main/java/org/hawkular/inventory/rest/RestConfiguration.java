@@ -31,7 +31,9 @@ public class RestConfiguration {
 
     public enum Keys implements Configuration.Property {
         STREAMING_SERIALIZATION(PROPERTY_PREFIX + "streaming.serialization", "false",
-                "hawkular.inventory.rest.streaming.serialization");
+                "hawkular.inventory.rest.streaming.serialization"),
+        MULTI_GET_MAX_PATHS(PROPERTY_PREFIX + "multiget.max.paths", "1000",
+                "hawkular.inventory.rest.multiget.max.paths");
 
         private final String propertyName;
         private final List<String> systemPropertyName;
@@ -19,10 +19,16 @@ package org.hawkular.inventory.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.inventory.rest.Utils.getSegmentTypeFromSimpleName;
+import static org.hawkular.inventory.rest.json.SmileJacksonConfig.APPLICATION_JACKSON_SMILE;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -32,7 +38,11 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.inventory.api.Inventory;
@@ -40,13 +50,20 @@ import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.ResolvableToSingle;
 import org.hawkular.inventory.api.Synced;
 import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Hashes;
+import org.hawkular.inventory.api.model.Metric;
 import org.hawkular.inventory.api.model.Relationship;
+import org.hawkular.inventory.api.model.Resource;
 import org.hawkular.inventory.api.model.SyncHash;
 import org.hawkular.inventory.api.model.Syncable;
 import org.hawkular.inventory.paths.CanonicalPath;
 import org.hawkular.inventory.paths.SegmentType;
 import org.jboss.resteasy.spi.BadRequestException;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
@@ -56,8 +73,8 @@ import io.swagger.annotations.ApiResponses;
  * @since 0.16.0
  */
 @Path("/entity")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+@Consumes({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
 public class RestEntity extends RestBase {
 
     public RestEntity() {
@@ -67,7 +84,8 @@ public class RestEntity extends RestBase {
     @GET
     @Path("{path:.+}/treeHash")
     @SuppressWarnings("unchecked")
-    public SyncHash.Tree getTreeHash(@Context UriInfo uriInfo)
+    public Response getTreeHash(@Context UriInfo uriInfo, @Context HttpHeaders headers,
+                                @Context Request request)
             throws Exception {
 
         CanonicalPath path = CanonicalPath.fromPartiallyUntypedString(getPath(uriInfo, "/treeHash".length()),
@@ -77,26 +95,118 @@ public class RestEntity extends RestBase {
         if (!Syncable.class.isAssignableFrom(eltType)) {
             throw new BadRequestException("Element not syncable - cannot get treeHash for path " + path);
         }
-        return inventory.inspect(path, Synced.Single.class).treeHash();
+
+        //the sync hash of the root is the top level hash of the tree, so we don't have to compute the tree to check
+        //whether it changed
+        if (headers.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null) {
+            EntityTag tag = treeTag(inventory.getHashes(path).getSyncHash());
+            Response.ResponseBuilder notModified = tag == null ? null : request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+        }
+
+        SyncHash.Tree tree = inventory.inspect(path, Synced.Single.class).treeHash();
+
+        return Response.ok(tree).tag(treeTag(tree.getHash())).build();
     }
 
     @GET
     @Path("{path:.+}")
     @SuppressWarnings("unchecked")
-    public Object get(@Context UriInfo uriInfo)
+    public Response get(@Context UriInfo uriInfo, @Context HttpHeaders headers, @Context Request request)
             throws Exception {
 
         CanonicalPath path = CanonicalPath.fromPartiallyUntypedString(getPath(uriInfo), getTenantPath(),
                 AbstractElement.class);
 
-        return inventory.inspect(path, ResolvableToSingle.class).entity();
+        Class<?> eltType = Inventory.types().byPath(path).getElementType();
+        boolean hashed = Entity.class.isAssignableFrom(eltType);
+
+        //only the hashes are read from the backend to check the precondition, the entity is not loaded at all. This
+        //is not possible for resources and metrics, because their representations embed their types.
+        if (hashed && !embedsType(eltType) && headers.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null) {
+            String hash = hashOf(inventory.getHashes(path));
+            Response.ResponseBuilder notModified = hash == null ? null
+                    : request.evaluatePreconditions(new EntityTag(hash, true));
+            if (notModified != null) {
+                return notModified.build();
+            }
+        }
+
+        Object element = inventory.inspect(path, ResolvableToSingle.class).entity();
+
+        EntityTag tag = hashed ? entityTag((Entity<?, ?>) element) : null;
+        if (tag != null && embedsType(eltType)) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+        }
+
+        return Response.ok(element).tag(tag).build();
     }
 
 
+    /**
+     * Loads the entities on all the provided paths in one go. The results are streamed back as an array in the order of
+     * the requested paths, each item containing the requested path, the status (200 if the element was found, 404 if
+     * not, 400 if the path is invalid) and the element itself if it was found.
+     */
+    @POST
+    @Path("multiget")
+    public Response multiGet(List<String> paths) throws Exception {
+        int maxPaths = Integer.parseInt(config.getProperty(RestConfiguration.Keys.MULTI_GET_MAX_PATHS,
+                RestConfiguration.Keys.MULTI_GET_MAX_PATHS.getDefaultValue()));
+        if (paths.size() > maxPaths) {
+            throw new BadRequestException("Too many paths requested. At most " + maxPaths + " paths can be loaded" +
+                    " at once.");
+        }
+
+        Map<String, CanonicalPath> parsed = new LinkedHashMap<>();
+        for (String p : paths) {
+            try {
+                parsed.put(p, CanonicalPath.fromPartiallyUntypedString(p, getTenantPath(), AbstractElement.class));
+            } catch (IllegalArgumentException e) {
+                parsed.put(p, null);
+            }
+        }
+
+        Map<CanonicalPath, AbstractElement<?, ?>> elements = inventory.getElements(parsed.values().stream()
+                .filter(Objects::nonNull).collect(Collectors.toList()));
+
+        ObjectMapper mapper = getResponseMapper();
+
+        StreamingOutput output = out -> {
+            try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+                gen.writeStartArray();
+                for (Map.Entry<String, CanonicalPath> e : parsed.entrySet()) {
+                    AbstractElement<?, ?> element = e.getValue() == null ? null : elements.get(e.getValue());
+
+                    gen.writeStartObject();
+                    gen.writeStringField("path", e.getKey());
+                    if (e.getValue() == null) {
+                        gen.writeNumberField("status", Response.Status.BAD_REQUEST.getStatusCode());
+                    } else if (element == null) {
+                        gen.writeNumberField("status", Response.Status.NOT_FOUND.getStatusCode());
+                    } else {
+                        gen.writeNumberField("status", Response.Status.OK.getStatusCode());
+                        gen.writeObjectField("element", element);
+                    }
+                    gen.writeEndObject();
+                    gen.flush();
+                }
+                gen.writeEndArray();
+            }
+        };
+
+        return Response.ok(output).build();
+    }
+
     @POST
     @Path("{path:.+}")
     @SuppressWarnings("unchecked")
-    public Response post(@Context UriInfo uriInfo, Reader input) throws Exception {
+    public Response post(@Context UriInfo uriInfo, InputStream input) throws Exception {
         String pathAndType = getPath(uriInfo);
 
         int slashIdx = pathAndType.lastIndexOf('/');
@@ -133,7 +243,7 @@ public class RestEntity extends RestBase {
 
     @PUT
     @Path("{path:.+}")
-    public Response put(@Context UriInfo uriInfo, Reader input) throws Exception {
+    public Response put(@Context UriInfo uriInfo, InputStream input) throws Exception {
         String path = getPath(uriInfo);
 
         CanonicalPath entityPath = CanonicalPath.fromPartiallyUntypedString(path, getTenantPath(),
@@ -180,10 +290,62 @@ public class RestEntity extends RestBase {
         return Response.noContent().build();
     }
 
-    private <U extends AbstractElement.Update> void doPut(CanonicalPath path, Class<U> updateType, Reader data)
+    private <U extends AbstractElement.Update> void doPut(CanonicalPath path, Class<U> updateType, InputStream data)
             throws IOException {
         setupMapper(path);
-        U update = getMapper().reader().forType(updateType).readValue(data);
+        U update = getRequestMapper().reader().forType(updateType).readValue(data);
         inventory.inspect(path, Inventory.types().byUpdate(updateType).getSingleAccessorType()).update(update);
     }
+
+    private static boolean embedsType(Class<?> elementType) {
+        return Resource.class.isAssignableFrom(elementType) || Metric.class.isAssignableFrom(elementType);
+    }
+
+    /**
+     * The tag covers everything in the representation of the entity apart from its path, which is implied by the
+     * request. The hashes of the entity cover its own data and the representations of resources and metrics embed
+     * their types, so the hashes of the types are included, too. The tag is weak, because the representation can
+     * differ in its format (e.g. JSON or Smile).
+     *
+     * @return the tag or null if there are no hashes to base it on
+     */
+    private static EntityTag entityTag(Entity<?, ?> entity) {
+        String hash = hashOf(Hashes.of(entity));
+        if (hash == null) {
+            return null;
+        }
+
+        Entity<?, ?> type = null;
+        if (entity instanceof Resource) {
+            type = ((Resource) entity).getType();
+        } else if (entity instanceof Metric) {
+            type = ((Metric) entity).getType();
+        }
+
+        if (type != null) {
+            String typeHash = hashOf(Hashes.of(type));
+            if (typeHash == null) {
+                return null;
+            }
+            hash += "." + typeHash;
+        }
+
+        return new EntityTag(hash, true);
+    }
+
+    private static String hashOf(Hashes hashes) {
+        String hash = hashes.getSyncHash();
+        if (hash == null) {
+            hash = hashes.getContentHash();
+        }
+        if (hash == null) {
+            hash = hashes.getIdentityHash();
+        }
+
+        return hash;
+    }
+
+    private static EntityTag treeTag(String syncHash) {
+        return syncHash == null ? null : new EntityTag(syncHash);
+    }
 }
@@ -19,6 +19,8 @@ package org.hawkular.inventory.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
+import static org.hawkular.inventory.rest.json.SmileJacksonConfig.APPLICATION_JACKSON_SMILE;
+
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -55,8 +57,8 @@ import rx.functions.Func1;
  * @author Jirka Kremser
  */
 @Path("/events")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+@Consumes({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
 @Api(value = "/events", description = "Work with the events emitted by inventory", tags = "Events")
 public class RestEvents extends RestBase {
 
@@ -18,14 +18,16 @@ package org.hawkular.inventory.rest;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.hawkular.inventory.api.GraphExport;
 import org.hawkular.inventory.rest.json.ApiError;
 
 import io.swagger.annotations.Api;
@@ -43,13 +45,15 @@ import io.swagger.annotations.ApiResponses;
 @Api(value = "/graph", description = "Retrieves whole graph in the JSON representation.", tags = "Graph")
 public class RestGraphSON extends RestBase {
 
+    public static final String APPLICATION_GRYO = "application/x-gryo";
+
     public RestGraphSON() {
         super("/graph".length());
     }
 
     @GET
     @Path("/")
-    @ApiOperation("Gets the graph.")
+    @ApiOperation("Gets the graph of the tenant in the GraphSON format.")
     @ApiResponses({
             @ApiResponse(code = 200, message = "OK"),
             @ApiResponse(code = 401, message = "Unauthorized access"),
@@ -57,8 +61,41 @@ public class RestGraphSON extends RestBase {
             @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
     })
     public Response getGraph() {
+        return export(GraphExport.Format.GRAPHSON);
+    }
+
+    @GET
+    @Path("/")
+    @Produces(APPLICATION_GRYO)
+    @ApiOperation("Gets the graph of the tenant in the binary Gryo format.")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 401, message = "Unauthorized access"),
+            @ApiResponse(code = 404, message = "Tenant doesn't exist", response = ApiError.class),
+            @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
+    })
+    public Response getGryoGraph() {
+        return export(GraphExport.Format.GRYO);
+    }
+
+    private Response export(GraphExport.Format format) {
         String tenantId = getTenantId();
-        InputStream jsonStream = inventory.getGraphSON(tenantId);
-        return Response.ok(jsonStream).build();
+
+        //fail with 404 before we start streaming the response
+        inventory.tenants().get(tenantId).entity();
+
+        StreamingOutput output = out -> {
+            GraphExport export = inventory.exportGraph(tenantId, format, out);
+            try {
+                export.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException ex = new InterruptedIOException("Interrupted while exporting the graph.");
+                ex.initCause(e);
+                throw ex;
+            }
+        };
+
+        return Response.ok(output, format.getMediaType()).build();
     }
 }
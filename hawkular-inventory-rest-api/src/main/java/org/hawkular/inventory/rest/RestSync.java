@@ -18,7 +18,11 @@ package org.hawkular.inventory.rest;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
+import static org.hawkular.inventory.rest.json.SmileJacksonConfig.APPLICATION_JACKSON_SMILE;
+
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Encoded;
@@ -26,6 +30,8 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 
@@ -45,8 +51,8 @@ import io.swagger.annotations.ApiResponses;
  * @since 0.15.0
  */
 @Path("/sync")
-@Produces(value = APPLICATION_JSON)
-@Consumes(value = APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+@Consumes({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
 @Api(value = "/sync", description = "Synchronization of entity trees", tags = "Sync")
 public class RestSync extends RestBase {
 
@@ -66,7 +72,8 @@ public class RestSync extends RestBase {
             @ApiResponse(code = 500, message = "Internal server error", response = ApiError.class)
     })
     @SuppressWarnings("unchecked")
-    public Response sync(@Encoded @PathParam("path") List<PathSegment> path, SyncRequest<?> req) {
+    public void sync(@Suspended AsyncResponse asyncResponse, @Encoded @PathParam("path") List<PathSegment> path,
+                     SyncRequest<?> req) {
         CanonicalPath cp = parsePath(path);
 
         if (!InventoryStructure.EntityType.supports(cp.getSegment().getElementType())) {
@@ -77,10 +84,18 @@ public class RestSync extends RestBase {
         RestApiLogger.LOGGER.commencingSync(cp);
         long startTime = System.currentTimeMillis();
 
-        inventory.inspect(cp, Synced.SingleWithRelationships.class).synchronize(req);
-
-        RestApiLogger.LOGGER.syncFinished(cp, System.currentTimeMillis() - startTime);
+        //the sync is retried asynchronously on transaction conflicts so that we don't block the request thread
+        CompletableFuture<Void> sync = inventory.inspect(cp, Synced.SingleWithRelationships.class)
+                .synchronizeAsync(req);
 
-        return Response.noContent().build();
+        sync.whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                RestApiLogger.LOGGER.syncFinished(cp, System.currentTimeMillis() - startTime);
+                asyncResponse.resume(Response.noContent().build());
+            } else {
+                asyncResponse.resume(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure);
+            }
+        });
     }
 }
@@ -19,9 +19,10 @@ package org.hawkular.inventory.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.inventory.rest.RequestUtil.extractPaging;
+import static org.hawkular.inventory.rest.json.SmileJacksonConfig.APPLICATION_JACKSON_SMILE;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.Collection;
 
@@ -47,8 +48,8 @@ import org.hawkular.inventory.paths.SegmentType;
  * @since 0.16.0
  */
 @Path("/tenant")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
+@Consumes({APPLICATION_JSON, APPLICATION_JACKSON_SMILE})
 public class RestTenant extends RestBase {
 
     public RestTenant() {
@@ -82,7 +83,7 @@ public class RestTenant extends RestBase {
     @POST
     @Path("/relationship")
     @SuppressWarnings("unchecked")
-    public Response createRelationships(@Context UriInfo uriInfo, Reader input)
+    public Response createRelationships(@Context UriInfo uriInfo, InputStream input)
             throws IOException, URISyntaxException {
         CanonicalPath tenant = getTenantPath();
 
@@ -17,7 +17,11 @@
 package org.hawkular.inventory.rest.cdi;
 
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
@@ -27,6 +31,8 @@ import org.hawkular.inventory.api.Configuration;
 import org.hawkular.inventory.api.EmptyInventory;
 import org.hawkular.inventory.api.EntityAlreadyExistsException;
 import org.hawkular.inventory.api.EntityNotFoundException;
+import org.hawkular.inventory.api.GraphExport;
+import org.hawkular.inventory.api.GroupBy;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.Query;
@@ -36,6 +42,7 @@ import org.hawkular.inventory.api.TransactionFrame;
 import org.hawkular.inventory.api.filters.Filter;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Hashes;
 import org.hawkular.inventory.api.model.Tenant;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
@@ -79,6 +86,11 @@ public class AutoTenantInventoryProducer {
             return inventory.getGraphSON(tenantId);
         }
 
+        @Override
+        public GraphExport exportGraph(String tenantId, GraphExport.Format format, OutputStream out) {
+            return inventory.exportGraph(tenantId, format, out);
+        }
+
         @Override
         public <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(
                 CanonicalPath startingPoint, Relationships.Direction direction, Class<T> clazz,
@@ -86,6 +98,31 @@ public class AutoTenantInventoryProducer {
             return inventory.getTransitiveClosureOver(startingPoint, direction, clazz, relationshipNames);
         }
 
+        @Override
+        public <T> Stream<T> streamTransitiveClosureOver(CanonicalPath startingPoint,
+                                                         Relationships.Direction direction, Class<T> projection,
+                                                         int maxDepth, String... relationshipNames) {
+            return inventory.streamTransitiveClosureOver(startingPoint, direction, projection, maxDepth,
+                    relationshipNames);
+        }
+
+        @Override public Hashes getHashes(CanonicalPath path) {
+            return inventory.getHashes(path);
+        }
+
+        @Override public long count(Query query) {
+            return inventory.count(query);
+        }
+
+        @Override public Map<Object, Long> groupCount(Query query, GroupBy groupBy) {
+            return inventory.groupCount(query, groupBy);
+        }
+
+        @Override public Inventory forTenant(String tenantId) {
+            Inventory tenantInventory = inventory.forTenant(tenantId);
+            return tenantInventory == inventory ? this : new AutotenantInventory(tenantInventory);
+        }
+
         @Override public Configuration getConfiguration() {
             return inventory.getConfiguration();
         }
@@ -125,6 +162,11 @@ public class AutoTenantInventoryProducer {
             return inventory.getElement(path);
         }
 
+        @Override
+        public Map<CanonicalPath, AbstractElement<?, ?>> getElements(Collection<CanonicalPath> paths) {
+            return inventory.getElements(paths);
+        }
+
         @Override
         public <C, E> Observable<C> observable(Interest<C, E> interest) {
             return inventory.observable(interest);
@@ -85,7 +85,8 @@ public class AutocreateTenantRequestFilter implements ContainerRequestFilter {
             if (!existingTenantIds.contains(tenantId)) {
                 log.tracef("Tenant [%s] needs to be created", tenantId);
                 try {
-                    inventory.tenants().create(Tenant.Blueprint.builder().withId(tenantId).build());
+                    inventory.forTenant(tenantId).tenants().create(Tenant.Blueprint.builder().withId(tenantId)
+                            .build());
                     log.tracef("Tenant [%s] auto-created successfully", tenantId);
                     existingTenantIds.add(tenantId);
                 } catch (EntityAlreadyExistsException e) {
@@ -54,17 +54,36 @@ public class JacksonConfig implements ContextResolver<ObjectMapper> {
         initializeObjectMapper(this.defaultObjectMapper);
         initializeObjectMapper(this.embeddedRelationshipsMapper);
 
+        initializeDeprecatedObjectMapper(this.deprecatedObjectMapper);
+        initializeDefaultObjectMapper(this.defaultObjectMapper);
+    }
+
+    /**
+     * Configures the mapper for the deprecated REST API. The mapper is supposed to have been initialized using
+     * {@link #initializeObjectMapper(ObjectMapper)} prior to calling this method.
+     *
+     * @param mapper the mapper to configure
+     */
+    public static void initializeDeprecatedObjectMapper(ObjectMapper mapper) {
         SimpleModule relationshipModule = new SimpleModule("RelationshipModule",
                                                            new Version(0, 1, 0, null, "org.hawkular.inventory",
                                                                        "inventory-rest-api"));
         relationshipModule.addSerializer(Relationship.class, new RelationshipJacksonSerializer());
         relationshipModule.addDeserializer(Relationship.class, new RelationshipJacksonDeserializer());
 
-        this.deprecatedObjectMapper.registerModule(relationshipModule);
+        mapper.registerModule(relationshipModule);
+    }
 
-        this.defaultObjectMapper.addMixIn(CanonicalPath.class, PathSerializationMixin.class);
-        this.defaultObjectMapper.addMixIn(RelativePath.class, PathSerializationMixin.class);
-        this.defaultObjectMapper.addMixIn(Path.class, PathSerializationMixin.class);
+    /**
+     * Configures the mapper for the tenant-aware REST API. The mapper is supposed to have been initialized using
+     * {@link #initializeObjectMapper(ObjectMapper)} prior to calling this method.
+     *
+     * @param mapper the mapper to configure
+     */
+    public static void initializeDefaultObjectMapper(ObjectMapper mapper) {
+        mapper.addMixIn(CanonicalPath.class, PathSerializationMixin.class);
+        mapper.addMixIn(RelativePath.class, PathSerializationMixin.class);
+        mapper.addMixIn(Path.class, PathSerializationMixin.class);
     }
 
     public static void initializeObjectMapper(ObjectMapper mapper) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest.json;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+import org.hawkular.inventory.rest.cdi.TenantAware;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Provides the object mappers for the Smile binary format. The mappers are configured exactly the same as their JSON
+ * counterparts in {@link JacksonConfig} (i.e. they use the same mixins and custom serializers), only the wire format
+ * differs.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+@Provider
+@Produces(SmileJacksonConfig.APPLICATION_JACKSON_SMILE)
+public class SmileJacksonConfig implements ContextResolver<ObjectMapper> {
+
+    public static final String APPLICATION_JACKSON_SMILE = "application/x-jackson-smile";
+
+    public static final MediaType APPLICATION_JACKSON_SMILE_TYPE = MediaType.valueOf(APPLICATION_JACKSON_SMILE);
+
+    private final ObjectMapper deprecatedObjectMapper;
+    private final ObjectMapper defaultObjectMapper;
+
+    public SmileJacksonConfig() {
+        this.deprecatedObjectMapper = new ObjectMapper(newSmileFactory());
+        this.defaultObjectMapper = new ObjectMapper(newSmileFactory());
+        JacksonConfig.initializeObjectMapper(this.deprecatedObjectMapper);
+        JacksonConfig.initializeObjectMapper(this.defaultObjectMapper);
+
+        JacksonConfig.initializeDeprecatedObjectMapper(this.deprecatedObjectMapper);
+        JacksonConfig.initializeDefaultObjectMapper(this.defaultObjectMapper);
+    }
+
+    /**
+     * @param mediaType the media type to check
+     * @return true if the media type denotes the Smile format explicitly (i.e. is not a wildcard)
+     */
+    public static boolean isSmile(MediaType mediaType) {
+        return mediaType != null && !mediaType.isWildcardType() && !mediaType.isWildcardSubtype()
+                && mediaType.isCompatible(APPLICATION_JACKSON_SMILE_TYPE);
+    }
+
+    @Override
+    public ObjectMapper getContext(Class<?> clazz) {
+        if (TenantAware.class.equals(clazz)) {
+            return defaultObjectMapper;
+        } else {
+            return deprecatedObjectMapper;
+        }
+    }
+
+    private static SmileFactory newSmileFactory() {
+        SmileFactory factory = new SmileFactory();
+        //the paths and type names repeat a lot in the inventory data, so let's make use of the back references for
+        //the string values, too
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        return factory;
+    }
+}
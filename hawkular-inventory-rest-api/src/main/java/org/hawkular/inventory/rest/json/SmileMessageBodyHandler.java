@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads and writes the entities in the Smile binary format using the mappers provided by {@link SmileJacksonConfig}.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+@Provider
+@Produces(SmileJacksonConfig.APPLICATION_JACKSON_SMILE)
+@Consumes(SmileJacksonConfig.APPLICATION_JACKSON_SMILE)
+public class SmileMessageBodyHandler implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    private static final SmileJacksonConfig DEFAULT_CONFIG = new SmileJacksonConfig();
+
+    @Context
+    private Providers providers;
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return !isRaw(type);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        ObjectMapper mapper = getMapper(type);
+        return mapper.readerFor(mapper.constructType(genericType == null ? type : genericType))
+                .without(JsonParser.Feature.AUTO_CLOSE_SOURCE).readValue(entityStream);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return !isRaw(type);
+    }
+
+    @Override
+    public long getSize(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        getMapper(type).writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(entityStream, o);
+    }
+
+    private ObjectMapper getMapper(Class<?> type) {
+        ContextResolver<ObjectMapper> resolver = providers == null ? null
+                : providers.getContextResolver(ObjectMapper.class, SmileJacksonConfig.APPLICATION_JACKSON_SMILE_TYPE);
+
+        ObjectMapper mapper = resolver == null ? null : resolver.getContext(type);
+
+        return mapper == null ? DEFAULT_CONFIG.getContext(type) : mapper;
+    }
+
+    /**
+     * The raw types are left for the built-in providers, which copy them to the output as is (this is how the
+     * resources stream the already serialized data).
+     */
+    private static boolean isRaw(Class<?> type) {
+        return InputStream.class.isAssignableFrom(type) || Reader.class.isAssignableFrom(type)
+                || StreamingOutput.class.isAssignableFrom(type) || File.class.isAssignableFrom(type)
+                || String.class.equals(type) || byte[].class.equals(type);
+    }
+}
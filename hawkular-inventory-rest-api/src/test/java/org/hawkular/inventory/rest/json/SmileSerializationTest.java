@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest.json;
+
+import static org.hawkular.inventory.paths.DataRole.Resource.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+import org.hawkular.inventory.api.model.DataEntity;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.InventoryStructure;
+import org.hawkular.inventory.api.model.Relationship;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.api.model.ResourceType;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.api.model.SyncConfiguration;
+import org.hawkular.inventory.api.model.SyncRequest;
+import org.hawkular.inventory.json.DetypedPathDeserializer;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.rest.cdi.TenantAware;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Checks that the Smile mappers use the same custom (de)serializers as their JSON counterparts.
+ *
+ * @author Lukas Krejci
+ * @since 1.1.4
+ */
+public class SmileSerializationTest {
+
+    private final JacksonConfig json = new JacksonConfig();
+    private final SmileJacksonConfig smile = new SmileJacksonConfig();
+
+    @Before
+    public void setup() {
+        //this is what the REST endpoints do before reading the request body
+        DetypedPathDeserializer.setCurrentCanonicalOrigin(CanonicalPath.of().tenant("t").get());
+        DetypedPathDeserializer.setCurrentRelativePathOrigin(CanonicalPath.of().tenant("t").get());
+        DetypedPathDeserializer.setCurrentEntityType(null);
+    }
+
+    @Test
+    public void testEntity() throws Exception {
+        testRoundTrip(TenantAware.class, resource(), Resource.class);
+        testRoundTrip(ObjectMapper.class, resource(), Resource.class);
+    }
+
+    @Test
+    public void testRelationship() throws Exception {
+        Relationship rl = new Relationship("rl", "contains", CanonicalPath.fromString("/t;t/f;f"),
+                CanonicalPath.fromString("/t;t/f;f/r;r"), Collections.<String, Object>singletonMap("a", "b"));
+
+        testRoundTrip(TenantAware.class, rl, Relationship.class);
+        testRoundTrip(ObjectMapper.class, rl, Relationship.class);
+    }
+
+    @Test
+    public void testSyncRequest() throws Exception {
+        InventoryStructure<Feed.Blueprint> structure = InventoryStructure.Offline
+                .of(Feed.Blueprint.builder().withId("f").build())
+                .addChild(ResourceType.Blueprint.builder().withId("rt").build())
+                .startChild(Resource.Blueprint.builder().withId("r").withResourceTypePath("rt")
+                        .withProperty("a", "b").build())
+                /**/.addChild(DataEntity.Blueprint.builder().withRole(configuration)
+                /**/.withValue(StructuredData.get().map().putString("key", "value").putIntegral("int", 42L).build())
+                /**/.build())
+                .end()
+                .build();
+
+        SyncRequest<Feed.Blueprint> request = new SyncRequest<>(SyncConfiguration.DEFAULT, structure);
+
+        testRoundTrip(TenantAware.class, request, SyncRequest.class);
+    }
+
+    @Test
+    public void testMessageBodyHandlerRoundTrip() throws Exception {
+        SmileMessageBodyHandler handler = new SmileMessageBodyHandler();
+        Resource r = resource();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handler.writeTo(r, Resource.class, Resource.class, null, SmileJacksonConfig.APPLICATION_JACKSON_SMILE_TYPE,
+                null, out);
+
+        @SuppressWarnings("unchecked")
+        Class<Object> type = (Class<Object>) (Class<?>) Resource.class;
+        Object read = handler.readFrom(type, Resource.class, null, SmileJacksonConfig.APPLICATION_JACKSON_SMILE_TYPE,
+                null, new ByteArrayInputStream(out.toByteArray()));
+
+        ObjectMapper jsonMapper = json.getContext(ObjectMapper.class);
+        Assert.assertEquals(jsonTree(jsonMapper, r), jsonTree(jsonMapper, read));
+    }
+
+    private void testRoundTrip(Class<?> mapperKey, Object value, Class<?> type) throws Exception {
+        ObjectMapper jsonMapper = json.getContext(mapperKey);
+        ObjectMapper smileMapper = smile.getContext(mapperKey);
+
+        JsonNode expected = jsonTree(jsonMapper, value);
+
+        byte[] data = smileMapper.writeValueAsBytes(value);
+
+        //the same structure as in JSON proves that the same serializers were used
+        Assert.assertEquals(expected, smileMapper.readTree(data));
+
+        Object read = smileMapper.readValue(data, type);
+        Assert.assertEquals(expected, jsonTree(jsonMapper, read));
+    }
+
+    private static JsonNode jsonTree(ObjectMapper jsonMapper, Object value) throws Exception {
+        return jsonMapper.readTree(jsonMapper.writeValueAsBytes(value));
+    }
+
+    private static Resource resource() {
+        return new Resource(CanonicalPath.fromString("/t;t/f;f/r;r"), null, null, null,
+                new ResourceType(CanonicalPath.fromString("/t;t/f;f/rt;rt"), null, null, null),
+                Collections.<String, Object>singletonMap("a", "b"));
+    }
+}